@@ -18,6 +18,7 @@ package org.jkiss.dbeaver.ext.firebird;
 
 import org.jkiss.dbeaver.DBException;
 import org.jkiss.dbeaver.Log;
+import org.jkiss.dbeaver.ext.firebird.model.FireBirdFunctionArgument;
 import org.jkiss.dbeaver.ext.firebird.model.FireBirdTrigger;
 import org.jkiss.dbeaver.ext.firebird.model.FireBirdTriggerType;
 import org.jkiss.dbeaver.ext.generic.model.GenericProcedure;
@@ -36,13 +37,17 @@ import org.osgi.framework.Version;
 
 import java.lang.reflect.InvocationTargetException;
 import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import org.jkiss.dbeaver.ext.firebird.model.FirebirdGenericProcedure;
+import org.jkiss.dbeaver.ext.firebird.model.FirebirdPackage;
 import org.jkiss.dbeaver.model.exec.jdbc.JDBCResultSet;
 import org.jkiss.dbeaver.model.impl.jdbc.JDBCUtils;
 
@@ -73,21 +78,55 @@ public class FireBirdUtils {
 
     public static String getFunctionSource(DBRProgressMonitor monitor, FirebirdGenericProcedure function)
             throws DBException {
-        return getFunctionSourceWithHeader(monitor, function, function.getSource());
-        /*try (JDBCSession session = DBUtils.openMetaSession(monitor, function, "Load function source code")) {
-            DatabaseMetaData fbMetaData = session.getOriginal().getMetaData();
-            String source = (String) fbMetaData.getClass().getMethod("getProcedureSourceCode", String.class).invoke(fbMetaData, function.getName());
-            if (CommonUtils.isEmpty(source)) {
+        try (JDBCSession session = DBUtils.openMetaSession(monitor, function, "Load function source code")) {
+            String source = null;
+            try (JDBCPreparedStatement dbStat = session.prepareStatement(
+                    "SELECT RDB$FUNCTION_SOURCE FROM RDB$FUNCTIONS WHERE RDB$FUNCTION_NAME=? AND RDB$PACKAGE_NAME IS NULL")) {
+                dbStat.setString(1, function.getName());
+                try (JDBCResultSet dbResult = dbStat.executeQuery()) {
+                    if (dbResult.next()) {
+                        source = JDBCUtils.safeGetString(dbResult, 1);
+                    }
+                }
+            }
+            if (source == null) {
                 return null;
             }
+            List<FireBirdFunctionArgument> arguments = function.getArguments();
+            if (arguments == null) {
+                arguments = readFunctionArguments(session, function.getName()).get(function.getName());
+            }
+            return getFunctionSourceWithHeader(function, source, arguments);
+        } catch (SQLException e) {
+            throw new DBException("Can't read source code of function '" + function.getName() + "'", e);
+        }
+    }
 
-            return getFunctionSourceWithHeader(monitor, function, source);
+    public static String getPackageSource(DBRProgressMonitor monitor, FirebirdPackage subPackage)
+            throws DBException {
+        String packageName = subPackage.getOwnerPackageName();
+        try (JDBCSession session = DBUtils.openMetaSession(monitor, subPackage, "Load package source code")) {
+            try (JDBCPreparedStatement dbStat = session.prepareStatement(
+                    "SELECT " + (subPackage.isBody() ? "RDB$PACKAGE_BODY_SOURCE" : "RDB$PACKAGE_HEADER_SOURCE") +
+                    ",RDB$DESCRIPTION FROM RDB$PACKAGES WHERE RDB$PACKAGE_NAME=?")) {
+                dbStat.setString(1, packageName);
+                try (JDBCResultSet dbResult = dbStat.executeQuery()) {
+                    if (!dbResult.next()) {
+                        return null;
+                    }
+                    String source = JDBCUtils.safeGetString(dbResult, 1);
+                    if (subPackage.isBody()) {
+                        return "RECREATE PACKAGE BODY " + packageName + "\n"
+                                + "AS\n" + source + ";\n\n";
+                    }
+                    return "CREATE OR ALTER PACKAGE " + packageName + " \nAS\n"
+                            + source + ";\n\n"
+                            + "COMMENT ON PACKAGE " + packageName + " IS '" + JDBCUtils.safeGetString(dbResult, 2) + "';\n";
+                }
+            }
         } catch (SQLException e) {
-            throw new DBException("Can't read source code of procedure '" + function.getName() + "'", e);
-        } catch (Exception e) {
-            log.debug(e);
-            return null;
-        }*/
+            throw new DBException("Can't read source code of package '" + packageName + "'", e);
+        }
     }
 
     public static String getViewSource(DBRProgressMonitor monitor, GenericTableBase view)
@@ -171,12 +210,55 @@ public class FireBirdUtils {
         return sql.toString();
     }
 
-    public static String getFunctionSourceWithHeader(JDBCSession session, DBRProgressMonitor monitor, FirebirdGenericProcedure function, String source) throws DBException, SQLException {
+    public static String getFunctionSourceWithHeader(FirebirdGenericProcedure function, String source, List<FireBirdFunctionArgument> arguments) {
         StringBuilder sql = new StringBuilder();
         StringBuilder sqlret = new StringBuilder();
         sql.append("CREATE OR ALTER FUNCTION ").append(function.getName()).append(" ");
-        // Read metadata
-        try (JDBCPreparedStatement dbStat = session.prepareStatement("select pp.RDB$FUNCTION_NAME, COALESCE(pp.RDB$ARGUMENT_NAME, '') RDB$ARGUMENT_NAME, pp.RDB$ARGUMENT_POSITION, pp.RDB$FIELD_TYPE,\n"
+        if (arguments != null && !arguments.isEmpty()) {
+            FireBirdFunctionArgument first = arguments.get(0);
+            if (first.getPosition() == 0) {
+                sqlret.append(" RETURNS ").append(first.getName()).append(" ").append(first.getTypeName())
+                        .append((function.isDeterministic() ? " DETERMINISTIC" : " "));
+                sql.append("(");
+            } else {
+                sql.append("(").append(first.getName()).append(" ").append(first.getTypeName());
+            }
+            for (int i = 1; i < arguments.size(); i++) {
+                FireBirdFunctionArgument argument = arguments.get(i);
+                sql.append((argument.getPosition() != 1 ? ",\n" : "\n")).append(argument.getName()).append(" ").append(argument.getTypeName());
+            }
+            sql.append(")\n ").append(sqlret);
+        }
+        sql.append("\n AS\n").append(source);
+        if (function.getDescription() != null) {
+            sql.append("\n\nCOMMENT ON FUNCTION " + function.getName() + " IS '" + function.getDescription() + "'\n");
+        }
+        return sql.toString();
+    }
+
+    /**
+     * Reads arguments of the specified standalone function or of all standalone functions
+     * if functionName is null. Arguments are grouped by function name.
+     */
+    public static Map<String, List<FireBirdFunctionArgument>> readFunctionArguments(JDBCSession session, String functionName) throws SQLException {
+        Map<String, List<FireBirdFunctionArgument>> result = new HashMap<>();
+        try (JDBCPreparedStatement dbStat = session.prepareStatement(getFunctionArgumentsQuery(functionName != null))) {
+            if (functionName != null) {
+                dbStat.setString(1, functionName);
+            }
+            try (JDBCResultSet dbResult = dbStat.executeQuery()) {
+                readFunctionArguments(dbResult, result);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Query of standalone function arguments ordered by function name and position.
+     * Single function query has the function name parameter.
+     */
+    public static String getFunctionArgumentsQuery(boolean singleFunction) {
+        return "select pp.RDB$FUNCTION_NAME, COALESCE(pp.RDB$ARGUMENT_NAME, '') RDB$ARGUMENT_NAME, pp.RDB$ARGUMENT_POSITION, pp.RDB$FIELD_TYPE,\n"
                 + "       fs.rdb$field_type, fs.rdb$field_sub_type,\n"
                 + "       fs.rdb$character_length, fs.rdb$field_precision, fs.rdb$field_scale,\n"
                 + "       cr.rdb$character_set_name, co.rdb$collation_name,\n"
@@ -223,86 +305,31 @@ public class FireBirdUtils {
                 + "  left join rdb$collations co\n"
                 + "               on ((pp.rdb$collation_id = co.rdb$collation_id) and\n"
                 + "                   (fs.rdb$character_set_id = co.rdb$character_set_id))\n"
-                + "where pp.RDB$PACKAGE_NAME IS NULL AND pp.RDB$FUNCTION_NAME = ? \n"
-                + "order by pp.RDB$FIELD_TYPE, pp.RDB$ARGUMENT_POSITION"
-        /*"SELECT RDB$FUNCTION_NAME, coalesce(RDB$ARGUMENT_NAME,'$$$') RDB$ARGUMENT_NAME, RDB$ARGUMENT_POSITION, coalesce(RDB$TYPE_NAME,'$$$') RDB$TYPE_NAME, RDB$TYPE "
-                    + "FROM RDB$FUNCTION_ARGUMENTS, RDB$TYPES, RDB$FIELDS WHERE RDB$PACKAGE_NAME IS NULL AND RDB$FUNCTION_NAME = ? " 
-                    + "AND RDB$TYPE=RDB$FIELDS.RDB$FIELD_TYPE AND RDB$FIELD_SOURCE=RDB$FIELDS.RDB$FIELD_NAME AND RDB$TYPES.RDB$FIELD_NAME='RDB$FIELD_TYPE' " 
-                    + "AND RDB$PACKAGE_NAME IS null " 
-                    + "ORDER BY RDB$ARGUMENT_POSITION"*/
-        )) {
-            dbStat.setString(1, function.getName());
-            //dbStat.setString(2, getName());
-            String argname;
-            String argtype;
-            try (JDBCResultSet dbResult = dbStat.executeQuery()) {
-                if (dbResult.next()) {
-                    argname = JDBCUtils.safeGetString(dbResult, "RDB$ARGUMENT_NAME");
-                    argtype = JDBCUtils.safeGetString(dbResult, "argtype");
-                    if (JDBCUtils.safeGetInt(dbResult, "RDB$ARGUMENT_POSITION") == 0) {
-                        sqlret.append(" RETURNS ").append(argname == null ? "" : argname.trim()).append(" ").append(argtype == null ? "" : argtype.trim())
-                                .append((function.isDeterministic() ? " DETERMINISTIC" : " "));
-                        sql.append("(");
-                    } else {
-                        sql.append("(").append(argname == null ? "" : argname.trim()).append(" ").append(argtype == null ? "" : argtype.trim());
-                    }
-                    while (dbResult.next()) {
-	                    argname = JDBCUtils.safeGetString(dbResult, "RDB$ARGUMENT_NAME");
-        	            argtype = JDBCUtils.safeGetString(dbResult, "argtype");
-                        sql.append((JDBCUtils.safeGetInt(dbResult, "RDB$ARGUMENT_POSITION") != 1 ? ",\n" : "\n")).append(argname == null ? "" : argname.trim()).append(" ").append(argtype == null ? "" : argtype.trim());
-                    }
-                    sql.append(")\n ").append(sqlret);
-                }
-            }
-        }
-        sql.append("\n AS\n").append(source);
-        if (function.getDescription() != null) {
-            sql.append("\n\nCOMMENT ON FUNCTION " + function.getName() + " IS '" + function.getDescription() + "'\n");
-        }
-        return sql.toString();
+                + "where pp.RDB$PACKAGE_NAME IS NULL" + (singleFunction ? " AND pp.RDB$FUNCTION_NAME = ?" : "") + "\n"
+                + "order by pp.RDB$FUNCTION_NAME, pp.RDB$FIELD_TYPE, pp.RDB$ARGUMENT_POSITION";
     }
 
-    public static String getFunctionSourceWithHeader(DBRProgressMonitor monitor, FirebirdGenericProcedure function, String source) throws DBException {
-        String ret = "";
-        try (JDBCSession session = DBUtils.openMetaSession(monitor, function.getDataSource(), "Read column domain type")) {
-            ret = getFunctionSourceWithHeader(session, monitor, function, source);
-        } catch (SQLException ex) {
-            throw new DBException("Error reading column domain type", ex);
-        }
-        //Collection<GenericProcedureParameter> parameters = function.getParameters(monitor);
-        /*if (parameters != null && !parameters.isEmpty()) {
-            List<GenericProcedureParameter> args = new ArrayList<>();
-            List<GenericProcedureParameter> results = new ArrayList<>();
-            for (GenericProcedureParameter param : parameters) {
-                if (param.getParameterKind() == DBSProcedureParameterKind.OUT || param.getParameterKind() == DBSProcedureParameterKind.RETURN) {
-                    results.add(param);
-                } else {
-                    args.add(param);
-                }
+    /**
+     * Groups rows of the function arguments query by function name
+     */
+    public static void readFunctionArguments(ResultSet dbResult, Map<String, List<FireBirdFunctionArgument>> result) throws SQLException {
+        while (dbResult.next()) {
+            String name = JDBCUtils.safeGetStringTrimmed(dbResult, "RDB$FUNCTION_NAME");
+            if (name == null) {
+                continue;
             }
-            if (!args.isEmpty()) {
-                sql.append("(");
-                for (int i = 0; i < args.size(); i++) {
-                    GenericProcedureParameter param = args.get(i);
-                    if (i > 0) sql.append(", ");
-                    printParam(sql, param);
-                }
-                sql.append(")\n");
+            String argname = JDBCUtils.safeGetString(dbResult, "RDB$ARGUMENT_NAME");
+            String argtype = JDBCUtils.safeGetString(dbResult, "argtype");
+            List<FireBirdFunctionArgument> arguments = result.get(name);
+            if (arguments == null) {
+                arguments = new ArrayList<>();
+                result.put(name, arguments);
             }
-            if (!results.isEmpty()) {
-                sql.append("RETURNS (\n");
-                for (int i = 0; i < results.size(); i++) {
-                    sql.append('\t');
-                    GenericProcedureParameter param = results.get(i);
-                    printParam(sql, param);
-                    if (i < results.size() - 1) sql.append(",");
-                    sql.append('\n');
-                }
-                sql.append(")\n");
-            }
-        }*/
-
-        return ret;
+            arguments.add(new FireBirdFunctionArgument(
+                    argname == null ? "" : argname.trim(),
+                    argtype == null ? "" : argtype.trim(),
+                    JDBCUtils.safeGetInt(dbResult, "RDB$ARGUMENT_POSITION")));
+        }
     }
 
     private static void printParam(StringBuilder sql, GenericProcedureParameter param) {
@@ -365,6 +392,21 @@ public class FireBirdUtils {
         return plan;
     }
 
+    /**
+     * Reads detailed (explained) plan, supported by Firebird 3+ and Jaybird 3+.
+     * Returns null if the driver can't provide it.
+     */
+    public static String getExplainedPlan(JDBCPreparedStatement statement) {
+        try {
+            return (String) statement.getOriginal().getClass().getMethod("getExplainedExecutionPlan").invoke(statement.getOriginal());
+        } catch (NoSuchMethodException e) {
+            return null;
+        } catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException | SecurityException e) {
+            LOG.debug("Error reading explained plan", e);
+            return null;
+        }
+    }
+
     private static final Pattern VERSION_PATTERN = Pattern.compile(".+\\-V([0-9]+\\.[0-9]+\\.[0-9]+).+");
 
     public static Version getFireBirdServerVersion(DBPDataSource dataSource) {
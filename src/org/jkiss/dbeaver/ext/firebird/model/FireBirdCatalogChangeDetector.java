@@ -0,0 +1,294 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2019 Serge Rider (serge@jkiss.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.ext.firebird.model;
+
+import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
+import org.jkiss.dbeaver.DBException;
+import org.jkiss.dbeaver.ext.firebird.FireBirdUtils;
+import org.jkiss.dbeaver.model.DBUtils;
+import org.jkiss.dbeaver.model.exec.jdbc.JDBCPreparedStatement;
+import org.jkiss.dbeaver.model.exec.jdbc.JDBCResultSet;
+import org.jkiss.dbeaver.model.exec.jdbc.JDBCSession;
+import org.jkiss.dbeaver.model.impl.jdbc.JDBCUtils;
+import org.jkiss.dbeaver.model.runtime.DBRProgressMonitor;
+
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Detects catalog objects changed since the previous check.
+ * Each relation, column, index, constraint, routine, trigger, domain, sequence, exception and package
+ * gets a marker built from system table columns which change on DDL (relation format, object ids,
+ * RDB$VALID_BLR, BLR, source and description lengths).
+ * Markers are read with one query without fetching any BLOB contents.
+ */
+public class FireBirdCatalogChangeDetector {
+
+    static final char KIND_RELATION = 'R';
+    static final char KIND_PROCEDURE = 'P';
+    static final char KIND_FUNCTION = 'F';
+    static final char KIND_TRIGGER = 'T';
+    static final char KIND_DOMAIN = 'D';
+    static final char KIND_PACKAGE = 'K';
+    static final char KIND_COLUMN = 'L';
+    static final char KIND_INDEX = 'I';
+    static final char KIND_CONSTRAINT = 'C';
+    static final char KIND_SEQUENCE = 'G';
+    static final char KIND_EXCEPTION = 'E';
+
+    private static final String SQL_MARKERS_BASE =
+        "SELECT 'R', RDB$RELATION_NAME, CAST(NULL AS VARCHAR(252)), RDB$RELATION_ID, RDB$FORMAT,\n" +
+        "  COALESCE(OCTET_LENGTH(RDB$VIEW_BLR), 0) * 1000003 + COALESCE(OCTET_LENGTH(RDB$DESCRIPTION), 0)\n" +
+        "FROM RDB$RELATIONS\n" +
+        "UNION ALL\n" +
+        // Column rename drops the old marker, so the relation is refreshed as for created columns
+        "SELECT 'L', CAST(TRIM(RDB$RELATION_NAME) || '.' || TRIM(RDB$FIELD_NAME) AS VARCHAR(252)), RDB$RELATION_NAME,\n" +
+        "  RDB$FIELD_POSITION, COALESCE(OCTET_LENGTH(RDB$DESCRIPTION), 0) * 1000003 + COALESCE(OCTET_LENGTH(RDB$DEFAULT_SOURCE), 0), COALESCE(RDB$NULL_FLAG, 0)\n" +
+        "FROM RDB$RELATION_FIELDS WHERE COALESCE(RDB$SYSTEM_FLAG, 0) = 0\n" +
+        "UNION ALL\n" +
+        "SELECT 'I', RDB$INDEX_NAME, RDB$RELATION_NAME,\n" +
+        "  COALESCE(RDB$INDEX_INACTIVE, 0) * 4 + COALESCE(RDB$UNIQUE_FLAG, 0) * 2 + COALESCE(RDB$INDEX_TYPE, 0), RDB$SEGMENT_COUNT,\n" +
+        "  COALESCE(OCTET_LENGTH(RDB$EXPRESSION_SOURCE), 0) * 1000003 + COALESCE(OCTET_LENGTH(RDB$DESCRIPTION), 0)\n" +
+        "FROM RDB$INDICES WHERE COALESCE(RDB$SYSTEM_FLAG, 0) = 0\n" +
+        "UNION ALL\n" +
+        "SELECT 'C', RDB$CONSTRAINT_NAME, RDB$RELATION_NAME,\n" +
+        "  CASE RDB$CONSTRAINT_TYPE WHEN 'PRIMARY KEY' THEN 1 WHEN 'UNIQUE' THEN 2 WHEN 'FOREIGN KEY' THEN 3 WHEN 'CHECK' THEN 4 ELSE 5 END,\n" +
+        "  COALESCE(OCTET_LENGTH(TRIM(RDB$INDEX_NAME)), 0), 0\n" +
+        "FROM RDB$RELATION_CONSTRAINTS\n" +
+        "UNION ALL\n" +
+        "SELECT 'G', RDB$GENERATOR_NAME, NULL, RDB$GENERATOR_ID, COALESCE(OCTET_LENGTH(RDB$DESCRIPTION), 0), 0\n" +
+        "FROM RDB$GENERATORS\n" +
+        "UNION ALL\n" +
+        "SELECT 'E', RDB$EXCEPTION_NAME, NULL, RDB$EXCEPTION_NUMBER, COALESCE(OCTET_LENGTH(RDB$MESSAGE), 0), COALESCE(OCTET_LENGTH(RDB$DESCRIPTION), 0)\n" +
+        "FROM RDB$EXCEPTIONS\n" +
+        "UNION ALL\n" +
+        "SELECT 'T', RDB$TRIGGER_NAME, RDB$RELATION_NAME, RDB$TRIGGER_TYPE * 65536 + RDB$TRIGGER_SEQUENCE, RDB$TRIGGER_INACTIVE, OCTET_LENGTH(RDB$TRIGGER_BLR)\n" +
+        "FROM RDB$TRIGGERS\n" +
+        "UNION ALL\n" +
+        "SELECT 'D', RDB$FIELD_NAME, NULL, RDB$FIELD_TYPE * 65536 + RDB$FIELD_LENGTH, COALESCE(RDB$FIELD_SCALE, 0) * 65536 + COALESCE(RDB$CHARACTER_LENGTH, 0),\n" +
+        "  COALESCE(OCTET_LENGTH(RDB$DEFAULT_SOURCE), 0) + COALESCE(OCTET_LENGTH(RDB$VALIDATION_SOURCE), 0) + COALESCE(RDB$NULL_FLAG, 0)\n" +
+        "FROM RDB$FIELDS WHERE RDB$FIELD_NAME NOT STARTING WITH 'RDB$'\n" +
+        "UNION ALL\n" +
+        // ALTER keeps the routine id, source length catches edits which keep the BLR length
+        "SELECT 'P', RDB$PROCEDURE_NAME, NULL, RDB$PROCEDURE_ID, COALESCE(RDB$VALID_BLR, 0) * 1000003 + COALESCE(OCTET_LENGTH(RDB$DESCRIPTION), 0),\n" +
+        "  COALESCE(OCTET_LENGTH(RDB$PROCEDURE_BLR), 0) * 1000003 + COALESCE(OCTET_LENGTH(RDB$PROCEDURE_SOURCE), 0)\n" +
+        "FROM RDB$PROCEDURES";
+    // Firebird 3+: packaged routines are skipped (they are covered by package markers)
+    private static final String SQL_MARKERS_ROUTINES =
+        " WHERE RDB$PACKAGE_NAME IS NULL\n" +
+        "UNION ALL\n" +
+        "SELECT 'F', RDB$FUNCTION_NAME, NULL, RDB$FUNCTION_ID, COALESCE(RDB$VALID_BLR, 0) * 1000003 + COALESCE(OCTET_LENGTH(RDB$DESCRIPTION), 0),\n" +
+        "  COALESCE(OCTET_LENGTH(RDB$FUNCTION_BLR), 0) * 1000003 + COALESCE(OCTET_LENGTH(RDB$FUNCTION_SOURCE), 0)\n" +
+        "FROM RDB$FUNCTIONS WHERE RDB$PACKAGE_NAME IS NULL\n" +
+        "UNION ALL\n" +
+        "SELECT 'K', RDB$PACKAGE_NAME, NULL, RDB$VALID_BODY_FLAG, OCTET_LENGTH(RDB$PACKAGE_HEADER_SOURCE), OCTET_LENGTH(RDB$PACKAGE_BODY_SOURCE)\n" +
+        "FROM RDB$PACKAGES";
+
+    private static class Marker {
+        final String owner;
+        final long value;
+
+        Marker(String owner, long value) {
+            this.owner = owner;
+            this.value = value;
+        }
+    }
+
+    /**
+     * Result of the change detection
+     */
+    public static class Changes {
+        private final Set<String> alteredRelations = new HashSet<>();
+        private final Map<String, Character> alteredRoutines = new HashMap<>();
+        private final Set<String> dependents = new HashSet<>();
+        private boolean packagesChanged;
+        private boolean fullRefreshRequired;
+
+        /**
+         * Relations with altered structure, comments, columns, indexes, constraints or triggers
+         */
+        public Set<String> getAlteredRelations() {
+            return alteredRelations;
+        }
+
+        /**
+         * Altered standalone procedures and functions (name -> kind)
+         */
+        public Map<String, Character> getAlteredRoutines() {
+            return alteredRoutines;
+        }
+
+        /**
+         * Names of all changed objects (to refresh their dependencies)
+         */
+        public Set<String> getDependents() {
+            return dependents;
+        }
+
+        public boolean isPackagesChanged() {
+            return packagesChanged;
+        }
+
+        /**
+         * Relations, routines, sequences or packages were created or dropped,
+         * or domains, sequences or database triggers changed
+         */
+        public boolean isFullRefreshRequired() {
+            return fullRefreshRequired;
+        }
+    }
+
+    private final FireBirdDataSource dataSource;
+    private Map<String, Marker> markers;
+
+    public FireBirdCatalogChangeDetector(FireBirdDataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    public synchronized boolean hasBaseline() {
+        return markers != null;
+    }
+
+    /**
+     * Remembers the current catalog state
+     */
+    public synchronized void captureBaseline(@NotNull DBRProgressMonitor monitor) throws DBException {
+        markers = readMarkers(monitor);
+    }
+
+    public synchronized void reset() {
+        markers = null;
+    }
+
+    /**
+     * Compares the catalog with the baseline and makes the current state the new baseline.
+     * Returns null if there is no baseline.
+     */
+    @Nullable
+    public synchronized Changes detectChanges(@NotNull DBRProgressMonitor monitor) throws DBException {
+        if (markers == null) {
+            return null;
+        }
+        Map<String, Marker> newMarkers = readMarkers(monitor);
+        Changes changes = new Changes();
+        for (Map.Entry<String, Marker> entry : newMarkers.entrySet()) {
+            Marker oldMarker = markers.get(entry.getKey());
+            if (oldMarker == null) {
+                // Created object
+                addCreatedOrDropped(changes, entry.getKey(), entry.getValue());
+            } else if (oldMarker.value != entry.getValue().value) {
+                addChange(changes, entry.getKey(), entry.getValue());
+            }
+        }
+        for (Map.Entry<String, Marker> entry : markers.entrySet()) {
+            if (!newMarkers.containsKey(entry.getKey())) {
+                // Dropped object
+                addCreatedOrDropped(changes, entry.getKey(), entry.getValue());
+            }
+        }
+        markers = newMarkers;
+        return changes;
+    }
+
+    private static void addCreatedOrDropped(Changes changes, String key, Marker marker) {
+        char kind = key.charAt(0);
+        if (isRelationPart(kind) && marker.owner != null) {
+            // Table triggers, columns, indexes and constraints are reloaded with the table
+            changes.alteredRelations.add(marker.owner);
+            changes.dependents.add(kind == KIND_COLUMN ? marker.owner : key.substring(1));
+        } else if (kind == KIND_EXCEPTION) {
+            // Exceptions are not cached, only their dependents are
+            changes.dependents.add(key.substring(1));
+        } else {
+            // Object lists are cached by the generic model
+            changes.fullRefreshRequired = true;
+        }
+    }
+
+    private static boolean isRelationPart(char kind) {
+        return kind == KIND_TRIGGER || kind == KIND_COLUMN || kind == KIND_INDEX || kind == KIND_CONSTRAINT;
+    }
+
+    private static void addChange(Changes changes, String key, Marker marker) {
+        char kind = key.charAt(0);
+        String name = key.substring(1);
+        changes.dependents.add(kind == KIND_COLUMN ? marker.owner : name);
+        switch (kind) {
+            case KIND_COLUMN:
+            case KIND_INDEX:
+            case KIND_CONSTRAINT:
+                changes.alteredRelations.add(marker.owner);
+                break;
+            case KIND_EXCEPTION:
+                break;
+            case KIND_RELATION:
+                changes.alteredRelations.add(name);
+                break;
+            case KIND_PROCEDURE:
+            case KIND_FUNCTION:
+                changes.alteredRoutines.put(name, kind);
+                break;
+            case KIND_TRIGGER:
+                if (marker.owner == null) {
+                    // Database triggers are cached by the generic model
+                    changes.fullRefreshRequired = true;
+                } else {
+                    changes.alteredRelations.add(marker.owner);
+                }
+                break;
+            case KIND_PACKAGE:
+                changes.packagesChanged = true;
+                break;
+            default:
+                // Domains are used by data type cache which is reloaded only by the full refresh,
+                // recreated sequences are reloaded with the sequence list
+                changes.fullRefreshRequired = true;
+                break;
+        }
+    }
+
+    private Map<String, Marker> readMarkers(DBRProgressMonitor monitor) throws DBException {
+        boolean hasRoutines = FireBirdUtils.getFireBirdServerVersion(dataSource).getMajor() >= 3;
+        Map<String, Marker> result = new HashMap<>();
+        try (JDBCSession session = DBUtils.openMetaSession(monitor, dataSource, "Read catalog change markers")) {
+            try (JDBCPreparedStatement dbStat = session.prepareStatement(
+                    SQL_MARKERS_BASE + (hasRoutines ? SQL_MARKERS_ROUTINES : ""))) {
+                try (JDBCResultSet dbResult = dbStat.executeQuery()) {
+                    while (dbResult.next()) {
+                        String kind = JDBCUtils.safeGetString(dbResult, 1);
+                        String name = JDBCUtils.safeGetStringTrimmed(dbResult, 2);
+                        if (kind == null || name == null) {
+                            continue;
+                        }
+                        long value = JDBCUtils.safeGetLong(dbResult, 4);
+                        value = value * 1000003L + JDBCUtils.safeGetLong(dbResult, 5);
+                        value = value * 1000003L + JDBCUtils.safeGetLong(dbResult, 6);
+                        result.put(kind + name, new Marker(JDBCUtils.safeGetStringTrimmed(dbResult, 3), value));
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new DBException(e, dataSource);
+        }
+        return result;
+    }
+
+}
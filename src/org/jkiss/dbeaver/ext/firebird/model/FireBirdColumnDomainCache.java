@@ -0,0 +1,144 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2019 Serge Rider (serge@jkiss.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.ext.firebird.model;
+
+import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
+import org.jkiss.dbeaver.DBException;
+import org.jkiss.dbeaver.model.DBUtils;
+import org.jkiss.dbeaver.model.exec.jdbc.JDBCPreparedStatement;
+import org.jkiss.dbeaver.model.exec.jdbc.JDBCResultSet;
+import org.jkiss.dbeaver.model.exec.jdbc.JDBCSession;
+import org.jkiss.dbeaver.model.impl.jdbc.JDBCUtils;
+import org.jkiss.dbeaver.model.runtime.DBRProgressMonitor;
+
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Column domains (RDB$RELATION_FIELDS.RDB$FIELD_SOURCE) of all relations.
+ * The whole catalog is read in one scan on first access. Relations invalidated
+ * afterwards (or created after the scan) are re-read one by one.
+ */
+public class FireBirdColumnDomainCache {
+
+    private final FireBirdDataSource dataSource;
+    private final Map<String, Map<String, String>> relationDomains = new HashMap<>();
+    private boolean loaded;
+
+    public FireBirdColumnDomainCache(FireBirdDataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @Nullable
+    public synchronized String getColumnDomain(@NotNull DBRProgressMonitor monitor, @NotNull String relationName, @NotNull String columnName) throws DBException {
+        Map<String, String> domains = relationDomains.get(relationName);
+        if (domains == null) {
+            try (JDBCSession session = DBUtils.openMetaSession(monitor, dataSource, "Read column domains")) {
+                loadDomains(session, loaded ? relationName : null);
+            } catch (SQLException ex) {
+                throw new DBException("Error reading column domains", ex);
+            }
+            domains = relationDomains.get(relationName);
+            if (domains == null) {
+                // Unknown relation (e.g. not yet committed) - do not read it again
+                domains = new HashMap<>();
+                relationDomains.put(relationName, domains);
+            }
+        }
+        return domains.get(columnName);
+    }
+
+    /**
+     * Domains of all relations (reads the whole catalog if it was not read yet)
+     */
+    @NotNull
+    public synchronized Map<String, Map<String, String>> getAllDomains(@NotNull DBRProgressMonitor monitor) throws DBException {
+        if (!loaded) {
+            try (JDBCSession session = DBUtils.openMetaSession(monitor, dataSource, "Read column domains")) {
+                loadDomains(session, null);
+            } catch (SQLException ex) {
+                throw new DBException("Error reading column domains", ex);
+            }
+        }
+        Map<String, Map<String, String>> result = new HashMap<>();
+        for (Map.Entry<String, Map<String, String>> entry : relationDomains.entrySet()) {
+            result.put(entry.getKey(), new HashMap<>(entry.getValue()));
+        }
+        return result;
+    }
+
+    /**
+     * Replaces cached domains with domains of all relations read elsewhere (e.g. from metadata snapshot)
+     */
+    public synchronized void setAllDomains(@NotNull Map<String, Map<String, String>> domains) {
+        relationDomains.clear();
+        relationDomains.putAll(domains);
+        loaded = true;
+    }
+
+    /**
+     * Reads domains of all relations with the specified session if they were not read yet
+     */
+    synchronized void warmUp(@NotNull JDBCSession session) throws SQLException {
+        if (!loaded) {
+            loadDomains(session, null);
+        }
+    }
+
+    public synchronized void invalidate(@NotNull String relationName) {
+        relationDomains.remove(relationName);
+    }
+
+    public synchronized void clear() {
+        relationDomains.clear();
+        loaded = false;
+    }
+
+    /**
+     * Reads domains of the specified relation or of all relations if relationName is null
+     */
+    synchronized void loadDomains(@NotNull JDBCSession session, @Nullable String relationName) throws SQLException {
+        try (JDBCPreparedStatement dbStat = session.prepareStatement(
+                "SELECT RF.RDB$RELATION_NAME, RF.RDB$FIELD_NAME, RF.RDB$FIELD_SOURCE FROM RDB$RELATION_FIELDS RF" +
+                (relationName == null ? "" : " WHERE RF.RDB$RELATION_NAME=?"))) {
+            if (relationName != null) {
+                dbStat.setString(1, relationName);
+            }
+            try (JDBCResultSet dbResult = dbStat.executeQuery()) {
+                while (dbResult.next()) {
+                    String relation = JDBCUtils.safeGetStringTrimmed(dbResult, 1);
+                    String field = JDBCUtils.safeGetStringTrimmed(dbResult, 2);
+                    if (relation == null || field == null) {
+                        continue;
+                    }
+                    Map<String, String> domains = relationDomains.get(relation);
+                    if (domains == null) {
+                        domains = new HashMap<>();
+                        relationDomains.put(relation, domains);
+                    }
+                    domains.put(field, JDBCUtils.safeGetStringTrimmed(dbResult, 3));
+                }
+            }
+        }
+        if (relationName == null) {
+            loaded = true;
+        }
+    }
+
+}
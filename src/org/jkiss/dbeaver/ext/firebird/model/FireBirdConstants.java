@@ -24,4 +24,13 @@ public class FireBirdConstants  {
 
     public static final String CHARSET_OCTETS = "OCTETS";
     public static final String CHARSET_BINARY = "BINARY";
+
+    public static final String PROP_INCREMENTAL_REFRESH = "@dbeaver-firebird-incremental-refresh@";
+    public static final String PROP_WARMUP_THREADS = "@dbeaver-firebird-warmup-threads@";
+    public static final String PROP_PLAN_CACHE_SIZE = "@dbeaver-firebird-plan-cache-size@";
+    public static final String PROP_PLAN_PROFILE = "@dbeaver-firebird-plan-profile@";
+    public static final String PROP_STATISTICS_WINDOW = "@dbeaver-firebird-statistics-window@";
+    public static final String PROP_ACTIVITY_SAMPLER = "@dbeaver-firebird-activity-sampler@";
+    public static final String PROP_TRANSACTION_MONITOR = "@dbeaver-firebird-transaction-monitor@";
+    public static final String PROP_GENERATOR_TRACKER = "@dbeaver-firebird-generator-tracker@";
 }
\ No newline at end of file
@@ -17,12 +17,17 @@
 package org.jkiss.dbeaver.ext.firebird.model;
 
 import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
 import org.jkiss.dbeaver.DBException;
 import org.jkiss.dbeaver.Log;
 import org.jkiss.dbeaver.ext.firebird.model.plan.FireBirdPlanAnalyser;
+import org.jkiss.dbeaver.ext.firebird.model.plan.FireBirdPlanCache;
+import org.jkiss.dbeaver.ext.firebird.model.plan.FireBirdPlanProfiler;
 import org.jkiss.dbeaver.ext.generic.model.GenericDataSource;
+import org.jkiss.dbeaver.ext.generic.model.GenericTableBase;
 import org.jkiss.dbeaver.ext.generic.model.meta.GenericMetaModel;
 import org.jkiss.dbeaver.model.DBPDataSourceContainer;
+import org.jkiss.dbeaver.model.DBPRefreshableObject;
 import org.jkiss.dbeaver.model.DBUtils;
 import org.jkiss.dbeaver.model.exec.DBCSession;
 import org.jkiss.dbeaver.model.exec.jdbc.JDBCPreparedStatement;
@@ -33,13 +38,17 @@ import org.jkiss.dbeaver.model.exec.plan.DBCPlanStyle;
 import org.jkiss.dbeaver.model.exec.plan.DBCQueryPlanner;
 import org.jkiss.dbeaver.model.impl.jdbc.JDBCUtils;
 import org.jkiss.dbeaver.model.runtime.DBRProgressMonitor;
+import org.jkiss.dbeaver.model.struct.DBSObject;
+import org.jkiss.utils.CommonUtils;
 import org.jkiss.utils.IntKeyMap;
 
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.jkiss.dbeaver.ext.generic.model.GenericFunctionResultType;
 import org.jkiss.dbeaver.ext.generic.model.GenericPackage;
 import org.jkiss.dbeaver.ext.generic.model.GenericProcedure;
@@ -69,6 +78,20 @@ public class FireBirdDataSource extends GenericDataSource
     }
 
     private final Map<String, IntKeyMap<MetaFieldInfo>> metaFields = new HashMap<>();
+    private final FireBirdColumnDomainCache columnDomainCache = new FireBirdColumnDomainCache(this);
+    private final FireBirdTriggerCache triggerCache = new FireBirdTriggerCache(this);
+    private final FireBirdDependencyGraph dependencyGraph = new FireBirdDependencyGraph(this);
+    private final FireBirdTableEstimateCache tableEstimateCache = new FireBirdTableEstimateCache(this);
+    private final FireBirdIndexStatisticsCache indexStatisticsCache = new FireBirdIndexStatisticsCache(tableEstimateCache);
+    private FireBirdPlanCache planCache;
+    private final FireBirdCatalogChangeDetector changeDetector = new FireBirdCatalogChangeDetector(this);
+    private List<GenericPackage> packages;
+    private FireBirdMetadataSnapshot metadataSnapshot;
+    private FireBirdStatisticsJob statisticsJob;
+    private FireBirdMonitorSampler monitorSampler;
+    private FireBirdTransactionGapMonitor transactionGapMonitor;
+    private FireBirdGeneratorTracker generatorTracker;
+    private final AtomicInteger sequenceValuesEpoch = new AtomicInteger();
 
     public FireBirdDataSource(DBRProgressMonitor monitor, DBPDataSourceContainer container, GenericMetaModel metaModel)
             throws DBException {
@@ -86,46 +109,227 @@ public class FireBirdDataSource extends GenericDataSource
         return null;
     }
 
+    public FireBirdColumnDomainCache getColumnDomainCache() {
+        return columnDomainCache;
+    }
+
+    public FireBirdTriggerCache getTriggerCache() {
+        return triggerCache;
+    }
+
+    public FireBirdDependencyGraph getDependencyGraph() {
+        return dependencyGraph;
+    }
+
+    public FireBirdIndexStatisticsCache getIndexStatisticsCache() {
+        return indexStatisticsCache;
+    }
+
+    public FireBirdTableEstimateCache getTableEstimateCache() {
+        return tableEstimateCache;
+    }
+
+    @NotNull
+    public synchronized FireBirdPlanCache getPlanCache() {
+        if (planCache == null) {
+            planCache = new FireBirdPlanCache(CommonUtils.toInt(
+                getContainer().getConnectionConfiguration().getProviderProperty(FireBirdConstants.PROP_PLAN_CACHE_SIZE),
+                FireBirdPlanCache.DEFAULT_SIZE));
+        }
+        return planCache;
+    }
+
+    /**
+     * Sequence last values read in an older epoch are read again
+     */
+    int getSequenceValuesEpoch() {
+        return sequenceValuesEpoch.get();
+    }
+
+    void invalidateSequenceValues() {
+        sequenceValuesEpoch.incrementAndGet();
+    }
+
+    @Nullable
+    public FireBirdMetadataSnapshot getMetadataSnapshot() {
+        return metadataSnapshot;
+    }
+
+    /**
+     * Background index statistics update (null if maintenance window is not configured)
+     */
+    @Nullable
+    public FireBirdStatisticsJob getStatisticsJob() {
+        return statisticsJob;
+    }
+
+    /**
+     * Server activity sampler (null if it is disabled in the connection properties)
+     */
+    @Nullable
+    public FireBirdMonitorSampler getMonitorSampler() {
+        return monitorSampler;
+    }
+
+    /**
+     * Transaction gap monitor (null if it is disabled in the connection properties)
+     */
+    @Nullable
+    public FireBirdTransactionGapMonitor getTransactionGapMonitor() {
+        return transactionGapMonitor;
+    }
+
+    /**
+     * Generator consumption tracker (null if it is disabled in the connection properties)
+     */
+    @Nullable
+    public FireBirdGeneratorTracker getGeneratorTracker() {
+        return generatorTracker;
+    }
+
     @Override
     public void initialize(@NotNull DBRProgressMonitor monitor) throws DBException {
         // Read metadata
         try (JDBCSession session = DBUtils.openMetaSession(monitor, this, "Read generic metadata")) {
-            // Read metadata
-            try (JDBCPreparedStatement dbStat = session.prepareStatement("SELECT * FROM RDB$TYPES")) {
-                monitor.subTask("Load FireBird types");
-                try (JDBCResultSet dbResult = dbStat.executeQuery()) {
-                    while (dbResult.next()) {
-                        if (monitor.isCanceled()) {
-                            break;
-                        }
-                        String fieldName = JDBCUtils.safeGetString(dbResult, "RDB$FIELD_NAME");
-                        if (fieldName == null) {
-                            continue;
-                        }
-                        fieldName = fieldName.trim();
-                        int fieldType = JDBCUtils.safeGetInt(dbResult, "RDB$TYPE");
-                        String typeName = JDBCUtils.safeGetString(dbResult, "RDB$TYPE_NAME");
-                        if (typeName == null) {
-                            continue;
-                        }
-                        typeName = typeName.trim();
-                        String fieldDescription = JDBCUtils.safeGetString(dbResult, "RDB$SYSTEM_FLAG");
-                        IntKeyMap<MetaFieldInfo> metaFieldsLocal = this.metaFields.get(fieldName);
-                        if (metaFieldsLocal == null) {
-                            metaFieldsLocal = new IntKeyMap<>();
-                            this.metaFields.put(fieldName, metaFieldsLocal);
+            metadataSnapshot = FireBirdMetadataSnapshot.open(session);
+            if (metadataSnapshot != null && metadataSnapshot.isValid()) {
+                for (FireBirdMetadataSnapshot.TypeInfo type : metadataSnapshot.getTypes()) {
+                    addMetaField(type.fieldName, type.type, type.typeName, type.description);
+                }
+            } else {
+                List<FireBirdMetadataSnapshot.TypeInfo> types = new ArrayList<>();
+                try (JDBCPreparedStatement dbStat = session.prepareStatement("SELECT RDB$FIELD_NAME, RDB$TYPE, RDB$TYPE_NAME, RDB$SYSTEM_FLAG FROM RDB$TYPES")) {
+                    monitor.subTask("Load FireBird types");
+                    try (JDBCResultSet dbResult = dbStat.executeQuery()) {
+                        while (dbResult.next()) {
+                            if (monitor.isCanceled()) {
+                                break;
+                            }
+                            String fieldName = JDBCUtils.safeGetString(dbResult, "RDB$FIELD_NAME");
+                            if (fieldName == null) {
+                                continue;
+                            }
+                            fieldName = fieldName.trim();
+                            int fieldType = JDBCUtils.safeGetInt(dbResult, "RDB$TYPE");
+                            String typeName = JDBCUtils.safeGetString(dbResult, "RDB$TYPE_NAME");
+                            if (typeName == null) {
+                                continue;
+                            }
+                            typeName = typeName.trim();
+                            String fieldDescription = JDBCUtils.safeGetString(dbResult, "RDB$SYSTEM_FLAG");
+                            addMetaField(fieldName, fieldType, typeName, fieldDescription);
+                            types.add(new FireBirdMetadataSnapshot.TypeInfo(fieldName, fieldType, typeName, fieldDescription));
                         }
-                        metaFieldsLocal.put(fieldType, new MetaFieldInfo(fieldType, typeName, fieldDescription));
                     }
                 }
+                if (metadataSnapshot != null && !monitor.isCanceled()) {
+                    metadataSnapshot.setTypes(types);
+                }
             }
 
         } catch (SQLException ex) {
             LOG.error("Error reading FB metadata", ex);
         }
 
-        // Init
+        // Init. Domain types are read from the snapshot if it is valid
         super.initialize(monitor);
+
+        if (metadataSnapshot != null) {
+            if (metadataSnapshot.isValid()) {
+                columnDomainCache.setAllDomains(metadataSnapshot.getColumnDomains());
+            } else if (metadataSnapshot.getTypes() != null && metadataSnapshot.getDomains() != null) {
+                metadataSnapshot.setColumnDomains(columnDomainCache.getAllDomains(monitor));
+                metadataSnapshot.save();
+            }
+        }
+
+        int warmUpThreads = CommonUtils.toInt(
+                getContainer().getConnectionConfiguration().getProviderProperty(FireBirdConstants.PROP_WARMUP_THREADS));
+        if (warmUpThreads > 0) {
+            new FireBirdMetadataWarmUp(this, warmUpThreads).run(monitor);
+        }
+
+        if (isIncrementalRefresh()) {
+            try {
+                changeDetector.captureBaseline(monitor);
+            } catch (DBException e) {
+                LOG.debug("Can't read catalog change markers", e);
+                changeDetector.reset();
+            }
+        }
+
+        // Datasource refresh runs initialize again: background jobs started by the first call are kept
+        String statisticsWindow = getContainer().getConnectionConfiguration().getProviderProperty(FireBirdConstants.PROP_STATISTICS_WINDOW);
+        if (statisticsJob == null && !CommonUtils.isEmpty(statisticsWindow)) {
+            statisticsJob = FireBirdStatisticsJob.create(this, statisticsWindow);
+            if (statisticsJob == null) {
+                LOG.warn("Invalid index statistics maintenance window: " + statisticsWindow);
+            } else {
+                statisticsJob.start();
+            }
+        }
+
+        if (monitorSampler == null && CommonUtils.toBoolean(getContainer().getConnectionConfiguration().getProviderProperty(FireBirdConstants.PROP_ACTIVITY_SAMPLER))) {
+            monitorSampler = new FireBirdMonitorSampler(this, FireBirdMonitorSampler.DEFAULT_HISTORY_SIZE);
+            monitorSampler.start();
+        }
+
+        if (transactionGapMonitor == null && CommonUtils.toBoolean(getContainer().getConnectionConfiguration().getProviderProperty(FireBirdConstants.PROP_TRANSACTION_MONITOR))) {
+            transactionGapMonitor = new FireBirdTransactionGapMonitor(this);
+            transactionGapMonitor.start();
+        }
+
+        if (generatorTracker == null && CommonUtils.toBoolean(getContainer().getConnectionConfiguration().getProviderProperty(FireBirdConstants.PROP_GENERATOR_TRACKER))) {
+            generatorTracker = new FireBirdGeneratorTracker(this, FireBirdGeneratorTracker.DEFAULT_HISTORY_SIZE);
+            generatorTracker.start();
+        }
+    }
+
+    @Override
+    public void shutdown(DBRProgressMonitor monitor) {
+        if (statisticsJob != null) {
+            statisticsJob.stop();
+            statisticsJob = null;
+        }
+        if (monitorSampler != null) {
+            monitorSampler.stop();
+            monitorSampler = null;
+        }
+        if (transactionGapMonitor != null) {
+            transactionGapMonitor.stop();
+            transactionGapMonitor = null;
+        }
+        if (generatorTracker != null) {
+            generatorTracker.stop();
+            generatorTracker = null;
+        }
+        tableEstimateCache.stop();
+        super.shutdown(monitor);
+    }
+
+    /**
+     * Refresh reloads only objects changed since the previous load
+     */
+    public boolean isIncrementalRefresh() {
+        return CommonUtils.toBoolean(
+                getContainer().getConnectionConfiguration().getProviderProperty(FireBirdConstants.PROP_INCREMENTAL_REFRESH));
+    }
+
+    /**
+     * Explain executes the query and shows its runtime profile beside the plan
+     */
+    public boolean isPlanProfiling() {
+        return CommonUtils.toBoolean(
+                getContainer().getConnectionConfiguration().getProviderProperty(FireBirdConstants.PROP_PLAN_PROFILE));
+    }
+
+    private void addMetaField(String fieldName, int fieldType, String typeName, String fieldDescription) {
+        IntKeyMap<MetaFieldInfo> metaFieldsLocal = this.metaFields.get(fieldName);
+        if (metaFieldsLocal == null) {
+            metaFieldsLocal = new IntKeyMap<>();
+            this.metaFields.put(fieldName, metaFieldsLocal);
+        }
+        metaFieldsLocal.put(fieldType, new MetaFieldInfo(fieldType, typeName, fieldDescription));
     }
 
     /*@Override
@@ -183,99 +387,197 @@ public class FireBirdDataSource extends GenericDataSource
         return result;
     }*/
     @Override
-    public Collection<GenericPackage> getPackages(DBRProgressMonitor monitor)
+    public synchronized Collection<GenericPackage> getPackages(DBRProgressMonitor monitor)
             throws DBException {
-        ArrayList<GenericPackage> result = new ArrayList<>();
+        if (packages == null) {
+            List<GenericPackage> result = loadPackages(monitor);
+            if (monitor.isCanceled()) {
+                // Partially loaded tree is not cached
+                return result;
+            }
+            packages = result;
+        }
+        return packages;
+    }
 
+    private List<GenericPackage> loadPackages(DBRProgressMonitor monitor) throws DBException {
         try (JDBCSession session = DBUtils.openMetaSession(monitor, this, "Read packages info")) {
-            // Read metadata
-            try (JDBCPreparedStatement dbStat = session.prepareStatement("SELECT RDB$PACKAGE_NAME,RDB$PACKAGE_HEADER_SOURCE,RDB$PACKAGE_BODY_SOURCE,RDB$VALID_BODY_FLAG,RDB$SECURITY_CLASS,RDB$OWNER_NAME,RDB$SYSTEM_FLAG,RDB$DESCRIPTION FROM RDB$PACKAGES")) {
-                //dbStat.setString(1, getTable().getName());
-                //dbStat.setString(2, getName());
+            return loadPackages(session, monitor);
+        } catch (SQLException ex) {
+            throw new DBException("Error packages info", ex);
+        }
+    }
+
+    private List<GenericPackage> loadPackages(JDBCSession session, DBRProgressMonitor monitor) throws SQLException {
+        List<GenericPackage> result = new ArrayList<>();
+        Map<String, FirebirdPackage> headers = new HashMap<>();
+        Map<String, FirebirdPackage> bodies = new HashMap<>();
+
+        // Package sources are read on demand (see FirebirdPackage)
+        try (JDBCPreparedStatement dbStat = session.prepareStatement("SELECT RDB$PACKAGE_NAME,RDB$VALID_BODY_FLAG,RDB$SECURITY_CLASS,RDB$OWNER_NAME,RDB$SYSTEM_FLAG,RDB$DESCRIPTION FROM RDB$PACKAGES")) {
+            try (JDBCResultSet dbResult = dbStat.executeQuery()) {
+                while (dbResult.next()) {
+                    String packageName = JDBCUtils.safeGetStringTrimmed(dbResult, 1);
+                    String description = JDBCUtils.safeGetString(dbResult, "RDB$DESCRIPTION");
+
+                    GenericPackage gp = new GenericPackage(this, packageName, false);
+                    result.add(gp);
+                    FirebirdPackage gph = new FirebirdPackage(this, "HEADER", packageName, false);
+                    gp.addPackage(gph);
+                    headers.put(packageName, gph);
+                    FirebirdPackage gpb = new FirebirdPackage(this, "BODY", packageName, true);
+                    gp.addPackage(gpb);
+                    bodies.put(packageName, gpb);
+
+                    FirebirdGenericProcedure gpp = new FirebirdGenericProcedure(gp, "HEADER", "", description, DBSProcedureType.UNKNOWN, GenericFunctionResultType.UNKNOWN);
+                    gpp.setSourcePackage(gph);
+                    gp.addProcedure(gpp);
+                    FirebirdGenericProcedure gpp1 = new FirebirdGenericProcedure(gp, "BODY", "", description, DBSProcedureType.UNKNOWN, GenericFunctionResultType.UNKNOWN);
+                    gpp1.setSourcePackage(gpb);
+                    gp.addProcedure(gpp1);
+                }
+            }
+        }
+        if (!result.isEmpty()) {
+            // Members of all packages in one pass. Private routines are declared in the body only
+            try (JDBCPreparedStatement dbStat = session.prepareStatement(
+                    "SELECT RDB$PACKAGE_NAME, RDB$PROCEDURE_NAME AS ROUTINE_NAME, RDB$DESCRIPTION, RDB$PRIVATE_FLAG, 'P' AS ROUTINE_TYPE\n"
+                    + "FROM RDB$PROCEDURES WHERE RDB$PACKAGE_NAME IS NOT NULL\n"
+                    + "UNION ALL\n"
+                    + "SELECT RDB$PACKAGE_NAME, RDB$FUNCTION_NAME, RDB$DESCRIPTION, RDB$PRIVATE_FLAG, 'F'\n"
+                    + "FROM RDB$FUNCTIONS WHERE RDB$PACKAGE_NAME IS NOT NULL\n"
+                    + "ORDER BY 1, 2")) {
                 try (JDBCResultSet dbResult = dbStat.executeQuery()) {
                     while (dbResult.next()) {
-                        GenericPackage gp = new GenericPackage(this, JDBCUtils.safeGetStringTrimmed(dbResult, 1) /*"PACKAGES"*/, false);
-                        result.add(gp);
-                        FirebirdPackage gph = new FirebirdPackage(this, "HEADER", false, "CREATE OR ALTER PACKAGE " + JDBCUtils.safeGetStringTrimmed(dbResult, 1) + " \nAS\n"
-                                + JDBCUtils.safeGetString(dbResult, "RDB$PACKAGE_HEADER_SOURCE") + ";\n\n"
-                                + "COMMENT ON PACKAGE " + JDBCUtils.safeGetStringTrimmed(dbResult, 1) + " IS '" + JDBCUtils.safeGetString(dbResult, "RDB$DESCRIPTION") + "';\n");
-                        gp.addPackage(gph);
-                        FirebirdPackage gpb = new FirebirdPackage(this, "BODY", false,
-                                "RECREATE PACKAGE BODY " + JDBCUtils.safeGetStringTrimmed(dbResult, 1) + "\n"
-                                + "AS\n" + JDBCUtils.safeGetString(dbResult, "RDB$PACKAGE_BODY_SOURCE") + ";\n\n");
-                        gp.addPackage(gpb);
-
-                        //LOG.info(dbResult+" "+JDBCUtils.safeGetString(dbResult, 1));
-                        GenericProcedure gpp = new GenericProcedure(gp, /*JDBCUtils.safeGetString(dbResult, 1).trim() + */ "HEADER", JDBCUtils.safeGetString(dbResult, "RDB$PACKAGE_HEADER_SOURCE") + "\n" + JDBCUtils.safeGetString(dbResult, "RDB$PACKAGE_BODY_SOURCE"), JDBCUtils.safeGetString(dbResult, "RDB$DESCRIPTION"), DBSProcedureType.UNKNOWN, GenericFunctionResultType.UNKNOWN);
-                        gpp.setSource(
-                                "CREATE OR ALTER PACKAGE " + JDBCUtils.safeGetStringTrimmed(dbResult, 1) + " \nAS\n"
-                                + JDBCUtils.safeGetString(dbResult, "RDB$PACKAGE_HEADER_SOURCE") + ";\n\n"/*\n\nRECREATE PACKAGE BODY "+JDBCUtils.safeGetString(dbResult, 1).trim()+"\n" +
-                            "AS\n"+JDBCUtils.safeGetString(dbResult, "RDB$PACKAGE_BODY_SOURCE")+";\n\n"*/
-                                + "COMMENT ON PACKAGE " + JDBCUtils.safeGetStringTrimmed(dbResult, 1) + " IS '" + JDBCUtils.safeGetString(dbResult, "RDB$DESCRIPTION") + "';\n"
-                        );
-                        gp.addProcedure(gpp);
-                        GenericProcedure gpp1 = new GenericProcedure(gp, /*JDBCUtils.safeGetString(dbResult, 1).trim()+*/ "BODY",
-                                /*JDBCUtils.safeGetString(dbResult, "RDB$PACKAGE_HEADER_SOURCE")+"\n"+JDBCUtils.safeGetString(dbResult, "RDB$PACKAGE_BODY_SOURCE")*/ "", JDBCUtils.safeGetString(dbResult, "RDB$DESCRIPTION"), DBSProcedureType.UNKNOWN, GenericFunctionResultType.UNKNOWN);
-                        gpp1.setSource(
-                                /*"CREATE OR ALTER PACKAGE "+JDBCUtils.safeGetString(dbResult, 1).trim()+" \nAS\n" 
-                                + JDBCUtils.safeGetString(dbResult, "RDB$PACKAGE_HEADER_SOURCE")+";\n\n"+*/"RECREATE PACKAGE BODY " + JDBCUtils.safeGetStringTrimmed(dbResult, 1) + "\n"
-                                + "AS\n" + JDBCUtils.safeGetString(dbResult, "RDB$PACKAGE_BODY_SOURCE") + ";\n\n"
-                        //+ "COMMENT ON PACKAGE "+JDBCUtils.safeGetString(dbResult, 1).trim()+" IS '"+JDBCUtils.safeGetString(dbResult, "RDB$DESCRIPTION")+"';\n"
-                        );
-                        gp.addProcedure(gpp1);
-                        //result.add(gpc);
-                    }
-                }
-
-                //try (JDBCSession sessionp = DBUtils.openUtilSession(monitor, this, "Read procs info")) {
-                for (GenericPackage gp : result) {
-                    GenericProcedure gpp;
-                    for (GenericPackage gpb : gp.getPackages(monitor)) //if(gp.getName().equals("BODY"))
-                    {
-                        try (JDBCPreparedStatement dbStatp = session.prepareStatement(
-                                "SELECT "
-                                + "RDB$PROCEDURE_NAME,RDB$PROCEDURE_ID,RDB$PROCEDURE_INPUTS,RDB$PROCEDURE_OUTPUTS,RDB$DESCRIPTION,RDB$PROCEDURE_SOURCE,RDB$PROCEDURE_BLR,RDB$SECURITY_CLASS,RDB$OWNER_NAME,RDB$RUNTIME,RDB$SYSTEM_FLAG,RDB$PROCEDURE_TYPE,RDB$VALID_BLR,RDB$DEBUG_INFO,RDB$ENGINE_NAME,RDB$ENTRYPOINT,RDB$PACKAGE_NAME,RDB$PRIVATE_FLAG "
-                                + " FROM RDB$PROCEDURES WHERE RDB$PACKAGE_NAME = ?"
-                        )) {
-                            dbStatp.setString(1, gp.getName());
-                            try (JDBCResultSet dbResultp = dbStatp.executeQuery()) {
-                                if (dbResultp.next()) {
-                                    gpp = new GenericProcedure(gpb, JDBCUtils.safeGetStringTrimmed(dbResultp, 1), JDBCUtils.safeGetStringTrimmed(dbResultp, 1), JDBCUtils.safeGetString(dbResultp, "RDB$DESCRIPTION"), DBSProcedureType.PROCEDURE, GenericFunctionResultType.UNKNOWN);
-                                    gpp.setSource(((FirebirdPackage) gpb).getSource());
-                                    gpb.addProcedure(gpp);
-                                    //LOG.info(JDBCUtils.safeGetStringTrimmed(dbResultp, 1));
-                                }
-                            }
-                            //}
+                        if (monitor.isCanceled()) {
+                            break;
                         }
-                        try (JDBCPreparedStatement dbStatp = session.prepareStatement(
-                                "SELECT "
-                                + "RDB$FUNCTION_NAME,RDB$FUNCTION_TYPE,RDB$QUERY_NAME,RDB$DESCRIPTION,RDB$MODULE_NAME,RDB$ENTRYPOINT,RDB$RETURN_ARGUMENT,RDB$SYSTEM_FLAG,RDB$ENGINE_NAME,RDB$PACKAGE_NAME,RDB$PRIVATE_FLAG,RDB$FUNCTION_SOURCE,RDB$FUNCTION_ID,RDB$FUNCTION_BLR,RDB$VALID_BLR,RDB$DEBUG_INFO,RDB$SECURITY_CLASS,RDB$OWNER_NAME,RDB$LEGACY_FLAG,RDB$DETERMINISTIC_FLAG "
-                                + " FROM RDB$FUNCTIONS WHERE RDB$PACKAGE_NAME = ?"
-                        )) {
-                            dbStatp.setString(1, gp.getName());
-                            try (JDBCResultSet dbResultp = dbStatp.executeQuery()) {
-                                if (dbResultp.next()) {
-                                    gpp = new GenericProcedure(gpb, JDBCUtils.safeGetStringTrimmed(dbResultp, 1), JDBCUtils.safeGetStringTrimmed(dbResultp, 1), JDBCUtils.safeGetString(dbResultp, "RDB$DESCRIPTION"), DBSProcedureType.FUNCTION, GenericFunctionResultType.UNKNOWN);
-                                    gpp.setSource(((FirebirdPackage) gpb).getSource());
-                                    gpb.addProcedure(gpp);
-                                    //LOG.info(JDBCUtils.safeGetStringTrimmed(dbResultp, 1));
-                                }
-                            }
-                            //}
+                        String packageName = JDBCUtils.safeGetStringTrimmed(dbResult, 1);
+                        String routineName = JDBCUtils.safeGetStringTrimmed(dbResult, 2);
+                        String description = JDBCUtils.safeGetString(dbResult, 3);
+                        boolean isPrivate = JDBCUtils.safeGetInt(dbResult, 4) == 1;
+                        DBSProcedureType routineType = "F".equals(JDBCUtils.safeGetString(dbResult, 5)) ?
+                                DBSProcedureType.FUNCTION : DBSProcedureType.PROCEDURE;
+                        if (!isPrivate) {
+                            addPackageRoutine(headers.get(packageName), routineName, description, routineType);
                         }
+                        addPackageRoutine(bodies.get(packageName), routineName, description, routineType);
                     }
                 }
-
-            } catch (SQLException ex) {
-                throw new DBException("Error packages info", ex);
             }
         }
 
-        //return structureContainer == null ? null : structureContainer.getPackages(monitor);
         return result;
     }
 
+    /**
+     * Reads packages with the specified session (used by parallel metadata warm-up)
+     */
+    void warmUpPackages(JDBCSession session, DBRProgressMonitor monitor) throws SQLException {
+        synchronized (this) {
+            if (packages != null) {
+                return;
+            }
+        }
+        List<GenericPackage> result = loadPackages(session, monitor);
+        synchronized (this) {
+            if (packages == null && !monitor.isCanceled()) {
+                packages = result;
+            }
+        }
+    }
+
+    private static void addPackageRoutine(FirebirdPackage subPackage, String routineName, String description, DBSProcedureType routineType) {
+        if (subPackage == null || routineName == null) {
+            return;
+        }
+        FirebirdGenericProcedure routine = new FirebirdGenericProcedure(subPackage, routineName, routineName, description, routineType, GenericFunctionResultType.UNKNOWN);
+        routine.setSourcePackage(subPackage);
+        subPackage.addProcedure(routine);
+    }
+
+    @Override
+    public DBSObject refreshObject(@NotNull DBRProgressMonitor monitor) throws DBException {
+        if (isIncrementalRefresh() && changeDetector.hasBaseline()) {
+            try {
+                FireBirdCatalogChangeDetector.Changes changes = changeDetector.detectChanges(monitor);
+                if (changes != null && !changes.isFullRefreshRequired()) {
+                    refreshChangedObjects(monitor, changes);
+                    return this;
+                }
+            } catch (DBException e) {
+                LOG.debug("Incremental refresh failed, reloading the whole catalog", e);
+            }
+        }
+        changeDetector.reset();
+        if (metadataSnapshot != null) {
+            // Catalog is re-read and the snapshot is written again
+            metadataSnapshot.delete();
+            metadataSnapshot = null;
+        }
+        columnDomainCache.clear();
+        triggerCache.clear();
+        dependencyGraph.clear();
+        if (generatorTracker != null) {
+            generatorTracker.resetTargets();
+        }
+        tableEstimateCache.invalidate();
+        synchronized (this) {
+            packages = null;
+        }
+        invalidateRuntimeCaches();
+        return super.refreshObject(monitor);
+    }
+
+    /**
+     * Drops cached plans, index statistics and sequence values. They are not covered by catalog
+     * change markers (statistics, data and sequence values change without DDL).
+     */
+    private void invalidateRuntimeCaches() {
+        indexStatisticsCache.clear();
+        invalidateSequenceValues();
+        synchronized (this) {
+            if (planCache != null) {
+                planCache.clear();
+            }
+        }
+    }
+
+    private void refreshChangedObjects(@NotNull DBRProgressMonitor monitor, @NotNull FireBirdCatalogChangeDetector.Changes changes) throws DBException {
+        invalidateRuntimeCaches();
+        for (String dependent : changes.getDependents()) {
+            dependencyGraph.invalidate(dependent);
+        }
+        for (String relationName : changes.getAlteredRelations()) {
+            GenericTableBase table = getTable(monitor, relationName);
+            if (table != null) {
+                // Table refresh also drops its cached domains and triggers
+                table.refreshObject(monitor);
+            } else {
+                columnDomainCache.invalidate(relationName);
+                triggerCache.invalidate(relationName);
+            }
+        }
+        for (String routineName : changes.getAlteredRoutines().keySet()) {
+            GenericProcedure routine = getProcedure(monitor, routineName);
+            if (routine instanceof FirebirdGenericProcedure) {
+                ((FirebirdGenericProcedure) routine).setArguments(null);
+                ((FirebirdGenericProcedure) routine).setCachedDDL(null);
+            }
+            if (routine != null) {
+                routine.setSource(null);
+                if (routine instanceof DBPRefreshableObject) {
+                    ((DBPRefreshableObject) routine).refreshObject(monitor);
+                }
+            }
+        }
+        if (changes.isPackagesChanged()) {
+            synchronized (this) {
+                packages = null;
+            }
+        }
+    }
+
     @NotNull
     @Override
     public FireBirdDataSource getDataSource() {
@@ -284,6 +586,11 @@ public class FireBirdDataSource extends GenericDataSource
 
     @Override
     public DBCPlan planQueryExecution(DBCSession session, String query) throws DBException {
+        if (isPlanProfiling()) {
+            FireBirdPlanProfiler profiler = new FireBirdPlanProfiler(this, query);
+            profiler.profile(session.getProgressMonitor());
+            return profiler;
+        }
         FireBirdPlanAnalyser plan = new FireBirdPlanAnalyser(this, (JDBCSession) session, query);
         plan.explain();
         return plan;
@@ -59,52 +59,29 @@ public class FireBirdDataTypeCache extends JDBCBasicDataTypeCache<GenericStructC
         }
 
         try {
-            try (JDBCSession session = DBUtils.openMetaSession(monitor, dataSource, "Load FireBird domain types")) {
-                try (JDBCPreparedStatement dbStat = session.prepareStatement(
-                        "SELECT F.* FROM RDB$FIELDS F ORDER BY RDB$FIELD_NAME")) {
-                    monitor.subTask("Load FireBird domain types");
-                    try (JDBCResultSet dbResult = dbStat.executeQuery()) {
-                        while (dbResult.next()) {
-                            if (monitor.isCanceled()) {
-                                break;
-                            }
-                            String typeName = JDBCUtils.safeGetString(dbResult, "RDB$FIELD_NAME");
-                            if (typeName == null) {
-                                continue;
-                            }
-                            int fieldLength = JDBCUtils.safeGetInt(dbResult, "RDB$FIELD_LENGTH");
-                            int fieldScale = JDBCUtils.safeGetInt(dbResult, "RDB$FIELD_SCALE");
-                            int fieldPrecision = JDBCUtils.safeGetInt(dbResult, "RDB$FIELD_PRECISION");
-                            int fieldType = JDBCUtils.safeGetInt(dbResult, "RDB$FIELD_TYPE");
-                            int fieldSubType = JDBCUtils.safeGetInt(dbResult, "RDB$FIELD_SUB_TYPE");
-                            int charLength = JDBCUtils.safeGetInt(dbResult, "RDB$CHARACTER_LENGTH");
-                            int collationId = JDBCUtils.safeGetInt(dbResult, "RDB$COLLATION_ID");
-                            int charsetId = JDBCUtils.safeGetInt(dbResult, "RDB$CHARACTER_SET_ID");
-                            String validationSource = JDBCUtils.safeGetString(dbResult, "RDB$VALIDATION_SOURCE");
-                            String computedSource = JDBCUtils.safeGetString(dbResult, "RDB$COMPUTED_SOURCE");
-                            String typeDescription = JDBCUtils.safeGetString(dbResult, "RDB$DESCRIPTION");
-                            String defaultSource = JDBCUtils.safeGetString(dbResult, "RDB$DEFAULT_SOURCE");
-
-                            FireBirdFieldType fieldDT = FireBirdFieldType.getById(fieldType);
-                            if (fieldDT == null) {
-                                LOG.error("Field type '" + fieldType + "' not found");
-                                continue;
-                            }
-                            String charsetName = dataSource.getMetaFieldValue(FireBirdConstants.TYPE_CHARACTER_SET_NAME, charsetId);
-                            boolean notNull = JDBCUtils.safeGetInt(dbResult, "RDB$NULL_FLAG") == 1;
-
-                            FireBirdDataType dataType = new FireBirdDataType(
-                                    dataSource, fieldDT, fieldSubType, typeName.trim(), typeDescription, false, true, fieldPrecision, fieldScale, fieldScale,
-                                    fieldLength, charLength,
-                                    computedSource, validationSource, defaultSource,
-                                    charsetName,
-                                    notNull);
-                            tmpObjectList.add(dataType);
-                        }
-                    }
+            FireBirdMetadataSnapshot snapshot = dataSource.getMetadataSnapshot();
+            List<FireBirdMetadataSnapshot.DomainInfo> domains = snapshot != null && snapshot.isValid() ? snapshot.getDomains() : null;
+            if (domains == null) {
+                domains = readDomains(monitor, dataSource);
+                if (snapshot != null && !monitor.isCanceled()) {
+                    snapshot.setDomains(domains);
                 }
-            } catch (SQLException ex) {
-                throw new DBException(ex, dataSource);
+            }
+            for (FireBirdMetadataSnapshot.DomainInfo domain : domains) {
+                FireBirdFieldType fieldDT = FireBirdFieldType.getById(domain.fieldType);
+                if (fieldDT == null) {
+                    LOG.error("Field type '" + domain.fieldType + "' not found");
+                    continue;
+                }
+                String charsetName = dataSource.getMetaFieldValue(FireBirdConstants.TYPE_CHARACTER_SET_NAME, domain.charsetId);
+
+                FireBirdDataType dataType = new FireBirdDataType(
+                        dataSource, fieldDT, domain.subType, domain.name, domain.description, false, true, domain.precision, domain.scale, domain.scale,
+                        domain.fieldLength, domain.charLength,
+                        domain.computedSource, domain.validationSource, domain.defaultSource,
+                        charsetName,
+                        domain.notNull);
+                tmpObjectList.add(dataType);
             }
         } catch (DBException e) {
             if (!handleCacheReadError(e)) {
@@ -115,4 +92,42 @@ public class FireBirdDataTypeCache extends JDBCBasicDataTypeCache<GenericStructC
         mergeCache(tmpObjectList);
     }
 
+    private List<FireBirdMetadataSnapshot.DomainInfo> readDomains(DBRProgressMonitor monitor, FireBirdDataSource dataSource) throws DBException {
+        List<FireBirdMetadataSnapshot.DomainInfo> domains = new ArrayList<>();
+        try (JDBCSession session = DBUtils.openMetaSession(monitor, dataSource, "Load FireBird domain types")) {
+            try (JDBCPreparedStatement dbStat = session.prepareStatement(
+                    "SELECT F.* FROM RDB$FIELDS F ORDER BY RDB$FIELD_NAME")) {
+                monitor.subTask("Load FireBird domain types");
+                try (JDBCResultSet dbResult = dbStat.executeQuery()) {
+                    while (dbResult.next()) {
+                        if (monitor.isCanceled()) {
+                            break;
+                        }
+                        String typeName = JDBCUtils.safeGetString(dbResult, "RDB$FIELD_NAME");
+                        if (typeName == null) {
+                            continue;
+                        }
+                        domains.add(new FireBirdMetadataSnapshot.DomainInfo(
+                                typeName.trim(),
+                                JDBCUtils.safeGetString(dbResult, "RDB$DESCRIPTION"),
+                                JDBCUtils.safeGetInt(dbResult, "RDB$FIELD_TYPE"),
+                                JDBCUtils.safeGetInt(dbResult, "RDB$FIELD_SUB_TYPE"),
+                                JDBCUtils.safeGetInt(dbResult, "RDB$FIELD_PRECISION"),
+                                JDBCUtils.safeGetInt(dbResult, "RDB$FIELD_SCALE"),
+                                JDBCUtils.safeGetInt(dbResult, "RDB$FIELD_LENGTH"),
+                                JDBCUtils.safeGetInt(dbResult, "RDB$CHARACTER_LENGTH"),
+                                JDBCUtils.safeGetInt(dbResult, "RDB$CHARACTER_SET_ID"),
+                                JDBCUtils.safeGetString(dbResult, "RDB$COMPUTED_SOURCE"),
+                                JDBCUtils.safeGetString(dbResult, "RDB$VALIDATION_SOURCE"),
+                                JDBCUtils.safeGetString(dbResult, "RDB$DEFAULT_SOURCE"),
+                                JDBCUtils.safeGetInt(dbResult, "RDB$NULL_FLAG") == 1));
+                    }
+                }
+            }
+        } catch (SQLException ex) {
+            throw new DBException(ex, dataSource);
+        }
+        return domains;
+    }
+
 }
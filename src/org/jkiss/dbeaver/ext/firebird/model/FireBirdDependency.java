@@ -0,0 +1,72 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2019 Serge Rider (serge@jkiss.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.ext.firebird.model;
+
+import org.jkiss.dbeaver.model.meta.Property;
+
+/**
+ * Object found by a dependency graph query
+ */
+public class FireBirdDependency {
+
+    private final String name;
+    private final FireBirdDependencyType type;
+    private final String fieldName;
+    private final int depth;
+
+    public FireBirdDependency(String name, FireBirdDependencyType type, String fieldName, int depth) {
+        this.name = name;
+        this.type = type;
+        this.fieldName = fieldName;
+        this.depth = depth;
+    }
+
+    @Property(viewable = true, order = 1)
+    public String getName() {
+        return name;
+    }
+
+    public FireBirdDependencyType getType() {
+        return type;
+    }
+
+    @Property(viewable = true, order = 2)
+    public String getTypeName() {
+        return type.getDisplayName();
+    }
+
+    /**
+     * Column of the referenced object (null if the whole object is referenced)
+     */
+    @Property(viewable = true, order = 3)
+    public String getFieldName() {
+        return fieldName;
+    }
+
+    /**
+     * Distance from the queried object (1 for direct dependencies)
+     */
+    @Property(viewable = true, order = 4)
+    public int getDepth() {
+        return depth;
+    }
+
+    @Override
+    public String toString() {
+        return type.getDisplayName() + " " + name + (fieldName == null ? "" : "." + fieldName);
+    }
+}
@@ -0,0 +1,330 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2019 Serge Rider (serge@jkiss.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.ext.firebird.model;
+
+import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
+import org.jkiss.dbeaver.DBException;
+import org.jkiss.dbeaver.model.DBUtils;
+import org.jkiss.dbeaver.model.exec.jdbc.JDBCPreparedStatement;
+import org.jkiss.dbeaver.model.exec.jdbc.JDBCResultSet;
+import org.jkiss.dbeaver.model.exec.jdbc.JDBCSession;
+import org.jkiss.dbeaver.model.impl.jdbc.JDBCUtils;
+import org.jkiss.dbeaver.model.runtime.DBRProgressMonitor;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Graph of RDB$DEPENDENCIES. Loaded once per connection, objects are interned to int ids
+ * and edges are kept in compact arrays indexed by dependent and by referenced object.
+ * Edges of invalidated objects (both directions) are re-read one by one on next access.
+ */
+public class FireBirdDependencyGraph {
+
+    private static final String SQL_DEPENDENCIES =
+        "SELECT RDB$DEPENDENT_NAME, RDB$DEPENDENT_TYPE, RDB$DEPENDED_ON_NAME, RDB$DEPENDED_ON_TYPE, RDB$FIELD_NAME\n" +
+        "FROM RDB$DEPENDENCIES";
+
+    private final FireBirdDataSource dataSource;
+
+    // Nodes
+    private final Map<String, Integer> nodeIds = new HashMap<>();
+    private String[] nodeNames = new String[256];
+    private int[] nodeTypes = new int[256];
+    private int nodeCount;
+
+    // Edges: dependent (from) -> referenced object (to)
+    private final Map<String, Integer> fieldIds = new HashMap<>();
+    private final List<String> fieldNames = new ArrayList<>();
+    private int[] edgeFrom = new int[1024];
+    private int[] edgeTo = new int[1024];
+    private int[] edgeField = new int[1024];
+    private int edgeCount;
+
+    // Adjacency (offsets by node id, values are edge indexes). Rebuilt after edges change
+    private int[] outStart;
+    private int[] outEdges;
+    private int[] inStart;
+    private int[] inEdges;
+
+    private boolean loaded;
+    private final Set<String> invalidatedDependents = new LinkedHashSet<>();
+
+    public FireBirdDependencyGraph(FireBirdDataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Objects which directly reference the specified object
+     */
+    @NotNull
+    public synchronized List<FireBirdDependency> getUsedBy(@NotNull DBRProgressMonitor monitor, @NotNull FireBirdDependencyType type, @NotNull String name) throws DBException {
+        return getDirect(monitor, type, name, false);
+    }
+
+    /**
+     * Objects directly referenced by the specified object
+     */
+    @NotNull
+    public synchronized List<FireBirdDependency> getDependsOn(@NotNull DBRProgressMonitor monitor, @NotNull FireBirdDependencyType type, @NotNull String name) throws DBException {
+        return getDirect(monitor, type, name, true);
+    }
+
+    /**
+     * All objects which directly or indirectly reference the specified object
+     */
+    @NotNull
+    public synchronized List<FireBirdDependency> getTransitiveUsedBy(@NotNull DBRProgressMonitor monitor, @NotNull FireBirdDependencyType type, @NotNull String name) throws DBException {
+        return getTransitive(monitor, type, name, false);
+    }
+
+    /**
+     * All objects directly or indirectly referenced by the specified object
+     */
+    @NotNull
+    public synchronized List<FireBirdDependency> getTransitiveDependsOn(@NotNull DBRProgressMonitor monitor, @NotNull FireBirdDependencyType type, @NotNull String name) throws DBException {
+        return getTransitive(monitor, type, name, true);
+    }
+
+    /**
+     * Reads the whole graph with the specified session if it was not read yet
+     */
+    synchronized void warmUp(@NotNull JDBCSession session) throws SQLException {
+        if (loaded) {
+            return;
+        }
+        try (JDBCPreparedStatement dbStat = session.prepareStatement(SQL_DEPENDENCIES)) {
+            readEdges(dbStat);
+        }
+        loaded = true;
+        invalidatedDependents.clear();
+        buildAdjacency();
+    }
+
+    /**
+     * Dependencies of the object and references to it will be re-read on next access
+     */
+    public synchronized void invalidate(@NotNull String name) {
+        if (loaded) {
+            invalidatedDependents.add(name);
+        }
+    }
+
+    public synchronized void clear() {
+        nodeIds.clear();
+        nodeCount = 0;
+        fieldIds.clear();
+        fieldNames.clear();
+        edgeCount = 0;
+        outStart = null;
+        invalidatedDependents.clear();
+        loaded = false;
+    }
+
+    private List<FireBirdDependency> getDirect(DBRProgressMonitor monitor, FireBirdDependencyType type, String name, boolean outgoing) throws DBException {
+        checkLoaded(monitor);
+        List<FireBirdDependency> result = new ArrayList<>();
+        Integer nodeId = nodeIds.get(getNodeKey(type.getType(), name));
+        if (nodeId == null) {
+            return result;
+        }
+        int[] start = outgoing ? outStart : inStart;
+        int[] edges = outgoing ? outEdges : inEdges;
+        for (int i = start[nodeId]; i < start[nodeId + 1]; i++) {
+            int edge = edges[i];
+            result.add(makeDependency(outgoing ? edgeTo[edge] : edgeFrom[edge], edgeField[edge], 1));
+        }
+        return result;
+    }
+
+    private List<FireBirdDependency> getTransitive(DBRProgressMonitor monitor, FireBirdDependencyType type, String name, boolean outgoing) throws DBException {
+        checkLoaded(monitor);
+        List<FireBirdDependency> result = new ArrayList<>();
+        Integer nodeId = nodeIds.get(getNodeKey(type.getType(), name));
+        if (nodeId == null) {
+            return result;
+        }
+        int[] start = outgoing ? outStart : inStart;
+        int[] edges = outgoing ? outEdges : inEdges;
+        // Breadth-first search, each object is reported once with its minimal depth
+        int[] depth = new int[nodeCount];
+        int[] queue = new int[nodeCount];
+        int head = 0, tail = 0;
+        depth[nodeId] = -1;
+        queue[tail++] = nodeId;
+        while (head < tail) {
+            int node = queue[head++];
+            int nodeDepth = depth[node] < 0 ? 0 : depth[node];
+            for (int i = start[node]; i < start[node + 1]; i++) {
+                int edge = edges[i];
+                int next = outgoing ? edgeTo[edge] : edgeFrom[edge];
+                if (depth[next] != 0) {
+                    continue;
+                }
+                depth[next] = nodeDepth + 1;
+                queue[tail++] = next;
+                result.add(makeDependency(next, nodeDepth == 0 ? edgeField[edge] : -1, nodeDepth + 1));
+            }
+        }
+        return result;
+    }
+
+    private FireBirdDependency makeDependency(int node, int field, int depth) {
+        return new FireBirdDependency(
+            nodeNames[node],
+            FireBirdDependencyType.getByType(nodeTypes[node]),
+            field < 0 ? null : fieldNames.get(field),
+            depth);
+    }
+
+    private void checkLoaded(DBRProgressMonitor monitor) throws DBException {
+        if (loaded && invalidatedDependents.isEmpty()) {
+            return;
+        }
+        try (JDBCSession session = DBUtils.openMetaSession(monitor, dataSource, "Read dependencies")) {
+            if (!loaded) {
+                try (JDBCPreparedStatement dbStat = session.prepareStatement(SQL_DEPENDENCIES)) {
+                    readEdges(dbStat);
+                }
+                loaded = true;
+            } else {
+                // Both directions: a refreshed table may have got new triggers, views or procedures using it
+                for (String name : invalidatedDependents) {
+                    removeEdges(name);
+                    try (JDBCPreparedStatement dbStat = session.prepareStatement(SQL_DEPENDENCIES + " WHERE RDB$DEPENDENT_NAME=? OR RDB$DEPENDED_ON_NAME=?")) {
+                        dbStat.setString(1, name);
+                        dbStat.setString(2, name);
+                        readEdges(dbStat);
+                    }
+                }
+            }
+            invalidatedDependents.clear();
+        } catch (SQLException e) {
+            throw new DBException(e, dataSource);
+        }
+        buildAdjacency();
+    }
+
+    private void readEdges(JDBCPreparedStatement dbStat) throws SQLException {
+        try (JDBCResultSet dbResult = dbStat.executeQuery()) {
+            while (dbResult.next()) {
+                String dependentName = JDBCUtils.safeGetStringTrimmed(dbResult, 1);
+                String dependedOnName = JDBCUtils.safeGetStringTrimmed(dbResult, 3);
+                if (dependentName == null || dependedOnName == null) {
+                    continue;
+                }
+                String fieldName = JDBCUtils.safeGetStringTrimmed(dbResult, 5);
+                addEdge(
+                    getNodeId(JDBCUtils.safeGetInt(dbResult, 2), dependentName),
+                    getNodeId(JDBCUtils.safeGetInt(dbResult, 4), dependedOnName),
+                    fieldName == null ? -1 : getFieldId(fieldName));
+            }
+        }
+    }
+
+    private void addEdge(int from, int to, int field) {
+        if (edgeCount == edgeFrom.length) {
+            int newSize = edgeCount * 2;
+            edgeFrom = Arrays.copyOf(edgeFrom, newSize);
+            edgeTo = Arrays.copyOf(edgeTo, newSize);
+            edgeField = Arrays.copyOf(edgeField, newSize);
+        }
+        edgeFrom[edgeCount] = from;
+        edgeTo[edgeCount] = to;
+        edgeField[edgeCount] = field;
+        edgeCount++;
+    }
+
+    private void removeEdges(String name) {
+        int count = 0;
+        for (int i = 0; i < edgeCount; i++) {
+            if (nodeNames[edgeFrom[i]].equals(name) || nodeNames[edgeTo[i]].equals(name)) {
+                continue;
+            }
+            edgeFrom[count] = edgeFrom[i];
+            edgeTo[count] = edgeTo[i];
+            edgeField[count] = edgeField[i];
+            count++;
+        }
+        edgeCount = count;
+    }
+
+    private void buildAdjacency() {
+        outStart = new int[nodeCount + 1];
+        inStart = new int[nodeCount + 1];
+        for (int i = 0; i < edgeCount; i++) {
+            outStart[edgeFrom[i] + 1]++;
+            inStart[edgeTo[i] + 1]++;
+        }
+        for (int i = 0; i < nodeCount; i++) {
+            outStart[i + 1] += outStart[i];
+            inStart[i + 1] += inStart[i];
+        }
+        outEdges = new int[edgeCount];
+        inEdges = new int[edgeCount];
+        int[] outPos = Arrays.copyOf(outStart, nodeCount);
+        int[] inPos = Arrays.copyOf(inStart, nodeCount);
+        for (int i = 0; i < edgeCount; i++) {
+            outEdges[outPos[edgeFrom[i]]++] = i;
+            inEdges[inPos[edgeTo[i]]++] = i;
+        }
+    }
+
+    private int getNodeId(int type, String name) {
+        type = normalizeType(type);
+        String key = getNodeKey(type, name);
+        Integer id = nodeIds.get(key);
+        if (id != null) {
+            return id;
+        }
+        if (nodeCount == nodeNames.length) {
+            nodeNames = Arrays.copyOf(nodeNames, nodeCount * 2);
+            nodeTypes = Arrays.copyOf(nodeTypes, nodeCount * 2);
+        }
+        nodeNames[nodeCount] = name;
+        nodeTypes[nodeCount] = type;
+        nodeIds.put(key, nodeCount);
+        return nodeCount++;
+    }
+
+    private int getFieldId(String fieldName) {
+        Integer id = fieldIds.get(fieldName);
+        if (id == null) {
+            id = fieldNames.size();
+            fieldNames.add(fieldName);
+            fieldIds.put(fieldName, id);
+        }
+        return id;
+    }
+
+    private static String getNodeKey(int type, @Nullable String name) {
+        return normalizeType(type) + ":" + name;
+    }
+
+    private static int normalizeType(int type) {
+        // Views are referenced as relations (type 0) but depend on other objects as type 1
+        return type == FireBirdDependencyType.VIEW.getType() ? FireBirdDependencyType.TABLE.getType() : type;
+    }
+
+}
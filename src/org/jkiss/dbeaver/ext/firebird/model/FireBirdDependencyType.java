@@ -0,0 +1,64 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2019 Serge Rider (serge@jkiss.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.ext.firebird.model;
+
+/**
+ * Object types of RDB$DEPENDENCIES (RDB$DEPENDENT_TYPE, RDB$DEPENDED_ON_TYPE)
+ */
+public enum FireBirdDependencyType {
+    TABLE(0),
+    VIEW(1),
+    TRIGGER(2),
+    COMPUTED_COLUMN(3),
+    CHECK(4),
+    PROCEDURE(5),
+    INDEX_EXPRESSION(6),
+    EXCEPTION(7),
+    USER(8),
+    COLUMN(9),
+    INDEX(10),
+    GENERATOR(14),
+    FUNCTION(15),
+    COLLATION(17),
+    PACKAGE_HEAD(18),
+    PACKAGE_BODY(19),
+    UNKNOWN(-1);
+
+    private final int type;
+
+    FireBirdDependencyType(int type) {
+        this.type = type;
+    }
+
+    public String getDisplayName() {
+        return name().replace('_', ' ');
+    }
+
+    public int getType() {
+        return type;
+    }
+
+    static FireBirdDependencyType getByType(int type) {
+        for (FireBirdDependencyType dt : values()) {
+            if (dt.type == type) {
+                return dt;
+            }
+        }
+        return UNKNOWN;
+    }
+
+}
@@ -0,0 +1,95 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2019 Serge Rider (serge@jkiss.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.ext.firebird.model;
+
+import org.jkiss.dbeaver.model.meta.Property;
+
+import java.util.Date;
+
+/**
+ * Generator consumption rate and the estimated overflow time of the column it feeds
+ */
+public class FireBirdGeneratorForecast {
+
+    private final String generatorName;
+    private final long lastValue;
+    private final double ratePerDay;
+    private final String targetColumn;
+    private final long maxValue;
+    private final Date exhaustionDate;
+
+    FireBirdGeneratorForecast(String generatorName, long lastValue, double ratePerDay, String targetColumn, long maxValue, Date exhaustionDate) {
+        this.generatorName = generatorName;
+        this.lastValue = lastValue;
+        this.ratePerDay = ratePerDay;
+        this.targetColumn = targetColumn;
+        this.maxValue = maxValue;
+        this.exhaustionDate = exhaustionDate;
+    }
+
+    @Property(viewable = true, order = 1)
+    public String getGeneratorName() {
+        return generatorName;
+    }
+
+    @Property(viewable = true, order = 2)
+    public long getLastValue() {
+        return lastValue;
+    }
+
+    /**
+     * Values consumed per day (linear regression over the samples)
+     */
+    @Property(viewable = true, order = 3)
+    public double getRatePerDay() {
+        return ratePerDay;
+    }
+
+    /**
+     * Column with the smallest type which receives generator values (null if unknown)
+     */
+    @Property(viewable = true, order = 4)
+    public String getTargetColumn() {
+        return targetColumn;
+    }
+
+    /**
+     * Max value of the target column type (BIGINT max if the column is unknown)
+     */
+    @Property(viewable = true, order = 5)
+    public long getMaxValue() {
+        return maxValue;
+    }
+
+    /**
+     * Estimated overflow time (null if the generator doesn't grow)
+     */
+    @Property(viewable = true, order = 6)
+    public Date getExhaustionDate() {
+        return exhaustionDate;
+    }
+
+    public double getDaysLeft() {
+        return ratePerDay <= 0 ? Double.POSITIVE_INFINITY : (maxValue - lastValue) / ratePerDay;
+    }
+
+    @Override
+    public String toString() {
+        return generatorName + String.format(" (+%.0f/day)", ratePerDay)
+            + (exhaustionDate == null ? "" : ", " + targetColumn + " overflows at " + exhaustionDate);
+    }
+}
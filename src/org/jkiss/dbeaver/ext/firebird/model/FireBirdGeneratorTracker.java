@@ -0,0 +1,346 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2019 Serge Rider (serge@jkiss.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.ext.firebird.model;
+
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.jkiss.code.NotNull;
+import org.jkiss.dbeaver.DBException;
+import org.jkiss.dbeaver.Log;
+import org.jkiss.dbeaver.ext.generic.model.GenericSequence;
+import org.jkiss.dbeaver.model.DBUtils;
+import org.jkiss.dbeaver.model.exec.jdbc.JDBCPreparedStatement;
+import org.jkiss.dbeaver.model.exec.jdbc.JDBCResultSet;
+import org.jkiss.dbeaver.model.exec.jdbc.JDBCSession;
+import org.jkiss.dbeaver.model.impl.jdbc.JDBCUtils;
+import org.jkiss.dbeaver.model.runtime.AbstractJob;
+import org.jkiss.dbeaver.model.runtime.DBRProgressMonitor;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Samples all generators periodically and forecasts when they overflow their target columns.
+ * Values of all generators are read with a few GEN_ID selects per sample. Target columns are
+ * identity columns or columns assigned from GEN_ID/NEXT VALUE FOR in triggers (found through
+ * RDB$DEPENDENCIES), generators used by procedures only are checked against BIGINT.
+ */
+public class FireBirdGeneratorTracker extends AbstractJob {
+
+    private static final Log LOG = Log.getLog(FireBirdGeneratorTracker.class);
+
+    public static final long DEFAULT_INTERVAL = TimeUnit.MINUTES.toMillis(15);
+    public static final int DEFAULT_HISTORY_SIZE = 7 * 24 * 4;
+
+    private static final int TYPE_SMALLINT = 7;
+    private static final int TYPE_INTEGER = 8;
+
+    private static final String SQL_TRIGGERS =
+        "SELECT D.RDB$DEPENDED_ON_NAME, T.RDB$RELATION_NAME, T.RDB$TRIGGER_SOURCE\n" +
+        "FROM RDB$DEPENDENCIES D JOIN RDB$TRIGGERS T ON T.RDB$TRIGGER_NAME = D.RDB$DEPENDENT_NAME\n" +
+        "WHERE D.RDB$DEPENDED_ON_TYPE = 14 AND D.RDB$DEPENDENT_TYPE = 2 AND T.RDB$RELATION_NAME IS NOT NULL";
+    private static final String SQL_INTEGER_FIELDS =
+        "SELECT RF.RDB$RELATION_NAME, RF.RDB$FIELD_NAME, F.RDB$FIELD_TYPE\n" +
+        "FROM RDB$RELATION_FIELDS RF JOIN RDB$FIELDS F ON F.RDB$FIELD_NAME = RF.RDB$FIELD_SOURCE\n" +
+        "WHERE F.RDB$FIELD_TYPE IN (7, 8) AND COALESCE(F.RDB$FIELD_SCALE, 0) = 0";
+
+    /**
+     * Compact history of one generator
+     */
+    private static class Series {
+        final long[] times;
+        final long[] values;
+        int next;
+        int size;
+
+        Series(int capacity) {
+            times = new long[capacity];
+            values = new long[capacity];
+        }
+
+        void add(long time, long value) {
+            if (size > 0 && value < values[(next - 1 + values.length) % values.length]) {
+                // Generator was reset, older values don't describe the current rate
+                size = 0;
+            }
+            times[next] = time;
+            values[next] = value;
+            next = (next + 1) % times.length;
+            if (size < times.length) {
+                size++;
+            }
+        }
+
+        long getLastValue() {
+            return values[(next - 1 + values.length) % values.length];
+        }
+
+        /**
+         * Least squares slope (values per ms)
+         */
+        double getSlope() {
+            if (size < 2) {
+                return 0;
+            }
+            int first = (next - size + times.length) % times.length;
+            long baseTime = times[first];
+            long baseValue = values[first];
+            double sumX = 0, sumY = 0, sumXY = 0, sumXX = 0;
+            for (int i = 0; i < size; i++) {
+                int slot = (first + i) % times.length;
+                double x = times[slot] - baseTime;
+                double y = values[slot] - baseValue;
+                sumX += x;
+                sumY += y;
+                sumXY += x * y;
+                sumXX += x * x;
+            }
+            double denominator = size * sumXX - sumX * sumX;
+            return denominator == 0 ? 0 : (size * sumXY - sumX * sumY) / denominator;
+        }
+    }
+
+    /**
+     * Column with the smallest integer type fed by the generator
+     */
+    private static class Target {
+        final String column;
+        final long maxValue;
+
+        Target(String column, long maxValue) {
+            this.column = column;
+            this.maxValue = maxValue;
+        }
+    }
+
+    private final FireBirdDataSource dataSource;
+    private final int historySize;
+    private final Map<String, Series> series = new HashMap<>();
+    private Map<String, Target> targets;
+    private volatile long interval = DEFAULT_INTERVAL;
+    private volatile boolean stopped;
+
+    public FireBirdGeneratorTracker(@NotNull FireBirdDataSource dataSource, int historySize) {
+        super("Track generators (" + dataSource.getName() + ")");
+        this.dataSource = dataSource;
+        this.historySize = historySize;
+        setSystem(true);
+        setUser(false);
+    }
+
+    public void setInterval(long interval) {
+        this.interval = interval;
+    }
+
+    public void start() {
+        stopped = false;
+        schedule();
+    }
+
+    public void stop() {
+        stopped = true;
+        cancel();
+    }
+
+    /**
+     * Target columns are resolved again on the next sample (after DDL changes)
+     */
+    public synchronized void resetTargets() {
+        targets = null;
+    }
+
+    /**
+     * Forecasts of all sampled generators ordered by time left (soonest overflow first)
+     */
+    @NotNull
+    public synchronized List<FireBirdGeneratorForecast> getForecasts() {
+        long now = System.currentTimeMillis();
+        List<FireBirdGeneratorForecast> result = new ArrayList<>();
+        for (Map.Entry<String, Series> entry : series.entrySet()) {
+            Series generatorSeries = entry.getValue();
+            if (generatorSeries.size == 0) {
+                continue;
+            }
+            Target target = targets == null ? null : targets.get(entry.getKey());
+            long maxValue = target == null ? Long.MAX_VALUE : target.maxValue;
+            long lastValue = generatorSeries.getLastValue();
+            double ratePerDay = generatorSeries.getSlope() * TimeUnit.DAYS.toMillis(1);
+            Date exhaustionDate = null;
+            if (ratePerDay > 0) {
+                double msLeft = (maxValue - lastValue) / generatorSeries.getSlope();
+                exhaustionDate = msLeft < Long.MAX_VALUE - now ? new Date(now + (long) msLeft) : null;
+            }
+            result.add(new FireBirdGeneratorForecast(entry.getKey(), lastValue, ratePerDay,
+                target == null ? null : target.column, maxValue, exhaustionDate));
+        }
+        result.sort((f1, f2) -> Double.compare(f1.getDaysLeft(), f2.getDaysLeft()));
+        return result;
+    }
+
+    /**
+     * Generators which overflow within the specified number of days
+     */
+    @NotNull
+    public List<FireBirdGeneratorForecast> getWarnings(double days) {
+        List<FireBirdGeneratorForecast> result = new ArrayList<>();
+        for (FireBirdGeneratorForecast forecast : getForecasts()) {
+            if (forecast.getDaysLeft() <= days) {
+                result.add(forecast);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Generators with the highest consumption rate
+     */
+    @NotNull
+    public List<FireBirdGeneratorForecast> getFastestGrowing(int count) {
+        List<FireBirdGeneratorForecast> result = getForecasts();
+        result.sort((f1, f2) -> Double.compare(f2.getRatePerDay(), f1.getRatePerDay()));
+        return result.size() > count ? new ArrayList<>(result.subList(0, count)) : result;
+    }
+
+    @Override
+    protected IStatus run(DBRProgressMonitor monitor) {
+        if (stopped) {
+            return Status.CANCEL_STATUS;
+        }
+        try {
+            sample(monitor);
+        } catch (DBException e) {
+            LOG.debug("Error sampling generators", e);
+        }
+        if (!stopped) {
+            schedule(interval);
+        }
+        return Status.OK_STATUS;
+    }
+
+    private void sample(DBRProgressMonitor monitor) throws DBException {
+        List<FireBirdSequence> sequences = new ArrayList<>();
+        Collection<? extends GenericSequence> allSequences = dataSource.getSequences(monitor);
+        if (allSequences != null) {
+            for (GenericSequence sequence : allSequences) {
+                if (sequence instanceof FireBirdSequence) {
+                    sequences.add((FireBirdSequence) sequence);
+                }
+            }
+        }
+        if (sequences.isEmpty()) {
+            return;
+        }
+        try (JDBCSession session = DBUtils.openMetaSession(monitor, dataSource, "Sample generators")) {
+            long now = System.currentTimeMillis();
+            // Also refreshes last values shown in the navigator
+            FireBirdSequence.readLastValues(session, sequences);
+            synchronized (this) {
+                if (targets == null) {
+                    targets = readTargets(session, sequences);
+                }
+                Set<String> names = new HashSet<>();
+                for (FireBirdSequence sequence : sequences) {
+                    Number lastValue = sequence.getLastValue();
+                    if (lastValue != null) {
+                        names.add(sequence.getName());
+                        series.computeIfAbsent(sequence.getName(), name -> new Series(historySize)).add(now, lastValue.longValue());
+                    }
+                }
+                // Dropped generators
+                series.keySet().retainAll(names);
+            }
+        } catch (SQLException e) {
+            throw new DBException(e, dataSource);
+        }
+    }
+
+    private static Map<String, Target> readTargets(JDBCSession session, List<FireBirdSequence> sequences) throws SQLException {
+        Map<String, Integer> integerFields = new HashMap<>();
+        try (JDBCPreparedStatement dbStat = session.prepareStatement(SQL_INTEGER_FIELDS)) {
+            try (JDBCResultSet dbResult = dbStat.executeQuery()) {
+                while (dbResult.next()) {
+                    integerFields.put(
+                        JDBCUtils.safeGetStringTrimmed(dbResult, 1) + "." + JDBCUtils.safeGetStringTrimmed(dbResult, 2),
+                        JDBCUtils.safeGetInt(dbResult, 3));
+                }
+            }
+        }
+        Map<String, Target> result = new HashMap<>();
+        for (FireBirdSequence sequence : sequences) {
+            if (sequence.getIdentityTable() != null) {
+                addTarget(result, sequence.getName(), sequence.getIdentityTable() + "." + sequence.getIdentityColumn(), integerFields);
+            }
+        }
+        try (JDBCPreparedStatement dbStat = session.prepareStatement(SQL_TRIGGERS)) {
+            try (JDBCResultSet dbResult = dbStat.executeQuery()) {
+                while (dbResult.next()) {
+                    String generatorName = JDBCUtils.safeGetStringTrimmed(dbResult, 1);
+                    String relationName = JDBCUtils.safeGetStringTrimmed(dbResult, 2);
+                    String source = JDBCUtils.safeGetString(dbResult, 3);
+                    if (generatorName == null || relationName == null || source == null) {
+                        continue;
+                    }
+                    for (String column : findAssignedColumns(source, generatorName)) {
+                        addTarget(result, generatorName, relationName + "." + column, integerFields);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    private static void addTarget(Map<String, Target> targets, String generatorName, String column, Map<String, Integer> integerFields) {
+        Integer type = integerFields.get(column);
+        if (type == null) {
+            // BIGINT or not an integer column
+            return;
+        }
+        long maxValue = type == TYPE_SMALLINT ? Short.MAX_VALUE : type == TYPE_INTEGER ? Integer.MAX_VALUE : Long.MAX_VALUE;
+        Target target = targets.get(generatorName);
+        if (target == null || maxValue < target.maxValue) {
+            targets.put(generatorName, new Target(column, maxValue));
+        }
+    }
+
+    /**
+     * Finds NEW.column = GEN_ID(generator, ...) and NEW.column = NEXT VALUE FOR generator assignments
+     */
+    static List<String> findAssignedColumns(String source, String generatorName) {
+        String generator = "(?:\"" + Pattern.quote(generatorName) + "\"|" + Pattern.quote(generatorName) + "\\b)";
+        Pattern pattern = Pattern.compile(
+            "NEW\\s*\\.\\s*(\"[^\"]+\"|\\w+)\\s*:?=\\s*(?:GEN_ID\\s*\\(\\s*" + generator + "|NEXT\\s+VALUE\\s+FOR\\s+" + generator + ")",
+            Pattern.CASE_INSENSITIVE);
+        List<String> columns = new ArrayList<>();
+        Matcher matcher = pattern.matcher(source);
+        while (matcher.find()) {
+            String column = matcher.group(1);
+            columns.add(column.startsWith("\"") ? column.substring(1, column.length() - 1) : column.toUpperCase(Locale.ENGLISH));
+        }
+        return columns;
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2019 Serge Rider (serge@jkiss.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.ext.firebird.model;
+
+import org.jkiss.dbeaver.model.meta.Property;
+
+/**
+ * Difference between stored index selectivity and its sampled estimate
+ */
+public class FireBirdIndexDrift {
+
+    private final String indexName;
+    private final String relationName;
+    private final double storedSelectivity;
+    private final double estimatedSelectivity;
+    private final int sampleSize;
+
+    FireBirdIndexDrift(String indexName, String relationName, double storedSelectivity, double estimatedSelectivity, int sampleSize) {
+        this.indexName = indexName;
+        this.relationName = relationName;
+        this.storedSelectivity = storedSelectivity;
+        this.estimatedSelectivity = estimatedSelectivity;
+        this.sampleSize = sampleSize;
+    }
+
+    @Property(viewable = true, order = 1)
+    public String getIndexName() {
+        return indexName;
+    }
+
+    @Property(viewable = true, order = 2)
+    public String getRelationName() {
+        return relationName;
+    }
+
+    /**
+     * RDB$STATISTICS value (0 if statistics were never computed)
+     */
+    @Property(viewable = true, order = 3)
+    public double getStoredSelectivity() {
+        return storedSelectivity;
+    }
+
+    @Property(viewable = true, order = 4)
+    public double getEstimatedSelectivity() {
+        return estimatedSelectivity;
+    }
+
+    /**
+     * Ratio between the larger and the smaller selectivity (infinity if statistics were never computed)
+     */
+    @Property(viewable = true, order = 5)
+    public double getDrift() {
+        if (storedSelectivity <= 0) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return Math.max(storedSelectivity, estimatedSelectivity) / Math.min(storedSelectivity, estimatedSelectivity);
+    }
+
+    @Property(viewable = true, order = 6)
+    public int getSampleSize() {
+        return sampleSize;
+    }
+
+    @Override
+    public String toString() {
+        return indexName + " (" + storedSelectivity + " -> " + estimatedSelectivity + ")";
+    }
+}
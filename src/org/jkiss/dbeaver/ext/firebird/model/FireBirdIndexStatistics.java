@@ -0,0 +1,82 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2019 Serge Rider (serge@jkiss.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.ext.firebird.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Index selectivity read from RDB$INDICES and RDB$INDEX_SEGMENTS
+ */
+public class FireBirdIndexStatistics {
+
+    /**
+     * Index segment with its selectivity
+     */
+    public static class Segment {
+        private final String fieldName;
+        private final double statistics;
+
+        Segment(String fieldName, double statistics) {
+            this.fieldName = fieldName;
+            this.statistics = statistics;
+        }
+
+        public String getFieldName() {
+            return fieldName;
+        }
+
+        public double getStatistics() {
+            return statistics;
+        }
+    }
+
+    private final String indexName;
+    private final String relationName;
+    private final double statistics;
+    private final List<Segment> segments = new ArrayList<>();
+
+    FireBirdIndexStatistics(String indexName, String relationName, double statistics) {
+        this.indexName = indexName;
+        this.relationName = relationName;
+        this.statistics = statistics;
+    }
+
+    public String getIndexName() {
+        return indexName;
+    }
+
+    public String getRelationName() {
+        return relationName;
+    }
+
+    /**
+     * Selectivity of the whole index
+     */
+    public double getStatistics() {
+        return statistics;
+    }
+
+    public List<Segment> getSegments() {
+        return Collections.unmodifiableList(segments);
+    }
+
+    void addSegment(String fieldName, double segmentStatistics) {
+        segments.add(new Segment(fieldName, segmentStatistics));
+    }
+}
@@ -0,0 +1,260 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2019 Serge Rider (serge@jkiss.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.ext.firebird.model;
+
+import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
+import org.jkiss.dbeaver.model.exec.jdbc.JDBCPreparedStatement;
+import org.jkiss.dbeaver.model.exec.jdbc.JDBCResultSet;
+import org.jkiss.dbeaver.model.exec.jdbc.JDBCSession;
+import org.jkiss.dbeaver.model.impl.jdbc.JDBCUtils;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Index statistics used for plan annotation.
+ * Indexes missing in the cache are read in batches with one query per batch.
+ * Entries are dropped when statistics are recomputed or the relation is refreshed.
+ * Relation cardinality is estimated from selectivity of unique indexes (1 / distinct keys),
+ * relations without unique indexes use cached table size estimates.
+ */
+public class FireBirdIndexStatisticsCache {
+
+    private static final int BATCH_SIZE = 200;
+
+    private final Map<String, FireBirdIndexStatistics> indexes = new HashMap<>();
+    private final Map<String, Double> relationCardinality = new HashMap<>();
+    private final FireBirdTableEstimateCache tableEstimates;
+
+    public FireBirdIndexStatisticsCache(@Nullable FireBirdTableEstimateCache tableEstimates) {
+        this.tableEstimates = tableEstimates;
+    }
+
+    /**
+     * Returns statistics of the specified indexes. Unknown indexes are skipped and not queried again.
+     */
+    @NotNull
+    public synchronized Map<String, FireBirdIndexStatistics> getIndexStatistics(@NotNull JDBCSession session, @NotNull Collection<String> indexNames) throws SQLException {
+        Set<String> missing = new LinkedHashSet<>();
+        for (String indexName : indexNames) {
+            if (!indexes.containsKey(indexName)) {
+                missing.add(indexName);
+            }
+        }
+        if (!missing.isEmpty()) {
+            loadIndexes(session, missing);
+            for (String indexName : missing) {
+                // Remember unknown indexes too
+                indexes.putIfAbsent(indexName, null);
+            }
+        }
+        Map<String, FireBirdIndexStatistics> result = new HashMap<>();
+        for (String indexName : indexNames) {
+            FireBirdIndexStatistics statistics = indexes.get(indexName);
+            if (statistics != null) {
+                result.put(indexName, statistics);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns estimated record count of the specified relations.
+     * Relations without unique index or without computed statistics use table estimates if they are cached.
+     */
+    @NotNull
+    public synchronized Map<String, Double> getRelationCardinality(@NotNull JDBCSession session, @NotNull Collection<String> relationNames) throws SQLException {
+        Set<String> missing = new LinkedHashSet<>();
+        for (String relationName : relationNames) {
+            if (!relationCardinality.containsKey(relationName)) {
+                missing.add(relationName);
+            }
+        }
+        if (!missing.isEmpty()) {
+            forEachBatch(missing, batch -> loadCardinalityBatch(session, batch));
+            for (String relationName : missing) {
+                // Remember relations without estimate too
+                relationCardinality.putIfAbsent(relationName, null);
+            }
+        }
+        Map<String, Double> result = new HashMap<>();
+        for (String relationName : relationNames) {
+            Double cardinality = relationCardinality.get(relationName);
+            if (cardinality == null && tableEstimates != null) {
+                // Estimates are not read here, so plan building never waits for them
+                FireBirdTableEstimate estimate = tableEstimates.getCachedEstimate(relationName);
+                if (estimate != null && estimate.getRowCount() != null) {
+                    cardinality = estimate.getRowCount().doubleValue();
+                }
+            }
+            if (cardinality != null) {
+                result.put(relationName, cardinality);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns statistics of active column indexes (expression indexes are skipped) grouped by relation.
+     * Index lists are not cached, statistics of each index are.
+     */
+    @NotNull
+    public Map<String, List<FireBirdIndexStatistics>> getRelationIndexes(@NotNull JDBCSession session, @NotNull Collection<String> relationNames) throws SQLException {
+        Set<String> indexNames = new LinkedHashSet<>();
+        forEachBatch(new LinkedHashSet<>(relationNames), batch -> {
+            try (JDBCPreparedStatement dbStat = session.prepareStatement(
+                    "SELECT RDB$INDEX_NAME FROM RDB$INDICES\n" +
+                    "WHERE RDB$RELATION_NAME IN (" + makeParameters(batch.size()) + ")\n" +
+                    "AND COALESCE(RDB$INDEX_INACTIVE, 0) = 0 AND RDB$EXPRESSION_BLR IS NULL")) {
+                for (int i = 0; i < batch.size(); i++) {
+                    dbStat.setString(i + 1, batch.get(i));
+                }
+                try (JDBCResultSet dbResult = dbStat.executeQuery()) {
+                    while (dbResult.next()) {
+                        String indexName = JDBCUtils.safeGetStringTrimmed(dbResult, 1);
+                        if (indexName != null) {
+                            indexNames.add(indexName);
+                        }
+                    }
+                }
+            }
+        });
+        Map<String, List<FireBirdIndexStatistics>> result = new HashMap<>();
+        for (FireBirdIndexStatistics statistics : getIndexStatistics(session, indexNames).values()) {
+            result.computeIfAbsent(statistics.getRelationName(), name -> new ArrayList<>()).add(statistics);
+        }
+        return result;
+    }
+
+    /**
+     * Drops the index after its statistics were recomputed
+     */
+    public synchronized void invalidate(@NotNull String indexName) {
+        FireBirdIndexStatistics statistics = indexes.remove(indexName);
+        if (statistics != null && statistics.getRelationName() != null) {
+            relationCardinality.remove(statistics.getRelationName());
+        }
+    }
+
+    public synchronized void invalidateRelation(@NotNull String relationName) {
+        for (Iterator<FireBirdIndexStatistics> iter = indexes.values().iterator(); iter.hasNext(); ) {
+            FireBirdIndexStatistics statistics = iter.next();
+            // Unknown names may be indexes created on the relation since
+            if (statistics == null || relationName.equals(statistics.getRelationName())) {
+                iter.remove();
+            }
+        }
+        relationCardinality.remove(relationName);
+    }
+
+    public synchronized void clear() {
+        indexes.clear();
+        relationCardinality.clear();
+    }
+
+    private interface BatchLoader {
+        void load(List<String> batch) throws SQLException;
+    }
+
+    private static void forEachBatch(Collection<String> names, BatchLoader loader) throws SQLException {
+        List<String> batch = new ArrayList<>(BATCH_SIZE);
+        for (String name : names) {
+            batch.add(name);
+            if (batch.size() == BATCH_SIZE) {
+                loader.load(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            loader.load(batch);
+        }
+    }
+
+    private static String makeParameters(int count) {
+        StringBuilder params = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            params.append(i == 0 ? "?" : ",?");
+        }
+        return params.toString();
+    }
+
+    private void loadIndexes(JDBCSession session, Collection<String> indexNames) throws SQLException {
+        forEachBatch(indexNames, batch -> loadBatch(session, batch));
+    }
+
+    private void loadCardinalityBatch(JDBCSession session, List<String> relationNames) throws SQLException {
+        try (JDBCPreparedStatement dbStat = session.prepareStatement(
+                "SELECT RDB$RELATION_NAME, MIN(RDB$STATISTICS) FROM RDB$INDICES\n" +
+                "WHERE RDB$UNIQUE_FLAG = 1 AND RDB$STATISTICS > 0 AND RDB$RELATION_NAME IN (" + makeParameters(relationNames.size()) + ")\n" +
+                "GROUP BY RDB$RELATION_NAME")) {
+            for (int i = 0; i < relationNames.size(); i++) {
+                dbStat.setString(i + 1, relationNames.get(i));
+            }
+            try (JDBCResultSet dbResult = dbStat.executeQuery()) {
+                while (dbResult.next()) {
+                    String relationName = JDBCUtils.safeGetStringTrimmed(dbResult, 1);
+                    double selectivity = JDBCUtils.safeGetDouble(dbResult, 2);
+                    if (relationName != null && selectivity > 0) {
+                        relationCardinality.put(relationName, 1 / selectivity);
+                    }
+                }
+            }
+        }
+    }
+
+    private void loadBatch(JDBCSession session, List<String> indexNames) throws SQLException {
+        try (JDBCPreparedStatement dbStat = session.prepareStatement(
+                "SELECT I.RDB$INDEX_NAME, I.RDB$RELATION_NAME, I.RDB$STATISTICS, S.RDB$FIELD_NAME, S.RDB$STATISTICS\n" +
+                "FROM RDB$INDICES I\n" +
+                "LEFT JOIN RDB$INDEX_SEGMENTS S ON S.RDB$INDEX_NAME = I.RDB$INDEX_NAME\n" +
+                "WHERE I.RDB$INDEX_NAME IN (" + makeParameters(indexNames.size()) + ")\n" +
+                "ORDER BY I.RDB$INDEX_NAME, S.RDB$FIELD_POSITION")) {
+            for (int i = 0; i < indexNames.size(); i++) {
+                dbStat.setString(i + 1, indexNames.get(i));
+            }
+            try (JDBCResultSet dbResult = dbStat.executeQuery()) {
+                while (dbResult.next()) {
+                    String indexName = JDBCUtils.safeGetStringTrimmed(dbResult, 1);
+                    if (indexName == null) {
+                        continue;
+                    }
+                    FireBirdIndexStatistics statistics = indexes.get(indexName);
+                    if (statistics == null) {
+                        statistics = new FireBirdIndexStatistics(
+                            indexName,
+                            JDBCUtils.safeGetStringTrimmed(dbResult, 2),
+                            JDBCUtils.safeGetDouble(dbResult, 3));
+                        indexes.put(indexName, statistics);
+                    }
+                    String fieldName = JDBCUtils.safeGetStringTrimmed(dbResult, 4);
+                    if (fieldName != null) {
+                        statistics.addSegment(fieldName, JDBCUtils.safeGetDouble(dbResult, 5));
+                    }
+                }
+            }
+        }
+    }
+
+}
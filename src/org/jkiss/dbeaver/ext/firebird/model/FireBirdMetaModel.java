@@ -41,7 +41,6 @@ import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import org.jkiss.dbeaver.Log;
-import static org.jkiss.dbeaver.ext.firebird.FireBirdUtils.getFunctionSourceWithHeader;
 import org.jkiss.dbeaver.model.struct.rdb.DBSProcedureType;
 
 /**
@@ -74,7 +73,15 @@ public class FireBirdMetaModel extends GenericMetaModel {
     @Override
     public String getProcedureDDL(DBRProgressMonitor monitor, GenericProcedure sourceObject) throws DBException {
         //Log.getLog(this.getClass()).info(">>>>>>>>>>>>>>>>>>!!!!!!!!!"+sourceObject.getName()+"!!!!!!!!!!!!!!!!!!!<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<");
-        return (sourceObject.getProcedureType() == DBSProcedureType.FUNCTION ? FireBirdUtils.getFunctionSource(monitor, (FirebirdGenericProcedure) sourceObject) : FireBirdUtils.getProcedureSource(monitor, sourceObject));
+        if (sourceObject.getProcedureType() == DBSProcedureType.FUNCTION && sourceObject instanceof FirebirdGenericProcedure) {
+            return FireBirdUtils.getFunctionSource(monitor, (FirebirdGenericProcedure) sourceObject);
+        }
+        return FireBirdUtils.getProcedureSource(monitor, sourceObject);
+    }
+
+    @Override
+    public GenericProcedure createProcedureImpl(GenericStructContainer container, String procedureName, String specificName, String remarks, DBSProcedureType procedureType, GenericFunctionResultType functionResultType) {
+        return new FirebirdGenericProcedure(container, procedureName, specificName, remarks, procedureType, functionResultType);
     }
 
     @Override
@@ -84,17 +91,24 @@ public class FireBirdMetaModel extends GenericMetaModel {
 
     @Override
     public List<GenericSequence> loadSequences(@NotNull DBRProgressMonitor monitor, @NotNull GenericStructContainer container) throws DBException {
+        // Increment and identity columns appeared in Firebird 3
+        boolean hasIdentity = FireBirdUtils.getFireBirdServerVersion(container.getDataSource()).getMajor() >= 3;
         try (JDBCSession session = DBUtils.openMetaSession(monitor, container, "Read sequences")) {
-            try (JDBCPreparedStatement dbStat = session.prepareStatement("SELECT * FROM RDB$GENERATORS")) {
+            try (JDBCPreparedStatement dbStat = session.prepareStatement(hasIdentity ?
+                    "SELECT G.RDB$GENERATOR_NAME, G.RDB$DESCRIPTION, G.RDB$GENERATOR_INCREMENT, RF.RDB$RELATION_NAME, RF.RDB$FIELD_NAME\n" +
+                    "FROM RDB$GENERATORS G\n" +
+                    "LEFT JOIN RDB$RELATION_FIELDS RF ON RF.RDB$GENERATOR_NAME=G.RDB$GENERATOR_NAME" :
+                    "SELECT RDB$GENERATOR_NAME, RDB$DESCRIPTION, 1, NULL, NULL FROM RDB$GENERATORS")) {
                 List<GenericSequence> result = new ArrayList<>();
+                List<FireBirdSequence> sequences = new ArrayList<>();
 
                 try (JDBCResultSet dbResult = dbStat.executeQuery()) {
                     while (dbResult.next()) {
-                        String name = JDBCUtils.safeGetString(dbResult, "RDB$GENERATOR_NAME");
+                        String name = JDBCUtils.safeGetStringTrimmed(dbResult, 1);
                         if (name == null) {
                             continue;
                         }
-                        String description = JDBCUtils.safeGetString(dbResult, "RDB$DESCRIPTION");
+                        String description = JDBCUtils.safeGetString(dbResult, 2);
                         FireBirdSequence sequence = new FireBirdSequence(
                                 container,
                                 name,
@@ -102,11 +116,18 @@ public class FireBirdMetaModel extends GenericMetaModel {
                                 null,
                                 0,
                                 -1,
-                                1
+                                JDBCUtils.safeGetInt(dbResult, 3)
                         );
+                        String identityTable = JDBCUtils.safeGetStringTrimmed(dbResult, 4);
+                        if (identityTable != null) {
+                            sequence.setIdentityColumn(identityTable, JDBCUtils.safeGetStringTrimmed(dbResult, 5));
+                        }
                         result.add(sequence);
+                        sequences.add(sequence);
                     }
                 }
+                // Current values of all generators in the same pass
+                FireBirdSequence.readLastValues(session, sequences);
 
                 return result;
             }
@@ -127,41 +148,7 @@ public class FireBirdMetaModel extends GenericMetaModel {
 
     @Override
     public List<GenericTrigger> loadTriggers(DBRProgressMonitor monitor, @NotNull GenericStructContainer container, @Nullable GenericTableBase table) throws DBException {
-        try (JDBCSession session = DBUtils.openMetaSession(monitor, container, "Read triggers")) {
-            try (JDBCPreparedStatement dbStat = session.prepareStatement(
-                    "SELECT * FROM RDB$TRIGGERS\n"
-                    + "WHERE RDB$RELATION_NAME" + (table == null ? " IS NULL" : "=?"))) {
-                if (table != null) {
-                    dbStat.setString(1, table.getName());
-                }
-                List<GenericTrigger> result = new ArrayList<>();
-
-                try (JDBCResultSet dbResult = dbStat.executeQuery()) {
-                    while (dbResult.next()) {
-                        String name = JDBCUtils.safeGetString(dbResult, "RDB$TRIGGER_NAME");
-                        if (name == null) {
-                            continue;
-                        }
-                        name = name.trim();
-                        int sequence = JDBCUtils.safeGetInt(dbResult, "RDB$TRIGGER_SEQUENCE");
-                        int type = JDBCUtils.safeGetInt(dbResult, "RDB$TRIGGER_TYPE");
-                        String description = JDBCUtils.safeGetString(dbResult, "RDB$DESCRIPTION");
-                        FireBirdTrigger trigger = new FireBirdTrigger(
-                                container,
-                                table,
-                                name,
-                                description,
-                                FireBirdTriggerType.getByType(type),
-                                sequence);
-                        result.add(trigger);
-                    }
-                }
-                return result;
-
-            }
-        } catch (SQLException e) {
-            throw new DBException(e, container.getDataSource());
-        }
+        return ((FireBirdDataSource) container.getDataSource()).getTriggerCache().getTriggers(monitor, container, table);
     }
 
     @Override
@@ -220,7 +207,7 @@ public class FireBirdMetaModel extends GenericMetaModel {
             // Read metadata
             try (JDBCPreparedStatement dbStat = session.prepareStatement("SELECT "
                     + " "
-                    + "RDB$FUNCTION_NAME,RDB$FUNCTION_TYPE,RDB$QUERY_NAME,RDB$DESCRIPTION,RDB$MODULE_NAME,RDB$ENTRYPOINT,RDB$RETURN_ARGUMENT,RDB$SYSTEM_FLAG,RDB$ENGINE_NAME,RDB$PACKAGE_NAME,RDB$PRIVATE_FLAG,RDB$FUNCTION_SOURCE,RDB$FUNCTION_ID,RDB$FUNCTION_BLR,RDB$VALID_BLR,RDB$DEBUG_INFO,RDB$SECURITY_CLASS,RDB$OWNER_NAME,RDB$LEGACY_FLAG,RDB$DETERMINISTIC_FLAG "
+                    + "RDB$FUNCTION_NAME,RDB$FUNCTION_TYPE,RDB$QUERY_NAME,RDB$DESCRIPTION,RDB$MODULE_NAME,RDB$ENTRYPOINT,RDB$RETURN_ARGUMENT,RDB$SYSTEM_FLAG,RDB$ENGINE_NAME,RDB$PACKAGE_NAME,RDB$PRIVATE_FLAG,RDB$FUNCTION_ID,RDB$VALID_BLR,RDB$SECURITY_CLASS,RDB$OWNER_NAME,RDB$LEGACY_FLAG,RDB$DETERMINISTIC_FLAG "
                     + " FROM RDB$FUNCTIONS WHERE RDB$PACKAGE_NAME is null")) {
                 //dbStat.setString(1, getTable().getName());
                 //dbStat.setString(2, getName());
@@ -239,7 +226,6 @@ public class FireBirdMetaModel extends GenericMetaModel {
                                 (JDBCUtils.safeGetInt(dbResult, "RDB$DETERMINISTIC_FLAG") == 1)
                         );
                         procedure.setDescription(JDBCUtils.safeGetString(dbResult, "RDB$DESCRIPTION"));
-                        procedure.setSource(JDBCUtils.safeGetString(dbResult, "RDB$FUNCTION_SOURCE"));
                         //procedure.setPersisted(JDBCUtils.safeGetInt(dbResult, "RDB$DETERMINISTIC_FLAG")==1);
                         //final GenericMetaObject pcObject = procedure.getDataSource().getMetaObject(GenericConstants.OBJECT_PROCEDURE_COLUMN);
                         fl.put(procedure.getName(), procedure);
@@ -256,23 +242,25 @@ public class FireBirdMetaModel extends GenericMetaModel {
                 throw new DBException("Error reading packages", ex);
             }
 
+            // Arguments of all functions are read at once and grouped by function name.
+            // Function source is read on demand (see getProcedureDDL)
+            Map<String, List<FireBirdFunctionArgument>> arguments = FireBirdUtils.readFunctionArguments(session, null);
             if (!session.getMetaData().getDriverVersion().equals("3.0")) {
                 for (GenericProcedure gp : goc.getFunctionsOnly(dbrpm)) {
-                    //Log.getLog(this.getClass()).info(gp.getParentObject().getName()+"!!!!!!!!!!!!!!!!!!!!!= "+gp.getName());
-                    gp.setSource(getFunctionSourceWithHeader(session, dbrpm, fl.get(gp.getName()), fl.get(gp.getName()).getSource()));
+                    FirebirdGenericProcedure function = fl.get(gp.getName());
+                    if (function != null && gp instanceof FirebirdGenericProcedure) {
+                        ((FirebirdGenericProcedure) gp).setDeterministic(function.isDeterministic());
+                        ((FirebirdGenericProcedure) gp).setArguments(arguments.get(function.getName()));
+                        if (gp.getDescription() == null) {
+                            gp.setDescription(function.getDescription());
+                        }
+                    }
                 }
                 return;
             }
             for (FirebirdGenericProcedure gp : fl.values()) {
-                gp.setSource(getFunctionSourceWithHeader(session, dbrpm, fl.get(gp.getName()), fl.get(gp.getName()).getSource()));
+                gp.setArguments(arguments.get(gp.getName()));
                 goc.addProcedure(gp);
-                //gp.getParameters(dbrpm).add(new GenericProcedureParameter(gp, 
-                //      "wwww", "integer", 0, 0, 0, Integer.SIZE, Integer.SIZE, true, "", 
-                //    DBSProcedureParameterKind.RETURN));
-                //Log.getLog(this.getClass()).info("!!!!!!!!!!!!!!!!!!!!!gp.getName()="+gp.getName()+" "+gp.getSource());
-                //gp.setSource(getFunctionSourceWithHeader(session, dbrpm, gp, gp.getSource()));
-                //for(GenericProcedureParameter gpp:gp.getParameters(dbrpm)){
-                //    Log.getLog(this.getClass()).info(gpp.getParentObject().getName()+" "+gpp.getName());
             }
             //goc.addProcedure(gp);
             //Log.getLog(this.getClass()).info("!!!!!!!!!!!!!!!!!!!!!gp.getName()="+gp.getName()+" "+gp.getSource());
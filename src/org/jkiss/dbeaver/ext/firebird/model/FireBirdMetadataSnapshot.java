@@ -0,0 +1,380 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2019 Serge Rider (serge@jkiss.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.ext.firebird.model;
+
+import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
+import org.jkiss.dbeaver.Log;
+import org.jkiss.dbeaver.model.exec.jdbc.JDBCPreparedStatement;
+import org.jkiss.dbeaver.model.exec.jdbc.JDBCResultSet;
+import org.jkiss.dbeaver.model.exec.jdbc.JDBCSession;
+import org.jkiss.dbeaver.model.impl.jdbc.JDBCUtils;
+import org.jkiss.dbeaver.utils.GeneralUtils;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Local binary snapshot of the catalog data read on connect: RDB$TYPES, domains (RDB$FIELDS)
+ * and column domains. Snapshot is stored per database (server, database file and ODS version)
+ * and is used only if the catalog fingerprint (object counts, max ids, relation formats, column
+ * positions and name lengths, checksum of domain types) did not change since it was written.
+ * Edits of domain sources and descriptions are not detected, they are picked up by the catalog refresh
+ * which writes the snapshot again.
+ */
+public class FireBirdMetadataSnapshot {
+
+    private static final Log LOG = Log.getLog(FireBirdMetadataSnapshot.class);
+
+    private static final int MAGIC = 0x4642534E;
+    private static final int FORMAT_VERSION = 1;
+    private static final String SNAPSHOT_FOLDER = "firebird-metadata";
+
+    // Only counters, ids and integer columns are read: BLOB columns are not touched
+    private static final String SQL_FINGERPRINT =
+        "SELECT M.MON$DATABASE_NAME, M.MON$ODS_MAJOR, M.MON$ODS_MINOR,\n" +
+        "(SELECT COUNT(*) FROM RDB$RELATIONS),\n" +
+        "(SELECT MAX(RDB$RELATION_ID) FROM RDB$RELATIONS),\n" +
+        "(SELECT SUM(RDB$FORMAT) FROM RDB$RELATIONS),\n" +
+        "(SELECT COUNT(*) FROM RDB$RELATION_FIELDS),\n" +
+        // Column renames keep all counters
+        "(SELECT SUM((RF.RDB$FIELD_POSITION + 1) * (CHAR_LENGTH(TRIM(RF.RDB$FIELD_NAME)) * 256 + ASCII_VAL(RF.RDB$FIELD_NAME))) FROM RDB$RELATION_FIELDS RF),\n" +
+        "(SELECT COUNT(*) FROM RDB$PROCEDURES),\n" +
+        "(SELECT MAX(RDB$PROCEDURE_ID) FROM RDB$PROCEDURES),\n" +
+        "(SELECT COUNT(*) FROM RDB$TYPES),\n" +
+        "(SELECT COUNT(*) FROM RDB$FIELDS),\n" +
+        "(SELECT SUM(COALESCE(F.RDB$FIELD_TYPE, 0) * 7 + COALESCE(F.RDB$FIELD_SUB_TYPE, 0) * 11 +\n" +
+        "   COALESCE(F.RDB$FIELD_LENGTH, 0) * 13 + COALESCE(F.RDB$FIELD_SCALE, 0) * 17 +\n" +
+        "   COALESCE(F.RDB$FIELD_PRECISION, 0) * 19 + COALESCE(F.RDB$CHARACTER_SET_ID, 0) * 23 +\n" +
+        "   COALESCE(F.RDB$CHARACTER_LENGTH, 0) * 29 + COALESCE(F.RDB$NULL_FLAG, 0) * 31) FROM RDB$FIELDS F)\n" +
+        "FROM MON$DATABASE M";
+    private static final int FINGERPRINT_SIZE = 10;
+
+    /**
+     * RDB$TYPES row
+     */
+    public static class TypeInfo {
+        final String fieldName;
+        final int type;
+        final String typeName;
+        final String description;
+
+        public TypeInfo(String fieldName, int type, String typeName, String description) {
+            this.fieldName = fieldName;
+            this.type = type;
+            this.typeName = typeName;
+            this.description = description;
+        }
+    }
+
+    /**
+     * RDB$FIELDS row
+     */
+    public static class DomainInfo {
+        final String name;
+        final String description;
+        final int fieldType;
+        final int subType;
+        final int precision;
+        final int scale;
+        final int fieldLength;
+        final int charLength;
+        final int charsetId;
+        final String computedSource;
+        final String validationSource;
+        final String defaultSource;
+        final boolean notNull;
+
+        public DomainInfo(String name, String description, int fieldType, int subType, int precision, int scale,
+                          int fieldLength, int charLength, int charsetId,
+                          String computedSource, String validationSource, String defaultSource, boolean notNull) {
+            this.name = name;
+            this.description = description;
+            this.fieldType = fieldType;
+            this.subType = subType;
+            this.precision = precision;
+            this.scale = scale;
+            this.fieldLength = fieldLength;
+            this.charLength = charLength;
+            this.charsetId = charsetId;
+            this.computedSource = computedSource;
+            this.validationSource = validationSource;
+            this.defaultSource = defaultSource;
+            this.notNull = notNull;
+        }
+    }
+
+    private final File file;
+    private final long[] fingerprint;
+    private boolean valid;
+    private List<TypeInfo> types;
+    private List<DomainInfo> domains;
+    private Map<String, Map<String, String>> columnDomains;
+
+    private FireBirdMetadataSnapshot(File file, long[] fingerprint) {
+        this.file = file;
+        this.fingerprint = fingerprint;
+    }
+
+    /**
+     * Snapshot was read from disk and matches the current catalog
+     */
+    public boolean isValid() {
+        return valid;
+    }
+
+    @Nullable
+    public List<TypeInfo> getTypes() {
+        return types;
+    }
+
+    public void setTypes(List<TypeInfo> types) {
+        this.types = types;
+    }
+
+    @Nullable
+    public List<DomainInfo> getDomains() {
+        return domains;
+    }
+
+    public void setDomains(List<DomainInfo> domains) {
+        this.domains = domains;
+    }
+
+    @Nullable
+    public Map<String, Map<String, String>> getColumnDomains() {
+        return columnDomains;
+    }
+
+    public void setColumnDomains(Map<String, Map<String, String>> columnDomains) {
+        this.columnDomains = columnDomains;
+    }
+
+    /**
+     * Reads the catalog fingerprint and the stored snapshot of this database.
+     * Returns an empty (invalid) snapshot if there is no matching one,
+     * or null if snapshots are not supported by the server or the local storage.
+     */
+    @Nullable
+    public static FireBirdMetadataSnapshot open(@NotNull JDBCSession session) {
+        File folder = GeneralUtils.getMetadataFolder();
+        if (folder == null) {
+            return null;
+        }
+        String databaseKey;
+        long[] fingerprint = new long[FINGERPRINT_SIZE];
+        try (JDBCPreparedStatement dbStat = session.prepareStatement(SQL_FINGERPRINT)) {
+            try (JDBCResultSet dbResult = dbStat.executeQuery()) {
+                if (!dbResult.next()) {
+                    return null;
+                }
+                databaseKey = session.getDataSource().getContainer().getConnectionConfiguration().getHostName() + "|" +
+                    JDBCUtils.safeGetStringTrimmed(dbResult, 1) + "|" +
+                    JDBCUtils.safeGetInt(dbResult, 2) + "." + JDBCUtils.safeGetInt(dbResult, 3);
+                for (int i = 0; i < FINGERPRINT_SIZE; i++) {
+                    fingerprint[i] = JDBCUtils.safeGetLong(dbResult, i + 4);
+                }
+            }
+        } catch (SQLException e) {
+            // MON$ tables are not available before Firebird 2.1
+            LOG.debug("Can't read metadata fingerprint: " + e.getMessage());
+            return null;
+        }
+
+        FireBirdMetadataSnapshot snapshot = new FireBirdMetadataSnapshot(
+            new File(new File(folder, SNAPSHOT_FOLDER), getFileName(databaseKey)), fingerprint);
+        if (snapshot.file.exists()) {
+            try {
+                snapshot.read();
+            } catch (IOException e) {
+                LOG.debug("Can't read metadata snapshot " + snapshot.file.getAbsolutePath() + ": " + e.getMessage());
+                snapshot.types = null;
+                snapshot.domains = null;
+                snapshot.columnDomains = null;
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Writes snapshot if all its parts were collected
+     */
+    public void save() {
+        if (valid || types == null || domains == null || columnDomains == null) {
+            return;
+        }
+        File folder = file.getParentFile();
+        if (!folder.exists() && !folder.mkdirs()) {
+            LOG.debug("Can't create metadata snapshot folder " + folder.getAbsolutePath());
+            return;
+        }
+        File tmpFile = new File(folder, file.getName() + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)))) {
+                write(out);
+            }
+            if (file.exists() && !file.delete()) {
+                LOG.debug("Can't replace metadata snapshot " + file.getAbsolutePath());
+                return;
+            }
+            if (!tmpFile.renameTo(file)) {
+                LOG.debug("Can't rename metadata snapshot " + tmpFile.getAbsolutePath());
+                return;
+            }
+            valid = true;
+        } catch (IOException e) {
+            LOG.debug("Can't write metadata snapshot " + file.getAbsolutePath() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Removes snapshot from disk (catalog was refreshed by user)
+     */
+    public void delete() {
+        valid = false;
+        if (file.exists() && !file.delete()) {
+            LOG.debug("Can't delete metadata snapshot " + file.getAbsolutePath());
+        }
+    }
+
+    private void read() throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                return;
+            }
+            long[] storedFingerprint = new long[in.readInt()];
+            for (int i = 0; i < storedFingerprint.length; i++) {
+                storedFingerprint[i] = in.readLong();
+            }
+            if (!Arrays.equals(storedFingerprint, fingerprint)) {
+                return;
+            }
+            int typeCount = in.readInt();
+            List<TypeInfo> typeList = new ArrayList<>(typeCount);
+            for (int i = 0; i < typeCount; i++) {
+                typeList.add(new TypeInfo(readString(in), in.readInt(), readString(in), readString(in)));
+            }
+            int domainCount = in.readInt();
+            List<DomainInfo> domainList = new ArrayList<>(domainCount);
+            for (int i = 0; i < domainCount; i++) {
+                domainList.add(new DomainInfo(
+                    readString(in), readString(in),
+                    in.readInt(), in.readInt(), in.readInt(), in.readInt(), in.readInt(), in.readInt(), in.readInt(),
+                    readString(in), readString(in), readString(in),
+                    in.readBoolean()));
+            }
+            int relationCount = in.readInt();
+            Map<String, Map<String, String>> relationDomains = new HashMap<>(relationCount * 2);
+            for (int i = 0; i < relationCount; i++) {
+                String relationName = readString(in);
+                int fieldCount = in.readInt();
+                Map<String, String> fields = new HashMap<>(fieldCount * 2);
+                for (int k = 0; k < fieldCount; k++) {
+                    fields.put(readString(in), readString(in));
+                }
+                relationDomains.put(relationName, fields);
+            }
+            types = typeList;
+            domains = domainList;
+            columnDomains = relationDomains;
+            valid = true;
+        }
+    }
+
+    private void write(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeInt(fingerprint.length);
+        for (long value : fingerprint) {
+            out.writeLong(value);
+        }
+        out.writeInt(types.size());
+        for (TypeInfo type : types) {
+            writeString(out, type.fieldName);
+            out.writeInt(type.type);
+            writeString(out, type.typeName);
+            writeString(out, type.description);
+        }
+        out.writeInt(domains.size());
+        for (DomainInfo domain : domains) {
+            writeString(out, domain.name);
+            writeString(out, domain.description);
+            out.writeInt(domain.fieldType);
+            out.writeInt(domain.subType);
+            out.writeInt(domain.precision);
+            out.writeInt(domain.scale);
+            out.writeInt(domain.fieldLength);
+            out.writeInt(domain.charLength);
+            out.writeInt(domain.charsetId);
+            writeString(out, domain.computedSource);
+            writeString(out, domain.validationSource);
+            writeString(out, domain.defaultSource);
+            out.writeBoolean(domain.notNull);
+        }
+        out.writeInt(columnDomains.size());
+        for (Map.Entry<String, Map<String, String>> relation : columnDomains.entrySet()) {
+            writeString(out, relation.getKey());
+            out.writeInt(relation.getValue().size());
+            for (Map.Entry<String, String> field : relation.getValue().entrySet()) {
+                writeString(out, field.getKey());
+                writeString(out, field.getValue());
+            }
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+        } else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static String getFileName(String databaseKey) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(databaseKey.getBytes(StandardCharsets.UTF_8));
+            StringBuilder name = new StringBuilder();
+            for (byte b : digest) {
+                name.append(String.format("%02x", b));
+            }
+            return name.append(".bin").toString();
+        } catch (NoSuchAlgorithmException e) {
+            return Integer.toHexString(databaseKey.hashCode()) + ".bin";
+        }
+    }
+
+}
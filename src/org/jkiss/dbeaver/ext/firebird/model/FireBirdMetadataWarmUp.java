@@ -0,0 +1,139 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2019 Serge Rider (serge@jkiss.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.ext.firebird.model;
+
+import org.jkiss.code.NotNull;
+import org.jkiss.dbeaver.DBException;
+import org.jkiss.dbeaver.Log;
+import org.jkiss.dbeaver.ext.firebird.FireBirdUtils;
+import org.jkiss.dbeaver.model.exec.DBCExecutionContext;
+import org.jkiss.dbeaver.model.exec.DBCExecutionPurpose;
+import org.jkiss.dbeaver.model.exec.jdbc.JDBCSession;
+import org.jkiss.dbeaver.model.runtime.DBRProgressMonitor;
+import org.jkiss.dbeaver.model.runtime.VoidProgressMonitor;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Loads independent catalogs concurrently right after connect.
+ * Firebird-specific caches (column domains, triggers, dependencies, packages) are read by a small
+ * pool of workers, each with its own read-only isolated meta connection. Generic model caches
+ * (tables, procedures, sequences) are read at the same time on the main meta connection.
+ * Every cache keeps its own lock, results are stored only if the cache was not loaded meanwhile.
+ */
+public class FireBirdMetadataWarmUp {
+
+    private static final Log LOG = Log.getLog(FireBirdMetadataWarmUp.class);
+
+    private interface CatalogLoader {
+        void load(JDBCSession session, DBRProgressMonitor monitor) throws SQLException;
+    }
+
+    private final FireBirdDataSource dataSource;
+    private final int threads;
+
+    public FireBirdMetadataWarmUp(@NotNull FireBirdDataSource dataSource, int threads) {
+        this.dataSource = dataSource;
+        this.threads = threads;
+    }
+
+    public void run(@NotNull DBRProgressMonitor monitor) {
+        Map<String, CatalogLoader> loaders = new LinkedHashMap<>();
+        loaders.put("column domains", (session, m) -> dataSource.getColumnDomainCache().warmUp(session));
+        loaders.put("triggers", (session, m) -> dataSource.getTriggerCache().warmUp(session));
+        loaders.put("dependencies", (session, m) -> dataSource.getDependencyGraph().warmUp(session));
+        if (FireBirdUtils.getFireBirdServerVersion(dataSource).getMajor() >= 3) {
+            loaders.put("packages", dataSource::warmUpPackages);
+        }
+        Queue<Map.Entry<String, CatalogLoader>> tasks = new ConcurrentLinkedQueue<>(loaders.entrySet());
+
+        int poolSize = Math.max(1, Math.min(threads, tasks.size()));
+        ExecutorService executor = Executors.newFixedThreadPool(poolSize, runnable -> {
+            Thread thread = new Thread(runnable, "Firebird metadata warm-up");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int i = 0; i < poolSize; i++) {
+                workers.add(executor.submit(() -> runWorker(monitor, tasks)));
+            }
+
+            // Generic caches use the main meta connection
+            monitor.subTask("Load tables, procedures and sequences");
+            try {
+                dataSource.getTables(monitor);
+                dataSource.getProcedures(monitor);
+                dataSource.getSequences(monitor);
+            } catch (DBException e) {
+                LOG.debug("Error loading generic metadata", e);
+            }
+
+            for (Future<?> worker : workers) {
+                try {
+                    worker.get();
+                } catch (ExecutionException e) {
+                    LOG.debug("Metadata warm-up worker failed", e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void runWorker(DBRProgressMonitor mainMonitor, Queue<Map.Entry<String, CatalogLoader>> tasks) {
+        if (tasks.isEmpty()) {
+            return;
+        }
+        DBRProgressMonitor monitor = new VoidProgressMonitor();
+        DBCExecutionContext context;
+        try {
+            context = dataSource.getDefaultInstance().openIsolatedContext(monitor, "Metadata warm-up");
+        } catch (DBException e) {
+            LOG.debug("Can't open metadata warm-up connection", e);
+            return;
+        }
+        try (JDBCSession session = (JDBCSession) context.openSession(monitor, DBCExecutionPurpose.META, "Metadata warm-up")) {
+            session.getOriginal().setReadOnly(true);
+            Map.Entry<String, CatalogLoader> task;
+            while (!mainMonitor.isCanceled() && (task = tasks.poll()) != null) {
+                try {
+                    task.getValue().load(session, monitor);
+                } catch (SQLException e) {
+                    LOG.debug("Error loading " + task.getKey(), e);
+                }
+            }
+        } catch (SQLException e) {
+            LOG.debug("Error in metadata warm-up connection", e);
+        } finally {
+            context.close();
+        }
+    }
+
+}
@@ -0,0 +1,131 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2019 Serge Rider (serge@jkiss.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.ext.firebird.model;
+
+/**
+ * Fixed-size ring buffer of server activity samples.
+ * Values are kept in primitive arrays, the oldest sample is overwritten when the buffer is full.
+ * Page counters are deltas since the previous sample.
+ */
+public class FireBirdMonitorHistory {
+
+    private final long[] times;
+    private final int[] attachments;
+    private final int[] transactions;
+    private final int[] activeStatements;
+    private final long[] reads;
+    private final long[] writes;
+    private final long[] fetches;
+    private final long[] marks;
+    private int next;
+    private int size;
+
+    public FireBirdMonitorHistory(int capacity) {
+        times = new long[capacity];
+        attachments = new int[capacity];
+        transactions = new int[capacity];
+        activeStatements = new int[capacity];
+        reads = new long[capacity];
+        writes = new long[capacity];
+        fetches = new long[capacity];
+        marks = new long[capacity];
+    }
+
+    public int getCapacity() {
+        return times.length;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    synchronized void add(long time, int attachmentCount, int transactionCount, int statementCount, long pageReads, long pageWrites, long pageFetches, long pageMarks) {
+        times[next] = time;
+        attachments[next] = attachmentCount;
+        transactions[next] = transactionCount;
+        activeStatements[next] = statementCount;
+        reads[next] = pageReads;
+        writes[next] = pageWrites;
+        fetches[next] = pageFetches;
+        marks[next] = pageMarks;
+        next = (next + 1) % times.length;
+        if (size < times.length) {
+            size++;
+        }
+    }
+
+    public synchronized void clear() {
+        next = 0;
+        size = 0;
+    }
+
+    /**
+     * Sample time (ms). Samples are numbered from the oldest one.
+     */
+    public synchronized long getTime(int index) {
+        return times[toSlot(index)];
+    }
+
+    public synchronized int getAttachments(int index) {
+        return attachments[toSlot(index)];
+    }
+
+    public synchronized int getTransactions(int index) {
+        return transactions[toSlot(index)];
+    }
+
+    public synchronized int getActiveStatements(int index) {
+        return activeStatements[toSlot(index)];
+    }
+
+    public synchronized long getReads(int index) {
+        return reads[toSlot(index)];
+    }
+
+    public synchronized long getWrites(int index) {
+        return writes[toSlot(index)];
+    }
+
+    public synchronized long getFetches(int index) {
+        return fetches[toSlot(index)];
+    }
+
+    public synchronized long getMarks(int index) {
+        return marks[toSlot(index)];
+    }
+
+    /**
+     * Page reads of samples taken after the specified time
+     */
+    public synchronized long getTotalReads(long since) {
+        long total = 0;
+        for (int i = 0; i < size; i++) {
+            int slot = toSlot(i);
+            if (times[slot] > since) {
+                total += reads[slot];
+            }
+        }
+        return total;
+    }
+
+    private int toSlot(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Sample " + index + " of " + size);
+        }
+        return (next - size + index + times.length) % times.length;
+    }
+}
@@ -0,0 +1,412 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2019 Serge Rider (serge@jkiss.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.ext.firebird.model;
+
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.jkiss.code.NotNull;
+import org.jkiss.dbeaver.DBException;
+import org.jkiss.dbeaver.Log;
+import org.jkiss.dbeaver.ext.firebird.model.plan.FireBirdPlanCache;
+import org.jkiss.dbeaver.model.exec.DBCExecutionContext;
+import org.jkiss.dbeaver.model.exec.DBCExecutionPurpose;
+import org.jkiss.dbeaver.model.exec.jdbc.JDBCPreparedStatement;
+import org.jkiss.dbeaver.model.exec.jdbc.JDBCResultSet;
+import org.jkiss.dbeaver.model.exec.jdbc.JDBCSession;
+import org.jkiss.dbeaver.model.impl.jdbc.JDBCUtils;
+import org.jkiss.dbeaver.model.runtime.AbstractJob;
+import org.jkiss.dbeaver.model.runtime.DBRProgressMonitor;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+
+/**
+ * Periodically samples MON$ tables on a dedicated attachment.
+ * Server-wide counters go to a ring buffer, statement page reads and active time are
+ * aggregated by fingerprint in per-minute buckets of the last hour.
+ * Every MON$ query makes the server build a snapshot of all attachments, so the interval grows
+ * when sampling is expensive (its cost is kept around 1% of the interval) or the server is idle.
+ * MON$ tables don't expose CPU time, the time statements were seen executing is used instead.
+ * Non-administrator users see only their own attachments.
+ */
+public class FireBirdMonitorSampler extends AbstractJob {
+
+    private static final Log LOG = Log.getLog(FireBirdMonitorSampler.class);
+
+    public static final long MIN_INTERVAL = 5000;
+    public static final long MAX_INTERVAL = 60000;
+    public static final int DEFAULT_HISTORY_SIZE = (int) (TimeUnit.HOURS.toMillis(1) / MIN_INTERVAL);
+
+    private static final int OVERHEAD_RATIO = 100;
+    private static final int BUCKET_COUNT = 60;
+    private static final int MAX_FINGERPRINTS = 500;
+    private static final int TEXT_BATCH_SIZE = 200;
+
+    private static final String SQL_DATABASE =
+        "SELECT CURRENT_TIMESTAMP,\n" +
+        "  (SELECT COUNT(*) FROM MON$ATTACHMENTS), (SELECT COUNT(*) FROM MON$TRANSACTIONS),\n" +
+        "  (SELECT COUNT(*) FROM MON$STATEMENTS WHERE MON$STATE = 1),\n" +
+        "  I.MON$PAGE_READS, I.MON$PAGE_WRITES, I.MON$PAGE_FETCHES, I.MON$PAGE_MARKS\n" +
+        "FROM MON$DATABASE D JOIN MON$IO_STATS I ON I.MON$STAT_ID = D.MON$STAT_ID";
+    private static final String SQL_STATEMENTS =
+        "SELECT S.MON$STATEMENT_ID, S.MON$STATE, S.MON$TIMESTAMP, I.MON$PAGE_READS, I.MON$PAGE_FETCHES\n" +
+        "FROM MON$STATEMENTS S JOIN MON$IO_STATS I ON I.MON$STAT_ID = S.MON$STAT_ID\n" +
+        "WHERE S.MON$ATTACHMENT_ID <> CURRENT_CONNECTION";
+
+    /**
+     * Statement seen in the previous sample
+     */
+    private static class StatementState {
+        final StatementActivity activity;
+        long reads;
+        long fetches;
+        Timestamp startTime;
+
+        StatementState(StatementActivity activity) {
+            this.activity = activity;
+        }
+    }
+
+    /**
+     * Per-minute counters of one fingerprint.
+     * A fingerprint which replaced an evicted one inherits its counters (Space-Saving),
+     * the inherited reads are kept as the error bound and age out with them.
+     */
+    private static class StatementActivity {
+        final String sqlText;
+        final long[] minutes = new long[BUCKET_COUNT];
+        final long[] reads = new long[BUCKET_COUNT];
+        final long[] fetches = new long[BUCKET_COUNT];
+        final long[] activeTime = new long[BUCKET_COUNT];
+        final long[] inheritedReads = new long[BUCKET_COUNT];
+
+        StatementActivity(String sqlText) {
+            this.sqlText = sqlText;
+        }
+
+        StatementActivity(String sqlText, StatementActivity victim) {
+            this.sqlText = sqlText;
+            System.arraycopy(victim.minutes, 0, minutes, 0, BUCKET_COUNT);
+            System.arraycopy(victim.reads, 0, reads, 0, BUCKET_COUNT);
+            System.arraycopy(victim.fetches, 0, fetches, 0, BUCKET_COUNT);
+            System.arraycopy(victim.activeTime, 0, activeTime, 0, BUCKET_COUNT);
+            System.arraycopy(victim.reads, 0, inheritedReads, 0, BUCKET_COUNT);
+        }
+
+        void add(long minute, long readCount, long fetchCount, long activeMillis) {
+            int slot = (int) (minute % BUCKET_COUNT);
+            if (minutes[slot] != minute) {
+                minutes[slot] = minute;
+                reads[slot] = 0;
+                fetches[slot] = 0;
+                activeTime[slot] = 0;
+                inheritedReads[slot] = 0;
+            }
+            reads[slot] += readCount;
+            fetches[slot] += fetchCount;
+            activeTime[slot] += activeMillis;
+        }
+
+        long sum(long[] values, long currentMinute) {
+            long total = 0;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                if (currentMinute - minutes[i] < BUCKET_COUNT) {
+                    total += values[i];
+                }
+            }
+            return total;
+        }
+    }
+
+    private final FireBirdDataSource dataSource;
+    private final FireBirdMonitorHistory history;
+    private final Map<String, StatementActivity> activities = new HashMap<>();
+    private Map<Long, StatementState> statements = new HashMap<>();
+    private DBCExecutionContext context;
+    private long interval = MIN_INTERVAL;
+    private long lastSampleTime;
+    private long[] lastPageCounters;
+    private volatile boolean stopped;
+
+    public FireBirdMonitorSampler(@NotNull FireBirdDataSource dataSource, int historySize) {
+        super("Sample server activity (" + dataSource.getName() + ")");
+        this.dataSource = dataSource;
+        this.history = new FireBirdMonitorHistory(historySize);
+        setSystem(true);
+        setUser(false);
+    }
+
+    @NotNull
+    public FireBirdMonitorHistory getHistory() {
+        return history;
+    }
+
+    /**
+     * Current sampling interval (ms)
+     */
+    public synchronized long getInterval() {
+        return interval;
+    }
+
+    public void start() {
+        stopped = false;
+        schedule();
+    }
+
+    public void stop() {
+        stopped = true;
+        cancel();
+        synchronized (this) {
+            closeContext();
+        }
+    }
+
+    /**
+     * Statements with the most page reads during the last hour
+     */
+    @NotNull
+    public List<FireBirdTopStatement> getTopByReads(int count) {
+        return getTopStatements(count, FireBirdTopStatement::getReads);
+    }
+
+    /**
+     * Statements which were executing for the longest time during the last hour
+     */
+    @NotNull
+    public List<FireBirdTopStatement> getTopByActiveTime(int count) {
+        return getTopStatements(count, FireBirdTopStatement::getActiveTime);
+    }
+
+    private synchronized List<FireBirdTopStatement> getTopStatements(int count, ToLongFunction<FireBirdTopStatement> measure) {
+        long minute = TimeUnit.MILLISECONDS.toMinutes(System.currentTimeMillis());
+        List<FireBirdTopStatement> result = new ArrayList<>();
+        for (StatementActivity activity : activities.values()) {
+            FireBirdTopStatement statement = new FireBirdTopStatement(
+                activity.sqlText,
+                activity.sum(activity.reads, minute),
+                activity.sum(activity.fetches, minute),
+                activity.sum(activity.activeTime, minute),
+                activity.sum(activity.inheritedReads, minute));
+            if (measure.applyAsLong(statement) > 0) {
+                result.add(statement);
+            }
+        }
+        result.sort((s1, s2) -> Long.compare(measure.applyAsLong(s2), measure.applyAsLong(s1)));
+        return result.size() > count ? new ArrayList<>(result.subList(0, count)) : result;
+    }
+
+    @Override
+    protected IStatus run(DBRProgressMonitor monitor) {
+        if (stopped) {
+            return Status.CANCEL_STATUS;
+        }
+        synchronized (this) {
+            long startTime = System.currentTimeMillis();
+            boolean idle = true;
+            try {
+                idle = sample(monitor);
+            } catch (SQLException | DBException e) {
+                LOG.debug("Error sampling server activity", e);
+                // Reconnect on the next run
+                closeContext();
+            }
+            long cost = System.currentTimeMillis() - startTime;
+            long nextInterval = idle ? interval * 2 : MIN_INTERVAL;
+            interval = Math.min(MAX_INTERVAL, Math.max(nextInterval, cost * OVERHEAD_RATIO));
+        }
+        if (!stopped) {
+            schedule(interval);
+        }
+        return Status.OK_STATUS;
+    }
+
+    /**
+     * Takes one sample. Returns true if there was no activity.
+     */
+    private boolean sample(DBRProgressMonitor monitor) throws SQLException, DBException {
+        if (context == null) {
+            context = dataSource.getDefaultInstance().openIsolatedContext(monitor, "Activity sampler");
+        }
+        long now = System.currentTimeMillis();
+        long minute = TimeUnit.MILLISECONDS.toMinutes(now);
+        int activeCount;
+        long pageDelta;
+        try (JDBCSession session = (JDBCSession) context.openSession(monitor, DBCExecutionPurpose.UTIL, "Sample server activity")) {
+            // MON$ snapshot is built once per transaction
+            session.getOriginal().setAutoCommit(false);
+            try {
+                Timestamp serverTime;
+                try (JDBCPreparedStatement dbStat = session.prepareStatement(SQL_DATABASE)) {
+                    try (JDBCResultSet dbResult = dbStat.executeQuery()) {
+                        if (!dbResult.next()) {
+                            return true;
+                        }
+                        serverTime = JDBCUtils.safeGetTimestamp(dbResult, 1);
+                        activeCount = JDBCUtils.safeGetInt(dbResult, 4);
+                        long[] pageCounters = new long[4];
+                        for (int i = 0; i < pageCounters.length; i++) {
+                            pageCounters[i] = JDBCUtils.safeGetLong(dbResult, 5 + i);
+                        }
+                        long[] deltas = new long[4];
+                        if (lastPageCounters != null) {
+                            for (int i = 0; i < deltas.length; i++) {
+                                deltas[i] = Math.max(0, pageCounters[i] - lastPageCounters[i]);
+                            }
+                        }
+                        lastPageCounters = pageCounters;
+                        pageDelta = deltas[0] + deltas[1] + deltas[2];
+                        history.add(now, JDBCUtils.safeGetInt(dbResult, 2), JDBCUtils.safeGetInt(dbResult, 3), activeCount,
+                            deltas[0], deltas[1], deltas[2], deltas[3]);
+                    }
+                }
+                sampleStatements(session, serverTime, now, minute);
+            } finally {
+                session.getOriginal().commit();
+            }
+        }
+        lastSampleTime = now;
+        return activeCount == 0 && pageDelta == 0;
+    }
+
+    private void sampleStatements(JDBCSession session, Timestamp serverTime, long now, long minute) throws SQLException {
+        long elapsed = lastSampleTime == 0 ? 0 : now - lastSampleTime;
+        Map<Long, StatementState> newStatements = new HashMap<>();
+        Map<Long, Object[]> unknown = new HashMap<>();
+        try (JDBCPreparedStatement dbStat = session.prepareStatement(SQL_STATEMENTS)) {
+            try (JDBCResultSet dbResult = dbStat.executeQuery()) {
+                while (dbResult.next()) {
+                    long statementId = JDBCUtils.safeGetLong(dbResult, 1);
+                    Object[] values = {
+                        JDBCUtils.safeGetInt(dbResult, 2),
+                        JDBCUtils.safeGetTimestamp(dbResult, 3),
+                        JDBCUtils.safeGetLong(dbResult, 4),
+                        JDBCUtils.safeGetLong(dbResult, 5)
+                    };
+                    StatementState state = statements.get(statementId);
+                    if (state == null) {
+                        unknown.put(statementId, values);
+                    } else {
+                        updateStatement(state, values, serverTime, elapsed, minute);
+                        newStatements.put(statementId, state);
+                    }
+                }
+            }
+        }
+        if (!unknown.isEmpty()) {
+            // SQL text is read only for statements not seen before
+            Map<Long, String> texts = readStatementTexts(session, new ArrayList<>(unknown.keySet()));
+            for (Map.Entry<Long, Object[]> entry : unknown.entrySet()) {
+                String sqlText = texts.get(entry.getKey());
+                if (sqlText == null) {
+                    continue;
+                }
+                StatementState state = new StatementState(getActivity(sqlText, minute));
+                updateStatement(state, entry.getValue(), serverTime, elapsed, minute);
+                newStatements.put(entry.getKey(), state);
+            }
+        }
+        statements = newStatements;
+    }
+
+    private static void updateStatement(StatementState state, Object[] values, Timestamp serverTime, long elapsed, long minute) {
+        boolean active = (Integer) values[0] == 1;
+        Timestamp startTime = (Timestamp) values[1];
+        long reads = (Long) values[2];
+        long fetches = (Long) values[3];
+        // Counters are reset when the statement is executed again
+        boolean restarted = startTime != null && !startTime.equals(state.startTime);
+        long readDelta = restarted || reads < state.reads ? reads : reads - state.reads;
+        long fetchDelta = restarted || fetches < state.fetches ? fetches : fetches - state.fetches;
+        long activeTime = 0;
+        if (active && startTime != null && serverTime != null) {
+            long executionTime = Math.max(0, serverTime.getTime() - startTime.getTime());
+            activeTime = restarted || elapsed == 0 ? executionTime : Math.min(elapsed, executionTime);
+        }
+        state.activity.add(minute, readDelta, fetchDelta, activeTime);
+        state.reads = reads;
+        state.fetches = fetches;
+        state.startTime = startTime;
+    }
+
+    private StatementActivity getActivity(String sqlText, long minute) {
+        String fingerprint = FireBirdPlanCache.normalizeQuery(sqlText);
+        StatementActivity activity = activities.get(fingerprint);
+        if (activity == null) {
+            StatementActivity victim = activities.size() >= MAX_FINGERPRINTS ? evictActivity(minute) : null;
+            activity = victim == null ? new StatementActivity(sqlText) : new StatementActivity(sqlText, victim);
+            activities.put(fingerprint, activity);
+        }
+        return activity;
+    }
+
+    /**
+     * Removes the fingerprint with the least page reads during the last hour
+     */
+    private StatementActivity evictActivity(long minute) {
+        long minReads = Long.MAX_VALUE;
+        String victimKey = null;
+        for (Map.Entry<String, StatementActivity> entry : activities.entrySet()) {
+            long reads = entry.getValue().sum(entry.getValue().reads, minute);
+            if (reads < minReads) {
+                minReads = reads;
+                victimKey = entry.getKey();
+            }
+        }
+        return victimKey == null ? null : activities.remove(victimKey);
+    }
+
+    private static Map<Long, String> readStatementTexts(JDBCSession session, List<Long> statementIds) throws SQLException {
+        Map<Long, String> result = new HashMap<>();
+        for (int offset = 0; offset < statementIds.size(); offset += TEXT_BATCH_SIZE) {
+            List<Long> batch = statementIds.subList(offset, Math.min(statementIds.size(), offset + TEXT_BATCH_SIZE));
+            StringBuilder sql = new StringBuilder("SELECT MON$STATEMENT_ID, MON$SQL_TEXT FROM MON$STATEMENTS WHERE MON$STATEMENT_ID IN (");
+            for (int i = 0; i < batch.size(); i++) {
+                sql.append(i == 0 ? "?" : ",?");
+            }
+            try (JDBCPreparedStatement dbStat = session.prepareStatement(sql.append(")").toString())) {
+                for (int i = 0; i < batch.size(); i++) {
+                    dbStat.setLong(i + 1, batch.get(i));
+                }
+                try (JDBCResultSet dbResult = dbStat.executeQuery()) {
+                    while (dbResult.next()) {
+                        String sqlText = JDBCUtils.safeGetString(dbResult, 2);
+                        if (sqlText != null && !sqlText.trim().isEmpty()) {
+                            result.put(JDBCUtils.safeGetLong(dbResult, 1), sqlText);
+                        }
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    private void closeContext() {
+        if (context != null) {
+            context.close();
+            context = null;
+        }
+        statements.clear();
+        lastPageCounters = null;
+        lastSampleTime = 0;
+    }
+}
@@ -16,10 +16,11 @@
  */
 package org.jkiss.dbeaver.ext.firebird.model;
 
+import org.jkiss.dbeaver.DBException;
+import org.jkiss.dbeaver.Log;
 import org.jkiss.dbeaver.ext.generic.model.GenericSequence;
 import org.jkiss.dbeaver.ext.generic.model.GenericStructContainer;
 import org.jkiss.dbeaver.model.DBUtils;
-import org.jkiss.dbeaver.model.exec.DBCException;
 import org.jkiss.dbeaver.model.exec.jdbc.JDBCPreparedStatement;
 import org.jkiss.dbeaver.model.exec.jdbc.JDBCResultSet;
 import org.jkiss.dbeaver.model.exec.jdbc.JDBCSession;
@@ -28,12 +29,25 @@ import org.jkiss.dbeaver.model.meta.Property;
 import org.jkiss.dbeaver.model.runtime.DBRProgressMonitor;
 
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * FireBirdDataSource
  */
 public class FireBirdSequence extends GenericSequence {
 
+    private static final Log LOG = Log.getLog(FireBirdSequence.class);
+
+    // Max number of GEN_ID calls in one select
+    private static final int LAST_VALUE_BATCH_SIZE = 200;
+
+    private String identityTable;
+    private String identityColumn;
+    // Value epoch of the data source in which the last value was read (or failed to be read)
+    private volatile int lastValueEpoch = -1;
+
     public FireBirdSequence(GenericStructContainer container, String name, String description, Number lastValue, Number minValue, Number maxValue, Number incrementBy) {
         super(container, name, description, lastValue, minValue, maxValue, incrementBy);
     }
@@ -44,19 +58,101 @@ public class FireBirdSequence extends GenericSequence {
     }
 
     @Property(viewable = true, order = 2)
-    public Number getLastValue(DBRProgressMonitor monitor) throws DBCException {
-        if (super.getLastValue() == null) {
+    public Number getLastValue(DBRProgressMonitor monitor) throws DBException {
+        if (!isLastValueRead()) {
+            // Read values of all sequences of the container at once
+            List<FireBirdSequence> sequences = new ArrayList<>();
+            for (GenericSequence sequence : getContainer().getSequences(monitor)) {
+                if (sequence instanceof FireBirdSequence && !((FireBirdSequence) sequence).isLastValueRead()) {
+                    sequences.add((FireBirdSequence) sequence);
+                }
+            }
+            if (!sequences.contains(this)) {
+                sequences.add(this);
+            }
             try (JDBCSession session = DBUtils.openMetaSession(monitor, this, "Read sequence last value")) {
-                try (JDBCPreparedStatement dbSeqStat = session.prepareStatement("SELECT GEN_ID(\"" + getName() + "\", 0) from RDB$DATABASE")) {
-                    try (JDBCResultSet seqResults = dbSeqStat.executeQuery()) {
-                        seqResults.next();
-                        setLastValue(JDBCUtils.safeGetLong(seqResults, 1));
+                readLastValues(session, sequences);
+            }
+        }
+        return super.getLastValue();
+    }
+
+    /**
+     * Whether the last value was already read (or failed to be read) since the last refresh
+     */
+    boolean isLastValueRead() {
+        return lastValueEpoch == ((FireBirdDataSource) getDataSource()).getSequenceValuesEpoch();
+    }
+
+    /**
+     * Table of the identity column which uses this sequence (Firebird 3+)
+     */
+    public String getIdentityTable() {
+        return identityTable;
+    }
+
+    public String getIdentityColumn() {
+        return identityColumn;
+    }
+
+    @Property(viewable = true, order = 10)
+    public String getIdentityColumnName() {
+        return identityTable == null ? null : identityTable + "." + identityColumn;
+    }
+
+    void setIdentityColumn(String identityTable, String identityColumn) {
+        this.identityTable = identityTable;
+        this.identityColumn = identityColumn;
+    }
+
+    /**
+     * Reads current values of the sequences with a few selects of GEN_ID(name, 0) columns.
+     * If a batch fails (e.g. no USAGE privilege on one generator) its sequences are read one by one,
+     * values of the sequences which still can't be read are left empty.
+     */
+    static void readLastValues(JDBCSession session, List<FireBirdSequence> sequences) {
+        if (sequences.isEmpty()) {
+            return;
+        }
+        int epoch = ((FireBirdDataSource) sequences.get(0).getDataSource()).getSequenceValuesEpoch();
+        for (int start = 0; start < sequences.size(); start += LAST_VALUE_BATCH_SIZE) {
+            List<FireBirdSequence> batch = sequences.subList(start, Math.min(start + LAST_VALUE_BATCH_SIZE, sequences.size()));
+            try {
+                readBatchValues(session, batch);
+            } catch (SQLException e) {
+                for (FireBirdSequence sequence : batch) {
+                    try {
+                        readBatchValues(session, Collections.singletonList(sequence));
+                    } catch (SQLException e1) {
+                        LOG.debug("Can't read last value of sequence '" + sequence.getName() + "': " + e1.getMessage());
+                        sequence.setLastValue(null);
+                    }
+                }
+            }
+            // Failed reads are not repeated until the next refresh
+            for (FireBirdSequence sequence : batch) {
+                sequence.lastValueEpoch = epoch;
+            }
+        }
+    }
+
+    private static void readBatchValues(JDBCSession session, List<FireBirdSequence> batch) throws SQLException {
+        StringBuilder sql = new StringBuilder("SELECT ");
+        for (int i = 0; i < batch.size(); i++) {
+            if (i > 0) {
+                sql.append(",");
+            }
+            sql.append("GEN_ID(\"").append(batch.get(i).getName().replace("\"", "\"\"")).append("\", 0)");
+        }
+        sql.append(" FROM RDB$DATABASE");
+        try (JDBCPreparedStatement dbStat = session.prepareStatement(sql.toString())) {
+            try (JDBCResultSet dbResult = dbStat.executeQuery()) {
+                if (dbResult.next()) {
+                    for (int i = 0; i < batch.size(); i++) {
+                        batch.get(i).setLastValue(JDBCUtils.safeGetLong(dbResult, i + 1));
                     }
-                } catch (SQLException e) {
-                    throw new  DBCException("Error reading sequence last value", e);
                 }
             }
         }
-        return super.getLastValue();
     }
 }
@@ -0,0 +1,235 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2019 Serge Rider (serge@jkiss.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.ext.firebird.model;
+
+import org.jkiss.code.NotNull;
+import org.jkiss.dbeaver.DBException;
+import org.jkiss.dbeaver.Log;
+import org.jkiss.dbeaver.ext.generic.model.GenericTableBase;
+import org.jkiss.dbeaver.model.DBUtils;
+import org.jkiss.dbeaver.model.exec.jdbc.JDBCResultSet;
+import org.jkiss.dbeaver.model.exec.jdbc.JDBCSession;
+import org.jkiss.dbeaver.model.exec.jdbc.JDBCStatement;
+import org.jkiss.dbeaver.model.runtime.DBRProgressMonitor;
+
+import java.nio.ByteBuffer;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Compares stored index selectivity with an estimate computed from a random sample of records.
+ * One sample per relation is read (all indexed columns at once), distinct key counts are
+ * extrapolated with the GEE estimator: D = sqrt(N / n) * f1 + sum(fj, j >= 2), where fj is
+ * the number of keys which occur exactly j times in the sample of n records out of N.
+ * Sampling probability and N come from data pages (RDB$PAGES) and the sample itself, never from
+ * the stored statistics being checked. Firebird has no block sampling, so each sample still
+ * scans the whole relation: run it in a maintenance window.
+ */
+public class FireBirdStatisticsDriftDetector {
+
+    private static final Log LOG = Log.getLog(FireBirdStatisticsDriftDetector.class);
+
+    public static final int DEFAULT_SAMPLE_SIZE = 10000;
+
+    // Page based size ignores record compression, so the sample may exceed the planned size this many times
+    private static final int MAX_SAMPLE_FACTOR = 10;
+
+    private final FireBirdDataSource dataSource;
+    private int sampleSize = DEFAULT_SAMPLE_SIZE;
+
+    public FireBirdStatisticsDriftDetector(@NotNull FireBirdDataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    public int getSampleSize() {
+        return sampleSize;
+    }
+
+    public void setSampleSize(int sampleSize) {
+        this.sampleSize = sampleSize;
+    }
+
+    /**
+     * Checks indexes of all user tables
+     */
+    @NotNull
+    public List<FireBirdIndexDrift> detect(@NotNull DBRProgressMonitor monitor) throws DBException {
+        return detect(monitor, getUserRelations(monitor));
+    }
+
+    /**
+     * Names of user tables (views are not sampled)
+     */
+    @NotNull
+    public List<String> getUserRelations(@NotNull DBRProgressMonitor monitor) throws DBException {
+        List<String> relationNames = new ArrayList<>();
+        Collection<? extends GenericTableBase> tables = dataSource.getTables(monitor);
+        if (tables != null) {
+            for (GenericTableBase table : tables) {
+                if (!table.isView() && !table.isSystem()) {
+                    relationNames.add(table.getName());
+                }
+            }
+        }
+        return relationNames;
+    }
+
+    /**
+     * Returns indexes of the specified relations ordered by drift (largest first)
+     */
+    @NotNull
+    public List<FireBirdIndexDrift> detect(@NotNull DBRProgressMonitor monitor, @NotNull Collection<String> relationNames) throws DBException {
+        try (JDBCSession session = DBUtils.openUtilSession(monitor, dataSource, "Sample index keys")) {
+            return detect(session, relationNames);
+        }
+    }
+
+    /**
+     * Samples the specified relations with the given session (e.g. of an isolated context)
+     */
+    @NotNull
+    public List<FireBirdIndexDrift> detect(@NotNull JDBCSession session, @NotNull Collection<String> relationNames) throws DBException {
+        DBRProgressMonitor monitor = session.getProgressMonitor();
+        List<FireBirdIndexDrift> result = new ArrayList<>();
+        FireBirdIndexStatisticsCache statisticsCache = dataSource.getIndexStatisticsCache();
+        try {
+            Map<String, List<FireBirdIndexStatistics>> relationIndexes = statisticsCache.getRelationIndexes(session, relationNames);
+            monitor.beginTask("Sample " + relationIndexes.size() + " relations", relationIndexes.size());
+            for (Map.Entry<String, List<FireBirdIndexStatistics>> entry : relationIndexes.entrySet()) {
+                if (monitor.isCanceled()) {
+                    break;
+                }
+                monitor.subTask(entry.getKey());
+                try {
+                    sampleRelation(session, entry.getKey(), entry.getValue(), result);
+                } catch (SQLException | DBException e) {
+                    LOG.debug("Can't sample relation " + entry.getKey(), e);
+                }
+                monitor.worked(1);
+            }
+            monitor.done();
+        } catch (SQLException e) {
+            throw new DBException(e, dataSource);
+        }
+        sortByDrift(result);
+        return result;
+    }
+
+    static void sortByDrift(List<FireBirdIndexDrift> drift) {
+        drift.sort((d1, d2) -> Double.compare(d2.getDrift(), d1.getDrift()));
+    }
+
+    private void sampleRelation(JDBCSession session, String relationName, List<FireBirdIndexStatistics> indexes, List<FireBirdIndexDrift> result) throws SQLException, DBException {
+        Set<String> columns = new LinkedHashSet<>();
+        for (FireBirdIndexStatistics index : indexes) {
+            for (FireBirdIndexStatistics.Segment segment : index.getSegments()) {
+                columns.add(segment.getFieldName());
+            }
+        }
+        if (columns.isEmpty()) {
+            return;
+        }
+        List<String> columnList = new ArrayList<>(columns);
+        // Small relations (one pointer page) are read completely
+        FireBirdTableEstimate estimate = dataSource.getTableEstimateCache().getEstimate(session.getProgressMonitor(), relationName);
+        Long pageRows = estimate == null ? null : estimate.getPageRowCount();
+        double probability = pageRows == null || pageRows <= sampleSize ? 1 : (double) sampleSize / pageRows;
+        // The limit only bounds memory: a sample cut by it covers the first pages only and is discarded
+        int maxRows = sampleSize * MAX_SAMPLE_FACTOR;
+        StringBuilder sql = new StringBuilder("SELECT FIRST ").append(maxRows + 1).append(" ");
+        for (int i = 0; i < columnList.size(); i++) {
+            sql.append(i == 0 ? "" : ", ").append(DBUtils.getQuotedIdentifier(dataSource, columnList.get(i)));
+        }
+        sql.append(" FROM ").append(DBUtils.getQuotedIdentifier(dataSource, relationName));
+        if (probability < 1) {
+            sql.append(" WHERE RAND() < ").append(String.format(Locale.ENGLISH, "%.8f", probability));
+        }
+
+        List<Object[]> sample = new ArrayList<>();
+        try (JDBCStatement dbStat = session.createStatement()) {
+            try (JDBCResultSet dbResult = dbStat.executeQuery(sql.toString())) {
+                while (dbResult.next()) {
+                    Object[] row = new Object[columnList.size()];
+                    for (int i = 0; i < row.length; i++) {
+                        Object value = dbResult.getObject(i + 1);
+                        // Binary keys are compared by content
+                        row[i] = value instanceof byte[] ? ByteBuffer.wrap((byte[]) value) : value;
+                    }
+                    sample.add(row);
+                }
+            }
+        }
+        if (sample.size() > maxRows) {
+            LOG.debug("Sample of relation " + relationName + " exceeds " + maxRows + " records, its indexes are skipped");
+            return;
+        }
+        if (sample.isEmpty()) {
+            return;
+        }
+        // Each record was taken with the same probability
+        double total = sample.size() / probability;
+
+        for (FireBirdIndexStatistics index : indexes) {
+            if (index.getSegments().isEmpty()) {
+                continue;
+            }
+            int[] positions = new int[index.getSegments().size()];
+            for (int i = 0; i < positions.length; i++) {
+                positions[i] = columnList.indexOf(index.getSegments().get(i).getFieldName());
+            }
+            double distinct = estimateDistinct(sample, positions, total);
+            result.add(new FireBirdIndexDrift(index.getIndexName(), relationName, index.getStatistics(), 1 / distinct, sample.size()));
+        }
+    }
+
+    static double estimateDistinct(List<Object[]> sample, int[] positions, double total) {
+        Map<Object, Integer> frequencies = new HashMap<>();
+        for (Object[] row : sample) {
+            Object key;
+            if (positions.length == 1) {
+                key = row[positions[0]];
+            } else {
+                Object[] values = new Object[positions.length];
+                for (int i = 0; i < positions.length; i++) {
+                    values[i] = row[positions[i]];
+                }
+                key = Arrays.asList(values);
+            }
+            frequencies.merge(key, 1, Integer::sum);
+        }
+        int n = sample.size();
+        if (n >= total) {
+            return frequencies.size();
+        }
+        int singletons = 0;
+        for (Integer frequency : frequencies.values()) {
+            if (frequency == 1) {
+                singletons++;
+            }
+        }
+        double distinct = Math.sqrt(total / n) * singletons + (frequencies.size() - singletons);
+        return Math.max(1, Math.min(distinct, total));
+    }
+}
@@ -0,0 +1,275 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2019 Serge Rider (serge@jkiss.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.ext.firebird.model;
+
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
+import org.jkiss.dbeaver.DBException;
+import org.jkiss.dbeaver.Log;
+import org.jkiss.dbeaver.model.DBUtils;
+import org.jkiss.dbeaver.model.exec.DBCExecutionContext;
+import org.jkiss.dbeaver.model.exec.DBCExecutionPurpose;
+import org.jkiss.dbeaver.model.exec.jdbc.JDBCSession;
+import org.jkiss.dbeaver.model.exec.jdbc.JDBCStatement;
+import org.jkiss.dbeaver.model.runtime.AbstractJob;
+import org.jkiss.dbeaver.model.runtime.DBRProgressMonitor;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Recomputes drifted index statistics inside the maintenance window.
+ * Each run detects drift if there is nothing to do, then executes SET STATISTICS INDEX
+ * one index at a time with a pause between statements. Both use their own connection.
+ * Relations not sampled and indexes left when the window closes are processed in the next window.
+ */
+public class FireBirdStatisticsJob extends AbstractJob {
+
+    private static final Log LOG = Log.getLog(FireBirdStatisticsJob.class);
+
+    public static final double DEFAULT_DRIFT_THRESHOLD = 2;
+    public static final long DEFAULT_THROTTLE = 5000;
+
+    private final FireBirdDataSource dataSource;
+    private final LocalTime windowStart;
+    private final LocalTime windowEnd;
+    private volatile double driftThreshold = DEFAULT_DRIFT_THRESHOLD;
+    private volatile long throttle = DEFAULT_THROTTLE;
+    private final Queue<String> pendingIndexes = new ConcurrentLinkedQueue<>();
+    // Relations left to sample and drift found so far by the detection in progress (used by the job thread only)
+    private final Queue<String> driftRelations = new ArrayDeque<>();
+    private final List<FireBirdIndexDrift> driftInProgress = new ArrayList<>();
+    private volatile List<FireBirdIndexDrift> lastDrift = Collections.emptyList();
+    private volatile boolean stopped;
+
+    public FireBirdStatisticsJob(@NotNull FireBirdDataSource dataSource, @NotNull LocalTime windowStart, @NotNull LocalTime windowEnd) {
+        super("Update index statistics (" + dataSource.getName() + ")");
+        this.dataSource = dataSource;
+        this.windowStart = windowStart;
+        this.windowEnd = windowEnd;
+        setSystem(true);
+        setUser(false);
+    }
+
+    /**
+     * Creates job for the window in HH:mm-HH:mm format (may cross midnight). Returns null for invalid window.
+     */
+    @Nullable
+    public static FireBirdStatisticsJob create(@NotNull FireBirdDataSource dataSource, @NotNull String window) {
+        int divPos = window.indexOf('-');
+        if (divPos < 0) {
+            return null;
+        }
+        try {
+            return new FireBirdStatisticsJob(dataSource,
+                LocalTime.parse(window.substring(0, divPos).trim()),
+                LocalTime.parse(window.substring(divPos + 1).trim()));
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    public double getDriftThreshold() {
+        return driftThreshold;
+    }
+
+    public void setDriftThreshold(double driftThreshold) {
+        this.driftThreshold = driftThreshold;
+    }
+
+    /**
+     * Pause between two SET STATISTICS statements (ms)
+     */
+    public long getThrottle() {
+        return throttle;
+    }
+
+    public void setThrottle(long throttle) {
+        this.throttle = throttle;
+    }
+
+    /**
+     * Drift found by the last detection
+     */
+    @NotNull
+    public List<FireBirdIndexDrift> getLastDrift() {
+        return lastDrift;
+    }
+
+    /**
+     * Adds indexes to be processed in the next window
+     */
+    public void addIndexes(@NotNull Collection<String> indexNames) {
+        for (String indexName : indexNames) {
+            if (!pendingIndexes.contains(indexName)) {
+                pendingIndexes.add(indexName);
+            }
+        }
+    }
+
+    public void start() {
+        stopped = false;
+        schedule(getDelay(LocalTime.now()));
+    }
+
+    public void stop() {
+        stopped = true;
+        cancel();
+    }
+
+    @Override
+    protected IStatus run(DBRProgressMonitor monitor) {
+        if (stopped) {
+            return Status.CANCEL_STATUS;
+        }
+        if (isInWindow(LocalTime.now())) {
+            if (pendingIndexes.isEmpty()) {
+                detectDrift(monitor);
+            }
+            updateStatistics(monitor);
+        }
+        if (monitor.isCanceled()) {
+            return Status.CANCEL_STATUS;
+        }
+        if (!stopped) {
+            schedule(getDelay(LocalTime.now()));
+        }
+        return Status.OK_STATUS;
+    }
+
+    private void detectDrift(DBRProgressMonitor monitor) {
+        FireBirdStatisticsDriftDetector detector = new FireBirdStatisticsDriftDetector(dataSource);
+        if (driftRelations.isEmpty()) {
+            try {
+                driftRelations.addAll(detector.getUserRelations(monitor));
+            } catch (DBException e) {
+                LOG.debug("Can't read relations to sample", e);
+                return;
+            }
+            driftInProgress.clear();
+        }
+        DBCExecutionContext context;
+        try {
+            context = dataSource.getDefaultInstance().openIsolatedContext(monitor, "Detect index statistics drift");
+        } catch (DBException e) {
+            LOG.debug("Can't open statistics drift connection", e);
+            return;
+        }
+        try (JDBCSession session = (JDBCSession) context.openSession(monitor, DBCExecutionPurpose.UTIL, "Sample index keys")) {
+            String relationName;
+            while (!stopped && !monitor.isCanceled() && isInWindow(LocalTime.now()) && (relationName = driftRelations.peek()) != null) {
+                try {
+                    List<FireBirdIndexDrift> relationDrift = detector.detect(session, Collections.singletonList(relationName));
+                    if (monitor.isCanceled()) {
+                        // Interrupted relation is sampled again
+                        break;
+                    }
+                    driftInProgress.addAll(relationDrift);
+                } catch (DBException e) {
+                    LOG.debug("Can't detect index statistics drift of " + relationName, e);
+                }
+                driftRelations.poll();
+            }
+        } finally {
+            context.close();
+        }
+        if (!driftRelations.isEmpty()) {
+            // Continued in the next window
+            return;
+        }
+        FireBirdStatisticsDriftDetector.sortByDrift(driftInProgress);
+        lastDrift = new ArrayList<>(driftInProgress);
+        driftInProgress.clear();
+        for (FireBirdIndexDrift drift : lastDrift) {
+            if (drift.getDrift() >= driftThreshold && !pendingIndexes.contains(drift.getIndexName())) {
+                pendingIndexes.add(drift.getIndexName());
+            }
+        }
+    }
+
+    private void updateStatistics(DBRProgressMonitor monitor) {
+        if (pendingIndexes.isEmpty()) {
+            return;
+        }
+        DBCExecutionContext context;
+        try {
+            context = dataSource.getDefaultInstance().openIsolatedContext(monitor, "Update index statistics");
+        } catch (DBException e) {
+            LOG.debug("Can't open statistics update connection", e);
+            return;
+        }
+        try (JDBCSession session = (JDBCSession) context.openSession(monitor, DBCExecutionPurpose.UTIL, "Update index statistics")) {
+            session.getOriginal().setAutoCommit(true);
+            String indexName;
+            while (!stopped && !monitor.isCanceled() && isInWindow(LocalTime.now()) && (indexName = pendingIndexes.poll()) != null) {
+                monitor.subTask("Update statistics of " + indexName);
+                try (JDBCStatement dbStat = session.createStatement()) {
+                    dbStat.execute("SET STATISTICS INDEX " + DBUtils.getQuotedIdentifier(dataSource, indexName));
+                } catch (SQLException e) {
+                    // Dropped index or insufficient privileges
+                    LOG.debug("Can't update statistics of " + indexName, e);
+                }
+                dataSource.getIndexStatisticsCache().invalidate(indexName);
+                if (!pendingIndexes.isEmpty()) {
+                    try {
+                        Thread.sleep(throttle);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            LOG.debug("Error in statistics update connection", e);
+        } finally {
+            context.close();
+        }
+    }
+
+    boolean isInWindow(LocalTime time) {
+        if (windowStart.isBefore(windowEnd)) {
+            return !time.isBefore(windowStart) && time.isBefore(windowEnd);
+        }
+        // Window crosses midnight
+        return !time.isBefore(windowStart) || time.isBefore(windowEnd);
+    }
+
+    /**
+     * Delay till the start of the next window (ms). Zero while in the window with pending work.
+     */
+    private long getDelay(LocalTime time) {
+        if (isInWindow(time) && !pendingIndexes.isEmpty()) {
+            return 0;
+        }
+        long delay = Duration.between(time, windowStart).toMillis();
+        if (delay <= 0) {
+            delay += Duration.ofDays(1).toMillis();
+        }
+        return delay;
+    }
+}
@@ -16,7 +16,6 @@
  */
 package org.jkiss.dbeaver.ext.firebird.model;
 
-import java.sql.SQLException;
 import org.jkiss.code.NotNull;
 import org.jkiss.code.Nullable;
 import org.jkiss.dbeaver.DBException;
@@ -26,6 +25,7 @@ import org.jkiss.dbeaver.ext.generic.model.GenericTableColumn;
 import org.jkiss.dbeaver.model.DBPNamedObject2;
 import org.jkiss.dbeaver.model.DBUtils;
 import org.jkiss.dbeaver.model.exec.jdbc.JDBCResultSet;
+import org.jkiss.dbeaver.model.meta.Property;
 import org.jkiss.dbeaver.model.runtime.DBRProgressMonitor;
 
 import java.util.ArrayList;
@@ -35,15 +35,15 @@ import java.util.List;
 import org.jkiss.dbeaver.Log;
 import org.jkiss.dbeaver.ext.generic.model.GenericTableForeignKey;
 import org.jkiss.dbeaver.ext.generic.model.GenericTableForeignKeyColumnTable;
-import org.jkiss.dbeaver.model.exec.jdbc.JDBCPreparedStatement;
-import org.jkiss.dbeaver.model.exec.jdbc.JDBCSession;
-import org.jkiss.dbeaver.model.impl.jdbc.JDBCUtils;
 import org.jkiss.dbeaver.model.struct.DBSEntityConstraintType;
+import org.jkiss.dbeaver.model.struct.DBSObject;
 
 public class FireBirdTable extends GenericTable implements DBPNamedObject2 {
 
     private static final Log LOG = Log.getLog(FireBirdDataSource.class);
 
+    private static final String CAT_STATISTICS = "Statistics";
+
     public FireBirdTable(GenericStructContainer container, @Nullable String tableName, @Nullable String tableType, @Nullable JDBCResultSet dbResult) {
         super(container, tableName, tableType, dbResult);
     }
@@ -67,75 +67,79 @@ public class FireBirdTable extends GenericTable implements DBPNamedObject2 {
         return columns;
     }
 
+    @Override
+    public synchronized DBSObject refreshObject(@NotNull DBRProgressMonitor monitor) throws DBException {
+        FireBirdDataSource dataSource = (FireBirdDataSource) getDataSource();
+        dataSource.getColumnDomainCache().invalidate(getName());
+        dataSource.getTriggerCache().invalidate(getName());
+        dataSource.getDependencyGraph().invalidate(getName());
+        dataSource.getIndexStatisticsCache().invalidateRelation(getName());
+        return super.refreshObject(monitor);
+    }
+
+    /**
+     * Record count estimated from unique index selectivity or data pages (no COUNT(*)).
+     * Estimate properties are read from the cache only (empty until the background job reads estimates),
+     * so table lists never wait for the catalog query.
+     */
+    @Property(category = CAT_STATISTICS, viewable = true, order = 30)
+    public Long getEstimatedRowCount() {
+        FireBirdTableEstimate estimate = getCachedEstimate();
+        return estimate == null ? null : estimate.getRowCount();
+    }
+
+    @Property(category = CAT_STATISTICS, viewable = true, order = 31)
+    public Long getDataPageCount() {
+        FireBirdTableEstimate estimate = getCachedEstimate();
+        return estimate == null ? null : estimate.getDataPages();
+    }
+
+    /**
+     * Data page bytes per record (includes record versions and free space)
+     */
+    @Property(category = CAT_STATISTICS, viewable = true, order = 32)
+    public Double getAverageRecordSize() {
+        FireBirdTableEstimate estimate = getCachedEstimate();
+        return estimate == null ? null : estimate.getAverageRecordSize();
+    }
+
+    /**
+     * Size estimate if it was already read (reading is scheduled in background otherwise)
+     */
+    @Nullable
+    public FireBirdTableEstimate getCachedEstimate() {
+        return ((FireBirdDataSource) getDataSource()).getTableEstimateCache().getCachedEstimate(getName());
+    }
+
     public Collection<GenericTableForeignKey> getUsedBy(DBRProgressMonitor dbrpm) throws DBException {
         Collection<GenericTableForeignKey> usedBy = new ArrayList<>();
-        String sql = "SELECT RDB$DEPENDENT_NAME, RDB$DEPENDED_ON_NAME, RDB$FIELD_NAME, "
-                + "	CASE RDB$DEPENDENT_TYPE WHEN 0 THEN 'TABLE'"
-                + "	WHEN 1 THEN 'VIEW'"
-                + "	WHEN 2 THEN 'TRIGGER'"
-                + "	WHEN 3 THEN 'COMPUTED COLUMN'"
-                + "	WHEN 4 THEN 'CHECK'"
-                + "	WHEN 5 THEN 'PROCEDURE'"
-                + "	WHEN 6 THEN 'INDEX EXPRESSION'"
-                + "	WHEN 9 THEN 'COLUMN'"
-                + "	WHEN 15 THEN 'FUNCTION'"
-                + "	WHEN 18 THEN 'PACKAGE HEAD'"
-                + "	WHEN 19 THEN 'PACKAGE BODY'"
-                + "	ELSE 'unknown' "
-                + "END RDB$DEPENDENT_TYPE, "
-                + " CASE RDB$DEPENDED_ON_TYPE WHEN 0 THEN 'TABLE'"
-                + "	WHEN 1 THEN 'VIEW'"
-                + "	WHEN 2 THEN 'TRIGGER'"
-                + "	WHEN 3 THEN 'COMPUTED COLUMN'"
-                + "	WHEN 4 THEN 'CHECK'"
-                + "	WHEN 5 THEN 'PROCEDURE'"
-                + "	WHEN 6 THEN 'INDEX EXPRESSION'"
-                + "	WHEN 7 THEN 'EXCEPTION'"
-                + "	WHEN 8 THEN 'USER'"
-                + "	WHEN 9 THEN 'COLUMN'"
-                + "	WHEN 10 THEN 'INDEX'"
-                + "	WHEN 14 THEN 'GENERATOR'"
-                + "	WHEN 15 THEN 'FUNCTION'"
-                + "	WHEN 17 THEN 'SORT'"
-                + "	WHEN 18 THEN 'PACKAGE HEAD'"
-                + "	WHEN 19 THEN 'PACKAGE BODY'"
-                + "	ELSE 'unknown' "
-                + "END RDB$DEPENDED_ON_TYPE, "
-                + "RDB$PACKAGE_NAME "
-                + "FROM RDB$DEPENDENCIES WHERE RDB$DEPENDED_ON_NAME = ?";
-        GenericTableForeignKey fk;
-        try (JDBCSession session = DBUtils.openMetaSession(dbrpm, this, "Read column domain type")) {
-            // Read metadata
-            try (JDBCPreparedStatement dbStat = session.prepareStatement(sql)) {
-                dbStat.setString(1, getName());
-                try (JDBCResultSet dbResult = dbStat.executeQuery()) {
-                    while (dbResult.next()) {
-                        fk = new GenericTableForeignKey(this, JDBCUtils.safeGetString(dbResult, "RDB$DEPENDENT_NAME"),
-                                JDBCUtils.safeGetString(dbResult, "RDB$FIELD_NAME"), null, null, null, null, true);
-                        fk.setConstraintType(DBSEntityConstraintType.ASSOCIATION);
-                        fk.addColumn(new GenericTableForeignKeyColumnTable(fk,
-                                //new GenericTableColumn(this),
-                                this.getAttribute(dbrpm, JDBCUtils.safeGetString(dbResult, "RDB$FIELD_NAME")) /*new GenericTableColumn(this,
-                                        JDBCUtils.safeGetString(dbResult, "RDB$FIELD_NAME"),
-                                        JDBCUtils.safeGetString(dbResult, "RDB$DEPENDENT_TYPE"),
-                                        0, 0, 0, 0, 0, 0, 0, 0, false, "ss", "ww", false, false)*/,
-                                 0, this.getAttribute(dbrpm, JDBCUtils.safeGetString(dbResult, "RDB$FIELD_NAME"))
-                        /*new GenericTableColumn(this,
-                                        JDBCUtils.safeGetString(dbResult, "RDB$FIELD_NAME"),
-                                        JDBCUtils.safeGetString(dbResult, "RDB$DEPENDENT_TYPE"),
-                                        0, 0, 0, 0, 0, 0, 0, 0, false, "ss", "ww", false, false)*/));
-                        usedBy.add(fk);
-                    }
-                }
-            } catch (SQLException ex) {
-                throw new DBException("Error reading column domain type", ex);
-            }
-
-        } //catch (SQLException ex) {
-        //throw new DBException("Error reading column domain type", ex);
-        //}
-        //LOG.info(((GenericTableForeignKey)usedBy.toArray()[0]).getName());
+        for (FireBirdDependency dependency : getDependencyGraph().getUsedBy(dbrpm, FireBirdDependencyType.TABLE, getName())) {
+            GenericTableForeignKey fk = new GenericTableForeignKey(this, dependency.getName(),
+                    dependency.getFieldName(), null, null, null, null, true);
+            fk.setConstraintType(DBSEntityConstraintType.ASSOCIATION);
+            GenericTableColumn column = dependency.getFieldName() == null ? null : getAttribute(dbrpm, dependency.getFieldName());
+            fk.addColumn(new GenericTableForeignKeyColumnTable(fk, column, 0, column));
+            usedBy.add(fk);
+        }
         return usedBy;
     }
 
+    /**
+     * All objects which directly or indirectly depend on this table
+     */
+    public Collection<FireBirdDependency> getTransitiveUsedBy(DBRProgressMonitor monitor) throws DBException {
+        return getDependencyGraph().getTransitiveUsedBy(monitor, FireBirdDependencyType.TABLE, getName());
+    }
+
+    /**
+     * Objects directly referenced by this table
+     */
+    public Collection<FireBirdDependency> getDependsOn(DBRProgressMonitor monitor) throws DBException {
+        return getDependencyGraph().getDependsOn(monitor, FireBirdDependencyType.TABLE, getName());
+    }
+
+    private FireBirdDependencyGraph getDependencyGraph() {
+        return ((FireBirdDataSource) getDataSource()).getDependencyGraph();
+    }
+
 }
@@ -18,86 +18,96 @@ package org.jkiss.dbeaver.ext.firebird.model;
 
 import org.jkiss.code.Nullable;
 import org.jkiss.dbeaver.DBException;
+import org.jkiss.dbeaver.Log;
 import org.jkiss.dbeaver.ext.generic.model.GenericTableBase;
 import org.jkiss.dbeaver.ext.generic.model.GenericTableColumn;
 import org.jkiss.dbeaver.model.DBPDataKind;
 import org.jkiss.dbeaver.model.DBPNamedObject2;
-import org.jkiss.dbeaver.model.DBUtils;
-import org.jkiss.dbeaver.model.exec.jdbc.JDBCPreparedStatement;
-import org.jkiss.dbeaver.model.exec.jdbc.JDBCResultSet;
-import org.jkiss.dbeaver.model.exec.jdbc.JDBCSession;
-import org.jkiss.dbeaver.model.impl.jdbc.JDBCUtils;
 import org.jkiss.dbeaver.model.meta.Property;
 import org.jkiss.dbeaver.model.runtime.DBRProgressMonitor;
 import org.jkiss.dbeaver.model.struct.DBSDataType;
 
-import java.sql.SQLException;
-
 public final class FireBirdTableColumn extends GenericTableColumn implements DBPNamedObject2 {
 
-    private String domainTypeName;
+    private static final Log LOG = Log.getLog(FireBirdTableColumn.class);
+
+    private final boolean domainTyped;
+    private volatile String domainTypeName;
     private FireBirdDataType dataType;
+    private boolean dataTypeResolved;
 
     public FireBirdTableColumn(FireBirdTable table) {
         super(table);
+        this.domainTyped = false;
+        this.dataTypeResolved = true;
     }
 
     public FireBirdTableColumn(DBRProgressMonitor monitor, GenericTableBase table, String columnName, String typeName, int valueType, int sourceType, int ordinalPosition, long columnSize, long charLength, Integer scale, Integer precision, int radix, boolean notNull, String remarks, String defaultValue, boolean autoIncrement, boolean autoGenerated) throws DBException {
         super(table, columnName, typeName, valueType, sourceType, ordinalPosition, columnSize, charLength, scale, precision, radix, notNull, remarks, defaultValue, autoIncrement, autoGenerated);
-        if (typeName.equals("CHAR") || typeName.equals("VARCHAR")) {
-            getDomainTypeName(monitor);
-        }
-        if (domainTypeName != null) {
-            dataType = (FireBirdDataType) table.getDataSource().getLocalDataType(domainTypeName);
-        } else {
-            dataType = (FireBirdDataType) table.getDataSource().getLocalDataType(typeName);
+        // Domain of string columns defines their charset. Domains of all relations are read into
+        // the column domain cache with the first loaded column, so getDataKind() never reads the catalog
+        this.domainTyped = typeName.equals("CHAR") || typeName.equals("VARCHAR");
+        if (domainTyped) {
+            try {
+                this.domainTypeName = ((FireBirdDataSource) table.getDataSource()).getColumnDomainCache().getColumnDomain(
+                    monitor, table.getName(), columnName);
+            } catch (DBException e) {
+                LOG.debug("Error resolving domain of column '" + columnName + "'", e);
+            }
         }
     }
 
     @Override
-    protected void updateColumnDataType(DBSDataType dataType) {
+    protected synchronized void updateColumnDataType(DBSDataType dataType) {
         super.updateColumnDataType(dataType);
         if (dataType instanceof FireBirdDataType) {
             this.dataType = (FireBirdDataType) dataType;
+            this.dataTypeResolved = true;
         }
     }
 
     @Override
     public DBPDataKind getDataKind() {
-        return dataType == null ? super.getDataKind() : dataType.getDataKind();
+        FireBirdDataType fbDataType = getFireBirdDataType();
+        return fbDataType == null ? super.getDataKind() : fbDataType.getDataKind();
     }
 
     @Property(order = 21)
     public String getDomainTypeName(DBRProgressMonitor monitor) throws DBException {
-
         if (domainTypeName == null) {
-            try (JDBCSession session = DBUtils.openMetaSession(monitor, this, "Read column domain type")) {
-                // Read metadata
-                try (JDBCPreparedStatement dbStat = session.prepareStatement("SELECT RF.RDB$FIELD_SOURCE FROM RDB$RELATION_FIELDS RF WHERE RF.RDB$RELATION_NAME=? AND RF.RDB$FIELD_NAME=?")) {
-                    dbStat.setString(1, getTable().getName());
-                    dbStat.setString(2, getName());
-                    try (JDBCResultSet dbResult = dbStat.executeQuery()) {
-                        if (dbResult.next()) {
-                            domainTypeName = JDBCUtils.safeGetString(dbResult, 1);
-                            if (domainTypeName != null) {
-                                domainTypeName = domainTypeName.trim();
-                            }
-                        }
+            String domainName = ((FireBirdDataSource) getTable().getDataSource()).getColumnDomainCache().getColumnDomain(
+                monitor, getTable().getName(), getName());
+            if (domainName != null) {
+                synchronized (this) {
+                    domainTypeName = domainName;
+                    if (domainTyped) {
+                        // Resolve the data type again with the domain
+                        dataTypeResolved = false;
                     }
                 }
-
-            } catch (SQLException ex) {
-                throw new DBException("Error reading column domain type", ex);
             }
         }
-
         return domainTypeName;
     }
 
+    /**
+     * Data type of the column domain (or of the column type if the domain is unknown).
+     * Only cached data types are used.
+     */
+    private synchronized FireBirdDataType getFireBirdDataType() {
+        if (!dataTypeResolved) {
+            dataTypeResolved = true;
+            String domainName = domainTyped ? domainTypeName : null;
+            dataType = (FireBirdDataType) getTable().getDataSource().getLocalDataType(domainName != null ? domainName : getTypeName());
+        }
+        return dataType;
+    }
+
     @Property(order = 22, viewable = true)
     public String getCharset() {
-        if (dataType != null) {
-            return dataType.getCharsetName();
+        FireBirdDataType fbDataType = getFireBirdDataType();
+        if (fbDataType != null) {
+            return fbDataType.getCharsetName();
         }
         return null;
     }
@@ -0,0 +1,99 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2019 Serge Rider (serge@jkiss.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.ext.firebird.model;
+
+/**
+ * Table size estimated without reading table records
+ */
+public class FireBirdTableEstimate {
+
+    private final String relationName;
+    private final Long rowCount;
+    private final boolean rowCountFromIndex;
+    private final Long pageRowCount;
+    private final long dataPages;
+    private final int pageSize;
+    private final Double averageRecordSize;
+    private final Long netInserts;
+
+    FireBirdTableEstimate(String relationName, Long rowCount, boolean rowCountFromIndex, Long pageRowCount, long dataPages, int pageSize, Double averageRecordSize, Long netInserts) {
+        this.relationName = relationName;
+        this.rowCount = rowCount;
+        this.rowCountFromIndex = rowCountFromIndex;
+        this.pageRowCount = pageRowCount;
+        this.dataPages = dataPages;
+        this.pageSize = pageSize;
+        this.averageRecordSize = averageRecordSize;
+        this.netInserts = netInserts;
+    }
+
+    public String getRelationName() {
+        return relationName;
+    }
+
+    /**
+     * Estimated record count (null if unknown, e.g. small tables without unique index)
+     */
+    public Long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Record count comes from unique index selectivity (otherwise from data pages and record length)
+     */
+    public boolean isRowCountFromIndex() {
+        return rowCountFromIndex;
+    }
+
+    /**
+     * Record count estimated from data pages and declared record length only, independent of index statistics
+     * (null for tables with one pointer page). Underestimates tables with well compressed records.
+     */
+    public Long getPageRowCount() {
+        return pageRowCount;
+    }
+
+    /**
+     * Data pages estimated from pointer pages (lower bound for tables with one pointer page and no unique index)
+     */
+    public long getDataPages() {
+        return dataPages;
+    }
+
+    public long getDataSize() {
+        return dataPages * pageSize;
+    }
+
+    /**
+     * Bytes of data pages per record (includes back versions and free space)
+     */
+    public Double getAverageRecordSize() {
+        return averageRecordSize;
+    }
+
+    /**
+     * Inserted minus deleted records since the database was opened by the server (Firebird 3+, null if unknown)
+     */
+    public Long getNetInserts() {
+        return netInserts;
+    }
+
+    @Override
+    public String toString() {
+        return relationName + ": ~" + rowCount + " rows, " + dataPages + " pages";
+    }
+}
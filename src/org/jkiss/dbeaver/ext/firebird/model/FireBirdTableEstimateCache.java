@@ -0,0 +1,229 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2019 Serge Rider (serge@jkiss.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.ext.firebird.model;
+
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
+import org.jkiss.dbeaver.DBException;
+import org.jkiss.dbeaver.Log;
+import org.jkiss.dbeaver.ext.firebird.FireBirdUtils;
+import org.jkiss.dbeaver.model.DBUtils;
+import org.jkiss.dbeaver.model.exec.jdbc.JDBCPreparedStatement;
+import org.jkiss.dbeaver.model.exec.jdbc.JDBCResultSet;
+import org.jkiss.dbeaver.model.exec.jdbc.JDBCSession;
+import org.jkiss.dbeaver.model.impl.jdbc.JDBCUtils;
+import org.jkiss.dbeaver.model.runtime.AbstractJob;
+import org.jkiss.dbeaver.model.runtime.DBRProgressMonitor;
+
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Table size estimates of all tables, read with one catalog query (no COUNT(*)).
+ * Data pages are estimated from the number of pointer pages in RDB$PAGES, record count
+ * from unique index selectivity (1 / distinct keys) or, without unique index, from data pages
+ * and the declared record length (only if the table has more than one pointer page). Stale estimates are returned while a background job refreshes them.
+ */
+public class FireBirdTableEstimateCache {
+
+    private static final Log LOG = Log.getLog(FireBirdTableEstimateCache.class);
+
+    public static final long DEFAULT_TTL = TimeUnit.MINUTES.toMillis(10);
+
+    /** Pointer page header size */
+    private static final int POINTER_PAGE_HEADER = 32;
+    /** Record header and line index entry */
+    private static final int RECORD_OVERHEAD = 20;
+
+    private static final String SQL_TABLES =
+        "SELECT R.RDB$RELATION_NAME,\n" +
+        "  (SELECT COUNT(*) FROM RDB$PAGES P WHERE P.RDB$RELATION_ID = R.RDB$RELATION_ID AND P.RDB$PAGE_TYPE = 4),\n" +
+        "  (SELECT MIN(I.RDB$STATISTICS) FROM RDB$INDICES I\n" +
+        "   WHERE I.RDB$RELATION_NAME = R.RDB$RELATION_NAME AND I.RDB$UNIQUE_FLAG = 1 AND I.RDB$STATISTICS > 0),\n" +
+        "  (SELECT SUM(F.RDB$FIELD_LENGTH) FROM RDB$RELATION_FIELDS RF JOIN RDB$FIELDS F ON F.RDB$FIELD_NAME = RF.RDB$FIELD_SOURCE\n" +
+        "   WHERE RF.RDB$RELATION_NAME = R.RDB$RELATION_NAME AND F.RDB$COMPUTED_BLR IS NULL)\n" +
+        "FROM RDB$RELATIONS R\n" +
+        "WHERE R.RDB$VIEW_BLR IS NULL AND R.RDB$EXTERNAL_FILE IS NULL";
+    private static final String SQL_NET_INSERTS =
+        "SELECT T.MON$TABLE_NAME, R.MON$RECORD_INSERTS - R.MON$RECORD_DELETES\n" +
+        "FROM MON$TABLE_STATS T JOIN MON$RECORD_STATS R ON R.MON$STAT_ID = T.MON$RECORD_STAT_ID\n" +
+        "WHERE T.MON$STAT_GROUP = 0";
+
+    private class RefreshJob extends AbstractJob {
+        RefreshJob() {
+            super("Refresh table estimates (" + dataSource.getName() + ")");
+            setSystem(true);
+            setUser(false);
+        }
+
+        @Override
+        protected IStatus run(DBRProgressMonitor monitor) {
+            try {
+                refresh(monitor);
+            } catch (DBException e) {
+                LOG.debug("Error reading table estimates", e);
+            }
+            return Status.OK_STATUS;
+        }
+    }
+
+    private final FireBirdDataSource dataSource;
+    private final RefreshJob refreshJob;
+    private volatile Map<String, FireBirdTableEstimate> estimates;
+    private volatile long loadTime;
+    private volatile long ttl = DEFAULT_TTL;
+
+    public FireBirdTableEstimateCache(@NotNull FireBirdDataSource dataSource) {
+        this.dataSource = dataSource;
+        this.refreshJob = new RefreshJob();
+    }
+
+    public void setTtl(long ttl) {
+        this.ttl = ttl;
+    }
+
+    /**
+     * Returns the estimate, estimates are read if they were never read
+     */
+    @Nullable
+    public FireBirdTableEstimate getEstimate(@NotNull DBRProgressMonitor monitor, @NotNull String relationName) throws DBException {
+        if (estimates == null) {
+            refresh(monitor);
+        } else {
+            checkExpired();
+        }
+        Map<String, FireBirdTableEstimate> current = estimates;
+        return current == null ? null : current.get(relationName);
+    }
+
+    /**
+     * Returns the estimate without querying the database (null if estimates are not read yet)
+     */
+    @Nullable
+    public FireBirdTableEstimate getCachedEstimate(@NotNull String relationName) {
+        checkExpired();
+        Map<String, FireBirdTableEstimate> current = estimates;
+        return current == null ? null : current.get(relationName);
+    }
+
+    /**
+     * Estimates are refreshed in background on the next access
+     */
+    public void invalidate() {
+        loadTime = 0;
+    }
+
+    public void stop() {
+        refreshJob.cancel();
+    }
+
+    public synchronized void refresh(@NotNull DBRProgressMonitor monitor) throws DBException {
+        boolean hasTableStats = FireBirdUtils.getFireBirdServerVersion(dataSource).getMajor() >= 3;
+        Map<String, FireBirdTableEstimate> result = new HashMap<>();
+        try (JDBCSession session = DBUtils.openMetaSession(monitor, dataSource, "Read table estimates")) {
+            int pageSize;
+            try (JDBCPreparedStatement dbStat = session.prepareStatement("SELECT MON$PAGE_SIZE FROM MON$DATABASE")) {
+                try (JDBCResultSet dbResult = dbStat.executeQuery()) {
+                    pageSize = dbResult.next() ? JDBCUtils.safeGetInt(dbResult, 1) : 0;
+                }
+            }
+            if (pageSize <= 0) {
+                return;
+            }
+            Map<String, Long> netInserts = new HashMap<>();
+            if (hasTableStats) {
+                try (JDBCPreparedStatement dbStat = session.prepareStatement(SQL_NET_INSERTS)) {
+                    try (JDBCResultSet dbResult = dbStat.executeQuery()) {
+                        while (dbResult.next()) {
+                            netInserts.put(JDBCUtils.safeGetStringTrimmed(dbResult, 1), JDBCUtils.safeGetLong(dbResult, 2));
+                        }
+                    }
+                }
+            }
+            try (JDBCPreparedStatement dbStat = session.prepareStatement(SQL_TABLES)) {
+                try (JDBCResultSet dbResult = dbStat.executeQuery()) {
+                    while (dbResult.next()) {
+                        String relationName = JDBCUtils.safeGetStringTrimmed(dbResult, 1);
+                        if (relationName == null) {
+                            continue;
+                        }
+                        result.put(relationName, makeEstimate(relationName, pageSize,
+                            JDBCUtils.safeGetLong(dbResult, 2),
+                            JDBCUtils.safeGetDouble(dbResult, 3),
+                            JDBCUtils.safeGetLong(dbResult, 4),
+                            netInserts.get(relationName)));
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new DBException(e, dataSource);
+        }
+        estimates = result;
+        loadTime = System.currentTimeMillis();
+    }
+
+    static FireBirdTableEstimate makeEstimate(String relationName, int pageSize, long pointerPages, double uniqueSelectivity, long recordLength, Long netInserts) {
+        // Each data page takes 4 bytes and 2 flag bits of a pointer page
+        long pagesPerPointerPage = (pageSize - POINTER_PAGE_HEADER) * 8L / 34;
+        long usableSize = pageSize - POINTER_PAGE_HEADER;
+        long recordSize = recordLength + RECORD_OVERHEAD;
+        Long rowCount = uniqueSelectivity > 0 ? Math.round(1 / uniqueSelectivity) : null;
+
+        long dataPages = 0;
+        Long pageRowCount = null;
+        if (pointerPages > 0) {
+            // The last pointer page is filled partially
+            long minPages = (pointerPages - 1) * pagesPerPointerPage + 1;
+            long maxPages = pointerPages * pagesPerPointerPage;
+            // A single pointer page says nothing about the record count
+            if (pointerPages > 1 && recordLength > 0) {
+                pageRowCount = (minPages + maxPages) / 2 * usableSize / recordSize;
+            }
+            if (rowCount != null) {
+                // Declared length ignores compression, so this is an upper bound
+                dataPages = Math.max(minPages, Math.min(maxPages, (rowCount * recordSize + usableSize - 1) / usableSize));
+            } else if (pointerPages == 1) {
+                // Anything from an empty table to a full pointer page: keep the lower bound
+                dataPages = minPages;
+            } else {
+                dataPages = (minPages + maxPages) / 2;
+            }
+        }
+        if (rowCount == null) {
+            rowCount = pageRowCount;
+        }
+        Double averageRecordSize = null;
+        if (rowCount != null && rowCount > 0 && dataPages > 0) {
+            averageRecordSize = (double) dataPages * usableSize / rowCount;
+        } else if (recordLength > 0) {
+            averageRecordSize = (double) recordSize;
+        }
+        return new FireBirdTableEstimate(relationName, rowCount, uniqueSelectivity > 0, pageRowCount, dataPages, pageSize, averageRecordSize, netInserts);
+    }
+
+    private void checkExpired() {
+        if (System.currentTimeMillis() - loadTime > ttl) {
+            // Keep returning old estimates while they are re-read
+            loadTime = System.currentTimeMillis();
+            refreshJob.schedule();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2019 Serge Rider (serge@jkiss.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.ext.firebird.model;
+
+import org.jkiss.dbeaver.model.meta.Property;
+
+/**
+ * Statement activity aggregated by the monitor sampler
+ */
+public class FireBirdTopStatement {
+
+    private final String sqlText;
+    private final long reads;
+    private final long fetches;
+    private final long activeTime;
+    private final long readsError;
+
+    FireBirdTopStatement(String sqlText, long reads, long fetches, long activeTime, long readsError) {
+        this.sqlText = sqlText;
+        this.reads = reads;
+        this.fetches = fetches;
+        this.activeTime = activeTime;
+        this.readsError = readsError;
+    }
+
+    /**
+     * Text of the first seen statement with this fingerprint
+     */
+    @Property(viewable = true, order = 1)
+    public String getSqlText() {
+        return sqlText;
+    }
+
+    @Property(viewable = true, order = 2)
+    public long getReads() {
+        return reads;
+    }
+
+    @Property(viewable = true, order = 3)
+    public long getFetches() {
+        return fetches;
+    }
+
+    /**
+     * Time (ms) the statement was seen executing. MON$ tables have no CPU time,
+     * so this is the closest available measure of the server time used.
+     */
+    @Property(viewable = true, order = 4)
+    public long getActiveTime() {
+        return activeTime;
+    }
+
+    /**
+     * Reads inherited from evicted fingerprints: actual reads are between getReads() - getReadsError() and getReads()
+     */
+    @Property(viewable = true, order = 5)
+    public long getReadsError() {
+        return readsError;
+    }
+
+    @Override
+    public String toString() {
+        return sqlText;
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2019 Serge Rider (serge@jkiss.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.ext.firebird.model;
+
+import org.jkiss.code.NotNull;
+import org.jkiss.dbeaver.DBException;
+import org.jkiss.dbeaver.ext.firebird.model.plan.FireBirdPlanAnalyser;
+import org.jkiss.dbeaver.model.exec.jdbc.JDBCSession;
+import org.jkiss.dbeaver.model.meta.Property;
+
+/**
+ * Traced statements with the same normalized text.
+ * Durations are counted in a fixed log-scale histogram (four buckets per power of two),
+ * so percentiles are approximate (within 19%) and memory use is constant.
+ */
+public class FireBirdTraceFingerprint {
+
+    private static final int BUCKETS_PER_POWER = 4;
+    private static final int BUCKET_COUNT = 40 * BUCKETS_PER_POWER;
+
+    private final String fingerprint;
+    private final String sqlText;
+    private long count;
+    private long totalDuration;
+    private final long durationError;
+    private long maxDuration;
+    private long reads;
+    private long writes;
+    private long fetches;
+    private long marks;
+    private final int[] histogram = new int[BUCKET_COUNT];
+
+    /**
+     * @param inheritedDuration total duration of the evicted fingerprint this one replaces
+     */
+    FireBirdTraceFingerprint(String fingerprint, String sqlText, long inheritedDuration) {
+        this.fingerprint = fingerprint;
+        this.sqlText = sqlText;
+        this.totalDuration = inheritedDuration;
+        this.durationError = inheritedDuration;
+    }
+
+    /**
+     * Snapshot of the fingerprint which is not changed by further trace events
+     */
+    FireBirdTraceFingerprint(FireBirdTraceFingerprint source) {
+        this.fingerprint = source.fingerprint;
+        this.sqlText = source.sqlText;
+        this.count = source.count;
+        this.totalDuration = source.totalDuration;
+        this.durationError = source.durationError;
+        this.maxDuration = source.maxDuration;
+        this.reads = source.reads;
+        this.writes = source.writes;
+        this.fetches = source.fetches;
+        this.marks = source.marks;
+        System.arraycopy(source.histogram, 0, this.histogram, 0, BUCKET_COUNT);
+    }
+
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * Text of the first traced statement
+     */
+    @Property(viewable = true, order = 1)
+    public String getSqlText() {
+        return sqlText;
+    }
+
+    @Property(viewable = true, order = 2)
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Total execution time (ms), including the duration inherited from evicted fingerprints
+     */
+    @Property(viewable = true, order = 3)
+    public long getTotalDuration() {
+        return totalDuration;
+    }
+
+    @Property(viewable = true, order = 4)
+    public long getMedianDuration() {
+        return getPercentile(0.5);
+    }
+
+    @Property(viewable = true, order = 5)
+    public long getP95Duration() {
+        return getPercentile(0.95);
+    }
+
+    @Property(viewable = true, order = 6)
+    public long getMaxDuration() {
+        return maxDuration;
+    }
+
+    @Property(viewable = true, order = 7)
+    public long getReads() {
+        return reads;
+    }
+
+    @Property(viewable = true, order = 8)
+    public long getFetches() {
+        return fetches;
+    }
+
+    @Property(viewable = true, order = 9)
+    public long getWrites() {
+        return writes;
+    }
+
+    public long getMarks() {
+        return marks;
+    }
+
+    /**
+     * Duration inherited from evicted fingerprints: actual total is between
+     * getTotalDuration() - getDurationError() and getTotalDuration()
+     */
+    @Property(viewable = true, order = 10)
+    public long getDurationError() {
+        return durationError;
+    }
+
+    /**
+     * Approximate duration (ms) which the specified fraction of executions didn't exceed
+     */
+    public long getPercentile(double fraction) {
+        if (count == 0) {
+            return 0;
+        }
+        long threshold = (long) Math.ceil(count * fraction);
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += histogram[i];
+            if (seen >= threshold) {
+                return Math.min(maxDuration, getBucketLimit(i));
+            }
+        }
+        return maxDuration;
+    }
+
+    /**
+     * Explains the statement plan on the specified connection
+     */
+    @NotNull
+    public FireBirdPlanAnalyser explain(@NotNull FireBirdDataSource dataSource, @NotNull JDBCSession session) throws DBException {
+        FireBirdPlanAnalyser plan = new FireBirdPlanAnalyser(dataSource, session, sqlText);
+        plan.explain();
+        return plan;
+    }
+
+    void add(long duration, long readCount, long writeCount, long fetchCount, long markCount) {
+        count++;
+        totalDuration += duration;
+        maxDuration = Math.max(maxDuration, duration);
+        reads += readCount;
+        writes += writeCount;
+        fetches += fetchCount;
+        marks += markCount;
+        histogram[getBucket(duration)]++;
+    }
+
+    private static int getBucket(long duration) {
+        int bucket = (int) Math.ceil(Math.log(duration + 1) / Math.log(2) * BUCKETS_PER_POWER);
+        return Math.max(0, Math.min(BUCKET_COUNT - 1, bucket));
+    }
+
+    private static long getBucketLimit(int bucket) {
+        return (long) Math.floor(Math.pow(2, (double) bucket / BUCKETS_PER_POWER)) - 1;
+    }
+
+    @Override
+    public String toString() {
+        return fingerprint;
+    }
+}
@@ -0,0 +1,274 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2019 Serge Rider (serge@jkiss.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.ext.firebird.model;
+
+import org.jkiss.code.NotNull;
+import org.jkiss.dbeaver.DBException;
+import org.jkiss.dbeaver.Log;
+import org.jkiss.dbeaver.ext.firebird.FireBirdUtils;
+import org.jkiss.dbeaver.model.DBUtils;
+import org.jkiss.dbeaver.model.connection.DBPConnectionConfiguration;
+import org.jkiss.dbeaver.model.exec.jdbc.JDBCPreparedStatement;
+import org.jkiss.dbeaver.model.exec.jdbc.JDBCResultSet;
+import org.jkiss.dbeaver.model.exec.jdbc.JDBCSession;
+import org.jkiss.dbeaver.model.impl.jdbc.JDBCUtils;
+import org.jkiss.dbeaver.model.runtime.DBRProgressMonitor;
+import org.jkiss.utils.CommonUtils;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.Reader;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+
+/**
+ * User trace session started through the Services API.
+ * Jaybird FBTraceManager is used via reflection (the driver is loaded by its own class loader).
+ * Trace text is streamed through a pipe into {@link FireBirdTraceStatistics} line by line.
+ */
+public class FireBirdTraceManager {
+
+    private static final Log LOG = Log.getLog(FireBirdTraceManager.class);
+
+    private static final String TRACE_MANAGER_CLASS = "org.firebirdsql.management.FBTraceManager";
+    private static final int PIPE_SIZE = 1024 * 1024;
+    private static final int DEFAULT_PORT = 3050;
+    private static final long SESSION_ID_TIMEOUT = 10000;
+    private static final long SESSION_ID_POLL_INTERVAL = 100;
+
+    private final FireBirdDataSource dataSource;
+    private final FireBirdTraceStatistics statistics;
+    private long timeThreshold;
+    private Object traceManager;
+    private String sessionName;
+    private OutputStream traceOutput;
+    private Thread readerThread;
+    private Thread sessionThread;
+
+    public FireBirdTraceManager(@NotNull FireBirdDataSource dataSource, @NotNull FireBirdTraceStatistics statistics) {
+        this.dataSource = dataSource;
+        this.statistics = statistics;
+    }
+
+    @NotNull
+    public FireBirdTraceStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Statements faster than the threshold (ms) are not traced
+     */
+    public void setTimeThreshold(long timeThreshold) {
+        this.timeThreshold = timeThreshold;
+    }
+
+    public synchronized boolean isRunning() {
+        return traceManager != null;
+    }
+
+    /**
+     * Aggregates a saved trace log (offline analysis)
+     */
+    @NotNull
+    public static FireBirdTraceStatistics readLog(@NotNull File file) throws IOException {
+        FireBirdTraceStatistics statistics = new FireBirdTraceStatistics(FireBirdTraceStatistics.DEFAULT_MAX_FINGERPRINTS);
+        try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+            statistics.read(reader);
+        }
+        return statistics;
+    }
+
+    /**
+     * Trace configuration which logs finished statements of the database
+     */
+    @NotNull
+    public static String generateConfig(int serverMajorVersion, @NotNull String databaseName, long timeThreshold) {
+        String pattern = escapeSimilar(databaseName);
+        StringBuilder config = new StringBuilder();
+        if (serverMajorVersion >= 3) {
+            config.append("database = ").append(pattern).append("\n{\n")
+                .append("\tenabled = true\n")
+                .append("\tlog_statement_finish = true\n")
+                .append("\tprint_perf = true\n")
+                .append("\tprint_plan = false\n")
+                .append("\tmax_sql_length = 65535\n")
+                .append("\ttime_threshold = ").append(timeThreshold).append("\n")
+                .append("}\n");
+        } else {
+            config.append("<database ").append(pattern).append(">\n")
+                .append("\tenabled true\n")
+                .append("\tlog_statement_finish true\n")
+                .append("\tprint_perf true\n")
+                .append("\tprint_plan false\n")
+                .append("\tmax_sql_length 65535\n")
+                .append("\ttime_threshold ").append(timeThreshold).append("\n")
+                .append("</database>\n");
+        }
+        return config.toString();
+    }
+
+    public synchronized void start(@NotNull DBRProgressMonitor monitor) throws DBException {
+        if (traceManager != null) {
+            return;
+        }
+        DBPConnectionConfiguration connectionInfo = dataSource.getContainer().getConnectionConfiguration();
+        String databaseName;
+        ClassLoader driverLoader;
+        try (JDBCSession session = DBUtils.openMetaSession(monitor, dataSource, "Read database file name")) {
+            driverLoader = session.getOriginal().getClass().getClassLoader();
+            // Trace matches the real file name, not the alias
+            try (JDBCPreparedStatement dbStat = session.prepareStatement("SELECT MON$DATABASE_NAME FROM MON$DATABASE")) {
+                try (JDBCResultSet dbResult = dbStat.executeQuery()) {
+                    databaseName = dbResult.next() ? JDBCUtils.safeGetStringTrimmed(dbResult, 1) : null;
+                }
+            }
+        } catch (SQLException e) {
+            throw new DBException(e, dataSource);
+        }
+        if (databaseName == null) {
+            databaseName = connectionInfo.getDatabaseName();
+        }
+        String config = generateConfig(FireBirdUtils.getFireBirdServerVersion(dataSource).getMajor(), databaseName, timeThreshold);
+
+        try {
+            Class<?> managerClass = Class.forName(TRACE_MANAGER_CLASS, true, driverLoader);
+            Object manager = managerClass.getConstructor().newInstance();
+            managerClass.getMethod("setHost", String.class).invoke(manager, CommonUtils.notEmpty(connectionInfo.getHostName()));
+            managerClass.getMethod("setPort", int.class).invoke(manager, CommonUtils.toInt(connectionInfo.getHostPort(), DEFAULT_PORT));
+            managerClass.getMethod("setDatabase", String.class).invoke(manager, connectionInfo.getDatabaseName());
+            managerClass.getMethod("setUser", String.class).invoke(manager, connectionInfo.getUserName());
+            managerClass.getMethod("setPassword", String.class).invoke(manager, connectionInfo.getUserPassword());
+
+            PipedInputStream traceInput = new PipedInputStream(PIPE_SIZE);
+            traceOutput = new PipedOutputStream(traceInput);
+            managerClass.getMethod("setLogger", OutputStream.class).invoke(manager, traceOutput);
+
+            sessionName = "DBeaver_" + Long.toHexString(System.currentTimeMillis());
+            traceManager = manager;
+            readerThread = new Thread(() -> readTrace(traceInput), "Firebird trace reader");
+            readerThread.setDaemon(true);
+            readerThread.start();
+
+            Method startMethod = managerClass.getMethod("startTraceSession", String.class, String.class);
+            String name = sessionName;
+            // Trace service call doesn't return until the session is stopped
+            sessionThread = new Thread(() -> {
+                try {
+                    startMethod.invoke(manager, name, config);
+                } catch (Exception e) {
+                    LOG.debug("Trace session " + name + " failed", e);
+                }
+            }, "Firebird trace session");
+            sessionThread.setDaemon(true);
+            sessionThread.start();
+        } catch (InvocationTargetException e) {
+            closeSession();
+            throw new DBException("Can't start trace session", e.getTargetException());
+        } catch (ReflectiveOperationException | IOException e) {
+            closeSession();
+            throw new DBException("Can't start trace session (Jaybird trace manager is not available)", e);
+        }
+    }
+
+    /**
+     * Stops the trace session on the server. Session id is known only after Jaybird has parsed
+     * the first trace output, so it is awaited while the session is running.
+     */
+    public synchronized void stop() throws DBException {
+        if (traceManager == null) {
+            return;
+        }
+        Object sessionId;
+        try {
+            Method getSessionId = traceManager.getClass().getMethod("getSessionId", String.class);
+            sessionId = getSessionId.invoke(traceManager, sessionName);
+            long deadline = System.currentTimeMillis() + SESSION_ID_TIMEOUT;
+            while (!(sessionId instanceof Integer) && sessionThread.isAlive() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(SESSION_ID_POLL_INTERVAL);
+                sessionId = getSessionId.invoke(traceManager, sessionName);
+            }
+            if (!(sessionId instanceof Integer) && sessionThread.isAlive()) {
+                // Keep the state, so stop can be retried
+                throw new DBException("Trace session " + sessionName + " has not reported its id yet");
+            }
+            if (sessionId instanceof Integer) {
+                traceManager.getClass().getMethod("stopTraceSession", int.class).invoke(traceManager, sessionId);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DBException("Interrupted while stopping trace session " + sessionName, e);
+        } catch (InvocationTargetException e) {
+            closeSession();
+            throw new DBException("Can't stop trace session " + sessionName, e.getTargetException());
+        } catch (ReflectiveOperationException e) {
+            closeSession();
+            throw new DBException("Can't stop trace session " + sessionName, e);
+        }
+        // Session thread has ended or the server stops sending output
+        closeSession();
+    }
+
+    private void closeSession() {
+        closeOutput();
+        traceManager = null;
+        sessionThread = null;
+    }
+
+    private void readTrace(PipedInputStream traceInput) {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(traceInput, StandardCharsets.UTF_8))) {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                statistics.consumeLine(line);
+            }
+        } catch (IOException e) {
+            // Pipe is broken when the trace session thread ends
+            LOG.debug("Trace output closed: " + e.getMessage());
+        } finally {
+            statistics.finish();
+        }
+    }
+
+    private void closeOutput() {
+        if (traceOutput != null) {
+            try {
+                traceOutput.close();
+            } catch (IOException e) {
+                LOG.debug(e);
+            }
+            traceOutput = null;
+        }
+    }
+
+    private static String escapeSimilar(String text) {
+        StringBuilder result = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if ("\\[]()|^-+*%_?{}".indexOf(c) >= 0) {
+                result.append('\\');
+            }
+            result.append(c);
+        }
+        return result.toString();
+    }
+}
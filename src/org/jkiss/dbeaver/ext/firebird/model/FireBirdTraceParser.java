@@ -0,0 +1,142 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2019 Serge Rider (serge@jkiss.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.ext.firebird.model;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Incremental parser of the text trace output.
+ * Lines are fed one by one as they arrive, only EXECUTE_STATEMENT_FINISH events are reported.
+ * Memory use doesn't depend on the trace length: only the current event is kept.
+ */
+class FireBirdTraceParser {
+
+    interface Listener {
+        void statementFinished(String sqlText, long duration, long reads, long writes, long fetches, long marks);
+    }
+
+    private static final Pattern EVENT_PATTERN = Pattern.compile(
+        "^\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2}\\.\\d+\\s+\\(\\d+:[0-9A-Fa-fx]+\\)\\s+(FAILED\\s+|UNAUTHORIZED\\s+)?(\\w+)");
+    private static final Pattern PERF_PATTERN = Pattern.compile(
+        "^\\s*(\\d+) ms(?:, (\\d+) read\\(s\\))?(?:, (\\d+) write\\(s\\))?(?:, (\\d+) fetch\\(es\\))?(?:, (\\d+) mark\\(s\\))?");
+    private static final Pattern STATEMENT_PATTERN = Pattern.compile("^Statement \\d+:\\s*$");
+    private static final Pattern RECORDS_PATTERN = Pattern.compile("^\\d+ records? fetched");
+    private static final int MAX_SQL_LENGTH = 65536;
+
+    private enum State {
+        /** Outside statement events */
+        SKIP,
+        /** Statement finish event header */
+        EVENT,
+        /** Separator before SQL text */
+        SQL_START,
+        /** SQL text lines */
+        SQL,
+        /** Parameters, plan and counters */
+        DETAILS
+    }
+
+    private final Listener listener;
+    private State state = State.SKIP;
+    private final StringBuilder sqlText = new StringBuilder();
+    private boolean hasPerf;
+    private long duration;
+    private long reads;
+    private long writes;
+    private long fetches;
+    private long marks;
+
+    FireBirdTraceParser(Listener listener) {
+        this.listener = listener;
+    }
+
+    void consumeLine(String line) {
+        Matcher eventMatcher = EVENT_PATTERN.matcher(line);
+        if (eventMatcher.find()) {
+            finish();
+            state = "EXECUTE_STATEMENT_FINISH".equals(eventMatcher.group(2)) ? State.EVENT : State.SKIP;
+            return;
+        }
+        switch (state) {
+            case EVENT:
+                if (STATEMENT_PATTERN.matcher(line).matches()) {
+                    state = State.SQL_START;
+                }
+                break;
+            case SQL_START:
+                if (line.startsWith("-----")) {
+                    state = State.SQL;
+                }
+                break;
+            case SQL:
+                if (isSqlEnd(line)) {
+                    state = State.DETAILS;
+                    consumeDetails(line);
+                } else if (sqlText.length() < MAX_SQL_LENGTH) {
+                    sqlText.append(line).append('\n');
+                }
+                break;
+            case DETAILS:
+                consumeDetails(line);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Reports the pending event (call at the end of the input)
+     */
+    void finish() {
+        if (state != State.SKIP && hasPerf && sqlText.length() > 0) {
+            String sql = sqlText.toString().trim();
+            if (!sql.isEmpty()) {
+                listener.statementFinished(sql, duration, reads, writes, fetches, marks);
+            }
+        }
+        state = State.SKIP;
+        sqlText.setLength(0);
+        hasPerf = false;
+        duration = reads = writes = fetches = marks = 0;
+    }
+
+    private static boolean isSqlEnd(String line) {
+        return line.startsWith("^^^^^") || line.startsWith("PLAN") || line.startsWith("param0 =")
+            || line.startsWith("Select Expression") || RECORDS_PATTERN.matcher(line).find() || PERF_PATTERN.matcher(line).find();
+    }
+
+    private void consumeDetails(String line) {
+        if (hasPerf) {
+            // Table counters follow the performance line
+            return;
+        }
+        Matcher perfMatcher = PERF_PATTERN.matcher(line);
+        if (perfMatcher.find()) {
+            hasPerf = true;
+            duration = toLong(perfMatcher.group(1));
+            reads = toLong(perfMatcher.group(2));
+            writes = toLong(perfMatcher.group(3));
+            fetches = toLong(perfMatcher.group(4));
+            marks = toLong(perfMatcher.group(5));
+        }
+    }
+
+    private static long toLong(String value) {
+        return value == null ? 0 : Long.parseLong(value);
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2019 Serge Rider (serge@jkiss.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.ext.firebird.model;
+
+import org.jkiss.code.NotNull;
+import org.jkiss.dbeaver.ext.firebird.model.plan.FireBirdPlanCache;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Trace events aggregated by statement fingerprint.
+ * The number of fingerprints is limited (Space-Saving): when the limit is reached, the fingerprint
+ * with the smallest total duration is dropped and the new one starts with its total duration,
+ * which is kept as the error bound. So frequent statements which appear late are not evicted at once.
+ */
+public class FireBirdTraceStatistics implements FireBirdTraceParser.Listener {
+
+    public static final int DEFAULT_MAX_FINGERPRINTS = 1000;
+
+    private final int maxFingerprints;
+    private final Map<String, FireBirdTraceFingerprint> fingerprints = new HashMap<>();
+    private final FireBirdTraceParser parser = new FireBirdTraceParser(this);
+    private long eventCount;
+    private long droppedCount;
+
+    public FireBirdTraceStatistics(int maxFingerprints) {
+        this.maxFingerprints = maxFingerprints;
+    }
+
+    /**
+     * Reads trace text (e.g. a log file saved by fbtracemgr)
+     */
+    public void read(@NotNull Reader reader) throws IOException {
+        BufferedReader lineReader = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+        for (String line = lineReader.readLine(); line != null; line = lineReader.readLine()) {
+            consumeLine(line);
+        }
+        finish();
+    }
+
+    public synchronized void consumeLine(@NotNull String line) {
+        parser.consumeLine(line);
+    }
+
+    /**
+     * Completes the last event when the trace has ended
+     */
+    public synchronized void finish() {
+        parser.finish();
+    }
+
+    /**
+     * Number of parsed statement events
+     */
+    public synchronized long getEventCount() {
+        return eventCount;
+    }
+
+    /**
+     * Number of events of fingerprints dropped because of the limit
+     */
+    public synchronized long getDroppedCount() {
+        return droppedCount;
+    }
+
+    /**
+     * Snapshots of the fingerprints with the largest total duration
+     */
+    @NotNull
+    public synchronized List<FireBirdTraceFingerprint> getTopByTotalDuration(int count) {
+        return getTop(count, (f1, f2) -> Long.compare(f2.getTotalDuration(), f1.getTotalDuration()));
+    }
+
+    /**
+     * Snapshots of the fingerprints with the largest number of page reads
+     */
+    @NotNull
+    public synchronized List<FireBirdTraceFingerprint> getTopByReads(int count) {
+        return getTop(count, (f1, f2) -> Long.compare(f2.getReads(), f1.getReads()));
+    }
+
+    private List<FireBirdTraceFingerprint> getTop(int count, Comparator<FireBirdTraceFingerprint> comparator) {
+        List<FireBirdTraceFingerprint> sorted = new ArrayList<>(fingerprints.values());
+        sorted.sort(comparator);
+        // Reader thread keeps updating the fingerprints, callers get copies
+        List<FireBirdTraceFingerprint> result = new ArrayList<>(Math.min(count, sorted.size()));
+        for (int i = 0; i < sorted.size() && i < count; i++) {
+            result.add(new FireBirdTraceFingerprint(sorted.get(i)));
+        }
+        return result;
+    }
+
+    public synchronized void clear() {
+        fingerprints.clear();
+        parser.finish();
+        eventCount = 0;
+        droppedCount = 0;
+    }
+
+    @Override
+    public void statementFinished(String sqlText, long duration, long reads, long writes, long fetches, long marks) {
+        eventCount++;
+        String key = FireBirdPlanCache.normalizeQuery(sqlText);
+        FireBirdTraceFingerprint fingerprint = fingerprints.get(key);
+        if (fingerprint == null) {
+            FireBirdTraceFingerprint victim = fingerprints.size() >= maxFingerprints ? evict() : null;
+            fingerprint = new FireBirdTraceFingerprint(key, sqlText, victim == null ? 0 : victim.getTotalDuration());
+            fingerprints.put(key, fingerprint);
+        }
+        fingerprint.add(duration, reads, writes, fetches, marks);
+    }
+
+    private FireBirdTraceFingerprint evict() {
+        FireBirdTraceFingerprint victim = null;
+        for (FireBirdTraceFingerprint fingerprint : fingerprints.values()) {
+            if (victim == null || fingerprint.getTotalDuration() < victim.getTotalDuration()) {
+                victim = fingerprint;
+            }
+        }
+        if (victim != null) {
+            fingerprints.remove(victim.getFingerprint());
+            droppedCount += victim.getCount();
+        }
+        return victim;
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2019 Serge Rider (serge@jkiss.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.ext.firebird.model;
+
+import org.jkiss.dbeaver.model.meta.Property;
+
+import java.util.Date;
+
+/**
+ * Raised when the gap between the next and the oldest active transaction grows too fast
+ */
+public class FireBirdTransactionGapAlert {
+
+    private final Date time;
+    private final long gap;
+    private final double growthRate;
+    private final FireBirdTransactionOffender offender;
+
+    FireBirdTransactionGapAlert(Date time, long gap, double growthRate, FireBirdTransactionOffender offender) {
+        this.time = time;
+        this.gap = gap;
+        this.growthRate = growthRate;
+        this.offender = offender;
+    }
+
+    @Property(viewable = true, order = 1)
+    public Date getTime() {
+        return time;
+    }
+
+    /**
+     * Next transaction minus the oldest active one
+     */
+    @Property(viewable = true, order = 2)
+    public long getGap() {
+        return gap;
+    }
+
+    /**
+     * Gap growth (transactions per minute)
+     */
+    @Property(viewable = true, order = 3)
+    public double getGrowthRate() {
+        return growthRate;
+    }
+
+    /**
+     * Transaction holding the gap (null if it is not visible to the current user)
+     */
+    @Property(viewable = true, order = 4)
+    public FireBirdTransactionOffender getOffender() {
+        return offender;
+    }
+
+    @Override
+    public String toString() {
+        return "Transaction gap " + gap + String.format(" (+%.0f/min)", growthRate) + (offender == null ? "" : ": " + offender);
+    }
+}
@@ -0,0 +1,324 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2019 Serge Rider (serge@jkiss.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.ext.firebird.model;
+
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
+import org.jkiss.dbeaver.DBException;
+import org.jkiss.dbeaver.Log;
+import org.jkiss.dbeaver.model.exec.DBCExecutionContext;
+import org.jkiss.dbeaver.model.exec.DBCExecutionPurpose;
+import org.jkiss.dbeaver.model.exec.jdbc.JDBCPreparedStatement;
+import org.jkiss.dbeaver.model.exec.jdbc.JDBCResultSet;
+import org.jkiss.dbeaver.model.exec.jdbc.JDBCSession;
+import org.jkiss.dbeaver.model.impl.jdbc.JDBCUtils;
+import org.jkiss.dbeaver.model.runtime.AbstractJob;
+import org.jkiss.dbeaver.model.runtime.DBRProgressMonitor;
+
+import java.sql.SQLException;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks OIT, OAT, OST and Next transaction counters of MON$DATABASE.
+ * A long running transaction pins the oldest active transaction, so the gap to the next
+ * transaction grows and record back-versions can't be garbage collected. When the gap grows
+ * faster than the threshold, listeners get an alert with the attachment holding the oldest
+ * active transaction. The offender can be cancelled or disconnected through MON$ tables.
+ */
+public class FireBirdTransactionGapMonitor extends AbstractJob {
+
+    private static final Log LOG = Log.getLog(FireBirdTransactionGapMonitor.class);
+
+    public interface Listener {
+        void gapAlert(@NotNull FireBirdTransactionGapAlert alert);
+    }
+
+    public static final long DEFAULT_INTERVAL = TimeUnit.MINUTES.toMillis(1);
+    public static final double DEFAULT_GROWTH_THRESHOLD = 1000;
+    public static final long DEFAULT_MIN_GAP = 10000;
+    private static final int HISTORY_SIZE = 1440;
+    private static final long RATE_WINDOW = TimeUnit.MINUTES.toMillis(10);
+
+    private static final String SQL_COUNTERS =
+        "SELECT MON$OLDEST_TRANSACTION, MON$OLDEST_ACTIVE, MON$OLDEST_SNAPSHOT, MON$NEXT_TRANSACTION FROM MON$DATABASE";
+    // The transaction which is the OAT, then the one which is the OST, then the oldest read-write one
+    // (read-only read committed transactions do not hold OAT)
+    private static final String SQL_OFFENDER =
+        "SELECT FIRST 1 T.MON$TRANSACTION_ID, T.MON$ATTACHMENT_ID, T.MON$TIMESTAMP,\n" +
+        "  A.MON$USER, A.MON$REMOTE_ADDRESS, A.MON$REMOTE_PROCESS, A.MON$REMOTE_PID,\n" +
+        "  (SELECT FIRST 1 S.MON$SQL_TEXT FROM MON$STATEMENTS S WHERE S.MON$ATTACHMENT_ID = T.MON$ATTACHMENT_ID\n" +
+        "   ORDER BY IIF(S.MON$TRANSACTION_ID = T.MON$TRANSACTION_ID, 0, 1), S.MON$STATE DESC, S.MON$TIMESTAMP DESC),\n" +
+        "  T.MON$ISOLATION_MODE, T.MON$READ_ONLY\n" +
+        "FROM MON$TRANSACTIONS T JOIN MON$ATTACHMENTS A ON A.MON$ATTACHMENT_ID = T.MON$ATTACHMENT_ID\n" +
+        "CROSS JOIN MON$DATABASE D\n" +
+        "WHERE T.MON$STATE = 1 AND T.MON$TRANSACTION_ID <> CURRENT_TRANSACTION\n" +
+        "ORDER BY IIF(T.MON$TRANSACTION_ID = D.MON$OLDEST_ACTIVE, 0, IIF(T.MON$TRANSACTION_ID = D.MON$OLDEST_SNAPSHOT, 1,\n" +
+        "  IIF(T.MON$READ_ONLY = 0, 2, 3))), T.MON$TRANSACTION_ID";
+
+    private final FireBirdDataSource dataSource;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final long[] times = new long[HISTORY_SIZE];
+    private final long[] oldestTransactions = new long[HISTORY_SIZE];
+    private final long[] oldestActive = new long[HISTORY_SIZE];
+    private final long[] oldestSnapshots = new long[HISTORY_SIZE];
+    private final long[] nextTransactions = new long[HISTORY_SIZE];
+    private int next;
+    private int size;
+    private volatile long interval = DEFAULT_INTERVAL;
+    private volatile double growthThreshold = DEFAULT_GROWTH_THRESHOLD;
+    private volatile long minGap = DEFAULT_MIN_GAP;
+    private DBCExecutionContext context;
+    private FireBirdTransactionOffender offender;
+    private long alertedTransactionId = -1;
+    private volatile boolean stopped;
+
+    public FireBirdTransactionGapMonitor(@NotNull FireBirdDataSource dataSource) {
+        super("Monitor transaction gap (" + dataSource.getName() + ")");
+        this.dataSource = dataSource;
+        setSystem(true);
+        setUser(false);
+    }
+
+    public void addListener(@NotNull Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(@NotNull Listener listener) {
+        listeners.remove(listener);
+    }
+
+    public void setInterval(long interval) {
+        this.interval = interval;
+    }
+
+    /**
+     * Gap growth (transactions per minute) which raises an alert
+     */
+    public void setGrowthThreshold(double growthThreshold) {
+        this.growthThreshold = growthThreshold;
+    }
+
+    /**
+     * Smaller gaps never raise alerts
+     */
+    public void setMinGap(long minGap) {
+        this.minGap = minGap;
+    }
+
+    public void start() {
+        stopped = false;
+        schedule();
+    }
+
+    public void stop() {
+        stopped = true;
+        cancel();
+        synchronized (this) {
+            closeContext();
+        }
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Sample time (ms). Samples are numbered from the oldest one.
+     */
+    public synchronized long getTime(int index) {
+        return times[toSlot(index)];
+    }
+
+    public synchronized long getOldestTransaction(int index) {
+        return oldestTransactions[toSlot(index)];
+    }
+
+    public synchronized long getOldestActive(int index) {
+        return oldestActive[toSlot(index)];
+    }
+
+    public synchronized long getOldestSnapshot(int index) {
+        return oldestSnapshots[toSlot(index)];
+    }
+
+    public synchronized long getNextTransaction(int index) {
+        return nextTransactions[toSlot(index)];
+    }
+
+    /**
+     * Transaction holding the oldest active (or oldest snapshot) found by the last sample
+     */
+    @Nullable
+    public synchronized FireBirdTransactionOffender getOffender() {
+        return offender;
+    }
+
+    /**
+     * Cancels statements running in the attachment (its transaction stays active)
+     */
+    public void cancelStatements(@NotNull DBRProgressMonitor monitor, long attachmentId) throws DBException {
+        executeDelete(monitor, "DELETE FROM MON$STATEMENTS WHERE MON$ATTACHMENT_ID = ? AND MON$STATE = 1", attachmentId);
+    }
+
+    /**
+     * Disconnects the attachment, its transactions are rolled back
+     */
+    public void disconnect(@NotNull DBRProgressMonitor monitor, long attachmentId) throws DBException {
+        executeDelete(monitor, "DELETE FROM MON$ATTACHMENTS WHERE MON$ATTACHMENT_ID = ?", attachmentId);
+    }
+
+    private void executeDelete(DBRProgressMonitor monitor, String sql, long attachmentId) throws DBException {
+        DBCExecutionContext actionContext = dataSource.getDefaultInstance().openIsolatedContext(monitor, "Cancel attachment");
+        try (JDBCSession session = (JDBCSession) actionContext.openSession(monitor, DBCExecutionPurpose.UTIL, "Cancel attachment")) {
+            session.getOriginal().setAutoCommit(true);
+            try (JDBCPreparedStatement dbStat = session.prepareStatement(sql)) {
+                dbStat.setLong(1, attachmentId);
+                dbStat.executeUpdate();
+            }
+        } catch (SQLException e) {
+            throw new DBException(e, dataSource);
+        } finally {
+            actionContext.close();
+        }
+    }
+
+    @Override
+    protected IStatus run(DBRProgressMonitor monitor) {
+        if (stopped) {
+            return Status.CANCEL_STATUS;
+        }
+        FireBirdTransactionGapAlert alert = null;
+        synchronized (this) {
+            try {
+                alert = sample(monitor);
+            } catch (SQLException | DBException e) {
+                LOG.debug("Error reading transaction counters", e);
+                closeContext();
+            }
+        }
+        if (alert != null) {
+            for (Listener listener : listeners) {
+                listener.gapAlert(alert);
+            }
+        }
+        if (!stopped) {
+            schedule(interval);
+        }
+        return Status.OK_STATUS;
+    }
+
+    private FireBirdTransactionGapAlert sample(DBRProgressMonitor monitor) throws SQLException, DBException {
+        if (context == null) {
+            context = dataSource.getDefaultInstance().openIsolatedContext(monitor, "Transaction gap monitor");
+        }
+        long now = System.currentTimeMillis();
+        try (JDBCSession session = (JDBCSession) context.openSession(monitor, DBCExecutionPurpose.UTIL, "Read transaction counters")) {
+            // MON$ snapshot is built once per transaction
+            session.getOriginal().setAutoCommit(false);
+            try {
+                try (JDBCPreparedStatement dbStat = session.prepareStatement(SQL_COUNTERS)) {
+                    try (JDBCResultSet dbResult = dbStat.executeQuery()) {
+                        if (!dbResult.next()) {
+                            return null;
+                        }
+                        times[next] = now;
+                        oldestTransactions[next] = JDBCUtils.safeGetLong(dbResult, 1);
+                        oldestActive[next] = JDBCUtils.safeGetLong(dbResult, 2);
+                        oldestSnapshots[next] = JDBCUtils.safeGetLong(dbResult, 3);
+                        nextTransactions[next] = JDBCUtils.safeGetLong(dbResult, 4);
+                        next = (next + 1) % HISTORY_SIZE;
+                        if (size < HISTORY_SIZE) {
+                            size++;
+                        }
+                    }
+                }
+                offender = readOffender(session);
+            } finally {
+                session.getOriginal().commit();
+            }
+        }
+        return checkGap(now);
+    }
+
+    private static FireBirdTransactionOffender readOffender(JDBCSession session) throws SQLException {
+        try (JDBCPreparedStatement dbStat = session.prepareStatement(SQL_OFFENDER)) {
+            try (JDBCResultSet dbResult = dbStat.executeQuery()) {
+                if (!dbResult.next()) {
+                    return null;
+                }
+                return new FireBirdTransactionOffender(
+                    JDBCUtils.safeGetLong(dbResult, 1),
+                    JDBCUtils.safeGetLong(dbResult, 2),
+                    JDBCUtils.safeGetTimestamp(dbResult, 3),
+                    JDBCUtils.safeGetStringTrimmed(dbResult, 4),
+                    JDBCUtils.safeGetStringTrimmed(dbResult, 5),
+                    JDBCUtils.safeGetStringTrimmed(dbResult, 6),
+                    JDBCUtils.safeGetLong(dbResult, 7),
+                    JDBCUtils.safeGetString(dbResult, 8),
+                    JDBCUtils.safeGetInt(dbResult, 9),
+                    JDBCUtils.safeGetInt(dbResult, 10) != 0);
+            }
+        }
+    }
+
+    /**
+     * Compares the current gap with the oldest sample in the rate window.
+     * Alert is raised once per offending transaction.
+     */
+    private FireBirdTransactionGapAlert checkGap(long now) {
+        int last = size - 1;
+        long gap = getNextTransaction(last) - getOldestActive(last);
+        int first = last;
+        while (first > 0 && now - getTime(first - 1) <= RATE_WINDOW) {
+            first--;
+        }
+        if (first == last || gap < minGap) {
+            return null;
+        }
+        long firstGap = getNextTransaction(first) - getOldestActive(first);
+        double minutes = (double) (now - getTime(first)) / TimeUnit.MINUTES.toMillis(1);
+        double growthRate = (gap - firstGap) / minutes;
+        if (growthRate < growthThreshold) {
+            return null;
+        }
+        long oldestActiveId = getOldestActive(last);
+        if (oldestActiveId == alertedTransactionId) {
+            return null;
+        }
+        alertedTransactionId = oldestActiveId;
+        return new FireBirdTransactionGapAlert(new Date(now), gap, growthRate, offender);
+    }
+
+    private int toSlot(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Sample " + index + " of " + size);
+        }
+        return (next - size + index + HISTORY_SIZE) % HISTORY_SIZE;
+    }
+
+    private void closeContext() {
+        if (context != null) {
+            context.close();
+            context = null;
+        }
+    }
+}
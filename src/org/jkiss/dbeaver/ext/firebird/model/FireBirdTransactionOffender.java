@@ -0,0 +1,126 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2019 Serge Rider (serge@jkiss.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.ext.firebird.model;
+
+import org.jkiss.dbeaver.model.meta.Property;
+
+import java.util.Date;
+
+/**
+ * Oldest active transaction which holds the transaction gap
+ */
+public class FireBirdTransactionOffender {
+
+    private final long transactionId;
+    private final long attachmentId;
+    private final Date startTime;
+    private final String userName;
+    private final String remoteAddress;
+    private final String remoteProcess;
+    private final long remotePid;
+    private final String sqlText;
+    private final int isolationMode;
+    private final boolean readOnly;
+
+    FireBirdTransactionOffender(long transactionId, long attachmentId, Date startTime, String userName, String remoteAddress, String remoteProcess, long remotePid, String sqlText, int isolationMode, boolean readOnly) {
+        this.transactionId = transactionId;
+        this.attachmentId = attachmentId;
+        this.startTime = startTime;
+        this.userName = userName;
+        this.remoteAddress = remoteAddress;
+        this.remoteProcess = remoteProcess;
+        this.remotePid = remotePid;
+        this.sqlText = sqlText;
+        this.isolationMode = isolationMode;
+        this.readOnly = readOnly;
+    }
+
+    @Property(viewable = true, order = 1)
+    public long getTransactionId() {
+        return transactionId;
+    }
+
+    @Property(viewable = true, order = 2)
+    public long getAttachmentId() {
+        return attachmentId;
+    }
+
+    @Property(viewable = true, order = 3)
+    public Date getStartTime() {
+        return startTime;
+    }
+
+    @Property(viewable = true, order = 4)
+    public String getUserName() {
+        return userName;
+    }
+
+    @Property(viewable = true, order = 5)
+    public String getRemoteAddress() {
+        return remoteAddress;
+    }
+
+    @Property(viewable = true, order = 6)
+    public String getRemoteProcess() {
+        return remoteProcess;
+    }
+
+    @Property(viewable = true, order = 7)
+    public long getRemotePid() {
+        return remotePid;
+    }
+
+    /**
+     * Running (or the last prepared) statement of the transaction or its attachment
+     */
+    @Property(viewable = true, order = 8)
+    public String getSqlText() {
+        return sqlText;
+    }
+
+    /**
+     * MON$ISOLATION_MODE name
+     */
+    @Property(viewable = true, order = 9)
+    public String getIsolationMode() {
+        switch (isolationMode) {
+            case 0:
+                return "CONSISTENCY";
+            case 1:
+                return "SNAPSHOT";
+            case 2:
+                return "READ COMMITTED RECORD_VERSION";
+            case 3:
+                return "READ COMMITTED NO RECORD_VERSION";
+            case 4:
+                return "READ COMMITTED READ CONSISTENCY";
+            default:
+                return String.valueOf(isolationMode);
+        }
+    }
+
+    @Property(viewable = true, order = 10)
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    @Override
+    public String toString() {
+        return "Transaction " + transactionId + " of attachment " + attachmentId
+            + (remoteProcess == null ? "" : " (" + remoteProcess + ")");
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2019 Serge Rider (serge@jkiss.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.ext.firebird.model;
+
+import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
+import org.jkiss.dbeaver.DBException;
+import org.jkiss.dbeaver.ext.generic.model.GenericStructContainer;
+import org.jkiss.dbeaver.ext.generic.model.GenericTableBase;
+import org.jkiss.dbeaver.ext.generic.model.GenericTrigger;
+import org.jkiss.dbeaver.model.DBUtils;
+import org.jkiss.dbeaver.model.exec.jdbc.JDBCPreparedStatement;
+import org.jkiss.dbeaver.model.exec.jdbc.JDBCResultSet;
+import org.jkiss.dbeaver.model.exec.jdbc.JDBCSession;
+import org.jkiss.dbeaver.model.impl.jdbc.JDBCUtils;
+import org.jkiss.dbeaver.model.runtime.DBRProgressMonitor;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Triggers of all relations read with one query and partitioned by relation name.
+ * Database triggers are stored under the empty relation name.
+ * Trigger source is not read here (see FireBirdUtils.getTriggerSource).
+ */
+public class FireBirdTriggerCache {
+
+    private static final String DATABASE_TRIGGERS = "";
+
+    private static class TriggerInfo {
+        final String name;
+        final String description;
+        final int type;
+        final int sequence;
+
+        TriggerInfo(String name, String description, int type, int sequence) {
+            this.name = name;
+            this.description = description;
+            this.type = type;
+            this.sequence = sequence;
+        }
+    }
+
+    private final FireBirdDataSource dataSource;
+    private final Map<String, List<TriggerInfo>> relationTriggers = new HashMap<>();
+    private final Set<String> invalidatedRelations = new HashSet<>();
+    private boolean loaded;
+
+    public FireBirdTriggerCache(FireBirdDataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Creates triggers of the specified table or database triggers if table is null
+     */
+    @NotNull
+    public List<GenericTrigger> getTriggers(@NotNull DBRProgressMonitor monitor, @NotNull GenericStructContainer container, @Nullable GenericTableBase table) throws DBException {
+        List<TriggerInfo> infos = getTriggerInfos(monitor, table == null ? DATABASE_TRIGGERS : table.getName());
+        List<GenericTrigger> result = new ArrayList<>(infos.size());
+        for (TriggerInfo info : infos) {
+            result.add(new FireBirdTrigger(
+                    container,
+                    table,
+                    info.name,
+                    info.description,
+                    FireBirdTriggerType.getByType(info.type),
+                    info.sequence));
+        }
+        return result;
+    }
+
+    /**
+     * Reads triggers of all relations with the specified session if they were not read yet
+     */
+    synchronized void warmUp(@NotNull JDBCSession session) throws SQLException {
+        if (!loaded) {
+            loadTriggers(session, null);
+        }
+    }
+
+    /**
+     * Triggers of the relation will be re-read on next access
+     */
+    public synchronized void invalidate(@NotNull String relationName) {
+        relationTriggers.remove(relationName);
+        invalidatedRelations.add(relationName);
+    }
+
+    public synchronized void clear() {
+        relationTriggers.clear();
+        invalidatedRelations.clear();
+        loaded = false;
+    }
+
+    private synchronized List<TriggerInfo> getTriggerInfos(@NotNull DBRProgressMonitor monitor, @NotNull String relationName) throws DBException {
+        if (!loaded || invalidatedRelations.contains(relationName)) {
+            try (JDBCSession session = DBUtils.openMetaSession(monitor, dataSource, "Read triggers")) {
+                loadTriggers(session, loaded ? relationName : null);
+            } catch (SQLException e) {
+                throw new DBException(e, dataSource);
+            }
+        }
+        List<TriggerInfo> infos = relationTriggers.get(relationName);
+        return infos == null ? Collections.<TriggerInfo>emptyList() : infos;
+    }
+
+    /**
+     * Reads triggers of the specified relation or of all relations if relationName is null
+     */
+    private void loadTriggers(@NotNull JDBCSession session, @Nullable String relationName) throws SQLException {
+        String condition = "";
+        if (relationName != null) {
+            condition = relationName.equals(DATABASE_TRIGGERS) ? "WHERE RDB$RELATION_NAME IS NULL\n" : "WHERE RDB$RELATION_NAME=?\n";
+        }
+        try (JDBCPreparedStatement dbStat = session.prepareStatement(
+                "SELECT RDB$TRIGGER_NAME, RDB$RELATION_NAME, RDB$TRIGGER_SEQUENCE, RDB$TRIGGER_TYPE, RDB$DESCRIPTION\n" +
+                "FROM RDB$TRIGGERS\n" +
+                condition +
+                "ORDER BY RDB$RELATION_NAME, RDB$TRIGGER_SEQUENCE, RDB$TRIGGER_NAME")) {
+            if (relationName != null && !relationName.equals(DATABASE_TRIGGERS)) {
+                dbStat.setString(1, relationName);
+            }
+            // Loaded triggers replace the cached ones
+            if (relationName == null) {
+                relationTriggers.clear();
+            } else {
+                relationTriggers.remove(relationName);
+            }
+            try (JDBCResultSet dbResult = dbStat.executeQuery()) {
+                while (dbResult.next()) {
+                    String name = JDBCUtils.safeGetStringTrimmed(dbResult, 1);
+                    if (name == null) {
+                        continue;
+                    }
+                    String relation = JDBCUtils.safeGetStringTrimmed(dbResult, 2);
+                    if (relation == null) {
+                        relation = DATABASE_TRIGGERS;
+                    }
+                    List<TriggerInfo> infos = relationTriggers.get(relation);
+                    if (infos == null) {
+                        infos = new ArrayList<>();
+                        relationTriggers.put(relation, infos);
+                    }
+                    infos.add(new TriggerInfo(
+                            name,
+                            JDBCUtils.safeGetString(dbResult, 5),
+                            JDBCUtils.safeGetInt(dbResult, 4),
+                            JDBCUtils.safeGetInt(dbResult, 3)));
+                }
+            }
+        }
+        if (relationName == null) {
+            loaded = true;
+            invalidatedRelations.clear();
+        } else {
+            invalidatedRelations.remove(relationName);
+        }
+    }
+
+}
@@ -16,10 +16,14 @@
  */
 package org.jkiss.dbeaver.ext.firebird.model;
 
+import org.jkiss.code.NotNull;
 import org.jkiss.code.Nullable;
+import org.jkiss.dbeaver.DBException;
 import org.jkiss.dbeaver.ext.generic.model.GenericStructContainer;
 import org.jkiss.dbeaver.ext.generic.model.GenericView;
 import org.jkiss.dbeaver.model.exec.jdbc.JDBCResultSet;
+import org.jkiss.dbeaver.model.runtime.DBRProgressMonitor;
+import org.jkiss.dbeaver.model.struct.DBSObject;
 
 public class FireBirdView extends GenericView {
 
@@ -27,4 +31,14 @@ public class FireBirdView extends GenericView {
         super(container, tableName, tableType, dbResult);
     }
 
+    @Override
+    public synchronized DBSObject refreshObject(@NotNull DBRProgressMonitor monitor) throws DBException {
+        FireBirdDataSource dataSource = (FireBirdDataSource) getDataSource();
+        dataSource.getColumnDomainCache().invalidate(getName());
+        dataSource.getTriggerCache().invalidate(getName());
+        dataSource.getDependencyGraph().invalidate(getName());
+        dataSource.getIndexStatisticsCache().invalidateRelation(getName());
+        return super.refreshObject(monitor);
+    }
+
 }
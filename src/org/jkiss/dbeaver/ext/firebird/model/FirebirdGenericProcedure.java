@@ -13,11 +13,17 @@
  */
 package org.jkiss.dbeaver.ext.firebird.model;
 
+import org.jkiss.dbeaver.DBException;
 import org.jkiss.dbeaver.ext.generic.model.GenericFunctionResultType;
 import org.jkiss.dbeaver.ext.generic.model.GenericProcedure;
 import org.jkiss.dbeaver.ext.generic.model.GenericStructContainer;
+import org.jkiss.dbeaver.model.runtime.DBRProgressMonitor;
 import org.jkiss.dbeaver.model.struct.rdb.DBSProcedureType;
 
+import java.lang.ref.SoftReference;
+import java.util.List;
+import java.util.Map;
+
 /**
  *
  * @author a.v.sharapov
@@ -25,6 +31,10 @@ import org.jkiss.dbeaver.model.struct.rdb.DBSProcedureType;
 public class FirebirdGenericProcedure extends GenericProcedure {
 
     private boolean deterministic = false;
+    private List<FireBirdFunctionArgument> arguments;
+    private FirebirdPackage sourcePackage;
+    // DDL is read on demand and may be dropped under memory pressure
+    private SoftReference<String> ddlCache;
 
     public FirebirdGenericProcedure(GenericStructContainer container, String procedureName, String specificName, String description, DBSProcedureType procedureType, GenericFunctionResultType functionResultType, boolean deterministic) {
         super(container, procedureName, specificName, description, procedureType, functionResultType);
@@ -43,4 +53,56 @@ public class FirebirdGenericProcedure extends GenericProcedure {
         this.deterministic = deterministic;
     }
 
+    /**
+     * Function arguments read along with the function list (null if not read yet)
+     */
+    public List<FireBirdFunctionArgument> getArguments() {
+        return arguments;
+    }
+
+    public void setArguments(List<FireBirdFunctionArgument> arguments) {
+        this.arguments = arguments;
+    }
+
+    /**
+     * Package header or body which source is shown as the definition of this routine
+     */
+    public FirebirdPackage getSourcePackage() {
+        return sourcePackage;
+    }
+
+    public void setSourcePackage(FirebirdPackage sourcePackage) {
+        this.sourcePackage = sourcePackage;
+    }
+
+    /**
+     * DDL read by the last getObjectDefinitionText call (null if not read yet or reclaimed)
+     */
+    public String getCachedDDL() {
+        return ddlCache == null ? null : ddlCache.get();
+    }
+
+    public void setCachedDDL(String ddl) {
+        this.ddlCache = ddl == null ? null : new SoftReference<>(ddl);
+    }
+
+    @Override
+    public String getObjectDefinitionText(DBRProgressMonitor monitor, Map<String, Object> options) throws DBException {
+        String source = getSource();
+        if (source != null) {
+            // Explicitly assigned (edited) source
+            return source;
+        }
+        if (sourcePackage != null) {
+            // Package members and HEADER/BODY pseudo-routines show the package source
+            return sourcePackage.getObjectDefinitionText(monitor, options);
+        }
+        String ddl = getCachedDDL();
+        if (ddl == null) {
+            ddl = getDataSource().getMetaModel().getProcedureDDL(monitor, this);
+            setCachedDDL(ddl);
+        }
+        return ddl;
+    }
+
 }
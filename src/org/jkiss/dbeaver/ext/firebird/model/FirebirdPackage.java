@@ -13,12 +13,14 @@
  */
 package org.jkiss.dbeaver.ext.firebird.model;
 
+import java.lang.ref.SoftReference;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 import org.jkiss.dbeaver.DBException;
 import org.jkiss.dbeaver.Log;
+import org.jkiss.dbeaver.ext.firebird.FireBirdUtils;
 import org.jkiss.dbeaver.ext.generic.model.GenericPackage;
 import org.jkiss.dbeaver.ext.generic.model.GenericProcedure;
 import org.jkiss.dbeaver.ext.generic.model.GenericStructContainer;
@@ -34,6 +36,9 @@ public class FirebirdPackage extends GenericPackage {
     private static final Log LOG = Log.getLog(FireBirdDataSource.class);
 
     private String source;
+    private String ownerPackageName;
+    private boolean body;
+    private SoftReference<String> sourceCache;
 
     public FirebirdPackage(GenericStructContainer container, String packageName, boolean nameFromCatalog) {
         super(container, packageName, nameFromCatalog);
@@ -44,6 +49,23 @@ public class FirebirdPackage extends GenericPackage {
         this.source = source;
     }
 
+    /**
+     * Header or body of the package ownerPackageName. Source is read on demand.
+     */
+    public FirebirdPackage(GenericStructContainer container, String packageName, String ownerPackageName, boolean body) {
+        super(container, packageName, false);
+        this.ownerPackageName = ownerPackageName;
+        this.body = body;
+    }
+
+    public String getOwnerPackageName() {
+        return ownerPackageName;
+    }
+
+    public boolean isBody() {
+        return body;
+    }
+
     public String getSource() {
         return source;
     }
@@ -78,7 +100,17 @@ public class FirebirdPackage extends GenericPackage {
 
     @Override
     public String getObjectDefinitionText(DBRProgressMonitor monitor, Map<String, Object> options) throws DBException {
-        return source;//super.getObjectDefinitionText(monitor, options); 
+        if (source != null || ownerPackageName == null) {
+            return source;
+        }
+        String ddl = sourceCache == null ? null : sourceCache.get();
+        if (ddl == null) {
+            ddl = FireBirdUtils.getPackageSource(monitor, this);
+            if (ddl != null) {
+                sourceCache = new SoftReference<>(ddl);
+            }
+        }
+        return ddl;
     }
 
 }
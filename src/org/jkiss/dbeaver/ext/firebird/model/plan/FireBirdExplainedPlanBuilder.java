@@ -0,0 +1,179 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2019 Serge Rider (serge@jkiss.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.ext.firebird.model.plan;
+
+import java.sql.SQLException;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.jkiss.dbeaver.ext.firebird.model.FireBirdIndexStatistics;
+import org.jkiss.dbeaver.ext.firebird.model.FireBirdIndexStatisticsCache;
+import org.jkiss.dbeaver.model.exec.DBCException;
+import org.jkiss.dbeaver.model.exec.jdbc.JDBCSession;
+
+/**
+ * Build tree of explained plan nodes and estimate their cardinality.
+ * Relation record count is estimated from unique index selectivity, index scans
+ * reduce it by index (or leading segments) selectivity. Predicates are not visible
+ * in the explained plan, so filters keep the cardinality of their input.
+ */
+public class FireBirdExplainedPlanBuilder {
+
+	/** Firebird optimizer reduction factors for open and closed ranges */
+	private static final double RANGE_SELECTIVITY = 0.05;
+	private static final double BOUNDED_RANGE_SELECTIVITY = 0.0025;
+
+	private final String plan;
+	private final FireBirdIndexStatisticsCache statisticsCache;
+	private Map<String, Double> relationCardinality;
+
+	public FireBirdExplainedPlanBuilder(String plan, FireBirdIndexStatisticsCache statisticsCache) {
+		this.plan = plan;
+		this.statisticsCache = statisticsCache;
+	}
+
+	public List<FireBirdExplainedPlanNode> Build(JDBCSession session) throws DBCException {
+		FireBirdExplainedPlanParser parser = new FireBirdExplainedPlanParser(plan);
+		List<FireBirdExplainedPlanNode> rootNodes = parser.parse();
+		Set<String> indexNames = new LinkedHashSet<>();
+		for (FireBirdPlanIndex index : parser.getIndexes()) {
+			indexNames.add(index.getName());
+		}
+		try {
+			Map<String, FireBirdIndexStatistics> statistics = statisticsCache.getIndexStatistics(session, indexNames);
+			Set<String> relationNames = new LinkedHashSet<>();
+			for (FireBirdPlanIndex index : parser.getIndexes()) {
+				index.setStatistics(statistics.get(index.getName()));
+				if (index.getStatistics() != null && index.getStatistics().getRelationName() != null) {
+					relationNames.add(index.getStatistics().getRelationName());
+				}
+			}
+			collectRelations(rootNodes, relationNames);
+			relationCardinality = statisticsCache.getRelationCardinality(session, relationNames);
+		} catch (SQLException e) {
+			throw new DBCException("Error reading statistics of index(es) " + String.join(", ", indexNames), e);
+		}
+		for (FireBirdExplainedPlanNode node : rootNodes) {
+			estimate(node);
+		}
+		return rootNodes;
+	}
+
+	private static void collectRelations(Iterable<FireBirdExplainedPlanNode> nodes, Set<String> relationNames) {
+		for (FireBirdExplainedPlanNode node : nodes) {
+			if (node.relationName != null && "Table".equals(node.operation)) {
+				relationNames.add(node.relationName);
+			}
+			collectRelations(node.getNested(), relationNames);
+		}
+	}
+
+	private Double estimate(FireBirdExplainedPlanNode node) {
+		Double childMin = null;
+		Double childMax = null;
+		Double childSum = 0d;
+		Double childProduct = 1d;
+		for (FireBirdExplainedPlanNode child : node.getNested()) {
+			Double rows = estimate(child);
+			if (rows == null) {
+				childSum = null;
+				childProduct = null;
+				continue;
+			}
+			childMin = childMin == null ? rows : Math.min(childMin, rows);
+			childMax = childMax == null ? rows : Math.max(childMax, rows);
+			childSum = childSum == null ? null : childSum + rows;
+			childProduct = childProduct == null ? null : childProduct * rows;
+		}
+		Double rows;
+		String operation = node.operation;
+		if (node.index != null) {
+			rows = estimateIndexScan(node);
+		} else if ("Table".equals(operation)) {
+			if (node.getNested().isEmpty()) {
+				rows = relationCardinality.get(node.relationName);
+			} else {
+				// Access By ID: records found by the bitmap
+				rows = childMin;
+			}
+		} else if (operation.startsWith("Bitmap And")) {
+			rows = childMin;
+		} else if (operation.startsWith("Bitmap Or") || operation.startsWith("Union")) {
+			rows = node.getNested().isEmpty() ? null : childSum;
+		} else if (operation.startsWith("Nested Loop Join")) {
+			// Inner streams are estimated per outer record
+			rows = node.getNested().isEmpty() ? null : childProduct;
+		} else if (operation.contains("Join")) {
+			// Hash and merge joins: assume a foreign key join
+			rows = childMax;
+		} else {
+			rows = node.getNested().size() == 1 ? childMin : null;
+		}
+		node.estimatedRows = rows == null ? null : Math.max(1, Math.round(rows)) * 1d;
+		return node.estimatedRows;
+	}
+
+	private Double estimateIndexScan(FireBirdExplainedPlanNode node) {
+		String access = node.access == null ? "" : node.access;
+		if (access.startsWith("Unique Scan")) {
+			return 1d;
+		}
+		FireBirdIndexStatistics statistics = node.index.getStatistics();
+		if (statistics == null) {
+			return null;
+		}
+		Double rows = relationCardinality.get(statistics.getRelationName());
+		if (rows == null) {
+			return null;
+		}
+		if (access.startsWith("Full Scan")) {
+			return rows;
+		}
+		if (access.contains("full match")) {
+			return rows * statistics.getStatistics();
+		}
+		int partial = access.indexOf("partial match: ");
+		if (partial >= 0) {
+			int segments = parseSegmentCount(access, partial + "partial match: ".length());
+			List<FireBirdIndexStatistics.Segment> indexSegments = statistics.getSegments();
+			if (segments > 0 && segments <= indexSegments.size()) {
+				// Segment statistics are selectivity of the key prefix
+				return rows * indexSegments.get(segments - 1).getStatistics();
+			}
+			return rows * statistics.getStatistics();
+		}
+		boolean lower = access.contains("lower bound");
+		boolean upper = access.contains("upper bound");
+		if (lower && upper) {
+			return rows * BOUNDED_RANGE_SELECTIVITY;
+		}
+		if (lower || upper) {
+			return rows * RANGE_SELECTIVITY;
+		}
+		return rows;
+	}
+
+	private static int parseSegmentCount(String access, int pos) {
+		int end = pos;
+		while (end < access.length() && Character.isDigit(access.charAt(end))) {
+			end++;
+		}
+		return end > pos ? Integer.parseInt(access.substring(pos, end)) : 0;
+	}
+}
@@ -0,0 +1,175 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2019 Serge Rider (serge@jkiss.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.ext.firebird.model.plan;
+
+import org.jkiss.dbeaver.model.exec.plan.DBCPlanCostNode;
+import org.jkiss.dbeaver.model.exec.plan.DBCPlanNode;
+import org.jkiss.dbeaver.model.impl.plan.AbstractExecutionPlanNode;
+import org.jkiss.dbeaver.model.meta.Property;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Node of firebird 3+ explained plan, e.g. "Table "EMPLOYEE" as "E" Full Scan".
+ * Estimated cardinality is calculated by FireBirdExplainedPlanBuilder.
+ */
+public class FireBirdExplainedPlanNode extends AbstractExecutionPlanNode implements DBCPlanCostNode {
+
+	final String text;
+	FireBirdExplainedPlanNode parent;
+	private final List<FireBirdExplainedPlanNode> nested = new ArrayList<>();
+	String operation;
+	String relationName;
+	String alias;
+	FireBirdPlanIndex index;
+	String access;
+	Integer recordLength;
+	Integer keyLength;
+	Double estimatedRows;
+	private FireBirdPlanTableProfile profile;
+
+	FireBirdExplainedPlanNode(String text) {
+		this.text = text;
+	}
+
+	@Override
+	public String getNodeName() {
+		if (relationName != null) {
+			return relationName;
+		}
+		if (index != null) {
+			return index.getName();
+		}
+		return operation;
+	}
+
+	@Override
+	public String getNodeType() {
+		if (access != null) {
+			return operation + " " + access;
+		}
+		return operation;
+	}
+
+	@Override
+	public String getNodeDescription() {
+		return text;
+	}
+
+	@Override
+	public DBCPlanNode getParent() {
+		return parent;
+	}
+
+	@Override
+	public Collection<FireBirdExplainedPlanNode> getNested() {
+		return nested;
+	}
+
+	@Property(viewable = true, order = 1)
+	public String getOperation() {
+		return operation;
+	}
+
+	@Property(viewable = true, order = 2)
+	public String getRelationName() {
+		return relationName;
+	}
+
+	@Property(viewable = true, order = 3)
+	public String getAlias() {
+		return alias;
+	}
+
+	/**
+	 * Access kind: Full Scan, Access By ID, Unique Scan, Range Scan (...), etc.
+	 */
+	@Property(viewable = true, order = 4)
+	public String getAccess() {
+		return access;
+	}
+
+	@Property(viewable = true, order = 5)
+	public FireBirdPlanIndex getIndex() {
+		return index;
+	}
+
+	@Property(viewable = true, order = 6)
+	public Integer getRecordLength() {
+		return recordLength;
+	}
+
+	@Property(viewable = true, order = 7)
+	public Integer getKeyLength() {
+		return keyLength;
+	}
+
+	/**
+	 * Actual non-indexed reads of the relation (set by execution profile)
+	 */
+	@Property(viewable = true, order = 9)
+	public Long getActualSequentialReads() {
+		return profile == null ? null : profile.getSequentialReads();
+	}
+
+	/**
+	 * Actual indexed reads of the relation (set by execution profile)
+	 */
+	@Property(viewable = true, order = 10)
+	public Long getActualIndexedReads() {
+		return profile == null ? null : profile.getIndexedReads();
+	}
+
+	public FireBirdPlanTableProfile getProfile() {
+		return profile;
+	}
+
+	void setProfile(FireBirdPlanTableProfile profile) {
+		this.profile = profile;
+	}
+
+	@Override
+	public Number getNodeCost() {
+		return null;
+	}
+
+	@Override
+	public Number getNodePercent() {
+		return null;
+	}
+
+	@Override
+	public Number getNodeDuration() {
+		return null;
+	}
+
+	/**
+	 * Estimated cardinality (null if it can't be estimated)
+	 */
+	@Property(viewable = true, order = 8)
+	@Override
+	public Number getNodeRowCount() {
+		return estimatedRows;
+	}
+
+	@Override
+	public String toString() {
+		return text;
+	}
+}
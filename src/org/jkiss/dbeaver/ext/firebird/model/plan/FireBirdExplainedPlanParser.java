@@ -0,0 +1,158 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2019 Serge Rider (serge@jkiss.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.ext.firebird.model.plan;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Parser of firebird 3+ explained plan. Nesting is defined by line indentation:
+ *
+ * <pre>
+ * Select Expression
+ *     -> Nested Loop Join (inner)
+ *         -> Table "EMPLOYEE" as "E" Full Scan
+ *         -> Filter
+ *             -> Table "DEPARTMENT" as "D" Access By ID
+ *                 -> Bitmap
+ *                     -> Index "RDB$PRIMARY5" Unique Scan
+ * </pre>
+ */
+class FireBirdExplainedPlanParser {
+
+	private static final String ARROW = "->";
+	private static final Pattern RECORD_LENGTH_PATTERN = Pattern.compile("record length: (\\d+)");
+	private static final Pattern KEY_LENGTH_PATTERN = Pattern.compile("key length: (\\d+)");
+
+	private final String plan;
+	private final List<FireBirdPlanIndex> indexes = new ArrayList<>();
+
+	FireBirdExplainedPlanParser(String plan) {
+		this.plan = plan;
+	}
+
+	/**
+	 * Indexes found by parse() in the order of their appearance
+	 */
+	List<FireBirdPlanIndex> getIndexes() {
+		return indexes;
+	}
+
+	List<FireBirdExplainedPlanNode> parse() {
+		List<FireBirdExplainedPlanNode> roots = new ArrayList<>();
+		Deque<FireBirdExplainedPlanNode> parents = new ArrayDeque<>();
+		Deque<Integer> indents = new ArrayDeque<>();
+		for (String line : plan.split("\\r?\\n")) {
+			int indent = 0;
+			while (indent < line.length() && Character.isWhitespace(line.charAt(indent))) {
+				indent++;
+			}
+			if (indent == line.length()) {
+				continue;
+			}
+			String body = line.substring(indent);
+			if (body.startsWith(ARROW)) {
+				body = body.substring(ARROW.length()).trim();
+			}
+			FireBirdExplainedPlanNode node = parseNode(body);
+			while (!indents.isEmpty() && indents.peek() >= indent) {
+				indents.pop();
+				parents.pop();
+			}
+			if (parents.isEmpty()) {
+				roots.add(node);
+			} else {
+				node.parent = parents.peek();
+				node.parent.getNested().add(node);
+			}
+			parents.push(node);
+			indents.push(indent);
+		}
+		return roots;
+	}
+
+	private FireBirdExplainedPlanNode parseNode(String body) {
+		FireBirdExplainedPlanNode node = new FireBirdExplainedPlanNode(body);
+		int quote = body.indexOf('"');
+		if (quote > 0 && (body.startsWith("Table ") || body.startsWith("Index ") || body.startsWith("Procedure "))) {
+			node.operation = body.substring(0, quote).trim();
+			StringBuilder name = new StringBuilder();
+			int pos = readQuoted(body, quote, name);
+			if (node.operation.equals("Index")) {
+				node.index = new FireBirdPlanIndex(name.toString());
+				indexes.add(node.index);
+			} else {
+				node.relationName = name.toString();
+			}
+			pos = skipSpaces(body, pos);
+			if (body.startsWith("as ", pos)) {
+				StringBuilder alias = new StringBuilder();
+				pos = skipSpaces(body, pos + 3);
+				while (pos < body.length() && body.charAt(pos) == '"') {
+					if (alias.length() > 0) {
+						alias.append(' ');
+					}
+					pos = skipSpaces(body, readQuoted(body, pos, alias));
+				}
+				node.alias = alias.toString();
+			}
+			String access = body.substring(pos).trim();
+			node.access = access.isEmpty() ? null : access;
+		} else {
+			int bracket = body.indexOf(" (");
+			node.operation = bracket > 0 ? body.substring(0, bracket) : body;
+		}
+		node.recordLength = findNumber(RECORD_LENGTH_PATTERN, body);
+		node.keyLength = findNumber(KEY_LENGTH_PATTERN, body);
+		return node;
+	}
+
+	/**
+	 * Reads double-quoted identifier starting at pos, returns position after the closing quote
+	 */
+	private static int readQuoted(String text, int pos, StringBuilder value) {
+		pos++;
+		while (pos < text.length()) {
+			char c = text.charAt(pos++);
+			if (c == '"') {
+				if (pos < text.length() && text.charAt(pos) == '"') {
+					pos++;
+				} else {
+					break;
+				}
+			}
+			value.append(c);
+		}
+		return pos;
+	}
+
+	private static int skipSpaces(String text, int pos) {
+		while (pos < text.length() && text.charAt(pos) == ' ') {
+			pos++;
+		}
+		return pos;
+	}
+
+	private static Integer findNumber(Pattern pattern, String text) {
+		Matcher matcher = pattern.matcher(text);
+		return matcher.find() ? Integer.valueOf(matcher.group(1)) : null;
+	}
+}
@@ -0,0 +1,352 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2019 Serge Rider (serge@jkiss.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.ext.firebird.model.plan;
+
+import org.jkiss.code.NotNull;
+import org.jkiss.dbeaver.DBException;
+import org.jkiss.dbeaver.ext.firebird.FireBirdUtils;
+import org.jkiss.dbeaver.ext.firebird.model.FireBirdDataSource;
+import org.jkiss.dbeaver.ext.firebird.model.FireBirdIndexStatistics;
+import org.jkiss.dbeaver.ext.generic.model.GenericTableBase;
+import org.jkiss.dbeaver.ext.generic.model.GenericTableColumn;
+import org.jkiss.dbeaver.model.DBUtils;
+import org.jkiss.dbeaver.model.exec.jdbc.JDBCSession;
+import org.jkiss.dbeaver.model.runtime.DBRProgressMonitor;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Suggests indexes for relations read NATURAL or through low selectivity indexes in a workload.
+ * Columns compared in WHERE/ON conditions of the statements are matched with existing index
+ * segments; equality and join columns go first, then one range column. Benefit is the number of
+ * records not read anymore, estimated from relation cardinality and known column selectivity.
+ */
+public class FireBirdIndexAdvisor {
+
+    /** Selectivity of an equality column without statistics */
+    public static final double DEFAULT_EQUALITY_SELECTIVITY = 0.01;
+    /** Firebird optimizer estimate for a range condition */
+    private static final double RANGE_SELECTIVITY = 0.05;
+    private static final int MAX_COLUMNS = 4;
+
+    private final FireBirdDataSource dataSource;
+
+    public FireBirdIndexAdvisor(@NotNull FireBirdDataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Plans the script statements and returns proposals ordered by benefit
+     */
+    @NotNull
+    public List<FireBirdIndexProposal> adviseScript(@NotNull DBRProgressMonitor monitor, @NotNull String script) throws DBException {
+        FireBirdWorkloadScanner scanner = new FireBirdWorkloadScanner(dataSource, FireBirdWorkloadScanner.DEFAULT_THREADS);
+        return advise(monitor, scanner.scanScript(monitor, script));
+    }
+
+    /**
+     * Returns proposals for the scanned workload ordered by benefit (best first)
+     */
+    @NotNull
+    public List<FireBirdIndexProposal> advise(@NotNull DBRProgressMonitor monitor, @NotNull Collection<FireBirdWorkloadEntry> entries) throws DBException {
+        Map<FireBirdWorkloadEntry, FireBirdPredicateExtractor> extractors = new LinkedHashMap<>();
+        Set<String> relationNames = new LinkedHashSet<>();
+        for (FireBirdWorkloadEntry entry : entries) {
+            if (entry.getError() == null && hasIndexIssues(entry)) {
+                FireBirdPredicateExtractor extractor = new FireBirdPredicateExtractor(entry.getQuery());
+                extractors.put(entry, extractor);
+                relationNames.addAll(extractor.getRelations().values());
+            }
+        }
+        if (extractors.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        monitor.subTask("Read relation columns and indexes");
+        Map<String, Set<String>> relationColumns = readRelationColumns(monitor, relationNames);
+        Map<String, List<FireBirdIndexStatistics>> relationIndexes;
+        try (JDBCSession session = DBUtils.openMetaSession(monitor, dataSource, "Read relation indexes")) {
+            relationIndexes = dataSource.getIndexStatisticsCache().getRelationIndexes(session, relationColumns.keySet());
+        } catch (SQLException e) {
+            throw new DBException(e, dataSource);
+        }
+
+        Map<String, FireBirdIndexProposal> proposals = new LinkedHashMap<>();
+        for (Map.Entry<FireBirdWorkloadEntry, FireBirdPredicateExtractor> entry : extractors.entrySet()) {
+            FireBirdPredicateExtractor extractor = entry.getValue();
+            for (FireBirdPlanIssue issue : entry.getKey().getIssues()) {
+                if (issue.getType() == FireBirdPlanIssue.Type.SORT) {
+                    continue;
+                }
+                String relationName = resolveRelation(extractor, issue.getRelationName());
+                if (relationName == null || !relationColumns.containsKey(relationName)) {
+                    continue;
+                }
+                List<FireBirdIndexStatistics> indexes = relationIndexes.getOrDefault(relationName, Collections.emptyList());
+                List<String> columns = getKeyColumns(extractor, relationName, relationColumns, indexes);
+                if (columns.isEmpty() || findCoveringIndex(indexes, columns) != null) {
+                    continue;
+                }
+                double benefit = estimateBenefit(issue, columns, extractor, relationName, relationColumns, indexes) * entry.getKey().getOccurrences();
+                String key = relationName + "(" + String.join(",", columns) + ")";
+                FireBirdIndexProposal proposal = proposals.computeIfAbsent(key, k -> new FireBirdIndexProposal(relationName, columns));
+                proposal.addUsage(entry.getKey().getQuery(), entry.getKey().getOccurrences(), benefit);
+                if (issue.getIndexName() != null && isPrefixOf(getIndexColumns(indexes, issue.getIndexName()), columns)) {
+                    proposal.setReplacedIndex(issue.getIndexName());
+                }
+            }
+        }
+
+        List<FireBirdIndexProposal> result = mergePrefixes(proposals.values());
+        assignNames(result, relationIndexes);
+        result.sort((p1, p2) -> Double.compare(p2.getBenefit(), p1.getBenefit()));
+        return result;
+    }
+
+    private static boolean hasIndexIssues(FireBirdWorkloadEntry entry) {
+        for (FireBirdPlanIssue issue : entry.getIssues()) {
+            if (issue.getType() != FireBirdPlanIssue.Type.SORT) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Legacy plans report aliases, explained plans and index issues report relation names
+     */
+    private static String resolveRelation(FireBirdPredicateExtractor extractor, String name) {
+        if (name == null) {
+            return null;
+        }
+        String relationName = extractor.getRelations().get(name);
+        if (relationName != null) {
+            return relationName;
+        }
+        return extractor.getRelations().containsValue(name) ? name : null;
+    }
+
+    private Map<String, Set<String>> readRelationColumns(DBRProgressMonitor monitor, Collection<String> relationNames) throws DBException {
+        Map<String, Set<String>> result = new HashMap<>();
+        for (String relationName : relationNames) {
+            GenericTableBase table = dataSource.getTable(monitor, relationName);
+            if (table == null || table.isView()) {
+                // Unknown names are CTEs or procedures
+                continue;
+            }
+            Set<String> columns = new HashSet<>();
+            Collection<? extends GenericTableColumn> attributes = table.getAttributes(monitor);
+            if (attributes != null) {
+                for (GenericTableColumn column : attributes) {
+                    columns.add(column.getName());
+                }
+            }
+            result.put(relationName, columns);
+        }
+        return result;
+    }
+
+    /**
+     * Equality and join columns ordered by selectivity, followed by the first range column
+     */
+    private static List<String> getKeyColumns(FireBirdPredicateExtractor extractor, String relationName, Map<String, Set<String>> relationColumns, List<FireBirdIndexStatistics> indexes) {
+        Set<String> equality = new LinkedHashSet<>();
+        String range = null;
+        for (FireBirdPredicateExtractor.Predicate predicate : extractor.getPredicates()) {
+            if (!relationName.equals(getPredicateRelation(extractor, predicate, relationColumns))) {
+                continue;
+            }
+            if (predicate.kind == FireBirdPredicateExtractor.Kind.RANGE) {
+                if (range == null) {
+                    range = predicate.column;
+                }
+            } else {
+                equality.add(predicate.column);
+            }
+        }
+        List<String> columns = new ArrayList<>(equality);
+        columns.sort((c1, c2) -> Double.compare(getColumnSelectivity(indexes, c1), getColumnSelectivity(indexes, c2)));
+        if (range != null && !equality.contains(range)) {
+            while (columns.size() >= MAX_COLUMNS) {
+                columns.remove(columns.size() - 1);
+            }
+            columns.add(range);
+        }
+        while (columns.size() > MAX_COLUMNS) {
+            columns.remove(columns.size() - 1);
+        }
+        return columns;
+    }
+
+    /**
+     * Unqualified column belongs to the only statement relation which has it
+     */
+    private static String getPredicateRelation(FireBirdPredicateExtractor extractor, FireBirdPredicateExtractor.Predicate predicate, Map<String, Set<String>> relationColumns) {
+        if (predicate.qualifier != null) {
+            String relationName = extractor.getRelations().get(predicate.qualifier);
+            Set<String> columns = relationName == null ? null : relationColumns.get(relationName);
+            return columns != null && columns.contains(predicate.column) ? relationName : null;
+        }
+        String result = null;
+        for (String relationName : new HashSet<>(extractor.getRelations().values())) {
+            Set<String> columns = relationColumns.get(relationName);
+            if (columns != null && columns.contains(predicate.column)) {
+                if (result != null) {
+                    return null;
+                }
+                result = relationName;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Selectivity of the first segment of an existing index on the column
+     */
+    private static double getColumnSelectivity(List<FireBirdIndexStatistics> indexes, String column) {
+        Double result = null;
+        for (FireBirdIndexStatistics index : indexes) {
+            List<FireBirdIndexStatistics.Segment> segments = index.getSegments();
+            if (!segments.isEmpty() && column.equals(segments.get(0).getFieldName()) && segments.get(0).getStatistics() > 0) {
+                result = result == null ? segments.get(0).getStatistics() : Math.min(result, segments.get(0).getStatistics());
+            }
+        }
+        return result == null ? DEFAULT_EQUALITY_SELECTIVITY : result;
+    }
+
+    private static String findCoveringIndex(List<FireBirdIndexStatistics> indexes, List<String> columns) {
+        for (FireBirdIndexStatistics index : indexes) {
+            if (isPrefixOf(columns, getColumns(index))) {
+                return index.getIndexName();
+            }
+        }
+        return null;
+    }
+
+    private static List<String> getIndexColumns(List<FireBirdIndexStatistics> indexes, String indexName) {
+        for (FireBirdIndexStatistics index : indexes) {
+            if (index.getIndexName().equals(indexName)) {
+                return getColumns(index);
+            }
+        }
+        return Collections.emptyList();
+    }
+
+    private static List<String> getColumns(FireBirdIndexStatistics index) {
+        List<String> columns = new ArrayList<>();
+        for (FireBirdIndexStatistics.Segment segment : index.getSegments()) {
+            columns.add(segment.getFieldName());
+        }
+        return columns;
+    }
+
+    /**
+     * Checks that the first columns are the leading columns of the second list.
+     * Order of equality columns doesn't matter, so the prefix is compared as a set (except its last column).
+     */
+    private static boolean isPrefixOf(List<String> prefix, List<String> columns) {
+        if (prefix.isEmpty() || prefix.size() > columns.size()) {
+            return false;
+        }
+        int last = prefix.size() - 1;
+        return new HashSet<>(columns.subList(0, last)).equals(new HashSet<>(prefix.subList(0, last)))
+            && columns.get(last).equals(prefix.get(last));
+    }
+
+    private static double estimateBenefit(FireBirdPlanIssue issue, List<String> columns, FireBirdPredicateExtractor extractor, String relationName, Map<String, Set<String>> relationColumns, List<FireBirdIndexStatistics> indexes) {
+        double selectivity = 1;
+        Set<String> rangeColumns = new HashSet<>();
+        for (FireBirdPredicateExtractor.Predicate predicate : extractor.getPredicates()) {
+            // Same named column of another relation doesn't make this one a range
+            if (predicate.kind == FireBirdPredicateExtractor.Kind.RANGE && relationName.equals(getPredicateRelation(extractor, predicate, relationColumns))) {
+                rangeColumns.add(predicate.column);
+            }
+        }
+        for (int i = 0; i < columns.size(); i++) {
+            boolean range = i == columns.size() - 1 && rangeColumns.contains(columns.get(i));
+            selectivity *= range ? RANGE_SELECTIVITY : getColumnSelectivity(indexes, columns.get(i));
+        }
+        Double rows = issue.getEstimatedRows();
+        double newCost = rows == null ? issue.getCost() * selectivity : Math.max(1, rows * selectivity);
+        return Math.max(0, issue.getCost() - newCost);
+    }
+
+    /**
+     * Proposal whose columns are leading columns of another proposal for the same relation is merged into it
+     */
+    private static List<FireBirdIndexProposal> mergePrefixes(Collection<FireBirdIndexProposal> proposals) {
+        List<FireBirdIndexProposal> sorted = new ArrayList<>(proposals);
+        sorted.sort((p1, p2) -> p2.getColumns().size() - p1.getColumns().size());
+        List<FireBirdIndexProposal> result = new ArrayList<>();
+        for (FireBirdIndexProposal proposal : sorted) {
+            FireBirdIndexProposal target = null;
+            for (FireBirdIndexProposal longer : result) {
+                if (longer.getRelationName().equals(proposal.getRelationName()) && isPrefixOf(proposal.getColumns(), longer.getColumns())) {
+                    target = longer;
+                    break;
+                }
+            }
+            if (target == null) {
+                result.add(proposal);
+            } else {
+                target.merge(proposal);
+            }
+        }
+        return result;
+    }
+
+    private void assignNames(List<FireBirdIndexProposal> proposals, Map<String, List<FireBirdIndexStatistics>> relationIndexes) {
+        int maxLength = FireBirdUtils.getFireBirdServerVersion(dataSource).getMajor() >= 4 ? 63 : 31;
+        Set<String> usedNames = new HashSet<>();
+        for (List<FireBirdIndexStatistics> indexes : relationIndexes.values()) {
+            for (FireBirdIndexStatistics index : indexes) {
+                usedNames.add(index.getIndexName());
+            }
+        }
+        for (FireBirdIndexProposal proposal : proposals) {
+            String baseName = ("IX_" + proposal.getRelationName() + "_" + String.join("_", proposal.getColumns()))
+                .toUpperCase(Locale.ENGLISH).replaceAll("[^A-Z0-9_$]", "_");
+            if (baseName.length() > maxLength) {
+                String hash = Integer.toHexString(baseName.hashCode()).toUpperCase(Locale.ENGLISH);
+                baseName = baseName.substring(0, maxLength - hash.length() - 1) + "_" + hash;
+            }
+            String name = baseName;
+            for (int i = 2; !usedNames.add(name); i++) {
+                String suffix = "_" + i;
+                name = baseName.substring(0, Math.min(baseName.length(), maxLength - suffix.length())) + suffix;
+            }
+            StringBuilder ddl = new StringBuilder();
+            ddl.append("CREATE INDEX ").append(DBUtils.getQuotedIdentifier(dataSource, name))
+                .append(" ON ").append(DBUtils.getQuotedIdentifier(dataSource, proposal.getRelationName())).append(" (");
+            for (int i = 0; i < proposal.getColumns().size(); i++) {
+                ddl.append(i == 0 ? "" : ", ").append(DBUtils.getQuotedIdentifier(dataSource, proposal.getColumns().get(i)));
+            }
+            proposal.setIndexName(name, ddl.append(")").toString());
+        }
+    }
+}
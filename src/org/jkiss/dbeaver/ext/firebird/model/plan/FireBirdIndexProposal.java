@@ -0,0 +1,127 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2019 Serge Rider (serge@jkiss.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.ext.firebird.model.plan;
+
+import org.jkiss.dbeaver.model.meta.Property;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Index suggested by the index advisor.
+ */
+public class FireBirdIndexProposal {
+
+    private final String relationName;
+    private final List<String> columns;
+    private String indexName;
+    private String ddl;
+    private String replacedIndex;
+    private double benefit;
+    private final Map<String, Integer> queries = new LinkedHashMap<>();
+
+    FireBirdIndexProposal(String relationName, List<String> columns) {
+        this.relationName = relationName;
+        this.columns = new ArrayList<>(columns);
+    }
+
+    @Property(viewable = true, order = 1)
+    public String getRelationName() {
+        return relationName;
+    }
+
+    @Property(viewable = true, order = 2)
+    public List<String> getColumns() {
+        return Collections.unmodifiableList(columns);
+    }
+
+    /**
+     * Estimated number of records not read anymore by the whole workload
+     */
+    @Property(viewable = true, order = 3)
+    public double getBenefit() {
+        return benefit;
+    }
+
+    /**
+     * Number of statement executions which may use the index
+     */
+    @Property(viewable = true, order = 4)
+    public int getOccurrences() {
+        int occurrences = 0;
+        for (Integer count : queries.values()) {
+            occurrences += count;
+        }
+        return occurrences;
+    }
+
+    /**
+     * Existing low selectivity index which becomes redundant (null if there is no such index)
+     */
+    @Property(viewable = true, order = 5)
+    public String getReplacedIndex() {
+        return replacedIndex;
+    }
+
+    @Property(viewable = true, order = 6)
+    public String getIndexName() {
+        return indexName;
+    }
+
+    @Property(viewable = true, order = 7)
+    public String getDDL() {
+        return ddl;
+    }
+
+    /**
+     * Statements (first occurrences) which may use the index
+     */
+    public Set<String> getQueries() {
+        return Collections.unmodifiableSet(queries.keySet());
+    }
+
+    void setIndexName(String indexName, String ddl) {
+        this.indexName = indexName;
+        this.ddl = ddl;
+    }
+
+    void setReplacedIndex(String replacedIndex) {
+        this.replacedIndex = replacedIndex;
+    }
+
+    void addUsage(String query, int occurrences, double benefit) {
+        queries.put(query, occurrences);
+        this.benefit += benefit;
+    }
+
+    void merge(FireBirdIndexProposal proposal) {
+        queries.putAll(proposal.queries);
+        benefit += proposal.benefit;
+        if (replacedIndex == null) {
+            replacedIndex = proposal.replacedIndex;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getDDL();
+    }
+}
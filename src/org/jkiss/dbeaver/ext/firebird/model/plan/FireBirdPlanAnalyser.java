@@ -24,6 +24,7 @@ import org.jkiss.dbeaver.model.exec.jdbc.JDBCPreparedStatement;
 import org.jkiss.dbeaver.model.exec.jdbc.JDBCSession;
 import org.jkiss.dbeaver.model.exec.plan.DBCPlanNode;
 import org.jkiss.dbeaver.model.impl.plan.AbstractExecutionPlan;
+import org.jkiss.utils.CommonUtils;
 
 import java.sql.SQLException;
 import java.util.List;
@@ -31,6 +32,8 @@ import java.util.Map;
 
 /**
  * Build firebird plan tree based on textual plan information returned by getPlan.
+ * Firebird 3+ explained plan is used when the driver provides it.
+ * Built plans are kept in the connection plan cache.
  *
  * @author tomashorak@post.cz
  */
@@ -39,7 +42,7 @@ public class FireBirdPlanAnalyser extends AbstractExecutionPlan {
     private final FireBirdDataSource dataSource;
     private final JDBCSession session;
     private final String query;
-    private List<FireBirdPlanNode> rootNodes;
+    private List<? extends DBCPlanNode> rootNodes;
 
     public FireBirdPlanAnalyser(FireBirdDataSource dataSource, JDBCSession session, String query) {
         this.dataSource = dataSource;
@@ -50,20 +53,43 @@ public class FireBirdPlanAnalyser extends AbstractExecutionPlan {
     public void explain()
             throws DBException {
         try {
+            FireBirdPlanCache planCache = dataSource.getPlanCache();
+            rootNodes = planCache.getPlan(session, getQueryString());
+            if (rootNodes != null) {
+                return;
+            }
+            long startTime = System.nanoTime();
             JDBCPreparedStatement dbStat = session.prepareStatement(getQueryString());
             // Read explained plan
             try {
-                String plan = FireBirdUtils.getPlan(dbStat);
-                FireBirdPlanBuilder builder = new FireBirdPlanBuilder(plan);
-                rootNodes = builder.Build(session);
+                rootNodes = buildPlan(dataSource, session, dbStat);
             } finally {
                 dbStat.close();
             }
+            planCache.putPlan(session, getQueryString(), rootNodes, System.nanoTime() - startTime);
         } catch (SQLException e) {
             throw new DBCException(e, session.getExecutionContext());
         }
     }
 
+    /**
+     * Builds plan nodes of the prepared statement
+     */
+    static List<? extends DBCPlanNode> buildPlan(FireBirdDataSource dataSource, JDBCSession session, JDBCPreparedStatement dbStat) throws DBCException {
+        String explainedPlan = null;
+        if (FireBirdUtils.getFireBirdServerVersion(dataSource).getMajor() >= 3) {
+            explainedPlan = FireBirdUtils.getExplainedPlan(dbStat);
+        }
+        if (!CommonUtils.isEmpty(explainedPlan)) {
+            FireBirdExplainedPlanBuilder builder = new FireBirdExplainedPlanBuilder(explainedPlan, dataSource.getIndexStatisticsCache());
+            return builder.Build(session);
+        } else {
+            String plan = FireBirdUtils.getPlan(dbStat);
+            FireBirdPlanBuilder builder = new FireBirdPlanBuilder(plan, dataSource.getIndexStatisticsCache());
+            return builder.Build(session);
+        }
+    }
+
     @Override
     public String getQueryString() {
         return query;
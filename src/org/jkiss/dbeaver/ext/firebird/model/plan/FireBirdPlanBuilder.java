@@ -16,30 +16,41 @@
  */
 package org.jkiss.dbeaver.ext.firebird.model.plan;
 
+import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.jkiss.dbeaver.ext.firebird.model.FireBirdIndexStatistics;
+import org.jkiss.dbeaver.ext.firebird.model.FireBirdIndexStatisticsCache;
 import org.jkiss.dbeaver.model.exec.DBCException;
 import org.jkiss.dbeaver.model.exec.jdbc.JDBCSession;
 
 /**
- * Build tree of plan nodes.
+ * Build tree of plan nodes. Statistics of all indexes used by the plan
+ * are resolved at once after all plan lines are parsed.
  *
  * @author tomashorak@post.cz
  */
 public class FireBirdPlanBuilder {
 	
 	private String plan;
+	private FireBirdIndexStatisticsCache statisticsCache;
 	
-	public FireBirdPlanBuilder(String plan) {
+	public FireBirdPlanBuilder(String plan, FireBirdIndexStatisticsCache statisticsCache) {
 		super();
 		this.plan = plan;
+		this.statisticsCache = statisticsCache;
 	}
 
 	public List<FireBirdPlanNode> Build(JDBCSession session) throws DBCException {
 		List<FireBirdPlanNode> rootNodes = new ArrayList<>();
+		List<FireBirdPlanIndex> indexes = new ArrayList<>();
 		String [] plans = plan.split("\\n");
 		for (String plan: plans) {
-			FireBirdPlanParser pm = new FireBirdPlanParser(plan, session);
+			FireBirdPlanParser pm = new FireBirdPlanParser(plan);
 			FireBirdPlanNode node = null;
 			try {
 				node = pm.parse();
@@ -47,8 +58,28 @@ public class FireBirdPlanBuilder {
 				throw new DBCException(e.getMessage());
 			}
 			rootNodes.add(node);
+			indexes.addAll(pm.getIndexes());
+		}
+		if (!indexes.isEmpty()) {
+			resolveIndexes(session, indexes);
 		}
 		return rootNodes;
 	}
+
+	private void resolveIndexes(JDBCSession session, List<FireBirdPlanIndex> indexes) throws DBCException {
+		Set<String> indexNames = new LinkedHashSet<>();
+		for (FireBirdPlanIndex index : indexes) {
+			indexNames.add(index.getName());
+		}
+		Map<String, FireBirdIndexStatistics> statistics;
+		try {
+			statistics = statisticsCache.getIndexStatistics(session, indexNames);
+		} catch (SQLException e) {
+			throw new DBCException("Error reading statistics of index(es) " + String.join(", ", indexNames), e);
+		}
+		for (FireBirdPlanIndex index : indexes) {
+			index.setStatistics(statistics.get(index.getName()));
+		}
+	}
 	
 }
@@ -0,0 +1,330 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2019 Serge Rider (serge@jkiss.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.ext.firebird.model.plan;
+
+import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
+import org.jkiss.dbeaver.model.exec.jdbc.JDBCPreparedStatement;
+import org.jkiss.dbeaver.model.exec.jdbc.JDBCResultSet;
+import org.jkiss.dbeaver.model.exec.jdbc.JDBCSession;
+import org.jkiss.dbeaver.model.exec.plan.DBCPlanNode;
+import org.jkiss.dbeaver.model.impl.jdbc.JDBCUtils;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * LRU cache of built plans keyed by normalized query text (literals replaced, whitespace collapsed).
+ * Each entry remembers versions of the used relations (format and number of active indexes) and
+ * indexes (statistics and state). The versions are checked with one query on every hit,
+ * so an entry is dropped as soon as the relation is altered or index statistics are recomputed.
+ */
+public class FireBirdPlanCache {
+
+    public static final int DEFAULT_SIZE = 100;
+
+    private static final String KIND_RELATION = "R";
+    private static final String KIND_INDEX = "I";
+
+    private static class CachedPlan {
+        final List<? extends DBCPlanNode> nodes;
+        final Map<String, Double> versions;
+        final long buildTime;
+
+        CachedPlan(List<? extends DBCPlanNode> nodes, Map<String, Double> versions, long buildTime) {
+            this.nodes = nodes;
+            this.versions = versions;
+            this.buildTime = buildTime;
+        }
+    }
+
+    private final int maxSize;
+    private final Map<String, CachedPlan> plans;
+    private long hitCount;
+    private long missCount;
+    private long savedTime;
+
+    public FireBirdPlanCache(int maxSize) {
+        this.maxSize = maxSize;
+        this.plans = new LinkedHashMap<String, CachedPlan>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedPlan> eldest) {
+                return size() > FireBirdPlanCache.this.maxSize;
+            }
+        };
+    }
+
+    public boolean isEnabled() {
+        return maxSize > 0;
+    }
+
+    /**
+     * Returns cached plan of the query if it is still valid
+     */
+    @Nullable
+    public synchronized List<? extends DBCPlanNode> getPlan(@NotNull JDBCSession session, @NotNull String query) throws SQLException {
+        if (!isEnabled()) {
+            return null;
+        }
+        long startTime = System.nanoTime();
+        String key = normalizeQuery(query);
+        CachedPlan plan = plans.get(key);
+        if (plan != null && !plan.versions.equals(readVersions(session, plan.versions.keySet()))) {
+            plans.remove(key);
+            plan = null;
+        }
+        if (plan == null) {
+            missCount++;
+            return null;
+        }
+        hitCount++;
+        savedTime += Math.max(0, plan.buildTime - (System.nanoTime() - startTime));
+        return plan.nodes;
+    }
+
+    /**
+     * Caches the plan built in buildTime nanoseconds
+     */
+    public synchronized void putPlan(@NotNull JDBCSession session, @NotNull String query, @NotNull List<? extends DBCPlanNode> nodes, long buildTime) throws SQLException {
+        if (!isEnabled()) {
+            return;
+        }
+        List<String> objects = new ArrayList<>();
+        collectObjects(nodes, objects);
+        plans.put(normalizeQuery(query), new CachedPlan(nodes, readVersions(session, objects), buildTime));
+    }
+
+    public synchronized void clear() {
+        plans.clear();
+    }
+
+    public synchronized int getSize() {
+        return plans.size();
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    public synchronized double getHitRatio() {
+        long total = hitCount + missCount;
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    /**
+     * Plan build time saved by cache hits (validation time excluded), in milliseconds
+     */
+    public synchronized long getSavedTime() {
+        return savedTime / 1000000;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("Plan cache: %d plans, %d hits, %d misses, %d ms saved", plans.size(), hitCount, missCount, getSavedTime());
+    }
+
+    /**
+     * Relation and index keys (kind + name) used by plan nodes
+     */
+    private static void collectObjects(Collection<? extends DBCPlanNode> nodes, List<String> objects) {
+        for (DBCPlanNode node : nodes) {
+            if (node instanceof FireBirdPlanNode) {
+                FireBirdPlanNode planNode = (FireBirdPlanNode) node;
+                // Legacy plan shows aliases, relation names are known only when alias is omitted
+                for (String alias : planNode.getAliases()) {
+                    addObject(objects, KIND_RELATION, alias);
+                }
+                for (FireBirdPlanIndex index : planNode.getAllIndexes()) {
+                    addIndex(objects, index);
+                }
+            } else if (node instanceof FireBirdExplainedPlanNode) {
+                FireBirdExplainedPlanNode planNode = (FireBirdExplainedPlanNode) node;
+                if (planNode.getRelationName() != null) {
+                    addObject(objects, KIND_RELATION, planNode.getRelationName());
+                }
+                if (planNode.getIndex() != null) {
+                    addIndex(objects, planNode.getIndex());
+                }
+            }
+            collectObjects(node.getNested(), objects);
+        }
+    }
+
+    private static void addIndex(List<String> objects, FireBirdPlanIndex index) {
+        addObject(objects, KIND_INDEX, index.getName());
+        if (index.getStatistics() != null && index.getStatistics().getRelationName() != null) {
+            addObject(objects, KIND_RELATION, index.getStatistics().getRelationName());
+        }
+    }
+
+    private static void addObject(List<String> objects, String kind, String name) {
+        String key = kind + name;
+        if (!objects.contains(key)) {
+            objects.add(key);
+        }
+    }
+
+    private static Map<String, Double> readVersions(JDBCSession session, Collection<String> objects) throws SQLException {
+        List<String> relations = new ArrayList<>();
+        List<String> indexes = new ArrayList<>();
+        for (String object : objects) {
+            (object.startsWith(KIND_RELATION) ? relations : indexes).add(object.substring(1));
+        }
+        Map<String, Double> versions = new HashMap<>();
+        if (relations.isEmpty() && indexes.isEmpty()) {
+            return versions;
+        }
+        StringBuilder sql = new StringBuilder();
+        if (!relations.isEmpty()) {
+            sql.append("SELECT CAST('R' AS CHAR(1)), R.RDB$RELATION_NAME, CAST(R.RDB$FORMAT * 65536 + (\n")
+                .append("  SELECT COUNT(*) FROM RDB$INDICES I WHERE I.RDB$RELATION_NAME = R.RDB$RELATION_NAME AND COALESCE(I.RDB$INDEX_INACTIVE, 0) = 0)\n")
+                .append("  AS DOUBLE PRECISION)\n")
+                .append("FROM RDB$RELATIONS R WHERE R.RDB$RELATION_NAME IN (").append(makeParameters(relations.size())).append(")");
+        }
+        if (!indexes.isEmpty()) {
+            if (sql.length() > 0) {
+                sql.append("\nUNION ALL\n");
+            }
+            // Statistics are in 0..1 range, so inactive indexes get a distinct version
+            sql.append("SELECT CAST('I' AS CHAR(1)), RDB$INDEX_NAME, CAST(COALESCE(RDB$STATISTICS, 0) + COALESCE(RDB$INDEX_INACTIVE, 0) * 2 AS DOUBLE PRECISION)\n")
+                .append("FROM RDB$INDICES WHERE RDB$INDEX_NAME IN (").append(makeParameters(indexes.size())).append(")");
+        }
+        try (JDBCPreparedStatement dbStat = session.prepareStatement(sql.toString())) {
+            int index = 1;
+            for (String relation : relations) {
+                dbStat.setString(index++, relation);
+            }
+            for (String indexName : indexes) {
+                dbStat.setString(index++, indexName);
+            }
+            try (JDBCResultSet dbResult = dbStat.executeQuery()) {
+                while (dbResult.next()) {
+                    String kind = JDBCUtils.safeGetString(dbResult, 1);
+                    String name = JDBCUtils.safeGetStringTrimmed(dbResult, 2);
+                    if (kind != null && name != null) {
+                        versions.put(kind + name, JDBCUtils.safeGetDouble(dbResult, 3));
+                    }
+                }
+            }
+        }
+        // Missing objects (aliases, dropped objects) are part of the version too
+        for (String object : objects) {
+            versions.putIfAbsent(object, null);
+        }
+        return versions;
+    }
+
+    private static String makeParameters(int count) {
+        StringBuilder params = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            params.append(i == 0 ? "?" : ",?");
+        }
+        return params.toString();
+    }
+
+    /**
+     * Replaces literals with '?', removes comments and collapses whitespace.
+     * String literals after LIKE and SIMILAR TO are kept because their prefix affects index usage.
+     */
+    @NotNull
+    public static String normalizeQuery(@NotNull String query) {
+        StringBuilder result = new StringBuilder(query.length());
+        int length = query.length();
+        int pos = 0;
+        boolean space = false;
+        while (pos < length) {
+            char c = query.charAt(pos);
+            if (Character.isWhitespace(c)) {
+                space = true;
+                pos++;
+                continue;
+            }
+            if (c == '-' && pos + 1 < length && query.charAt(pos + 1) == '-') {
+                while (pos < length && query.charAt(pos) != '\n') {
+                    pos++;
+                }
+                space = true;
+                continue;
+            }
+            if (c == '/' && pos + 1 < length && query.charAt(pos + 1) == '*') {
+                int end = query.indexOf("*/", pos + 2);
+                pos = end < 0 ? length : end + 2;
+                space = true;
+                continue;
+            }
+            if (space && result.length() > 0) {
+                result.append(' ');
+            }
+            space = false;
+            if (c == '\'' || c == '"') {
+                int end = skipQuoted(query, pos, c);
+                if (c == '\'' && !endsWithPatternOperator(result)) {
+                    result.append('?');
+                } else {
+                    result.append(query, pos, end);
+                }
+                pos = end;
+            } else if (Character.isDigit(c) && !isPartOfWord(result)) {
+                while (pos < length && (Character.isLetterOrDigit(query.charAt(pos)) || query.charAt(pos) == '.')) {
+                    pos++;
+                }
+                result.append('?');
+            } else {
+                result.append(Character.toUpperCase(c));
+                pos++;
+            }
+        }
+        return result.toString();
+    }
+
+    private static int skipQuoted(String query, int pos, char quote) {
+        pos++;
+        while (pos < query.length()) {
+            if (query.charAt(pos++) == quote) {
+                if (pos < query.length() && query.charAt(pos) == quote) {
+                    pos++;
+                } else {
+                    break;
+                }
+            }
+        }
+        return pos;
+    }
+
+    private static boolean isPartOfWord(StringBuilder text) {
+        if (text.length() == 0) {
+            return false;
+        }
+        char last = text.charAt(text.length() - 1);
+        return Character.isLetterOrDigit(last) || last == '_' || last == '$';
+    }
+
+    private static boolean endsWithPatternOperator(StringBuilder text) {
+        String tail = text.length() > 11 ? text.substring(text.length() - 11) : text.toString();
+        return tail.endsWith("LIKE ") || tail.endsWith("SIMILAR TO ");
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2019 Serge Rider (serge@jkiss.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.ext.firebird.model.plan;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.jkiss.dbeaver.ext.firebird.model.FireBirdIndexStatistics;
+import org.jkiss.dbeaver.model.meta.Property;
+
+/**
+ * Index referenced by firebird plan. Statistics are resolved after the plan is parsed.
+ *
+ * @author tomashorak@post.cz
+ */
+public class FireBirdPlanIndex {
+
+	private final String name;
+	private FireBirdIndexStatistics statistics;
+
+	FireBirdPlanIndex(String name) {
+		this.name = name;
+	}
+
+	@Property(viewable = true, order = 1)
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Selectivity of the whole index, null if index was not found
+	 */
+	@Property(viewable = true, order = 2)
+	public Double getSelectivity() {
+		return statistics == null ? null : statistics.getStatistics();
+	}
+
+	public List<FireBirdIndexStatistics.Segment> getSegments() {
+		if (statistics == null) {
+			return Collections.emptyList();
+		}
+		return statistics.getSegments();
+	}
+
+	public FireBirdIndexStatistics getStatistics() {
+		return statistics;
+	}
+
+	void setStatistics(FireBirdIndexStatistics statistics) {
+		this.statistics = statistics;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder(name);
+		sb.append("( ");
+		boolean first = true;
+		for (FireBirdIndexStatistics.Segment segment : getSegments()) {
+			if (!first) {
+				sb.append(", ");
+			}
+			first = false;
+			sb.append(String.format("%1$s[%2$f]", segment.getFieldName(), segment.getStatistics()));
+		}
+		sb.append(" )");
+		return sb.toString();
+	}
+}
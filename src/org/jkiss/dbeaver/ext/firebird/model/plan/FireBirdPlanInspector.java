@@ -0,0 +1,214 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2019 Serge Rider (serge@jkiss.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.ext.firebird.model.plan;
+
+import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
+import org.jkiss.dbeaver.ext.firebird.model.FireBirdIndexStatisticsCache;
+import org.jkiss.dbeaver.model.exec.jdbc.JDBCSession;
+import org.jkiss.dbeaver.model.exec.plan.DBCPlanNode;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Finds NATURAL scans of large relations, sorts and low selectivity indexes in plan trees
+ * (both legacy and explained plans).
+ */
+public class FireBirdPlanInspector {
+
+    public static final double DEFAULT_LARGE_RELATION_ROWS = 10000;
+    public static final double DEFAULT_LOW_SELECTIVITY = 0.1;
+
+    /** Cost of operations whose cardinality is unknown */
+    private static final double UNKNOWN_COST = 1000;
+
+    private final FireBirdIndexStatisticsCache statisticsCache;
+    private double largeRelationRows = DEFAULT_LARGE_RELATION_ROWS;
+    private double lowSelectivity = DEFAULT_LOW_SELECTIVITY;
+    private Map<String, Double> relationCardinality;
+    private Map<String, String> aliasRelations = Collections.emptyMap();
+
+    public FireBirdPlanInspector(@NotNull FireBirdIndexStatisticsCache statisticsCache) {
+        this.statisticsCache = statisticsCache;
+    }
+
+    public double getLargeRelationRows() {
+        return largeRelationRows;
+    }
+
+    public void setLargeRelationRows(double largeRelationRows) {
+        this.largeRelationRows = largeRelationRows;
+    }
+
+    /**
+     * Index selectivity (1 / distinct keys) starting from which index is reported
+     */
+    public double getLowSelectivity() {
+        return lowSelectivity;
+    }
+
+    public void setLowSelectivity(double lowSelectivity) {
+        this.lowSelectivity = lowSelectivity;
+    }
+
+    @NotNull
+    public List<FireBirdPlanIssue> inspect(@NotNull JDBCSession session, @NotNull Collection<? extends DBCPlanNode> nodes) throws SQLException {
+        return inspect(session, nodes, null);
+    }
+
+    /**
+     * Inspects plan of the query. Query text is used to resolve aliases of legacy plans to relation names.
+     */
+    @NotNull
+    public List<FireBirdPlanIssue> inspect(@NotNull JDBCSession session, @NotNull Collection<? extends DBCPlanNode> nodes, @Nullable String query) throws SQLException {
+        aliasRelations = query == null ? Collections.<String, String>emptyMap() : new FireBirdPredicateExtractor(query).getRelations();
+        Set<String> relationNames = new LinkedHashSet<>();
+        collectRelationNames(nodes, relationNames);
+        relationCardinality = statisticsCache.getRelationCardinality(session, relationNames);
+        List<FireBirdPlanIssue> issues = new ArrayList<>();
+        inspectNodes(nodes, issues);
+        return issues;
+    }
+
+    /**
+     * Estimated record count of the relation (null if unknown). Valid after inspect().
+     */
+    public Double getRelationCardinality(String relationName) {
+        return relationCardinality == null ? null : relationCardinality.get(relationName);
+    }
+
+    private void collectRelationNames(Collection<? extends DBCPlanNode> nodes, Set<String> relationNames) {
+        for (DBCPlanNode node : nodes) {
+            if (node instanceof FireBirdPlanNode) {
+                for (String alias : ((FireBirdPlanNode) node).getAliases()) {
+                    relationNames.add(resolveAlias(alias));
+                }
+                for (FireBirdPlanIndex index : ((FireBirdPlanNode) node).getAllIndexes()) {
+                    addIndexRelation(index, relationNames);
+                }
+            } else if (node instanceof FireBirdExplainedPlanNode) {
+                FireBirdExplainedPlanNode planNode = (FireBirdExplainedPlanNode) node;
+                if (planNode.getRelationName() != null) {
+                    relationNames.add(planNode.getRelationName());
+                }
+                if (planNode.getIndex() != null) {
+                    addIndexRelation(planNode.getIndex(), relationNames);
+                }
+            }
+            collectRelationNames(node.getNested(), relationNames);
+        }
+    }
+
+    private static void addIndexRelation(FireBirdPlanIndex index, Set<String> relationNames) {
+        if (index.getStatistics() != null && index.getStatistics().getRelationName() != null) {
+            relationNames.add(index.getStatistics().getRelationName());
+        }
+    }
+
+    private void inspectNodes(Collection<? extends DBCPlanNode> nodes, List<FireBirdPlanIssue> issues) {
+        for (DBCPlanNode node : nodes) {
+            if (node instanceof FireBirdPlanNode) {
+                inspectNode((FireBirdPlanNode) node, issues);
+            } else if (node instanceof FireBirdExplainedPlanNode) {
+                inspectNode((FireBirdExplainedPlanNode) node, issues);
+            }
+            inspectNodes(node.getNested(), issues);
+        }
+    }
+
+    private void inspectNode(FireBirdPlanNode node, List<FireBirdPlanIssue> issues) {
+        if (node.getType() == FireBirdPlanNodeType.SORT) {
+            Double rows = null;
+            for (FireBirdPlanNode relation : node.getRelationNodes()) {
+                Double relationRows = findCardinality(relation);
+                if (relationRows != null) {
+                    rows = rows == null ? relationRows : Math.max(rows, relationRows);
+                }
+            }
+            issues.add(new FireBirdPlanIssue(FireBirdPlanIssue.Type.SORT, null, null, rows, null, rows == null ? UNKNOWN_COST : rows));
+        } else if (node.getType() == FireBirdPlanNodeType.RELATION) {
+            Double rows = findCardinality(node);
+            if (node.getAccessMethod() == FireBirdPlanAccessMethod.NATURAL && rows != null && rows >= largeRelationRows) {
+                String relationName = node.getRelationName() == null ? null : resolveAlias(node.getRelationName());
+                issues.add(new FireBirdPlanIssue(FireBirdPlanIssue.Type.NATURAL_SCAN, relationName, null, rows, null, rows));
+            }
+            for (FireBirdPlanIndex index : node.getAllIndexes()) {
+                inspectIndex(index, issues);
+            }
+        }
+    }
+
+    private void inspectNode(FireBirdExplainedPlanNode node, List<FireBirdPlanIssue> issues) {
+        String operation = node.getOperation();
+        if ("Sort".equals(operation)) {
+            Double rows = node.estimatedRows;
+            issues.add(new FireBirdPlanIssue(FireBirdPlanIssue.Type.SORT, null, null, rows, null, rows == null ? UNKNOWN_COST : rows));
+        } else if ("Table".equals(operation) && node.getAccess() != null && node.getAccess().startsWith("Full Scan")) {
+            Double rows = getRelationCardinality(node.getRelationName());
+            if (rows != null && rows >= largeRelationRows) {
+                issues.add(new FireBirdPlanIssue(FireBirdPlanIssue.Type.NATURAL_SCAN, node.getRelationName(), null, rows, null, rows));
+            }
+        } else if (node.getIndex() != null) {
+            inspectIndex(node.getIndex(), issues);
+        }
+    }
+
+    private void inspectIndex(FireBirdPlanIndex index, List<FireBirdPlanIssue> issues) {
+        Double selectivity = index.getSelectivity();
+        if (selectivity == null || selectivity < lowSelectivity) {
+            return;
+        }
+        String relationName = index.getStatistics().getRelationName();
+        Double rows = getRelationCardinality(relationName);
+        // Records fetched by one lookup
+        double cost = rows == null ? UNKNOWN_COST : rows * selectivity;
+        issues.add(new FireBirdPlanIssue(FireBirdPlanIssue.Type.LOW_SELECTIVITY_INDEX, relationName, index.getName(), rows, selectivity, cost));
+    }
+
+    /**
+     * Legacy plans show aliases: relation is known from its indexes or from FROM/JOIN clauses of the query
+     */
+    private Double findCardinality(FireBirdPlanNode node) {
+        for (FireBirdPlanIndex index : node.getAllIndexes()) {
+            if (index.getStatistics() != null) {
+                Double rows = getRelationCardinality(index.getStatistics().getRelationName());
+                if (rows != null) {
+                    return rows;
+                }
+            }
+        }
+        for (String alias : node.getAliases()) {
+            Double rows = getRelationCardinality(resolveAlias(alias));
+            if (rows != null) {
+                return rows;
+            }
+        }
+        return null;
+    }
+
+    private String resolveAlias(String alias) {
+        String relationName = aliasRelations.get(alias);
+        return relationName == null ? alias : relationName;
+    }
+}
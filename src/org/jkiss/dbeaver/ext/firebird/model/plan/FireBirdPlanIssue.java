@@ -0,0 +1,95 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2019 Serge Rider (serge@jkiss.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.ext.firebird.model.plan;
+
+import org.jkiss.dbeaver.model.meta.Property;
+
+/**
+ * Potential performance problem found in a plan.
+ */
+public class FireBirdPlanIssue {
+
+	public enum Type {
+		/** Full scan of a large relation */
+		NATURAL_SCAN,
+		/** Explicit sort (no index navigation) */
+		SORT,
+		/** Index with few distinct keys */
+		LOW_SELECTIVITY_INDEX
+	}
+
+	private final Type type;
+	private final String relationName;
+	private final String indexName;
+	private final Double estimatedRows;
+	private final Double selectivity;
+	private final double cost;
+
+	FireBirdPlanIssue(Type type, String relationName, String indexName, Double estimatedRows, Double selectivity, double cost) {
+		this.type = type;
+		this.relationName = relationName;
+		this.indexName = indexName;
+		this.estimatedRows = estimatedRows;
+		this.selectivity = selectivity;
+		this.cost = cost;
+	}
+
+	@Property(viewable = true, order = 1)
+	public Type getType() {
+		return type;
+	}
+
+	@Property(viewable = true, order = 2)
+	public String getRelationName() {
+		return relationName;
+	}
+
+	@Property(viewable = true, order = 3)
+	public String getIndexName() {
+		return indexName;
+	}
+
+	@Property(viewable = true, order = 4)
+	public Double getEstimatedRows() {
+		return estimatedRows;
+	}
+
+	@Property(viewable = true, order = 5)
+	public Double getSelectivity() {
+		return selectivity;
+	}
+
+	/**
+	 * Relative cost used for ranking (roughly the number of records read)
+	 */
+	public double getCost() {
+		return cost;
+	}
+
+	@Override
+	public String toString() {
+		switch (type) {
+			case NATURAL_SCAN:
+				return "NATURAL scan of " + relationName + (estimatedRows == null ? "" : " (~" + estimatedRows.longValue() + " rows)");
+			case SORT:
+				return "SORT without index" + (estimatedRows == null ? "" : " (~" + estimatedRows.longValue() + " rows)");
+			default:
+				return "Low selectivity index " + indexName + (relationName == null ? "" : " on " + relationName)
+					+ (selectivity == null ? "" : String.format(" (%f)", selectivity));
+		}
+	}
+}
@@ -18,13 +18,17 @@ package org.jkiss.dbeaver.ext.firebird.model.plan;
 
 import org.jkiss.dbeaver.model.exec.plan.DBCPlanNode;
 import org.jkiss.dbeaver.model.impl.plan.AbstractExecutionPlanNode;
+import org.jkiss.dbeaver.model.meta.Property;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 /**
  * Firebird plan node implementation.
+ * Operator nodes (join, hash, merge, sort) contain nested nodes, relation nodes
+ * describe how the relation is accessed.
  *
  * @author tomashorak@post.cz
  */
@@ -32,26 +36,47 @@ public class FireBirdPlanNode extends AbstractExecutionPlanNode {
 
 	String plan;
 	FireBirdPlanNode parent;
+	private final FireBirdPlanNodeType type;
 	private List<FireBirdPlanNode> nested;
+	private List<String> aliases = Collections.emptyList();
+	private FireBirdPlanAccessMethod accessMethod;
+	private FireBirdPlanIndex orderIndex;
+	private List<FireBirdPlanIndex> indexes = Collections.emptyList();
+	private FireBirdPlanTableProfile profile;
 	
 	public FireBirdPlanNode(String plan) {
+		this(FireBirdPlanNodeType.PLAN);
 		this.plan = plan;
+	}
+
+	FireBirdPlanNode(FireBirdPlanNodeType type) {
+		this.type = type;
 		this.nested = new ArrayList<>();
 	}
 
 	@Override
 	public String getNodeName() {
-		return plan;
+		switch (type) {
+			case PLAN:
+				return plan;
+			case RELATION:
+				return getRelationName();
+			default:
+				return type.getTitle();
+		}
 	}
 
 	@Override
 	public String getNodeType() {
-		return "Plan";
+		if (type == FireBirdPlanNodeType.RELATION && accessMethod != null) {
+			return accessMethod.name();
+		}
+		return type.getTitle();
 	}
 
 	@Override
 	public String getNodeDescription() {
-		return plan;
+		return toString();
 	}
 
 	@Override
@@ -63,10 +88,169 @@ public class FireBirdPlanNode extends AbstractExecutionPlanNode {
 	public Collection<FireBirdPlanNode> getNested() {
 		return nested;
 	}
+
+	public FireBirdPlanNodeType getType() {
+		return type;
+	}
+
+	@Property(viewable = true, order = 1)
+	public String getOperation() {
+		return type.getTitle();
+	}
+
+	/**
+	 * Relation accessed by this node (the last alias of the alias chain)
+	 */
+	@Property(viewable = true, order = 2)
+	public String getRelationName() {
+		return aliases.isEmpty() ? null : aliases.get(aliases.size() - 1);
+	}
+
+	/**
+	 * Alias chain: view aliases followed by the relation alias
+	 */
+	public List<String> getAliases() {
+		return aliases;
+	}
+
+	@Property(viewable = true, order = 3)
+	public String getAliasChain() {
+		return aliases.isEmpty() ? null : String.join(" ", aliases);
+	}
+
+	@Property(viewable = true, order = 4)
+	public FireBirdPlanAccessMethod getAccessMethod() {
+		return accessMethod;
+	}
+
+	/**
+	 * Navigational index of ORDER access
+	 */
+	@Property(viewable = true, order = 5)
+	public FireBirdPlanIndex getOrderIndex() {
+		return orderIndex;
+	}
+
+	/**
+	 * Indexes used for record lookup
+	 */
+	@Property(viewable = true, order = 6)
+	public List<FireBirdPlanIndex> getIndexes() {
+		return indexes;
+	}
+
+	/**
+	 * Best (lowest) selectivity of all indexes used by this node, null if no index statistics are known
+	 */
+	@Property(viewable = true, order = 7)
+	public Double getSelectivity() {
+		Double best = null;
+		for (FireBirdPlanIndex index : getAllIndexes()) {
+			Double selectivity = index.getSelectivity();
+			if (selectivity != null && (best == null || selectivity < best)) {
+				best = selectivity;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Actual non-indexed reads of the relation (set by execution profile)
+	 */
+	@Property(viewable = true, order = 8)
+	public Long getActualSequentialReads() {
+		return profile == null ? null : profile.getSequentialReads();
+	}
+
+	/**
+	 * Actual indexed reads of the relation (set by execution profile)
+	 */
+	@Property(viewable = true, order = 9)
+	public Long getActualIndexedReads() {
+		return profile == null ? null : profile.getIndexedReads();
+	}
+
+	public FireBirdPlanTableProfile getProfile() {
+		return profile;
+	}
+
+	void setProfile(FireBirdPlanTableProfile profile) {
+		this.profile = profile;
+	}
+
+	/**
+	 * Order index followed by lookup indexes
+	 */
+	public List<FireBirdPlanIndex> getAllIndexes() {
+		if (orderIndex == null) {
+			return indexes;
+		}
+		List<FireBirdPlanIndex> result = new ArrayList<>(indexes.size() + 1);
+		result.add(orderIndex);
+		result.addAll(indexes);
+		return result;
+	}
+
+	/**
+	 * Relation nodes of this subtree in plan order (join order)
+	 */
+	public List<FireBirdPlanNode> getRelationNodes() {
+		List<FireBirdPlanNode> result = new ArrayList<>();
+		collectRelationNodes(this, result);
+		return result;
+	}
+
+	private static void collectRelationNodes(FireBirdPlanNode node, List<FireBirdPlanNode> result) {
+		if (node.type == FireBirdPlanNodeType.RELATION) {
+			result.add(node);
+		}
+		for (FireBirdPlanNode child : node.nested) {
+			collectRelationNodes(child, result);
+		}
+	}
+
+	void setAliases(List<String> aliases) {
+		this.aliases = aliases;
+	}
+
+	void setAccessMethod(FireBirdPlanAccessMethod accessMethod) {
+		this.accessMethod = accessMethod;
+	}
+
+	void setOrderIndex(FireBirdPlanIndex orderIndex) {
+		this.orderIndex = orderIndex;
+	}
+
+	void setIndexes(List<FireBirdPlanIndex> indexes) {
+		this.indexes = indexes;
+	}
 	
 	@Override
     public String toString()
     {
-        return plan;
+		switch (type) {
+			case PLAN:
+				return plan;
+			case RELATION:
+				StringBuilder sb = new StringBuilder(getAliasChain() == null ? "" : getAliasChain());
+				if (accessMethod == FireBirdPlanAccessMethod.NATURAL) {
+					sb.append(" NATURAL");
+				} else if (accessMethod == FireBirdPlanAccessMethod.ORDER) {
+					sb.append(" ORDER ").append(orderIndex);
+				}
+				if (!indexes.isEmpty()) {
+					sb.append(" INDEX (");
+					for (int i = 0; i < indexes.size(); i++) {
+						if (i > 0) {
+							sb.append(", ");
+						}
+						sb.append(indexes.get(i));
+					}
+					sb.append(")");
+				}
+				return sb.toString();
+			default:
+				return type.getTitle();
+		}
     }
 }
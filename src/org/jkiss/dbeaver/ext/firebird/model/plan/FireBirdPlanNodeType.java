@@ -0,0 +1,44 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2019 Serge Rider (serge@jkiss.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.ext.firebird.model.plan;
+
+/**
+ * Kind of firebird plan node.
+ */
+public enum FireBirdPlanNodeType {
+	PLAN("PLAN"),
+	JOIN("JOIN"),
+	HASH("HASH"),
+	MERGE("MERGE"),
+	SORT_MERGE("SORT MERGE"),
+	SORT("SORT"),
+	RELATION("RELATION");
+
+	private final String title;
+
+	private FireBirdPlanNodeType(String title) {
+		this.title = title;
+	}
+
+	public String getTitle() {
+		return title;
+	}
+
+	public boolean isOperator() {
+		return this != PLAN && this != RELATION;
+	}
+}
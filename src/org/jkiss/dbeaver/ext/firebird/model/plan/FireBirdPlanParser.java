@@ -16,29 +16,33 @@
  */
 package org.jkiss.dbeaver.ext.firebird.model.plan;
 
-import java.sql.SQLException;
-import org.jkiss.dbeaver.model.exec.jdbc.JDBCPreparedStatement;
-import org.jkiss.dbeaver.model.exec.jdbc.JDBCResultSet;
-import org.jkiss.dbeaver.model.exec.jdbc.JDBCSession;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Firebird plan parser. It interpretes tokens returned by FireBirdPlanTokenMatcher
- * tokenizer and creates plan node tree. When index is found it's selectivity
- * is added to index plan node.
+ * tokenizer and creates plan node tree. Indexes found in the plan are collected,
+ * their selectivity is resolved by FireBirdPlanBuilder.
  *
  * @author tomashorak@post.cz
  */
 class FireBirdPlanParser {
 
 		private String plan;
-		private JDBCSession session;
 		private FireBirdPlanTokenMatcher tokenMatch;
+		private final List<FireBirdPlanIndex> indexes = new ArrayList<>();
 		
-		FireBirdPlanParser(String plan, JDBCSession session) {
+		FireBirdPlanParser(String plan) {
 			this.plan = plan;
-			this.session = session;
 			this.tokenMatch = new FireBirdPlanTokenMatcher(plan);
 		}
+
+		/**
+		 * Indexes found by parse() in the order of their appearance
+		 */
+		List<FireBirdPlanIndex> getIndexes() {
+			return indexes;
+		}
 		
 /*
 	PLAN <plan-expr>
@@ -70,9 +74,11 @@ class FireBirdPlanParser {
 		FireBirdPlanNode parse() throws FireBirdPlanException {
 			tokenMatch.jump();
 			tokenMatch.checkToken(FireBirdPlanToken.PLAN);
-			FireBirdPlanNode node = addPlanNode(null, plan);
+			FireBirdPlanNode node = new FireBirdPlanNode(plan);
 			tokenMatch.jump();
 			planExpr(node);
+			// Each construct consumes its closing parenthese, nothing may follow the plan
+			tokenMatch.checkToken(FireBirdPlanToken.END);
 			return node;
 		}	
 		
@@ -84,6 +90,7 @@ class FireBirdPlanParser {
 						planItem(parent);
 					} while (tokenMatch.token == FireBirdPlanToken.COMMA);
 					tokenMatch.checkToken(FireBirdPlanToken.RIGHTPARENTHESE);
+					tokenMatch.jump();
 					break;
 				case SORT:
 					sortedItem(parent);
@@ -118,7 +125,7 @@ class FireBirdPlanParser {
 		
 		private void joinedItem(FireBirdPlanNode parent) throws FireBirdPlanException {
 			tokenMatch.checkToken(FireBirdPlanToken.JOIN);
-			FireBirdPlanNode node = addPlanNode(parent, "JOIN");
+			FireBirdPlanNode node = addPlanNode(parent, FireBirdPlanNodeType.JOIN);
 			tokenMatch.jump();
 			tokenMatch.checkToken(FireBirdPlanToken.LEFTPARENTHESE);
 			do {
@@ -126,11 +133,12 @@ class FireBirdPlanParser {
 				planItem(node);
 			} while (tokenMatch.getToken() == FireBirdPlanToken.COMMA);
 			tokenMatch.checkToken(FireBirdPlanToken.RIGHTPARENTHESE);
+			tokenMatch.jump();
 		}
 			
 		private void hashedItem(FireBirdPlanNode parent) throws FireBirdPlanException {
 			tokenMatch.checkToken(FireBirdPlanToken.HASH);
-			FireBirdPlanNode node = addPlanNode(parent, "HASH");
+			FireBirdPlanNode node = addPlanNode(parent, FireBirdPlanNodeType.HASH);
 			tokenMatch.jump();
 			tokenMatch.checkToken(FireBirdPlanToken.LEFTPARENTHESE);
 			do {
@@ -138,6 +146,7 @@ class FireBirdPlanParser {
 				planItem(node);
 			} while (tokenMatch.getToken() == FireBirdPlanToken.COMMA);
 			tokenMatch.checkToken(FireBirdPlanToken.RIGHTPARENTHESE);
+			tokenMatch.jump();
 		}
 			
 		private void mergedItem(FireBirdPlanNode parent, Boolean sorted) throws FireBirdPlanException {
@@ -150,119 +159,95 @@ class FireBirdPlanParser {
 			tokenMatch.checkToken(FireBirdPlanToken.LEFTPARENTHESE);
 			FireBirdPlanNode node = null;
 			if (sorted) {
-				node = addPlanNode(parent, "SORT MERGE");
+				node = addPlanNode(parent, FireBirdPlanNodeType.SORT_MERGE);
 			} else {
-				node = addPlanNode(parent, "MERGE");
+				node = addPlanNode(parent, FireBirdPlanNodeType.MERGE);
 			}
-			tokenMatch.jump();
-			tokenMatch.checkToken(FireBirdPlanToken.LEFTPARENTHESE);
 			do {
 				tokenMatch.jump();
 				sortedItem(node);
-				tokenMatch.jump();
 			} while (tokenMatch.getToken() == FireBirdPlanToken.COMMA);
 			tokenMatch.checkToken(FireBirdPlanToken.RIGHTPARENTHESE);
+			tokenMatch.jump();
 		}
 		
 		private void sortedItem(FireBirdPlanNode parent) throws FireBirdPlanException {
 			tokenMatch.checkToken(FireBirdPlanToken.SORT);
-			FireBirdPlanNode node = addPlanNode(parent, "SORT");
+			FireBirdPlanNode node = addPlanNode(parent, FireBirdPlanNodeType.SORT);
 			tokenMatch.jump();
 			tokenMatch.checkToken(FireBirdPlanToken.LEFTPARENTHESE);
 			tokenMatch.jump();
 			planItem(node);
-			tokenMatch.checkToken(FireBirdPlanToken.RIGHTPARENTHESE);			
+			tokenMatch.checkToken(FireBirdPlanToken.RIGHTPARENTHESE);
+			tokenMatch.jump();
 		}
 		
 		private void basicItem(FireBirdPlanNode parent) throws FireBirdPlanException {
-			String aliases = collectIdentifiers();
+			FireBirdPlanNode node = addPlanNode(parent, FireBirdPlanNodeType.RELATION);
+			node.setAliases(collectIdentifiers());
 			switch (tokenMatch.token) {
 				case NATURAL:
-					addPlanNode(parent, aliases + " NATURAL");
+					node.setAccessMethod(FireBirdPlanAccessMethod.NATURAL);
 					tokenMatch.jump();
 					break;
 				case INDEX:
-					String indexes = collectIndexes();
-					addPlanNode(parent, aliases + " INDEX (" + indexes + ")");
+					node.setAccessMethod(FireBirdPlanAccessMethod.INDEX);
+					node.setIndexes(collectIndexes());
 					break;
 				case ORDER:
+					node.setAccessMethod(FireBirdPlanAccessMethod.ORDER);
 					tokenMatch.jump();
 					tokenMatch.checkToken(FireBirdPlanToken.IDENTIFICATOR);
-					String orderIndex = tokenMatch.getValue();
+					node.setOrderIndex(addIndex(tokenMatch.getValue()));
 					tokenMatch.jump();
-					String text = aliases + " ORDER " + orderIndex + indexInfo(orderIndex);
 					if (tokenMatch.getToken() == FireBirdPlanToken.INDEX) {
-						String orderIndexes = collectIndexes();
-						text = text + " INDEX(" + orderIndexes + ")";
+						node.setIndexes(collectIndexes());
 					}
-					addPlanNode(parent, text);
 					break;
 			default:
 				tokenMatch.raisePlanTokenException();
 			}
-			
 		}
 
-		private String collectIdentifiers() {
-			String identifiers = "";
+		private List<String> collectIdentifiers() {
+			List<String> identifiers = new ArrayList<>();
 			while (tokenMatch.getToken() == FireBirdPlanToken.IDENTIFICATOR) {
-				identifiers = identifiers + tokenMatch.getValue() + " ";
+				identifiers.add(tokenMatch.getValue());
 				tokenMatch.jump();
 			};
 			return identifiers;
 		}
 		
-		private String collectIndexes() throws FireBirdPlanException {
+		private List<FireBirdPlanIndex> collectIndexes() throws FireBirdPlanException {
 			tokenMatch.jump();
 			tokenMatch.checkToken(FireBirdPlanToken.LEFTPARENTHESE);
-			String indexes = "";
+			List<FireBirdPlanIndex> nodeIndexes = new ArrayList<>();
 			tokenMatch.jump();
 			while (tokenMatch.getToken() != FireBirdPlanToken.RIGHTPARENTHESE) {
-				indexes = indexes + tokenMatch.getValue() + indexInfo(tokenMatch.getValue());
+				if (tokenMatch.getToken() == FireBirdPlanToken.END) {
+					tokenMatch.raisePlanTokenException(FireBirdPlanToken.RIGHTPARENTHESE, FireBirdPlanToken.END);
+				}
+				nodeIndexes.add(addIndex(tokenMatch.getValue()));
 				tokenMatch.jump();
 				if(tokenMatch.getToken() == FireBirdPlanToken.COMMA) {
-					indexes = indexes + ",";
 					tokenMatch.jump();
 				}
 			};
-			return indexes;
+			tokenMatch.jump();
+			return nodeIndexes;
+		}
+
+		private FireBirdPlanIndex addIndex(String name) {
+			FireBirdPlanIndex index = new FireBirdPlanIndex(name);
+			indexes.add(index);
+			return index;
 		}
 		
-		private FireBirdPlanNode addPlanNode(FireBirdPlanNode parent, String text) {
-			FireBirdPlanNode node;
-			node = new FireBirdPlanNode(text);
+		private FireBirdPlanNode addPlanNode(FireBirdPlanNode parent, FireBirdPlanNodeType type) {
+			FireBirdPlanNode node = new FireBirdPlanNode(type);
 			node.parent = parent;
-			if (parent != null) {
-				parent.getNested().add(node);
-			}
+			parent.getNested().add(node);
 			return node;
 		}
-		
-		private String indexInfo(String index) throws FireBirdPlanException {
-			StringBuilder sb = new StringBuilder();
-			sb.append("( ");
-			try {
-				JDBCPreparedStatement dbStat;
-				dbStat = session.prepareStatement(
-						"SELECT RDB$FIELD_NAME, RDB$STATISTICS FROM RDB$INDEX_SEGMENTS "
-						+ "WHERE RDB$INDEX_NAME = ? ORDER BY RDB$FIELD_POSITION");
-	            try {
-	                dbStat.setString(1, index);
-	                try (JDBCResultSet dbResult = dbStat.executeQuery()) {
-	                    while (dbResult.next()) {
-	                    	sb.append(String.format("%1$s[%2$f]", dbResult.getString(1).trim(), dbResult.getDouble(2)));
-	                    	sb.append(", ");
-	                    }
-	                    sb.delete(sb.length() - 2, sb.length());
-	                }
-	            } finally {
-	                dbStat.close();
-	            }
-			} catch (SQLException e) {
-				throw new FireBirdPlanException(index, e.getMessage());
-			}
-			sb.append(" )");
-			return sb.toString();
-		}
-		
+
 	}
\ No newline at end of file
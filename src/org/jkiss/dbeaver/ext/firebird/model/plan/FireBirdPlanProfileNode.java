@@ -0,0 +1,161 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2019 Serge Rider (serge@jkiss.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.ext.firebird.model.plan;
+
+import org.jkiss.dbeaver.model.exec.plan.DBCPlanCostNode;
+import org.jkiss.dbeaver.model.exec.plan.DBCPlanNode;
+import org.jkiss.dbeaver.model.impl.plan.AbstractExecutionPlanNode;
+import org.jkiss.dbeaver.model.meta.Property;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Execution totals of a profiled statement (MON$IO_STATS, MON$RECORD_STATS and MON$MEMORY_USAGE deltas
+ * of the profiling attachment). Nested nodes are per-table record statistics.
+ */
+public class FireBirdPlanProfileNode extends AbstractExecutionPlanNode implements DBCPlanCostNode {
+
+	private final String query;
+	private final List<FireBirdPlanProfileNode> nested = new ArrayList<>();
+	private final FireBirdPlanTableProfile table;
+	long elapsedTime;
+	long fetchedRows;
+	long pageReads;
+	long pageWrites;
+	long pageFetches;
+	long pageMarks;
+	long memoryUsed;
+	long sequentialReads;
+	long indexedReads;
+	boolean partial;
+
+	FireBirdPlanProfileNode(String query) {
+		this.query = query;
+		this.table = null;
+	}
+
+	FireBirdPlanProfileNode(FireBirdPlanTableProfile table) {
+		this.query = null;
+		this.table = table;
+	}
+
+	@Override
+	public String getNodeName() {
+		if (table != null) {
+			return table.getTableName();
+		}
+		return partial ? "Execution profile (partial)" : "Execution profile";
+	}
+
+	@Override
+	public String getNodeType() {
+		return table == null ? "PROFILE" : "TABLE";
+	}
+
+	@Override
+	public String getNodeDescription() {
+		return table == null ? query : table.toString();
+	}
+
+	@Override
+	public DBCPlanNode getParent() {
+		return null;
+	}
+
+	@Override
+	public Collection<FireBirdPlanProfileNode> getNested() {
+		return nested;
+	}
+
+	/**
+	 * Fetch was canceled, totals cover the fetched rows only
+	 */
+	public boolean isPartial() {
+		return partial;
+	}
+
+	@Property(viewable = true, order = 1)
+	public Long getPageReads() {
+		return table == null ? pageReads : null;
+	}
+
+	@Property(viewable = true, order = 2)
+	public Long getPageFetches() {
+		return table == null ? pageFetches : null;
+	}
+
+	@Property(viewable = true, order = 3)
+	public Long getPageWrites() {
+		return table == null ? pageWrites : null;
+	}
+
+	@Property(viewable = true, order = 4)
+	public Long getPageMarks() {
+		return table == null ? pageMarks : null;
+	}
+
+	/**
+	 * Memory allocated during execution (may be negative if memory was released)
+	 */
+	@Property(viewable = true, order = 5)
+	public Long getMemoryUsed() {
+		return table == null ? memoryUsed : null;
+	}
+
+	@Property(viewable = true, order = 7)
+	public Long getSequentialReads() {
+		return table == null ? sequentialReads : table.getSequentialReads();
+	}
+
+	@Property(viewable = true, order = 8)
+	public Long getIndexedReads() {
+		return table == null ? indexedReads : table.getIndexedReads();
+	}
+
+	@Override
+	public Number getNodeCost() {
+		return null;
+	}
+
+	@Override
+	public Number getNodePercent() {
+		return null;
+	}
+
+	/**
+	 * Elapsed time in milliseconds
+	 */
+	@Override
+	public Number getNodeDuration() {
+		return table == null ? elapsedTime : null;
+	}
+
+	/**
+	 * Fetched rows for the statement, records read for the table
+	 */
+	@Override
+	public Number getNodeRowCount() {
+		return table == null ? fetchedRows : table.getReads();
+	}
+
+	@Override
+	public String toString() {
+		return getNodeName();
+	}
+}
@@ -0,0 +1,244 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2019 Serge Rider (serge@jkiss.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.ext.firebird.model.plan;
+
+import org.jkiss.code.NotNull;
+import org.jkiss.dbeaver.DBException;
+import org.jkiss.dbeaver.ext.firebird.FireBirdUtils;
+import org.jkiss.dbeaver.ext.firebird.model.FireBirdDataSource;
+import org.jkiss.dbeaver.model.exec.DBCException;
+import org.jkiss.dbeaver.model.exec.DBCExecutionContext;
+import org.jkiss.dbeaver.model.exec.DBCExecutionPurpose;
+import org.jkiss.dbeaver.model.exec.jdbc.JDBCPreparedStatement;
+import org.jkiss.dbeaver.model.exec.jdbc.JDBCResultSet;
+import org.jkiss.dbeaver.model.exec.jdbc.JDBCSession;
+import org.jkiss.dbeaver.model.exec.plan.DBCPlanNode;
+import org.jkiss.dbeaver.model.impl.jdbc.JDBCUtils;
+import org.jkiss.dbeaver.model.impl.plan.AbstractExecutionPlan;
+import org.jkiss.dbeaver.model.runtime.DBRProgressMonitor;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Executes the query in a separate attachment and reports what actually happened.
+ * Monitoring tables are read before and after execution in different transactions
+ * (MON$ snapshot is stable within a transaction), the difference is the statement profile.
+ * Per-table record statistics (MON$TABLE_STATS) require Firebird 3+.
+ * Only SELECT statements without locking clauses are profiled, in a read-only transaction
+ * (data changes in called procedures fail). Generator increments still persist.
+ */
+public class FireBirdPlanProfiler extends AbstractExecutionPlan {
+
+    private static final String SQL_ATTACHMENT_STATS =
+        "SELECT IO.MON$PAGE_READS, IO.MON$PAGE_WRITES, IO.MON$PAGE_FETCHES, IO.MON$PAGE_MARKS,\n" +
+        "  R.MON$RECORD_SEQ_READS, R.MON$RECORD_IDX_READS, M.MON$MEMORY_USED\n" +
+        "FROM MON$ATTACHMENTS A\n" +
+        "JOIN MON$IO_STATS IO ON IO.MON$STAT_ID = A.MON$STAT_ID\n" +
+        "JOIN MON$RECORD_STATS R ON R.MON$STAT_ID = A.MON$STAT_ID\n" +
+        "JOIN MON$MEMORY_USAGE M ON M.MON$STAT_ID = A.MON$STAT_ID\n" +
+        "WHERE A.MON$ATTACHMENT_ID = CURRENT_CONNECTION";
+    private static final String SQL_TABLE_STATS =
+        "SELECT T.MON$TABLE_NAME, R.MON$RECORD_SEQ_READS, R.MON$RECORD_IDX_READS,\n" +
+        "  R.MON$RECORD_INSERTS, R.MON$RECORD_UPDATES, R.MON$RECORD_DELETES\n" +
+        "FROM MON$ATTACHMENTS A\n" +
+        "JOIN MON$TABLE_STATS T ON T.MON$STAT_ID = A.MON$STAT_ID\n" +
+        "JOIN MON$RECORD_STATS R ON R.MON$STAT_ID = T.MON$RECORD_STAT_ID\n" +
+        "WHERE A.MON$ATTACHMENT_ID = CURRENT_CONNECTION";
+
+    private static final Pattern LOCKING_CLAUSE = Pattern.compile("\\b(FOR UPDATE|WITH LOCK)\\b");
+
+    private final FireBirdDataSource dataSource;
+    private final String query;
+    private List<DBCPlanNode> rootNodes;
+
+    public FireBirdPlanProfiler(FireBirdDataSource dataSource, String query) {
+        this.dataSource = dataSource;
+        this.query = query;
+    }
+
+    public void profile(@NotNull DBRProgressMonitor monitor) throws DBException {
+        String normalizedQuery = FireBirdPlanCache.normalizeQuery(query);
+        if (!normalizedQuery.startsWith("SELECT ") && !normalizedQuery.startsWith("WITH ")) {
+            throw new DBException("Only SELECT statements can be profiled (the statement is executed)");
+        }
+        if (LOCKING_CLAUSE.matcher(normalizedQuery).find()) {
+            throw new DBException("SELECT statements with FOR UPDATE or WITH LOCK can't be profiled");
+        }
+        boolean hasTableStats = FireBirdUtils.getFireBirdServerVersion(dataSource).getMajor() >= 3;
+        DBCExecutionContext context = dataSource.getDefaultInstance().openIsolatedContext(monitor, "Query profiler");
+        try (JDBCSession session = (JDBCSession) context.openSession(monitor, DBCExecutionPurpose.UTIL, "Profile query")) {
+            Connection connection = session.getOriginal();
+            connection.setAutoCommit(false);
+            // Set before the first statement starts the transaction
+            connection.setReadOnly(true);
+            try (JDBCPreparedStatement dbStat = session.prepareStatement(query)) {
+                List<? extends DBCPlanNode> planNodes = FireBirdPlanAnalyser.buildPlan(dataSource, session, dbStat);
+
+                FireBirdPlanProfileNode before = readAttachmentStats(session);
+                Map<String, FireBirdPlanTableProfile> tablesBefore = hasTableStats ? readTableStats(session) : new HashMap<>();
+                // Next MON$ read must see a new snapshot
+                connection.commit();
+
+                FireBirdPlanProfileNode profile = new FireBirdPlanProfileNode(query);
+                long startTime = System.currentTimeMillis();
+                try (ResultSet dbResult = dbStat.executeQuery()) {
+                    while (dbResult.next() && !monitor.isCanceled()) {
+                        profile.fetchedRows++;
+                    }
+                }
+                // Totals of a canceled fetch cover the fetched part only
+                profile.partial = monitor.isCanceled();
+                profile.elapsedTime = System.currentTimeMillis() - startTime;
+
+                FireBirdPlanProfileNode after = readAttachmentStats(session);
+                Map<String, FireBirdPlanTableProfile> tables = hasTableStats ? readTableStats(session) : new HashMap<>();
+                calculateDelta(profile, before, after);
+                for (FireBirdPlanTableProfile table : tables.values()) {
+                    FireBirdPlanTableProfile tableBefore = tablesBefore.get(table.getTableName());
+                    if (tableBefore != null) {
+                        table.subtract(tableBefore);
+                    }
+                }
+                tables.values().removeIf(FireBirdPlanTableProfile::isEmpty);
+                List<FireBirdPlanTableProfile> sortedTables = new ArrayList<>(tables.values());
+                sortedTables.sort((t1, t2) -> Long.compare(t2.getReads(), t1.getReads()));
+                for (FireBirdPlanTableProfile table : sortedTables) {
+                    profile.getNested().add(new FireBirdPlanProfileNode(table));
+                }
+                annotateNodes(planNodes, tables);
+
+                rootNodes = new ArrayList<>();
+                rootNodes.add(profile);
+                rootNodes.addAll(planNodes);
+            } finally {
+                connection.rollback();
+            }
+        } catch (SQLException e) {
+            throw new DBCException(e, context);
+        } finally {
+            context.close();
+        }
+    }
+
+    private static void calculateDelta(FireBirdPlanProfileNode profile, FireBirdPlanProfileNode before, FireBirdPlanProfileNode after) {
+        profile.pageReads = after.pageReads - before.pageReads;
+        profile.pageWrites = after.pageWrites - before.pageWrites;
+        profile.pageFetches = after.pageFetches - before.pageFetches;
+        profile.pageMarks = after.pageMarks - before.pageMarks;
+        profile.sequentialReads = after.sequentialReads - before.sequentialReads;
+        profile.indexedReads = after.indexedReads - before.indexedReads;
+        profile.memoryUsed = after.memoryUsed - before.memoryUsed;
+    }
+
+    /**
+     * Sets table statistics to relation nodes. A table accessed more than once gets the same totals on each node.
+     */
+    private static void annotateNodes(Iterable<? extends DBCPlanNode> nodes, Map<String, FireBirdPlanTableProfile> tables) {
+        for (DBCPlanNode node : nodes) {
+            if (node instanceof FireBirdExplainedPlanNode) {
+                FireBirdExplainedPlanNode planNode = (FireBirdExplainedPlanNode) node;
+                if ("Table".equals(planNode.getOperation()) && planNode.getRelationName() != null) {
+                    planNode.setProfile(tables.get(planNode.getRelationName()));
+                }
+            } else if (node instanceof FireBirdPlanNode) {
+                FireBirdPlanNode planNode = (FireBirdPlanNode) node;
+                if (planNode.getType() == FireBirdPlanNodeType.RELATION) {
+                    planNode.setProfile(findTable(planNode, tables));
+                }
+            }
+            annotateNodes(node.getNested(), tables);
+        }
+    }
+
+    private static FireBirdPlanTableProfile findTable(FireBirdPlanNode node, Map<String, FireBirdPlanTableProfile> tables) {
+        // Legacy plan shows aliases, the table is known from its indexes or when alias is omitted
+        for (FireBirdPlanIndex index : node.getAllIndexes()) {
+            if (index.getStatistics() != null && tables.containsKey(index.getStatistics().getRelationName())) {
+                return tables.get(index.getStatistics().getRelationName());
+            }
+        }
+        for (String alias : node.getAliases()) {
+            if (tables.containsKey(alias)) {
+                return tables.get(alias);
+            }
+        }
+        return null;
+    }
+
+    private static FireBirdPlanProfileNode readAttachmentStats(JDBCSession session) throws SQLException {
+        FireBirdPlanProfileNode stats = new FireBirdPlanProfileNode((String) null);
+        try (JDBCPreparedStatement dbStat = session.prepareStatement(SQL_ATTACHMENT_STATS)) {
+            try (JDBCResultSet dbResult = dbStat.executeQuery()) {
+                if (dbResult.next()) {
+                    stats.pageReads = JDBCUtils.safeGetLong(dbResult, 1);
+                    stats.pageWrites = JDBCUtils.safeGetLong(dbResult, 2);
+                    stats.pageFetches = JDBCUtils.safeGetLong(dbResult, 3);
+                    stats.pageMarks = JDBCUtils.safeGetLong(dbResult, 4);
+                    stats.sequentialReads = JDBCUtils.safeGetLong(dbResult, 5);
+                    stats.indexedReads = JDBCUtils.safeGetLong(dbResult, 6);
+                    stats.memoryUsed = JDBCUtils.safeGetLong(dbResult, 7);
+                }
+            }
+        }
+        return stats;
+    }
+
+    private static Map<String, FireBirdPlanTableProfile> readTableStats(JDBCSession session) throws SQLException {
+        Map<String, FireBirdPlanTableProfile> tables = new HashMap<>();
+        try (JDBCPreparedStatement dbStat = session.prepareStatement(SQL_TABLE_STATS)) {
+            try (JDBCResultSet dbResult = dbStat.executeQuery()) {
+                while (dbResult.next()) {
+                    String tableName = JDBCUtils.safeGetStringTrimmed(dbResult, 1);
+                    if (tableName == null) {
+                        continue;
+                    }
+                    FireBirdPlanTableProfile table = new FireBirdPlanTableProfile(tableName);
+                    table.sequentialReads = JDBCUtils.safeGetLong(dbResult, 2);
+                    table.indexedReads = JDBCUtils.safeGetLong(dbResult, 3);
+                    table.inserts = JDBCUtils.safeGetLong(dbResult, 4);
+                    table.updates = JDBCUtils.safeGetLong(dbResult, 5);
+                    table.deletes = JDBCUtils.safeGetLong(dbResult, 6);
+                    tables.put(tableName, table);
+                }
+            }
+        }
+        return tables;
+    }
+
+    @Override
+    public String getQueryString() {
+        return query;
+    }
+
+    @Override
+    public String getPlanQueryString() throws DBException {
+        return null;
+    }
+
+    @Override
+    public List<? extends DBCPlanNode> getPlanNodes(Map<String, Object> options) {
+        return rootNodes;
+    }
+
+}
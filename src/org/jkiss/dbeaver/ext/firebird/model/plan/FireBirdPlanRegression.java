@@ -0,0 +1,102 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2019 Serge Rider (serge@jkiss.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.ext.firebird.model.plan;
+
+import org.jkiss.dbeaver.model.meta.Property;
+
+/**
+ * Plan difference of one query between the baseline and the target database.
+ */
+public class FireBirdPlanRegression {
+
+    public enum Kind {
+        /** Relations are joined in a different order */
+        JOIN_ORDER,
+        /** Relation is accessed by a different method (e.g. INDEX became NATURAL) */
+        ACCESS_METHOD,
+        /** Index used by the baseline plan is not used by the target plan */
+        INDEX_DROPPED,
+        /** Query can't be prepared on the target */
+        PLAN_ERROR
+    }
+
+    private final String query;
+    private final Kind kind;
+    private final String relation;
+    private final String baseline;
+    private final String target;
+    private final String fingerprint;
+    private boolean newRegression;
+
+    FireBirdPlanRegression(String query, Kind kind, String relation, String baseline, String target, String fingerprint) {
+        this.query = query;
+        this.kind = kind;
+        this.relation = relation;
+        this.baseline = baseline;
+        this.target = target;
+        this.fingerprint = fingerprint;
+    }
+
+    @Property(viewable = true, order = 1)
+    public String getQuery() {
+        return query;
+    }
+
+    @Property(viewable = true, order = 2)
+    public Kind getKind() {
+        return kind;
+    }
+
+    @Property(viewable = true, order = 3)
+    public String getRelation() {
+        return relation;
+    }
+
+    @Property(viewable = true, order = 4)
+    public String getBaseline() {
+        return baseline;
+    }
+
+    @Property(viewable = true, order = 5)
+    public String getTarget() {
+        return target;
+    }
+
+    /**
+     * Stable identifier of the regression (normalized query and difference)
+     */
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * Regression was not reported by previous runs
+     */
+    @Property(viewable = true, order = 6)
+    public boolean isNewRegression() {
+        return newRegression;
+    }
+
+    void setNewRegression(boolean newRegression) {
+        this.newRegression = newRegression;
+    }
+
+    @Override
+    public String toString() {
+        return kind + (relation == null ? "" : " " + relation) + ": " + baseline + " -> " + target;
+    }
+}
@@ -0,0 +1,266 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2019 Serge Rider (serge@jkiss.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.ext.firebird.model.plan;
+
+import org.jkiss.code.NotNull;
+import org.jkiss.dbeaver.DBException;
+import org.jkiss.dbeaver.Log;
+import org.jkiss.dbeaver.ext.firebird.model.FireBirdDataSource;
+import org.jkiss.dbeaver.model.DBUtils;
+import org.jkiss.dbeaver.model.exec.jdbc.JDBCSession;
+import org.jkiss.dbeaver.model.runtime.DBRProgressMonitor;
+import org.jkiss.dbeaver.utils.GeneralUtils;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Plans a query corpus on two connections (e.g. before and after server upgrade) and compares
+ * plan signatures: join order, access methods and used indexes.
+ * Fingerprints of found regressions are stored locally per connection pair,
+ * so the next run marks only regressions which were not reported before.
+ */
+public class FireBirdPlanRegressionDetector {
+
+    private static final Log LOG = Log.getLog(FireBirdPlanRegressionDetector.class);
+
+    private static final String REGRESSIONS_FOLDER = "firebird-plan-regressions";
+
+    private final FireBirdDataSource baseline;
+    private final FireBirdDataSource target;
+
+    public FireBirdPlanRegressionDetector(@NotNull FireBirdDataSource baseline, @NotNull FireBirdDataSource target) {
+        this.baseline = baseline;
+        this.target = target;
+    }
+
+    /**
+     * Compares plans of all queries. Returns all found regressions, new ones are marked.
+     */
+    @NotNull
+    public List<FireBirdPlanRegression> detect(@NotNull DBRProgressMonitor monitor, @NotNull Collection<String> queries) throws DBException {
+        // Normalized query -> first original text
+        Map<String, String> distinctQueries = new LinkedHashMap<>();
+        for (String query : queries) {
+            if (!query.trim().isEmpty()) {
+                distinctQueries.putIfAbsent(FireBirdPlanCache.normalizeQuery(query), query.trim());
+            }
+        }
+        Map<String, FireBirdPlanSignature> baselinePlans = new HashMap<>();
+        Map<String, String> baselineErrors = new HashMap<>();
+        Map<String, FireBirdPlanSignature> targetPlans = new HashMap<>();
+        Map<String, String> targetErrors = new HashMap<>();
+        monitor.beginTask("Compare plans", distinctQueries.size() * 2);
+        try {
+            readPlans(monitor, baseline, distinctQueries, baselinePlans, baselineErrors);
+            readPlans(monitor, target, distinctQueries, targetPlans, targetErrors);
+        } finally {
+            monitor.done();
+        }
+
+        List<FireBirdPlanRegression> regressions = new ArrayList<>();
+        for (Map.Entry<String, String> entry : distinctQueries.entrySet()) {
+            String key = entry.getKey();
+            String query = entry.getValue();
+            if (baselineErrors.containsKey(key)) {
+                // Nothing to compare with
+                continue;
+            }
+            if (targetErrors.containsKey(key)) {
+                addRegression(regressions, key, query, FireBirdPlanRegression.Kind.PLAN_ERROR, null,
+                    String.valueOf(baselinePlans.get(key)), targetErrors.get(key));
+                continue;
+            }
+            FireBirdPlanSignature baselinePlan = baselinePlans.get(key);
+            FireBirdPlanSignature targetPlan = targetPlans.get(key);
+            if (baselinePlan == null || targetPlan == null) {
+                // Not planned on both sides (run was canceled)
+                continue;
+            }
+            compare(regressions, key, query, baselinePlan, targetPlan);
+        }
+
+        Set<String> known = readKnownRegressions();
+        Set<String> found = new LinkedHashSet<>(known);
+        for (FireBirdPlanRegression regression : regressions) {
+            regression.setNewRegression(!known.contains(regression.getFingerprint()));
+            found.add(regression.getFingerprint());
+        }
+        saveKnownRegressions(found);
+        return regressions;
+    }
+
+    /**
+     * Compares plans of all statements of a saved SQL script
+     */
+    @NotNull
+    public List<FireBirdPlanRegression> detectScript(@NotNull DBRProgressMonitor monitor, @NotNull String script) throws DBException {
+        return detect(monitor, FireBirdWorkloadScanner.splitScript(script));
+    }
+
+    /**
+     * Forgets all previously reported regressions
+     */
+    public void resetKnownRegressions() {
+        File file = getRegressionsFile();
+        if (file != null && file.exists() && !file.delete()) {
+            LOG.debug("Can't delete " + file.getAbsolutePath());
+        }
+    }
+
+    private static void readPlans(DBRProgressMonitor monitor, FireBirdDataSource dataSource, Map<String, String> queries,
+                                  Map<String, FireBirdPlanSignature> plans, Map<String, String> errors) {
+        try (JDBCSession session = DBUtils.openUtilSession(monitor, dataSource, "Read plans")) {
+            for (Map.Entry<String, String> entry : queries.entrySet()) {
+                if (monitor.isCanceled()) {
+                    break;
+                }
+                FireBirdPlanAnalyser analyser = new FireBirdPlanAnalyser(dataSource, session, entry.getValue());
+                try {
+                    analyser.explain();
+                    plans.put(entry.getKey(), FireBirdPlanSignature.build(analyser.getPlanNodes(null)));
+                } catch (DBException e) {
+                    errors.put(entry.getKey(), e.getMessage());
+                }
+                monitor.worked(1);
+            }
+        }
+    }
+
+    private static void compare(List<FireBirdPlanRegression> regressions, String key, String query,
+                                FireBirdPlanSignature baselinePlan, FireBirdPlanSignature targetPlan) {
+        List<String> baselineOrder = baselinePlan.getJoinOrder();
+        List<String> targetOrder = targetPlan.getJoinOrder();
+        if (!baselineOrder.equals(targetOrder)) {
+            addRegression(regressions, key, query, FireBirdPlanRegression.Kind.JOIN_ORDER, null,
+                String.join(", ", baselineOrder), String.join(", ", targetOrder));
+        }
+        // Match accesses by relation and occurrence (a relation may be used more than once)
+        Map<String, List<FireBirdPlanSignature.Access>> targetAccesses = new HashMap<>();
+        for (FireBirdPlanSignature.Access access : targetPlan.getAccesses()) {
+            targetAccesses.computeIfAbsent(access.getRelation(), r -> new ArrayList<>()).add(access);
+        }
+        Map<String, Integer> occurrences = new HashMap<>();
+        for (FireBirdPlanSignature.Access baselineAccess : baselinePlan.getAccesses()) {
+            String relation = baselineAccess.getRelation();
+            int occurrence = occurrences.merge(relation, 1, Integer::sum) - 1;
+            List<FireBirdPlanSignature.Access> candidates = targetAccesses.get(relation);
+            if (candidates == null || occurrence >= candidates.size()) {
+                continue;
+            }
+            FireBirdPlanSignature.Access targetAccess = candidates.get(occurrence);
+            if (baselineAccess.getMethod() != targetAccess.getMethod()) {
+                addRegression(regressions, key, query, FireBirdPlanRegression.Kind.ACCESS_METHOD, relation,
+                    baselineAccess.toString(), targetAccess.toString());
+            }
+            List<String> targetIndexes = targetAccess.getAllIndexes();
+            for (String index : baselineAccess.getAllIndexes()) {
+                if (!targetIndexes.contains(index)) {
+                    addRegression(regressions, key, query, FireBirdPlanRegression.Kind.INDEX_DROPPED, relation,
+                        index, targetAccess.toString());
+                }
+            }
+        }
+    }
+
+    private static void addRegression(List<FireBirdPlanRegression> regressions, String key, String query,
+                                      FireBirdPlanRegression.Kind kind, String relation, String baselineText, String targetText) {
+        // Error messages are not part of the fingerprint, they may contain volatile details
+        String fingerprint = md5(key + "|" + kind + "|" + relation + "|" + baselineText + "|" +
+            (kind == FireBirdPlanRegression.Kind.PLAN_ERROR ? "" : targetText));
+        regressions.add(new FireBirdPlanRegression(query, kind, relation, baselineText, targetText, fingerprint));
+    }
+
+    private File getRegressionsFile() {
+        File folder = GeneralUtils.getMetadataFolder();
+        if (folder == null) {
+            return null;
+        }
+        return new File(new File(folder, REGRESSIONS_FOLDER),
+            md5(baseline.getContainer().getId() + "|" + target.getContainer().getId()) + ".txt");
+    }
+
+    private Set<String> readKnownRegressions() {
+        Set<String> known = new LinkedHashSet<>();
+        File file = getRegressionsFile();
+        if (file == null || !file.exists()) {
+            return known;
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.trim().isEmpty()) {
+                    known.add(line.trim());
+                }
+            }
+        } catch (IOException e) {
+            LOG.debug("Can't read known plan regressions " + file.getAbsolutePath() + ": " + e.getMessage());
+        }
+        return known;
+    }
+
+    private void saveKnownRegressions(Set<String> fingerprints) {
+        File file = getRegressionsFile();
+        if (file == null) {
+            return;
+        }
+        File folder = file.getParentFile();
+        if (!folder.exists() && !folder.mkdirs()) {
+            LOG.debug("Can't create plan regressions folder " + folder.getAbsolutePath());
+            return;
+        }
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+            for (String fingerprint : fingerprints) {
+                writer.write(fingerprint);
+                writer.write('\n');
+            }
+        } catch (IOException e) {
+            LOG.debug("Can't write known plan regressions " + file.getAbsolutePath() + ": " + e.getMessage());
+        }
+    }
+
+    private static String md5(String text) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(text.getBytes(StandardCharsets.UTF_8));
+            StringBuilder result = new StringBuilder();
+            for (byte b : digest) {
+                result.append(String.format("%02x", b));
+            }
+            return result.toString();
+        } catch (NoSuchAlgorithmException e) {
+            return Integer.toHexString(text.hashCode());
+        }
+    }
+}
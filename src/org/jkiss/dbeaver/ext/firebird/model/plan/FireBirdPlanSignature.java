@@ -0,0 +1,188 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2019 Serge Rider (serge@jkiss.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.ext.firebird.model.plan;
+
+import org.jkiss.code.NotNull;
+import org.jkiss.dbeaver.model.exec.plan.DBCPlanNode;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Relation accesses of a plan in join order. Legacy and explained plans of the same query
+ * produce comparable signatures, so plans of different server versions can be compared.
+ */
+public class FireBirdPlanSignature {
+
+    /**
+     * Access to one relation
+     */
+    public static class Access {
+        private final String relation;
+        private final FireBirdPlanAccessMethod method;
+        private final String orderIndex;
+        private final List<String> indexes;
+
+        Access(String relation, FireBirdPlanAccessMethod method, String orderIndex, List<String> indexes) {
+            this.relation = relation;
+            this.method = method;
+            this.orderIndex = orderIndex;
+            this.indexes = indexes;
+            Collections.sort(this.indexes);
+        }
+
+        /**
+         * Relation alias chain as written in the query (relation name if there is no alias)
+         */
+        public String getRelation() {
+            return relation;
+        }
+
+        public FireBirdPlanAccessMethod getMethod() {
+            return method;
+        }
+
+        public String getOrderIndex() {
+            return orderIndex;
+        }
+
+        /**
+         * Lookup indexes (sorted by name)
+         */
+        public List<String> getIndexes() {
+            return indexes;
+        }
+
+        /**
+         * Order index followed by lookup indexes
+         */
+        public List<String> getAllIndexes() {
+            List<String> result = new ArrayList<>(indexes.size() + 1);
+            if (orderIndex != null) {
+                result.add(orderIndex);
+            }
+            result.addAll(indexes);
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder(relation);
+            if (method != null) {
+                sb.append(' ').append(method.name());
+            }
+            if (orderIndex != null) {
+                sb.append(' ').append(orderIndex);
+            }
+            if (!indexes.isEmpty()) {
+                sb.append(method == FireBirdPlanAccessMethod.INDEX ? " (" : " INDEX (").append(String.join(", ", indexes)).append(')');
+            }
+            return sb.toString();
+        }
+    }
+
+    private final List<Access> accesses = new ArrayList<>();
+
+    private FireBirdPlanSignature() {
+    }
+
+    public List<Access> getAccesses() {
+        return accesses;
+    }
+
+    /**
+     * Relations in join order
+     */
+    public List<String> getJoinOrder() {
+        List<String> relations = new ArrayList<>(accesses.size());
+        for (Access access : accesses) {
+            relations.add(access.getRelation());
+        }
+        return relations;
+    }
+
+    @NotNull
+    public static FireBirdPlanSignature build(@NotNull Collection<? extends DBCPlanNode> nodes) {
+        FireBirdPlanSignature signature = new FireBirdPlanSignature();
+        signature.collect(nodes);
+        return signature;
+    }
+
+    private void collect(Collection<? extends DBCPlanNode> nodes) {
+        for (DBCPlanNode node : nodes) {
+            if (node instanceof FireBirdPlanNode && ((FireBirdPlanNode) node).getType() == FireBirdPlanNodeType.RELATION) {
+                FireBirdPlanNode planNode = (FireBirdPlanNode) node;
+                List<String> indexes = new ArrayList<>();
+                for (FireBirdPlanIndex index : planNode.getIndexes()) {
+                    indexes.add(index.getName());
+                }
+                accesses.add(new Access(
+                    planNode.getAliasChain() == null ? "" : planNode.getAliasChain(),
+                    planNode.getAccessMethod(),
+                    planNode.getOrderIndex() == null ? null : planNode.getOrderIndex().getName(),
+                    indexes));
+            } else if (node instanceof FireBirdExplainedPlanNode && "Table".equals(((FireBirdExplainedPlanNode) node).getOperation())) {
+                FireBirdExplainedPlanNode planNode = (FireBirdExplainedPlanNode) node;
+                List<String> lookupIndexes = new ArrayList<>();
+                List<String> orderIndexes = new ArrayList<>();
+                collectIndexes(planNode.getNested(), false, lookupIndexes, orderIndexes);
+                FireBirdPlanAccessMethod method;
+                if (!orderIndexes.isEmpty()) {
+                    method = FireBirdPlanAccessMethod.ORDER;
+                } else if (!lookupIndexes.isEmpty()) {
+                    method = FireBirdPlanAccessMethod.INDEX;
+                } else {
+                    method = FireBirdPlanAccessMethod.NATURAL;
+                }
+                accesses.add(new Access(
+                    planNode.getAlias() == null ? planNode.getRelationName() : planNode.getAlias(),
+                    method,
+                    orderIndexes.isEmpty() ? null : orderIndexes.get(0),
+                    lookupIndexes));
+                // Nested nodes of a table belong to its access path
+                continue;
+            }
+            collect(node.getNested());
+        }
+    }
+
+    /**
+     * Indexes under a bitmap are lookups, others are index navigation (ORDER)
+     */
+    private static void collectIndexes(Collection<FireBirdExplainedPlanNode> nodes, boolean bitmap, List<String> lookupIndexes, List<String> orderIndexes) {
+        for (FireBirdExplainedPlanNode node : nodes) {
+            if (node.getIndex() != null) {
+                (bitmap ? lookupIndexes : orderIndexes).add(node.getIndex().getName());
+            }
+            collectIndexes(node.getNested(), bitmap || node.getOperation().startsWith("Bitmap"), lookupIndexes, orderIndexes);
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (Access access : accesses) {
+            if (sb.length() > 0) {
+                sb.append(", ");
+            }
+            sb.append(access);
+        }
+        return sb.toString();
+    }
+}
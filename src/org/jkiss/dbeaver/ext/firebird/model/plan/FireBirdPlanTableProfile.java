@@ -0,0 +1,90 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2019 Serge Rider (serge@jkiss.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.ext.firebird.model.plan;
+
+import org.jkiss.dbeaver.model.meta.Property;
+
+/**
+ * Record operations on one table made by a profiled statement (MON$RECORD_STATS delta).
+ */
+public class FireBirdPlanTableProfile {
+
+	private final String tableName;
+	long sequentialReads;
+	long indexedReads;
+	long inserts;
+	long updates;
+	long deletes;
+
+	FireBirdPlanTableProfile(String tableName) {
+		this.tableName = tableName;
+	}
+
+	@Property(viewable = true, order = 1)
+	public String getTableName() {
+		return tableName;
+	}
+
+	/**
+	 * Records read by full scan (non-indexed reads)
+	 */
+	@Property(viewable = true, order = 2)
+	public long getSequentialReads() {
+		return sequentialReads;
+	}
+
+	@Property(viewable = true, order = 3)
+	public long getIndexedReads() {
+		return indexedReads;
+	}
+
+	@Property(viewable = true, order = 4)
+	public long getInserts() {
+		return inserts;
+	}
+
+	@Property(viewable = true, order = 5)
+	public long getUpdates() {
+		return updates;
+	}
+
+	@Property(viewable = true, order = 6)
+	public long getDeletes() {
+		return deletes;
+	}
+
+	public long getReads() {
+		return sequentialReads + indexedReads;
+	}
+
+	void subtract(FireBirdPlanTableProfile before) {
+		sequentialReads -= before.sequentialReads;
+		indexedReads -= before.indexedReads;
+		inserts -= before.inserts;
+		updates -= before.updates;
+		deletes -= before.deletes;
+	}
+
+	boolean isEmpty() {
+		return sequentialReads == 0 && indexedReads == 0 && inserts == 0 && updates == 0 && deletes == 0;
+	}
+
+	@Override
+	public String toString() {
+		return tableName + ": " + sequentialReads + " non-indexed, " + indexedReads + " indexed reads";
+	}
+}
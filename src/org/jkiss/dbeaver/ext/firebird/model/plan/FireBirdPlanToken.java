@@ -16,40 +16,39 @@
  */
 package org.jkiss.dbeaver.ext.firebird.model.plan;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
 /**
- * Describes each item of firebird plan as regular expression. Items are used
- * for construction of FireBirdPlanTokenMatcher.
+ * Describes each item of firebird plan. Keyword items keep their text,
+ * other items are recognized by FireBirdPlanTokenMatcher itself.
  *
  * @author tomashorak@post.cz
  */
 enum FireBirdPlanToken {
-	PLAN("\\GPLAN\\b"), 
-	JOIN("\\GJOIN\\b"), 
-	NATURAL("\\GNATURAL\\b"),
-	SORT_MERGE("\\GSORT\\w+MERGE\\b"),
-	SORT("\\GSORT\\b"), 
-	MERGE("\\GMERGE\\b"), 
-	HASH("\\GHASH\\b"),
-	ORDER("\\GORDER\\b"), 
-	INDEX("\\GINDEX\\b"), 
-	LEFTPARENTHESE("\\G\\("), 
-	RIGHTPARENTHESE("\\G\\)"),
-	COMMA("\\G,"),
-	WHITESPACE("\\G\\s+"),
-	IDENTIFICATOR("\\G\\b[\\w$]+\\b"),
-	UNRECOGNIZED("\\G\\b[^\\s]+\\b");
-    
-	private final Pattern pattern;
+	PLAN("PLAN"),
+	JOIN("JOIN"),
+	NATURAL("NATURAL"),
+	SORT_MERGE(null),
+	SORT("SORT"),
+	MERGE("MERGE"),
+	HASH("HASH"),
+	ORDER("ORDER"),
+	INDEX("INDEX"),
+	LEFTPARENTHESE(null),
+	RIGHTPARENTHESE(null),
+	COMMA(null),
+	WHITESPACE(null),
+	IDENTIFICATOR(null),
+	UNRECOGNIZED(null),
+	END(null);
+
+	static final FireBirdPlanToken[] KEYWORDS = { PLAN, JOIN, NATURAL, SORT, MERGE, HASH, ORDER, INDEX };
+
+	private final String keyword;
+
+	private FireBirdPlanToken(String keyword) {
+		this.keyword = keyword;
+	}
 
-    private FireBirdPlanToken(String regex) {
-        pattern = Pattern.compile(regex);
-    }
-    
-    public Matcher newMatcher(String text) {
-    	Matcher matcher = pattern.matcher(text);
-        return matcher;
-    }
-}
\ No newline at end of file
+	String getKeyword() {
+		return keyword;
+	}
+}
@@ -16,36 +16,26 @@
  */
 package org.jkiss.dbeaver.ext.firebird.model.plan;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.regex.Matcher;
-
 /**
  * Firebird plan token matcher helps to navigate through plan's text.
- * It can work with whatever's tokens, but is initialized with FireBirdPlan
- * tokens actually.
+ * Plan is scanned char by char in a single pass. Tokens are kept as offsets
+ * into the plan, token text is created only when it is requested.
  *
  * @author tomashorak@post.cz
  */
 class FireBirdPlanTokenMatcher {
 
-	private List<Matcher> matchers = new ArrayList<>(FireBirdPlanToken.values().length);
-	private Map<Matcher,FireBirdPlanToken> matchertokens = new HashMap<>(FireBirdPlanToken.values().length);
+	private final String subject;
+	private final int length;
 	private int position = 0;
 	FireBirdPlanToken token;
-	private String value;
-	private String subject;
+	private int tokenStart;
+	private int tokenEnd;
 	
 	public FireBirdPlanTokenMatcher(String subject) {
 		super();
 		this.subject = subject;
-		for (FireBirdPlanToken token: FireBirdPlanToken.values()) {
-			Matcher matcher = token.newMatcher(subject);
-			matchers.add(matcher);
-			matchertokens.put(matcher, token);
-		}
+		this.length = subject.length();
 	}
 
 	FireBirdPlanToken getToken() {
@@ -53,21 +43,59 @@ class FireBirdPlanTokenMatcher {
 	}
 
 	String getValue() {
-		return value;
+		if (token == FireBirdPlanToken.END) {
+			return "???";
+		}
+		return subject.substring(tokenStart, tokenEnd);
+	}
+
+	int getTokenStart() {
+		return tokenStart;
+	}
+
+	int getTokenEnd() {
+		return tokenEnd;
 	}
 
 	void find() {
-		for (Matcher matcher: matchers) {
-			if (matcher.find(position)) {
-				position = position + matcher.group().length();
-				token = matchertokens.get(matcher);
-				value = matcher.group();
-				return;
+		tokenStart = position;
+		if (position >= length) {
+			token = FireBirdPlanToken.END;
+			tokenEnd = position;
+			return;
+		}
+		char c = subject.charAt(position);
+		if (Character.isWhitespace(c)) {
+			position = skipWhitespace(position);
+			token = FireBirdPlanToken.WHITESPACE;
+		} else if (c == '(') {
+			position++;
+			token = FireBirdPlanToken.LEFTPARENTHESE;
+		} else if (c == ')') {
+			position++;
+			token = FireBirdPlanToken.RIGHTPARENTHESE;
+		} else if (c == ',') {
+			position++;
+			token = FireBirdPlanToken.COMMA;
+		} else if (isWordChar(c)) {
+			position = skipWord(position);
+			token = keyword(tokenStart, position);
+			if (token == FireBirdPlanToken.SORT) {
+				// SORT MERGE is a single token
+				int mergeStart = skipWhitespace(position);
+				int mergeEnd = skipWord(mergeStart);
+				if (mergeStart > position && keyword(mergeStart, mergeEnd) == FireBirdPlanToken.MERGE) {
+					position = mergeEnd;
+					token = FireBirdPlanToken.SORT_MERGE;
+				}
+			}
+		} else {
+			while (position < length && isUnrecognizedChar(subject.charAt(position))) {
+				position++;
 			}
+			token = FireBirdPlanToken.UNRECOGNIZED;
 		}
-		token = FireBirdPlanToken.IDENTIFICATOR;
-		value = "???";
-		return;
+		tokenEnd = position;
 	}
 	
 	void jump() {
@@ -85,11 +113,48 @@ class FireBirdPlanTokenMatcher {
 	
 	void raisePlanTokenException(FireBirdPlanToken expected, FireBirdPlanToken actual) throws FireBirdPlanException {
 		throw new FireBirdPlanException(expected.toString(), actual.toString(),
-				position - value.length(), subject);
+				tokenStart, subject);
 	}
 	
 	void raisePlanTokenException() throws FireBirdPlanException {
 		throw new FireBirdPlanException(token.toString(), 
-				position - value.length(), subject);
-	}			
-}
\ No newline at end of file
+				tokenStart, subject);
+	}
+
+	private FireBirdPlanToken keyword(int start, int end) {
+		int wordLength = end - start;
+		for (FireBirdPlanToken keyword : FireBirdPlanToken.KEYWORDS) {
+			String text = keyword.getKeyword();
+			if (text.length() == wordLength && subject.regionMatches(start, text, 0, wordLength)) {
+				return keyword;
+			}
+		}
+		// Old servers print SORT_MERGE-like words
+		if (wordLength > 9 && subject.startsWith("SORT", start) && subject.startsWith("MERGE", end - 5)) {
+			return FireBirdPlanToken.SORT_MERGE;
+		}
+		return FireBirdPlanToken.IDENTIFICATOR;
+	}
+
+	private int skipWhitespace(int from) {
+		while (from < length && Character.isWhitespace(subject.charAt(from))) {
+			from++;
+		}
+		return from;
+	}
+
+	private int skipWord(int from) {
+		while (from < length && isWordChar(subject.charAt(from))) {
+			from++;
+		}
+		return from;
+	}
+
+	private static boolean isWordChar(char c) {
+		return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '_' || c == '$';
+	}
+
+	private static boolean isUnrecognizedChar(char c) {
+		return !Character.isWhitespace(c) && !isWordChar(c) && c != '(' && c != ')' && c != ',';
+	}
+}
@@ -0,0 +1,326 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2019 Serge Rider (serge@jkiss.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.ext.firebird.model.plan;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Lightweight SQL tokenizer which finds relations of FROM/JOIN clauses and columns
+ * compared in WHERE/ON/HAVING conditions. It doesn't validate the query, unknown
+ * constructions are skipped.
+ */
+class FireBirdPredicateExtractor {
+
+    enum Kind {
+        /** Equality, IN or IS NULL (usable by any leading index segment) */
+        EQUALITY,
+        /** Range or prefix (usable by the last used index segment only) */
+        RANGE,
+        /** Join condition column */
+        JOIN
+    }
+
+    /**
+     * Column used by a condition
+     */
+    static class Predicate {
+        final String qualifier;
+        final String column;
+        final Kind kind;
+
+        Predicate(String qualifier, String column, Kind kind) {
+            this.qualifier = qualifier;
+            this.column = column;
+            this.kind = kind;
+        }
+
+        @Override
+        public String toString() {
+            return (qualifier == null ? "" : qualifier + ".") + column + " " + kind;
+        }
+    }
+
+    private static final Set<String> CLAUSE_KEYWORDS = new HashSet<>(Arrays.asList(
+        "SELECT", "FROM", "WHERE", "GROUP", "HAVING", "ORDER", "UNION", "JOIN", "ON", "ROWS", "FIRST", "SKIP",
+        "PLAN", "FOR", "INTO", "SET", "VALUES", "RETURNING", "WITH", "LEFT", "RIGHT", "FULL", "INNER", "OUTER",
+        "CROSS", "NATURAL", "USING", "WINDOW", "FETCH", "OFFSET", "MATCHING", "WHEN", "THEN", "ELSE", "END",
+        "AND", "OR", "NOT", "AS", "BY", "LIMIT", "UPDATE", "DELETE", "INSERT", "MERGE"));
+    private static final Set<String> EQUALITY_OPERATORS = new HashSet<>(Arrays.asList("=", "IN", "IS"));
+    private static final Set<String> RANGE_OPERATORS = new HashSet<>(Arrays.asList("<", ">", "<=", ">=", "BETWEEN", "STARTING", "LIKE"));
+
+    private final List<String> tokens = new ArrayList<>();
+    // Positions of quoted identifiers (they are never keywords)
+    private final Set<Integer> quotedTokens = new HashSet<>();
+    private final Map<String, String> relations = new LinkedHashMap<>();
+    private final List<Predicate> predicates = new ArrayList<>();
+
+    FireBirdPredicateExtractor(String query) {
+        tokenize(query);
+        extract();
+    }
+
+    /**
+     * Relation names by alias (relation without alias is mapped to itself)
+     */
+    Map<String, String> getRelations() {
+        return relations;
+    }
+
+    List<Predicate> getPredicates() {
+        return predicates;
+    }
+
+    private void tokenize(String query) {
+        int length = query.length();
+        int pos = 0;
+        while (pos < length) {
+            char c = query.charAt(pos);
+            if (Character.isWhitespace(c)) {
+                pos++;
+            } else if (c == '-' && query.startsWith("--", pos)) {
+                int end = query.indexOf('\n', pos);
+                pos = end < 0 ? length : end + 1;
+            } else if (c == '/' && query.startsWith("/*", pos)) {
+                int end = query.indexOf("*/", pos + 2);
+                pos = end < 0 ? length : end + 2;
+            } else if (c == '\'') {
+                pos = skipQuoted(query, pos, c);
+                tokens.add("'");
+            } else if (c == '"') {
+                int end = skipQuoted(query, pos, c);
+                // Quoted identifier keeps its case
+                quotedTokens.add(tokens.size());
+                tokens.add(query.substring(pos + 1, Math.max(pos + 1, end - 1)).replace("\"\"", "\""));
+                pos = end;
+            } else if (Character.isLetter(c) || c == '_') {
+                int end = pos;
+                while (end < length && (Character.isLetterOrDigit(query.charAt(end)) || query.charAt(end) == '_' || query.charAt(end) == '$')) {
+                    end++;
+                }
+                tokens.add(query.substring(pos, end).toUpperCase(Locale.ENGLISH));
+                pos = end;
+            } else if (Character.isDigit(c)) {
+                while (pos < length && (Character.isLetterOrDigit(query.charAt(pos)) || query.charAt(pos) == '.')) {
+                    pos++;
+                }
+                tokens.add("0");
+            } else if ((c == '<' || c == '>' || c == '!' || c == '^') && pos + 1 < length && (query.charAt(pos + 1) == '=' || query.charAt(pos + 1) == '>')) {
+                tokens.add(query.substring(pos, pos + 2));
+                pos += 2;
+            } else if (c == '|' && query.startsWith("||", pos)) {
+                tokens.add("||");
+                pos += 2;
+            } else {
+                tokens.add(String.valueOf(c));
+                pos++;
+            }
+        }
+    }
+
+    private static int skipQuoted(String text, int pos, char quote) {
+        pos++;
+        while (pos < text.length()) {
+            if (text.charAt(pos++) == quote) {
+                if (pos < text.length() && text.charAt(pos) == quote) {
+                    pos++;
+                } else {
+                    break;
+                }
+            }
+        }
+        return pos;
+    }
+
+    private void extract() {
+        boolean inCondition = false;
+        for (int i = 0; i < tokens.size(); i++) {
+            String token = quotedTokens.contains(i) ? "" : tokens.get(i);
+            switch (token) {
+                case "FROM":
+                case "JOIN":
+                case "UPDATE":
+                case "INTO":
+                    i = readRelations(i + 1, token.equals("FROM")) - 1;
+                    inCondition = false;
+                    break;
+                case "WHERE":
+                case "ON":
+                case "HAVING":
+                    inCondition = true;
+                    break;
+                case "SELECT":
+                case "GROUP":
+                case "ORDER":
+                case "SET":
+                case "RETURNING":
+                case "PLAN":
+                    inCondition = false;
+                    break;
+                default:
+                    if (inCondition) {
+                        readPredicate(i);
+                    }
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Reads relation list of FROM (comma separated) or single relation of JOIN/UPDATE/INTO.
+     * Returns position of the first token after relations.
+     */
+    private int readRelations(int pos, boolean list) {
+        while (pos < tokens.size()) {
+            String name = tokens.get(pos);
+            if (!isIdentifier(pos)) {
+                // Derived table or something else
+                return pos;
+            }
+            pos++;
+            String alias = name;
+            if (pos < tokens.size() && isKeyword(pos, "AS")) {
+                pos++;
+            }
+            if (pos < tokens.size() && isIdentifier(pos) && (quotedTokens.contains(pos) || !CLAUSE_KEYWORDS.contains(tokens.get(pos)))) {
+                alias = tokens.get(pos);
+                pos++;
+            }
+            relations.put(alias, name);
+            if (!list || pos >= tokens.size() || !tokens.get(pos).equals(",")) {
+                return pos;
+            }
+            pos++;
+        }
+        return pos;
+    }
+
+    private void readPredicate(int pos) {
+        String operator = quotedTokens.contains(pos) ? "" : tokens.get(pos);
+        Kind kind;
+        if (EQUALITY_OPERATORS.contains(operator)) {
+            kind = Kind.EQUALITY;
+        } else if (RANGE_OPERATORS.contains(operator)) {
+            kind = Kind.RANGE;
+        } else {
+            return;
+        }
+        int columnEnd = pos - 1;
+        if (columnEnd >= 0 && isKeyword(columnEnd, "NOT")) {
+            // NOT IN, NOT LIKE, NOT BETWEEN can't use index
+            return;
+        }
+        if (operator.equals("IS") && pos + 1 < tokens.size() && isKeyword(pos + 1, "NOT")) {
+            return;
+        }
+        Predicate left = readColumn(columnEnd);
+        if (left == null) {
+            return;
+        }
+        Predicate right = kind == Kind.EQUALITY && operator.equals("=") ? readColumnForward(pos + 1) : null;
+        if (right != null) {
+            predicates.add(new Predicate(left.qualifier, left.column, Kind.JOIN));
+            predicates.add(new Predicate(right.qualifier, right.column, Kind.JOIN));
+        } else {
+            predicates.add(new Predicate(left.qualifier, left.column, kind));
+        }
+    }
+
+    /**
+     * Reads column reference ending at pos (COLUMN or QUALIFIER.COLUMN)
+     */
+    private Predicate readColumn(int pos) {
+        if (pos < 0 || !isColumnName(pos)) {
+            return null;
+        }
+        String column = tokens.get(pos);
+        if (pos >= 2 && tokens.get(pos - 1).equals(".") && isIdentifier(pos - 2)) {
+            return new Predicate(tokens.get(pos - 2), column, null);
+        }
+        if (pos >= 1 && tokens.get(pos - 1).equals(".")) {
+            return null;
+        }
+        return new Predicate(null, column, null);
+    }
+
+    /**
+     * Reads column reference starting at pos, which must be followed by the end of the operand
+     */
+    private Predicate readColumnForward(int pos) {
+        if (pos >= tokens.size() || !isColumnName(pos)) {
+            return null;
+        }
+        int end = pos;
+        if (pos + 2 < tokens.size() && tokens.get(pos + 1).equals(".") && isColumnName(pos + 2)) {
+            end = pos + 2;
+        }
+        if (end + 1 < tokens.size()) {
+            String next = tokens.get(end + 1);
+            if (next.equals("(") || next.equals("||") || next.equals("+") || next.equals("-") || next.equals("*") || next.equals("/")) {
+                // Function call or expression
+                return null;
+            }
+        }
+        return end == pos ? new Predicate(null, tokens.get(pos), null) : new Predicate(tokens.get(pos), tokens.get(end), null);
+    }
+
+    /**
+     * Quoted name or a word which starts with a letter or underscore and contains letters, digits, '_' and '$' only
+     */
+    private boolean isIdentifier(int pos) {
+        String token = tokens.get(pos);
+        if (token.isEmpty()) {
+            return false;
+        }
+        if (quotedTokens.contains(pos)) {
+            return true;
+        }
+        char first = token.charAt(0);
+        if (!Character.isLetter(first) && first != '_') {
+            return false;
+        }
+        for (int i = 1; i < token.length(); i++) {
+            char c = token.charAt(i);
+            if (!Character.isLetterOrDigit(c) && c != '_' && c != '$') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isKeyword(int pos, String keyword) {
+        return !quotedTokens.contains(pos) && tokens.get(pos).equals(keyword);
+    }
+
+    private boolean isColumnName(int pos) {
+        if (!isIdentifier(pos)) {
+            return false;
+        }
+        if (quotedTokens.contains(pos)) {
+            return true;
+        }
+        String token = tokens.get(pos);
+        return !CLAUSE_KEYWORDS.contains(token) && !token.equals("NULL")
+            && !token.equals("CURRENT_DATE") && !token.equals("CURRENT_TIMESTAMP") && !token.equals("CURRENT_USER");
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2019 Serge Rider (serge@jkiss.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.ext.firebird.model.plan;
+
+import org.jkiss.dbeaver.model.exec.plan.DBCPlanNode;
+import org.jkiss.dbeaver.model.meta.Property;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Distinct statement of a workload with its plan and found issues.
+ */
+public class FireBirdWorkloadEntry {
+
+    private final String query;
+    private final String normalizedQuery;
+    private int occurrences;
+    private List<? extends DBCPlanNode> planNodes = Collections.emptyList();
+    private String planText;
+    private final List<FireBirdPlanIssue> issues = new ArrayList<>();
+    private String error;
+
+    FireBirdWorkloadEntry(String query, String normalizedQuery) {
+        this.query = query;
+        this.normalizedQuery = normalizedQuery;
+    }
+
+    /**
+     * First occurrence of the statement
+     */
+    @Property(viewable = true, order = 1)
+    public String getQuery() {
+        return query;
+    }
+
+    public String getNormalizedQuery() {
+        return normalizedQuery;
+    }
+
+    @Property(viewable = true, order = 2)
+    public int getOccurrences() {
+        return occurrences;
+    }
+
+    /**
+     * Sum of issue costs multiplied by the number of occurrences
+     */
+    @Property(viewable = true, order = 3)
+    public double getScore() {
+        double cost = 0;
+        for (FireBirdPlanIssue issue : issues) {
+            cost += issue.getCost();
+        }
+        return cost * occurrences;
+    }
+
+    @Property(viewable = true, order = 4)
+    public String getPlanText() {
+        return planText;
+    }
+
+    public List<? extends DBCPlanNode> getPlanNodes() {
+        return planNodes;
+    }
+
+    public List<FireBirdPlanIssue> getIssues() {
+        return issues;
+    }
+
+    /**
+     * Prepare error (null if the statement was prepared)
+     */
+    @Property(viewable = true, order = 5)
+    public String getError() {
+        return error;
+    }
+
+    void addOccurrence() {
+        occurrences++;
+    }
+
+    void setPlan(List<? extends DBCPlanNode> planNodes, String planText) {
+        this.planNodes = planNodes;
+        this.planText = planText;
+    }
+
+    void setError(String error) {
+        this.error = error;
+    }
+
+    @Override
+    public String toString() {
+        return query;
+    }
+}
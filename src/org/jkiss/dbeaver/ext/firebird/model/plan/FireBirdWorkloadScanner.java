@@ -0,0 +1,343 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2019 Serge Rider (serge@jkiss.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.ext.firebird.model.plan;
+
+import org.jkiss.code.NotNull;
+import org.jkiss.dbeaver.DBException;
+import org.jkiss.dbeaver.Log;
+import org.jkiss.dbeaver.ext.firebird.model.FireBirdDataSource;
+import org.jkiss.dbeaver.model.exec.DBCExecutionContext;
+import org.jkiss.dbeaver.model.exec.DBCExecutionPurpose;
+import org.jkiss.dbeaver.model.exec.jdbc.JDBCPreparedStatement;
+import org.jkiss.dbeaver.model.exec.jdbc.JDBCSession;
+import org.jkiss.dbeaver.model.exec.plan.DBCPlanNode;
+import org.jkiss.dbeaver.model.runtime.DBRProgressMonitor;
+import org.jkiss.dbeaver.model.runtime.VoidProgressMonitor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Plans all distinct statements of a workload (SQL script or captured statements)
+ * and ranks them by problems found in their plans.
+ * Statements are only prepared, never executed. Each worker uses its own read-only attachment.
+ */
+public class FireBirdWorkloadScanner {
+
+    private static final Log LOG = Log.getLog(FireBirdWorkloadScanner.class);
+
+    public static final int DEFAULT_THREADS = 2;
+
+    /** Error of statements which were not planned (scan canceled or connection failed) */
+    public static final String NOT_PLANNED = "Not planned";
+
+    private static final String[] PLANNED_STATEMENTS = { "SELECT", "WITH", "INSERT", "UPDATE", "DELETE", "MERGE", "EXECUTE" };
+
+    private final FireBirdDataSource dataSource;
+    private final int threads;
+    private double largeRelationRows = FireBirdPlanInspector.DEFAULT_LARGE_RELATION_ROWS;
+    private double lowSelectivity = FireBirdPlanInspector.DEFAULT_LOW_SELECTIVITY;
+
+    public FireBirdWorkloadScanner(@NotNull FireBirdDataSource dataSource, int threads) {
+        this.dataSource = dataSource;
+        this.threads = Math.max(1, threads);
+    }
+
+    public void setLargeRelationRows(double largeRelationRows) {
+        this.largeRelationRows = largeRelationRows;
+    }
+
+    public void setLowSelectivity(double lowSelectivity) {
+        this.lowSelectivity = lowSelectivity;
+    }
+
+    /**
+     * Scans all statements of SQL script
+     */
+    @NotNull
+    public List<FireBirdWorkloadEntry> scanScript(@NotNull DBRProgressMonitor monitor, @NotNull String script) {
+        return scan(monitor, splitScript(script));
+    }
+
+    /**
+     * Scans statements and returns distinct ones ordered by score (worst first)
+     */
+    @NotNull
+    public List<FireBirdWorkloadEntry> scan(@NotNull DBRProgressMonitor monitor, @NotNull Collection<String> statements) {
+        Map<String, FireBirdWorkloadEntry> entries = new LinkedHashMap<>();
+        for (String statement : statements) {
+            String query = stripLeadingComments(statement);
+            if (!isPlanned(query)) {
+                continue;
+            }
+            String normalizedQuery = FireBirdPlanCache.normalizeQuery(query);
+            FireBirdWorkloadEntry entry = entries.get(normalizedQuery);
+            if (entry == null) {
+                entry = new FireBirdWorkloadEntry(query, normalizedQuery);
+                entries.put(normalizedQuery, entry);
+            }
+            entry.addOccurrence();
+        }
+
+        Queue<FireBirdWorkloadEntry> tasks = new ConcurrentLinkedQueue<>(entries.values());
+        int poolSize = Math.max(1, Math.min(threads, tasks.size()));
+        ExecutorService executor = Executors.newFixedThreadPool(poolSize, runnable -> {
+            Thread thread = new Thread(runnable, "Firebird workload scanner");
+            thread.setDaemon(true);
+            return thread;
+        });
+        monitor.beginTask("Plan " + entries.size() + " statements", entries.size());
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int i = 0; i < poolSize; i++) {
+                workers.add(executor.submit(() -> runWorker(monitor, tasks)));
+            }
+            for (Future<?> worker : workers) {
+                try {
+                    worker.get();
+                } catch (ExecutionException e) {
+                    LOG.debug("Workload scanner worker failed", e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdownNow();
+            monitor.done();
+        }
+
+        List<FireBirdWorkloadEntry> result = new ArrayList<>(entries.values());
+        for (FireBirdWorkloadEntry entry : result) {
+            if (entry.getPlanText() == null && entry.getError() == null) {
+                // Canceled or worker connection failed: must not look like a clean statement
+                entry.setError(NOT_PLANNED);
+            }
+        }
+        // Statements with errors go before clean ones of the same score
+        result.sort((e1, e2) -> {
+            int cmp = Double.compare(e2.getScore(), e1.getScore());
+            return cmp != 0 ? cmp : Boolean.compare(e2.getError() != null, e1.getError() != null);
+        });
+        return result;
+    }
+
+    private void runWorker(DBRProgressMonitor mainMonitor, Queue<FireBirdWorkloadEntry> tasks) {
+        if (tasks.isEmpty()) {
+            return;
+        }
+        DBRProgressMonitor monitor = new VoidProgressMonitor();
+        DBCExecutionContext context;
+        try {
+            context = dataSource.getDefaultInstance().openIsolatedContext(monitor, "Workload scanner");
+        } catch (DBException e) {
+            LOG.debug("Can't open workload scanner connection", e);
+            return;
+        }
+        FireBirdPlanInspector inspector = new FireBirdPlanInspector(dataSource.getIndexStatisticsCache());
+        inspector.setLargeRelationRows(largeRelationRows);
+        inspector.setLowSelectivity(lowSelectivity);
+        try (JDBCSession session = (JDBCSession) context.openSession(monitor, DBCExecutionPurpose.UTIL, "Plan workload")) {
+            session.getOriginal().setReadOnly(true);
+            FireBirdWorkloadEntry entry;
+            while (!mainMonitor.isCanceled() && (entry = tasks.poll()) != null) {
+                try (JDBCPreparedStatement dbStat = session.prepareStatement(entry.getQuery())) {
+                    List<? extends DBCPlanNode> nodes = FireBirdPlanAnalyser.buildPlan(dataSource, session, dbStat);
+                    entry.setPlan(nodes, getPlanText(nodes));
+                    entry.getIssues().addAll(inspector.inspect(session, nodes, entry.getQuery()));
+                } catch (SQLException | DBException e) {
+                    entry.setError(e.getMessage());
+                }
+                synchronized (mainMonitor) {
+                    mainMonitor.worked(1);
+                }
+            }
+        } catch (SQLException e) {
+            LOG.debug("Error in workload scanner connection", e);
+        } finally {
+            context.close();
+        }
+    }
+
+    private static String stripLeadingComments(String statement) {
+        String query = statement.trim();
+        while (true) {
+            if (query.startsWith("--")) {
+                int end = query.indexOf('\n');
+                query = end < 0 ? "" : query.substring(end + 1).trim();
+            } else if (query.startsWith("/*")) {
+                int end = query.indexOf("*/");
+                query = end < 0 ? "" : query.substring(end + 2).trim();
+            } else {
+                return query;
+            }
+        }
+    }
+
+    private static boolean isPlanned(String query) {
+        int end = 0;
+        while (end < query.length() && Character.isLetter(query.charAt(end))) {
+            end++;
+        }
+        String keyword = query.substring(0, end).toUpperCase(Locale.ENGLISH);
+        for (String statement : PLANNED_STATEMENTS) {
+            if (statement.equals(keyword)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Plan as text: legacy plan lines or indented explained plan
+     */
+    @NotNull
+    static String getPlanText(@NotNull Collection<? extends DBCPlanNode> nodes) {
+        StringBuilder text = new StringBuilder();
+        appendPlanText(text, nodes, 0);
+        return text.toString().trim();
+    }
+
+    private static void appendPlanText(StringBuilder text, Collection<? extends DBCPlanNode> nodes, int level) {
+        for (DBCPlanNode node : nodes) {
+            if (node instanceof FireBirdPlanNode && ((FireBirdPlanNode) node).getType() == FireBirdPlanNodeType.PLAN) {
+                // Root of legacy plan contains the whole plan line
+                text.append(node.getNodeDescription()).append('\n');
+                continue;
+            }
+            for (int i = 0; i < level; i++) {
+                text.append("    ");
+            }
+            text.append(node.getNodeDescription()).append('\n');
+            appendPlanText(text, node.getNested(), level + 1);
+        }
+    }
+
+    /**
+     * Splits SQL script into statements. Handles quotes, comments and SET TERM.
+     */
+    @NotNull
+    public static List<String> splitScript(@NotNull String script) {
+        List<String> statements = new ArrayList<>();
+        String terminator = ";";
+        int length = script.length();
+        int start = 0;
+        int pos = 0;
+        while (pos < length) {
+            char c = script.charAt(pos);
+            if (c == '\'' || c == '"') {
+                pos = skipQuoted(script, pos, c);
+            } else if (c == '-' && script.startsWith("--", pos)) {
+                int end = script.indexOf('\n', pos);
+                pos = end < 0 ? length : end + 1;
+            } else if (c == '/' && script.startsWith("/*", pos)) {
+                int end = script.indexOf("*/", pos + 2);
+                pos = end < 0 ? length : end + 2;
+            } else if (script.startsWith(terminator, pos)) {
+                String statement = script.substring(start, pos).trim();
+                pos += terminator.length();
+                start = pos;
+                String newTerminator = getNewTerminator(statement);
+                if (newTerminator != null) {
+                    terminator = newTerminator;
+                } else if (!statement.isEmpty()) {
+                    statements.add(statement);
+                }
+            } else {
+                pos++;
+            }
+        }
+        String statement = script.substring(start).trim();
+        if (!statement.isEmpty() && getNewTerminator(statement) == null) {
+            statements.add(statement);
+        }
+        return statements;
+    }
+
+    private static String getNewTerminator(String statement) {
+        String[] words = statement.trim().split("\\s+");
+        if (words.length == 3 && words[0].equalsIgnoreCase("SET") && words[1].equalsIgnoreCase("TERM")) {
+            return words[2];
+        }
+        return null;
+    }
+
+    private static int skipQuoted(String text, int pos, char quote) {
+        pos++;
+        while (pos < text.length()) {
+            if (text.charAt(pos++) == quote) {
+                if (pos < text.length() && text.charAt(pos) == quote) {
+                    pos++;
+                } else {
+                    break;
+                }
+            }
+        }
+        return pos;
+    }
+
+    /**
+     * Writes ranked report as CSV
+     */
+    public static void exportCsv(@NotNull List<FireBirdWorkloadEntry> entries, @NotNull Writer writer) throws IOException {
+        writer.write("Rank,Score,Occurrences,Issues,Plan,Query,Error\n");
+        int rank = 1;
+        for (FireBirdWorkloadEntry entry : entries) {
+            StringBuilder issues = new StringBuilder();
+            for (FireBirdPlanIssue issue : entry.getIssues()) {
+                if (issues.length() > 0) {
+                    issues.append("; ");
+                }
+                issues.append(issue);
+            }
+            writer.write(String.valueOf(rank++));
+            writer.write(',');
+            writer.write(String.format(Locale.ENGLISH, "%.0f", entry.getScore()));
+            writer.write(',');
+            writer.write(String.valueOf(entry.getOccurrences()));
+            writer.write(',');
+            writer.write(quoteCsv(issues.toString()));
+            writer.write(',');
+            writer.write(quoteCsv(entry.getPlanText()));
+            writer.write(',');
+            writer.write(quoteCsv(entry.getQuery()));
+            writer.write(',');
+            writer.write(quoteCsv(entry.getError()));
+            writer.write('\n');
+        }
+        writer.flush();
+    }
+
+    private static String quoteCsv(String value) {
+        if (value == null) {
+            return "";
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
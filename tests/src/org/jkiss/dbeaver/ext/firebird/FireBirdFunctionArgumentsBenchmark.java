@@ -0,0 +1,118 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2019 Serge Rider (serge@jkiss.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.ext.firebird;
+
+import org.jkiss.dbeaver.ext.firebird.model.FireBirdFunctionArgument;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares reading function signatures with a query per function against the single
+ * grouped query. Runs against a Firebird 3+ database given by the firebird.url, firebird.user
+ * and firebird.password system properties. Generated functions are dropped after the run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FireBirdFunctionArgumentsBenchmark {
+
+    private static final String FUNCTION_PREFIX = "BENCH_FN_";
+
+    @Param({"3000"})
+    public int functionCount;
+
+    private Connection connection;
+    private List<String> functionNames;
+
+    @Setup
+    public void setup() throws SQLException {
+        connection = DriverManager.getConnection(
+            System.getProperty("firebird.url", "jdbc:firebirdsql://localhost:3050/benchmark"),
+            System.getProperty("firebird.user", "SYSDBA"),
+            System.getProperty("firebird.password", "masterkey"));
+        connection.setAutoCommit(false);
+        try (Statement dbStat = connection.createStatement()) {
+            for (int i = 0; i < functionCount; i++) {
+                dbStat.execute("CREATE OR ALTER FUNCTION " + FUNCTION_PREFIX + i +
+                    " (ID INTEGER, NAME VARCHAR(" + (20 + i % 10) + "), AMOUNT NUMERIC(15,2), CREATED TIMESTAMP)" +
+                    " RETURNS " + (i % 2 == 0 ? "INTEGER" : "VARCHAR(100)") +
+                    " AS BEGIN RETURN " + (i % 2 == 0 ? "ID" : "NAME") + "; END");
+                if (i % 500 == 499) {
+                    connection.commit();
+                }
+            }
+        }
+        connection.commit();
+        functionNames = new ArrayList<>();
+        try (Statement dbStat = connection.createStatement();
+             ResultSet dbResult = dbStat.executeQuery("SELECT TRIM(RDB$FUNCTION_NAME) FROM RDB$FUNCTIONS WHERE RDB$PACKAGE_NAME IS NULL")) {
+            while (dbResult.next()) {
+                functionNames.add(dbResult.getString(1));
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        try (Statement dbStat = connection.createStatement()) {
+            for (int i = 0; i < functionCount; i++) {
+                dbStat.execute("DROP FUNCTION " + FUNCTION_PREFIX + i);
+            }
+        }
+        connection.commit();
+        connection.close();
+    }
+
+    /**
+     * Former loader: arguments query is executed for each function
+     */
+    @Benchmark
+    public Map<String, List<FireBirdFunctionArgument>> queryPerFunction() throws SQLException {
+        Map<String, List<FireBirdFunctionArgument>> result = new HashMap<>();
+        String query = FireBirdUtils.getFunctionArgumentsQuery(true);
+        for (String functionName : functionNames) {
+            try (PreparedStatement dbStat = connection.prepareStatement(query)) {
+                dbStat.setString(1, functionName);
+                try (ResultSet dbResult = dbStat.executeQuery()) {
+                    FireBirdUtils.readFunctionArguments(dbResult, result);
+                }
+            }
+        }
+        connection.commit();
+        return result;
+    }
+
+    @Benchmark
+    public Map<String, List<FireBirdFunctionArgument>> singleQuery() throws SQLException {
+        Map<String, List<FireBirdFunctionArgument>> result = new HashMap<>();
+        try (PreparedStatement dbStat = connection.prepareStatement(FireBirdUtils.getFunctionArgumentsQuery(false));
+             ResultSet dbResult = dbStat.executeQuery()) {
+            FireBirdUtils.readFunctionArguments(dbResult, result);
+        }
+        connection.commit();
+        return result;
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2019 Serge Rider (serge@jkiss.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.ext.firebird;
+
+import org.jkiss.dbeaver.ext.firebird.model.FireBirdFunctionArgument;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+public class FireBirdUtilsTest {
+
+    @Test
+    public void testFunctionArgumentsQuery() {
+        Assert.assertTrue(FireBirdUtils.getFunctionArgumentsQuery(true).contains("pp.RDB$FUNCTION_NAME = ?"));
+        Assert.assertFalse(FireBirdUtils.getFunctionArgumentsQuery(false).contains("?"));
+    }
+
+    @Test
+    public void testReadFunctionArguments() throws SQLException {
+        Map<String, List<FireBirdFunctionArgument>> arguments = new HashMap<>();
+        FireBirdUtils.readFunctionArguments(resultSet(
+            new Object[] {"ADD_TAX                        ", "", 0, "numeric"},
+            new Object[] {"ADD_TAX                        ", "AMOUNT   ", 1, "numeric"},
+            new Object[] {"ADD_TAX                        ", "RATE", 2, "TYPE OF COLUMN TAXES.RATE"},
+            new Object[] {null, "", 0, "integer"},
+            new Object[] {"NOW_UTC", "", 0, "date  "}
+        ), arguments);
+
+        Assert.assertEquals(2, arguments.size());
+        Assert.assertEquals("[ numeric, AMOUNT numeric, RATE TYPE OF COLUMN TAXES.RATE]", arguments.get("ADD_TAX").toString());
+        Assert.assertEquals(Arrays.asList(0, 1, 2), positions(arguments.get("ADD_TAX")));
+        Assert.assertEquals("[ date]", arguments.get("NOW_UTC").toString());
+    }
+
+    private static List<Integer> positions(List<FireBirdFunctionArgument> arguments) {
+        Integer[] positions = new Integer[arguments.size()];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = arguments.get(i).getPosition();
+        }
+        return Arrays.asList(positions);
+    }
+
+    /**
+     * Result set of the function arguments query columns used by readFunctionArguments
+     */
+    private static ResultSet resultSet(Object[]... rows) {
+        List<String> columns = Arrays.asList("RDB$FUNCTION_NAME", "RDB$ARGUMENT_NAME", "RDB$ARGUMENT_POSITION", "argtype");
+        Iterator<Object[]> iterator = Arrays.asList(rows).iterator();
+        Object[][] current = new Object[1][];
+        return (ResultSet) Proxy.newProxyInstance(FireBirdUtilsTest.class.getClassLoader(), new Class[] {ResultSet.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "next":
+                    current[0] = iterator.hasNext() ? iterator.next() : null;
+                    return current[0] != null;
+                case "getString":
+                    Object value = current[0][columns.indexOf((String) args[0])];
+                    return value == null ? null : value.toString();
+                case "getInt":
+                    return current[0][columns.indexOf((String) args[0])];
+                case "wasNull":
+                    return false;
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2019 Serge Rider (serge@jkiss.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.ext.firebird.model;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+public class FireBirdGeneratorTrackerTest {
+
+    @Test
+    public void testFindAssignedColumns() {
+        String source =
+            "AS\n" +
+            "BEGIN\n" +
+            "  IF (NEW.id IS NULL) THEN NEW.id = GEN_ID(GEN_EMP_ID, 1);\n" +
+            "  NEW.\"Order No\" = NEXT VALUE FOR gen_emp_id;\n" +
+            "  NEW.CODE := gen_id( \"GEN_EMP_ID\" , 1);\n" +
+            "  NEW.OTHER = GEN_ID(GEN_EMP_ID_2, 1);\n" +
+            "END";
+        Assert.assertEquals(Arrays.asList("ID", "Order No", "CODE"),
+            FireBirdGeneratorTracker.findAssignedColumns(source, "GEN_EMP_ID"));
+        Assert.assertEquals(Collections.singletonList("OTHER"),
+            FireBirdGeneratorTracker.findAssignedColumns(source, "GEN_EMP_ID_2"));
+        Assert.assertEquals(Collections.emptyList(),
+            FireBirdGeneratorTracker.findAssignedColumns(source, "GEN_DEPT_ID"));
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2019 Serge Rider (serge@jkiss.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.ext.firebird.model;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class FireBirdStatisticsDriftDetectorTest {
+
+    @Test
+    public void testFullSample() {
+        List<Object[]> sample = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            sample.add(new Object[] {i % 10, i % 4, "X"});
+        }
+        Assert.assertEquals(10, FireBirdStatisticsDriftDetector.estimateDistinct(sample, new int[] {0}, 100), 0);
+        Assert.assertEquals(1, FireBirdStatisticsDriftDetector.estimateDistinct(sample, new int[] {2}, 100), 0);
+        // Compound key: i % 10 and i % 4 repeat every 20 rows
+        Assert.assertEquals(20, FireBirdStatisticsDriftDetector.estimateDistinct(sample, new int[] {0, 1}, 100), 0);
+    }
+
+    @Test
+    public void testPartialSample() {
+        List<Object[]> sample = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            sample.add(new Object[] {i});
+        }
+        // Singletons are scaled by sqrt(total / sample size)
+        Assert.assertEquals(1000, FireBirdStatisticsDriftDetector.estimateDistinct(sample, new int[] {0}, 10000), 0.001);
+        Assert.assertEquals(Math.sqrt(10) * 100, FireBirdStatisticsDriftDetector.estimateDistinct(sample, new int[] {0}, 1000), 0.001);
+
+        sample.clear();
+        for (int i = 0; i < 100; i++) {
+            sample.add(new Object[] {i % 5});
+        }
+        // No singletons: only the values seen are counted
+        Assert.assertEquals(5, FireBirdStatisticsDriftDetector.estimateDistinct(sample, new int[] {0}, 10000), 0);
+    }
+}
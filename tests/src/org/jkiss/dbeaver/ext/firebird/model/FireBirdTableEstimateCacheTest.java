@@ -0,0 +1,60 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2019 Serge Rider (serge@jkiss.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.ext.firebird.model;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class FireBirdTableEstimateCacheTest {
+
+    // 8K page holds 1920 data page slots of a pointer page, 8160 bytes of records
+    private static final int PAGE_SIZE = 8192;
+
+    @Test
+    public void testIndexRowCount() {
+        FireBirdTableEstimate estimate = FireBirdTableEstimateCache.makeEstimate("ORDERS", PAGE_SIZE, 3, 0.000001, 100, 25L);
+        Assert.assertEquals(Long.valueOf(1000000), estimate.getRowCount());
+        Assert.assertTrue(estimate.isRowCountFromIndex());
+        // Declared length would need 14706 pages, but 3 pointer pages address at most 5760
+        Assert.assertEquals(5760, estimate.getDataPages());
+        Assert.assertEquals(Long.valueOf(326400), estimate.getPageRowCount());
+        Assert.assertEquals(5760.0 * 8160 / 1000000, estimate.getAverageRecordSize(), 0.0001);
+        Assert.assertEquals(Long.valueOf(25), estimate.getNetInserts());
+    }
+
+    @Test
+    public void testPageRowCount() {
+        FireBirdTableEstimate estimate = FireBirdTableEstimateCache.makeEstimate("LOG", PAGE_SIZE, 3, 0, 100, null);
+        Assert.assertFalse(estimate.isRowCountFromIndex());
+        Assert.assertEquals(4800, estimate.getDataPages());
+        Assert.assertEquals(Long.valueOf(326400), estimate.getRowCount());
+        Assert.assertEquals(120, estimate.getAverageRecordSize(), 0.0001);
+    }
+
+    @Test
+    public void testSmallTable() {
+        FireBirdTableEstimate estimate = FireBirdTableEstimateCache.makeEstimate("CONFIG", PAGE_SIZE, 1, 0, 100, null);
+        Assert.assertNull(estimate.getRowCount());
+        Assert.assertEquals(1, estimate.getDataPages());
+        Assert.assertEquals(120, estimate.getAverageRecordSize(), 0.0001);
+
+        estimate = FireBirdTableEstimateCache.makeEstimate("EMPTY", PAGE_SIZE, 0, 0, 0, null);
+        Assert.assertNull(estimate.getRowCount());
+        Assert.assertEquals(0, estimate.getDataPages());
+        Assert.assertNull(estimate.getAverageRecordSize());
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2019 Serge Rider (serge@jkiss.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.ext.firebird.model;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class FireBirdTraceParserTest {
+
+    private static final String[] TRACE = {
+        "2019-11-20T10:15:30.1230 (2840:0x7f1a2c) PREPARE_STATEMENT",
+        "\t/data/employee.fdb (ATT_12, SYSDBA:NONE, UTF8, TCPv4:127.0.0.1/50214)",
+        "",
+        "Statement 41:",
+        "-------------------------------------------------------------------------------",
+        "SELECT 1 FROM RDB$DATABASE",
+        "     0 ms",
+        "",
+        "2019-11-20T10:15:30.4560 (2840:0x7f1a2c) EXECUTE_STATEMENT_FINISH",
+        "\t/data/employee.fdb (ATT_12, SYSDBA:NONE, UTF8, TCPv4:127.0.0.1/50214)",
+        "\t\t(TRA_77, CONCURRENCY | WAIT | READ_WRITE)",
+        "",
+        "Statement 42:",
+        "-------------------------------------------------------------------------------",
+        "SELECT *",
+        "FROM EMPLOYEE",
+        "^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^",
+        "PLAN (EMPLOYEE NATURAL)",
+        "42 records fetched",
+        "     15 ms, 3 read(s), 120 fetch(es)",
+        "",
+        "Table                             Natural     Index    Update    Insert    Delete",
+        "*********************************************************************************",
+        "EMPLOYEE                               42",
+        "",
+        "2019-11-20T10:15:31.0010 (2840:0x7f1a2c) FAILED EXECUTE_STATEMENT_FINISH",
+        "",
+        "Statement 43:",
+        "-------------------------------------------------------------------------------",
+        "UPDATE EMPLOYEE SET SALARY = SALARY * 2",
+        "param0 = integer, \"1\"",
+        "      7 ms, 1 read(s), 2 write(s), 30 fetch(es), 4 mark(s)",
+    };
+
+    @Test
+    public void testStatements() {
+        List<String> events = new ArrayList<>();
+        FireBirdTraceParser parser = new FireBirdTraceParser((sqlText, duration, reads, writes, fetches, marks) ->
+            events.add(sqlText + "|" + duration + "|" + reads + "|" + writes + "|" + fetches + "|" + marks));
+        for (String line : TRACE) {
+            parser.consumeLine(line);
+        }
+        // The last event is reported at the end of the input
+        Assert.assertEquals(1, events.size());
+        parser.finish();
+        Assert.assertEquals(2, events.size());
+        Assert.assertEquals("SELECT *\nFROM EMPLOYEE|15|3|0|120|0", events.get(0));
+        Assert.assertEquals("UPDATE EMPLOYEE SET SALARY = SALARY * 2|7|1|2|30|4", events.get(1));
+    }
+
+    @Test
+    public void testIncompleteEvent() {
+        List<String> events = new ArrayList<>();
+        FireBirdTraceParser parser = new FireBirdTraceParser((sqlText, duration, reads, writes, fetches, marks) -> events.add(sqlText));
+        // Event without performance counters is not reported
+        for (int i = 8; i < 18; i++) {
+            parser.consumeLine(TRACE[i]);
+        }
+        parser.finish();
+        Assert.assertTrue(events.isEmpty());
+    }
+}
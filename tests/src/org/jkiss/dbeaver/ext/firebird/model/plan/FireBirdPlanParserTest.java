@@ -0,0 +1,112 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2019 Serge Rider (serge@jkiss.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.ext.firebird.model.plan;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class FireBirdPlanParserTest {
+
+	@Test
+	public void testSimplePlan() throws FireBirdPlanException {
+		FireBirdPlanParser parser = new FireBirdPlanParser("PLAN (V1 EMPLOYEE NATURAL, DEPARTMENT INDEX (RDB$PRIMARY5))");
+		FireBirdPlanNode root = parser.parse();
+		Assert.assertEquals(FireBirdPlanNodeType.PLAN, root.getType());
+		List<FireBirdPlanNode> relations = root.getRelationNodes();
+		Assert.assertEquals(2, relations.size());
+		Assert.assertEquals(Arrays.asList("V1", "EMPLOYEE"), relations.get(0).getAliases());
+		Assert.assertEquals("EMPLOYEE", relations.get(0).getRelationName());
+		Assert.assertEquals(FireBirdPlanAccessMethod.NATURAL, relations.get(0).getAccessMethod());
+		Assert.assertEquals(FireBirdPlanAccessMethod.INDEX, relations.get(1).getAccessMethod());
+		Assert.assertEquals(Arrays.asList("RDB$PRIMARY5"), indexNames(parser.getIndexes()));
+	}
+
+	@Test
+	public void testNestedJoinSortHash() throws FireBirdPlanException {
+		FireBirdPlanParser parser = new FireBirdPlanParser(
+				"PLAN SORT (JOIN (HASH (A NATURAL, B INDEX (B_PK)), C ORDER C_ORD INDEX (C_FK1, C_FK2)))");
+		FireBirdPlanNode root = parser.parse();
+		Assert.assertEquals("PLAN(SORT(JOIN(HASH(A,B),C)))", shape(root));
+		FireBirdPlanNode c = root.getRelationNodes().get(2);
+		Assert.assertEquals(FireBirdPlanAccessMethod.ORDER, c.getAccessMethod());
+		Assert.assertEquals("C_ORD", c.getOrderIndex().getName());
+		Assert.assertEquals(Arrays.asList("C_FK1", "C_FK2"), indexNames(c.getIndexes()));
+		Assert.assertEquals(Arrays.asList("B_PK", "C_ORD", "C_FK1", "C_FK2"), indexNames(parser.getIndexes()));
+	}
+
+	@Test
+	public void testNestedMerge() throws FireBirdPlanException {
+		Assert.assertEquals("PLAN(SORT MERGE(SORT(A),SORT(JOIN(B,C))))",
+				shape(new FireBirdPlanParser("PLAN SORT MERGE (SORT (A NATURAL), SORT (JOIN (B NATURAL, C INDEX (C_PK))))").parse()));
+		Assert.assertEquals("PLAN(MERGE(SORT(A),SORT(B)))",
+				shape(new FireBirdPlanParser("PLAN MERGE (SORT (A NATURAL), SORT (B NATURAL))").parse()));
+		Assert.assertEquals("PLAN(JOIN(SORT(A),JOIN(B,HASH(C,D))))",
+				shape(new FireBirdPlanParser("PLAN JOIN (SORT (A NATURAL), JOIN (B NATURAL, HASH (C NATURAL, D NATURAL)))").parse()));
+		Assert.assertEquals("PLAN(A,JOIN(B,C))",
+				shape(new FireBirdPlanParser("PLAN (A NATURAL, JOIN (B NATURAL, C NATURAL))").parse()));
+	}
+
+	@Test
+	public void testErrors() {
+		assertParseError("PLAN (A NATURAL", "expected RIGHTPARENTHESE");
+		assertParseError("PLAN (A NATURAL))", "expected END");
+		assertParseError("PLAN JOIN (A NATURAL, B INDEX (B_PK", "expected RIGHTPARENTHESE");
+		assertParseError("PLAN SORT (A NATURAL", "expected RIGHTPARENTHESE");
+		assertParseError("PLAN MERGE (A NATURAL)", "expected SORT");
+		assertParseError("PLAN (A FULL)", "unexpected token");
+	}
+
+	private static void assertParseError(String plan, String message) {
+		try {
+			new FireBirdPlanParser(plan).parse();
+			Assert.fail("Plan must not be parsed: " + plan);
+		} catch (FireBirdPlanException e) {
+			Assert.assertTrue(e.getMessage(), e.getMessage().contains(message));
+		}
+	}
+
+	private static List<String> indexNames(List<FireBirdPlanIndex> indexes) {
+		List<String> names = new ArrayList<>();
+		for (FireBirdPlanIndex index : indexes) {
+			names.add(index.getName());
+		}
+		return names;
+	}
+
+	/**
+	 * Node tree as text: operators with their nested nodes, relations by name
+	 */
+	private static String shape(FireBirdPlanNode node) {
+		if (node.getType() == FireBirdPlanNodeType.RELATION) {
+			return node.getRelationName();
+		}
+		StringBuilder text = new StringBuilder(node.getType().getTitle()).append('(');
+		boolean first = true;
+		for (FireBirdPlanNode nested : node.getNested()) {
+			if (!first) {
+				text.append(',');
+			}
+			text.append(shape(nested));
+			first = false;
+		}
+		return text.append(')').toString();
+	}
+}
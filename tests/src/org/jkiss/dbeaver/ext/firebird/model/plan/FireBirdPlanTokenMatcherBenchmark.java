@@ -0,0 +1,161 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2019 Serge Rider (serge@jkiss.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.ext.firebird.model.plan;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compares the single-pass plan lexer with the former regex tokenizer
+ * on plans of reporting queries and procedures.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class FireBirdPlanTokenMatcherBenchmark {
+
+	private static final String[] PLANS = {
+		"PLAN (EMPLOYEE NATURAL)",
+		"PLAN JOIN (E INDEX (RDB$FOREIGN8), D INDEX (RDB$PRIMARY5))",
+		"PLAN SORT (JOIN (HASH (C NATURAL, O INDEX (FK_ORDERS_CUSTOMER)), I ORDER PK_ITEMS INDEX (FK_ITEMS_ORDER, IDX_ITEMS_DATE)))",
+		"PLAN SORT MERGE (SORT (JOIN (A NATURAL, B INDEX (B_PK))), SORT (V_SALES SALES INDEX (IDX_SALES_DATE, IDX_SALES_REGION)))",
+		"PLAN (RDB$RELATIONS INDEX (RDB$INDEX_0), RDB$RELATION_FIELDS INDEX (RDB$INDEX_4, RDB$INDEX_15))",
+	};
+
+	/**
+	 * Plan lines as printed for one query, the last one is a multi-kilobyte procedure plan
+	 */
+	private List<String> corpus;
+
+	@Setup
+	public void setup() {
+		corpus = new ArrayList<>();
+		for (String plan : PLANS) {
+			corpus.add(plan);
+		}
+		StringBuilder plan = new StringBuilder("PLAN SORT (JOIN (");
+		for (int i = 0; i < 100; i++) {
+			if (i > 0) {
+				plan.append(", ");
+			}
+			plan.append(i % 3 == 0 ? "HASH (" : "JOIN (")
+				.append("T").append(i).append(" NATURAL, ")
+				.append("REPORT_VIEW_").append(i).append(" R").append(i)
+				.append(" INDEX (FK_R").append(i).append("_T, IDX_R").append(i).append("_DATE))");
+		}
+		plan.append("))");
+		corpus.add(plan.toString());
+	}
+
+	@Benchmark
+	public void lexer(Blackhole blackhole) {
+		for (String plan : corpus) {
+			FireBirdPlanTokenMatcher matcher = new FireBirdPlanTokenMatcher(plan);
+			do {
+				matcher.jump();
+				blackhole.consume(matcher.getToken());
+				blackhole.consume(matcher.getValue());
+			} while (matcher.getToken() != FireBirdPlanToken.END);
+		}
+	}
+
+	@Benchmark
+	public void regex(Blackhole blackhole) {
+		for (String plan : corpus) {
+			RegexTokenMatcher matcher = new RegexTokenMatcher(plan);
+			while (matcher.jump()) {
+				blackhole.consume(matcher.token);
+				blackhole.consume(matcher.value);
+			}
+		}
+	}
+
+	/**
+	 * Former tokenizer: each token is searched by all token patterns in turn
+	 */
+	private static class RegexTokenMatcher {
+
+		private static final String[] TOKENS = {
+			"PLAN", "JOIN", "NATURAL", "SORT_MERGE", "SORT", "MERGE", "HASH", "ORDER", "INDEX",
+			"LEFTPARENTHESE", "RIGHTPARENTHESE", "COMMA", "WHITESPACE", "IDENTIFICATOR", "UNRECOGNIZED"
+		};
+		private static final Pattern[] PATTERNS = {
+			Pattern.compile("\\GPLAN\\b"),
+			Pattern.compile("\\GJOIN\\b"),
+			Pattern.compile("\\GNATURAL\\b"),
+			Pattern.compile("\\GSORT\\w+MERGE\\b"),
+			Pattern.compile("\\GSORT\\b"),
+			Pattern.compile("\\GMERGE\\b"),
+			Pattern.compile("\\GHASH\\b"),
+			Pattern.compile("\\GORDER\\b"),
+			Pattern.compile("\\GINDEX\\b"),
+			Pattern.compile("\\G\\("),
+			Pattern.compile("\\G\\)"),
+			Pattern.compile("\\G,"),
+			Pattern.compile("\\G\\s+"),
+			Pattern.compile("\\G\\b[\\w$]+\\b"),
+			Pattern.compile("\\G\\b[^\\s]+\\b"),
+		};
+
+		private final Matcher[] matchers = new Matcher[PATTERNS.length];
+		private final int length;
+		private int position;
+		String token;
+		String value;
+
+		RegexTokenMatcher(String subject) {
+			for (int i = 0; i < PATTERNS.length; i++) {
+				matchers[i] = PATTERNS[i].matcher(subject);
+			}
+			length = subject.length();
+		}
+
+		boolean jump() {
+			do {
+				if (!find()) {
+					return false;
+				}
+			} while (token.equals("WHITESPACE"));
+			return true;
+		}
+
+		private boolean find() {
+			if (position >= length) {
+				return false;
+			}
+			for (int i = 0; i < matchers.length; i++) {
+				Matcher matcher = matchers[i];
+				if (matcher.find(position)) {
+					position += matcher.group().length();
+					token = TOKENS[i];
+					value = matcher.group();
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+}
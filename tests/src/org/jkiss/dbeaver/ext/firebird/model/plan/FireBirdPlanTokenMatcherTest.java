@@ -0,0 +1,67 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2019 Serge Rider (serge@jkiss.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.ext.firebird.model.plan;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class FireBirdPlanTokenMatcherTest {
+
+	@Test
+	public void testTokens() {
+		Assert.assertEquals(
+				Arrays.asList("PLAN", "JOIN", "LEFTPARENTHESE", "IDENTIFICATOR", "NATURAL", "COMMA",
+						"IDENTIFICATOR", "INDEX", "LEFTPARENTHESE", "IDENTIFICATOR", "COMMA", "IDENTIFICATOR",
+						"RIGHTPARENTHESE", "RIGHTPARENTHESE", "END"),
+				tokens("PLAN JOIN (A NATURAL, RDB$B INDEX (B_PK,B_FK2))"));
+		Assert.assertEquals(
+				Arrays.asList("PLAN", "SORT_MERGE", "LEFTPARENTHESE", "SORT", "LEFTPARENTHESE", "IDENTIFICATOR",
+						"NATURAL", "RIGHTPARENTHESE", "RIGHTPARENTHESE", "END"),
+				tokens("PLAN SORT  MERGE (SORT (A NATURAL))"));
+		// Old servers print SORT_MERGE without the space
+		Assert.assertEquals(Arrays.asList("SORT_MERGE", "END"), tokens("SORT_MERGE"));
+		// Keywords are whole words only
+		Assert.assertEquals(Arrays.asList("IDENTIFICATOR", "IDENTIFICATOR", "IDENTIFICATOR", "END"),
+				tokens("PLANS SORTED INDEX_1"));
+		Assert.assertEquals(Arrays.asList("SORT", "UNRECOGNIZED", "END"), tokens("SORT #!"));
+	}
+
+	@Test
+	public void testTokenValues() {
+		FireBirdPlanTokenMatcher matcher = new FireBirdPlanTokenMatcher("PLAN (EMPLOYEE INDEX (RDB$PRIMARY7))");
+		List<String> values = new ArrayList<>();
+		for (matcher.jump(); matcher.getToken() != FireBirdPlanToken.END; matcher.jump()) {
+			values.add(matcher.getValue());
+		}
+		Assert.assertEquals(Arrays.asList("PLAN", "(", "EMPLOYEE", "INDEX", "(", "RDB$PRIMARY7", ")", ")"), values);
+		Assert.assertEquals("???", matcher.getValue());
+	}
+
+	private static List<String> tokens(String plan) {
+		FireBirdPlanTokenMatcher matcher = new FireBirdPlanTokenMatcher(plan);
+		List<String> tokens = new ArrayList<>();
+		do {
+			matcher.jump();
+			tokens.add(matcher.getToken().name());
+		} while (matcher.getToken() != FireBirdPlanToken.END);
+		return tokens;
+	}
+}
@@ -0,0 +1,47 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2019 Serge Rider (serge@jkiss.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jkiss.dbeaver.ext.firebird.model.plan;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+public class FireBirdWorkloadScannerTest {
+
+    @Test
+    public void testSplitScript() {
+        Assert.assertEquals(Arrays.asList("SELECT 1 FROM RDB$DATABASE", "SELECT 2 FROM RDB$DATABASE"),
+            FireBirdWorkloadScanner.splitScript("SELECT 1 FROM RDB$DATABASE;\n\n  SELECT 2 FROM RDB$DATABASE  "));
+        Assert.assertEquals(Arrays.asList("SELECT ';' FROM T WHERE \"A;B\" = 'it''s;'"),
+            FireBirdWorkloadScanner.splitScript("SELECT ';' FROM T WHERE \"A;B\" = 'it''s;';"));
+        Assert.assertEquals(Arrays.asList("SELECT A -- first;\nFROM T", "/* ; */ SELECT B FROM T"),
+            FireBirdWorkloadScanner.splitScript("SELECT A -- first;\nFROM T;\n/* ; */ SELECT B FROM T;;"));
+    }
+
+    @Test
+    public void testSetTerm() {
+        Assert.assertEquals(Arrays.asList(
+                "CREATE PROCEDURE P AS BEGIN UPDATE T SET A = 1; END",
+                "SELECT * FROM T"),
+            FireBirdWorkloadScanner.splitScript(
+                "SET TERM ^ ;\n" +
+                "CREATE PROCEDURE P AS BEGIN UPDATE T SET A = 1; END^\n" +
+                "SET TERM ; ^\n" +
+                "SELECT * FROM T;"));
+    }
+}